@@ -24,8 +24,11 @@ CREATE TABLE IF NOT EXISTS `Article` (
   `JournalPublisherLocation` VARCHAR(5000) NULL,
   `Source` VARCHAR(500) NULL,
   `SpecId` VARCHAR(500) NULL,
-  `PlainText` LONGTEXT NULL,
-  PRIMARY KEY (`idArticle`))
+  `PlainText` LONGBLOB NULL,
+  `ContentHash` CHAR(40) NULL,
+  PRIMARY KEY (`idArticle`),
+  INDEX `PMCID_idx` (`PMCID` ASC),
+  INDEX `SpecId_idx` (`SpecId`(100) ASC))
 ENGINE = InnoDB;
 
 
@@ -74,6 +77,63 @@ CREATE TABLE IF NOT EXISTS `ArtTable` (
 ENGINE = InnoDB;
 
 
+-- -----------------------------------------------------
+-- Table `TableHeader`
+-- -----------------------------------------------------
+DROP TABLE IF EXISTS `TableHeader` ;
+
+CREATE TABLE IF NOT EXISTS `TableHeader` (
+  `Table_idTable` INT NOT NULL,
+  `Ordinal` INT NOT NULL,
+  `Value` VARCHAR(5000) NULL,
+  PRIMARY KEY (`Table_idTable`, `Ordinal`),
+  INDEX `fk_TableHeader_Table1_idx` (`Table_idTable` ASC),
+  CONSTRAINT `fk_TableHeader_Table1`
+    FOREIGN KEY (`Table_idTable`)
+    REFERENCES `ArtTable` (`idTable`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `TableStub`
+-- -----------------------------------------------------
+DROP TABLE IF EXISTS `TableStub` ;
+
+CREATE TABLE IF NOT EXISTS `TableStub` (
+  `Table_idTable` INT NOT NULL,
+  `Ordinal` INT NOT NULL,
+  `Value` VARCHAR(5000) NULL,
+  PRIMARY KEY (`Table_idTable`, `Ordinal`),
+  INDEX `fk_TableStub_Table1_idx` (`Table_idTable` ASC),
+  CONSTRAINT `fk_TableStub_Table1`
+    FOREIGN KEY (`Table_idTable`)
+    REFERENCES `ArtTable` (`idTable`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `TableSuperRow`
+-- -----------------------------------------------------
+DROP TABLE IF EXISTS `TableSuperRow` ;
+
+CREATE TABLE IF NOT EXISTS `TableSuperRow` (
+  `Table_idTable` INT NOT NULL,
+  `Ordinal` INT NOT NULL,
+  `Value` VARCHAR(5000) NULL,
+  PRIMARY KEY (`Table_idTable`, `Ordinal`),
+  INDEX `fk_TableSuperRow_Table1_idx` (`Table_idTable` ASC),
+  CONSTRAINT `fk_TableSuperRow_Table1`
+    FOREIGN KEY (`Table_idTable`)
+    REFERENCES `ArtTable` (`idTable`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+
 -- -----------------------------------------------------
 -- Table `Cell`
 -- -----------------------------------------------------
@@ -90,9 +150,9 @@ CREATE TABLE IF NOT EXISTS `Cell` (
   `StubRef` VARCHAR(200) NULL,
   `SuperRowRef` VARCHAR(200) NULL,
   `Content` VARCHAR(5000) NULL,
-  `WholeHeader` VARCHAR(5000) NULL,
-  `WholeStub` VARCHAR(5000) NULL,
-  `WholeSuperRow` VARCHAR(5000) NULL,
+  `HeaderOrdinal` INT NULL,
+  `StubOrdinal` INT NULL,
+  `SuperRowOrdinal` INT NULL,
   PRIMARY KEY (`idCell`),
   INDEX `fk_Cell_Table1_idx` (`Table_idTable` ASC),
   CONSTRAINT `fk_Cell_Table1`
@@ -141,31 +201,71 @@ ENGINE = InnoDB;
 
 
 -- -----------------------------------------------------
--- Table `Annotation`
+-- Table `Concept`
 -- -----------------------------------------------------
-DROP TABLE IF EXISTS `Annotation` ;
+DROP TABLE IF EXISTS `Concept` ;
 
-CREATE TABLE IF NOT EXISTS `Annotation` (
-  `idAnnotation` INT NOT NULL AUTO_INCREMENT,
-  `Content` VARCHAR(1000) NULL,
-  `Start` INT NULL,
-  `End` INT NULL,
+CREATE TABLE IF NOT EXISTS `Concept` (
+  `idConcept` INT NOT NULL AUTO_INCREMENT,
+  `Hash` CHAR(40) NOT NULL,
   `AnnotationID` VARCHAR(500) NULL,
-  `AnnotationSchemaVersion` VARCHAR(500) NULL,
-  `AnnotationDescription` VARCHAR(1500) NULL,
   `AnnotationURL` VARCHAR(1000) NULL,
-  `AgentName` VARCHAR(500) NULL,
+  `AnnotationDescription` VARCHAR(1500) NULL,
+  PRIMARY KEY (`idConcept`),
+  UNIQUE INDEX `Hash_UNIQUE` (`Hash` ASC))
+ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `AnnotationProvenance`
+-- -----------------------------------------------------
+DROP TABLE IF EXISTS `AnnotationProvenance` ;
+
+CREATE TABLE IF NOT EXISTS `AnnotationProvenance` (
+  `idProvenance` INT NOT NULL AUTO_INCREMENT,
+  `Hash` CHAR(40) NOT NULL,
   `AgentType` VARCHAR(45) NULL,
+  `AgentName` VARCHAR(500) NULL,
   `EnvironmentDescription` VARCHAR(1000) NULL,
-  `DateOfAction` DATETIME NULL,
+  `AnnotationSchemaVersion` VARCHAR(500) NULL,
   `Location` VARCHAR(500) NULL,
+  `DateOfAction` DATETIME NULL,
+  PRIMARY KEY (`idProvenance`),
+  UNIQUE INDEX `Hash_UNIQUE` (`Hash` ASC))
+ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `CellAnnotation`
+-- -----------------------------------------------------
+DROP TABLE IF EXISTS `CellAnnotation` ;
+
+CREATE TABLE IF NOT EXISTS `CellAnnotation` (
+  `idAnnotation` INT NOT NULL AUTO_INCREMENT,
+  `Content` VARCHAR(1000) NULL,
+  `Start` INT NULL,
+  `End` INT NULL,
   `Cell_idCell` INT NOT NULL,
+  `Concept_idConcept` INT NOT NULL,
+  `Provenance_idProvenance` INT NOT NULL,
   PRIMARY KEY (`idAnnotation`),
-  INDEX `fk_Annotation_Cell1_idx` (`Cell_idCell` ASC),
-  CONSTRAINT `fk_Annotation_Cell1`
+  INDEX `fk_CellAnnotation_Cell1_idx` (`Cell_idCell` ASC),
+  INDEX `fk_CellAnnotation_Concept1_idx` (`Concept_idConcept` ASC),
+  INDEX `fk_CellAnnotation_Provenance1_idx` (`Provenance_idProvenance` ASC),
+  CONSTRAINT `fk_CellAnnotation_Cell1`
     FOREIGN KEY (`Cell_idCell`)
     REFERENCES `Cell` (`idCell`)
     ON DELETE NO ACTION
+    ON UPDATE NO ACTION,
+  CONSTRAINT `fk_CellAnnotation_Concept1`
+    FOREIGN KEY (`Concept_idConcept`)
+    REFERENCES `Concept` (`idConcept`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION,
+  CONSTRAINT `fk_CellAnnotation_Provenance1`
+    FOREIGN KEY (`Provenance_idProvenance`)
+    REFERENCES `AnnotationProvenance` (`idProvenance`)
+    ON DELETE NO ACTION
     ON UPDATE NO ACTION)
 ENGINE = InnoDB;
 
@@ -219,7 +319,7 @@ CREATE TABLE IF NOT EXISTS `OriginalArticle` (
   `PMID` VARCHAR(45) NULL,
   `pissn` VARCHAR(45) NULL,
   `eissn` VARCHAR(45) NULL,
-  `xml` LONGTEXT NULL,
+  `xml` LONGBLOB NULL,
   `Article_idArticle` INT NOT NULL,
   PRIMARY KEY (`idOriginalArticle`),
   UNIQUE INDEX `idOriginalArticle_UNIQUE` (`idOriginalArticle` ASC),
@@ -232,6 +332,77 @@ CREATE TABLE IF NOT EXISTS `OriginalArticle` (
 ENGINE = InnoDB;
 
 
+-- -----------------------------------------------------
+-- Table `IdSequence`
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `IdSequence` (
+  `Name` VARCHAR(64) NOT NULL,
+  `NextId` BIGINT NOT NULL,
+  PRIMARY KEY (`Name`))
+ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `BackfillCheckpoint`
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `BackfillCheckpoint` (
+  `Job` VARCHAR(100) NOT NULL,
+  `LastCellId` INT NOT NULL,
+  `CellsDone` BIGINT NOT NULL DEFAULT 0,
+  `Updated` DATETIME NULL,
+  PRIMARY KEY (`Job`))
+ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- View `Annotation`
+-- Annotations with their concept and provenance, in the columns of the former Annotation table
+-- -----------------------------------------------------
+DROP VIEW IF EXISTS `Annotation` ;
+
+CREATE VIEW `Annotation` AS
+SELECT a.`idAnnotation`, a.`Content`, a.`Start`, a.`End`, c.`AnnotationID`, p.`AnnotationSchemaVersion`,
+  c.`AnnotationDescription`, c.`AnnotationURL`, p.`AgentName`, p.`AgentType`, p.`EnvironmentDescription`,
+  p.`DateOfAction`, p.`Location`, a.`Cell_idCell`
+FROM `CellAnnotation` a
+  JOIN `Concept` c ON c.`idConcept` = a.`Concept_idConcept`
+  JOIN `AnnotationProvenance` p ON p.`idProvenance` = a.`Provenance_idProvenance`;
+
+
+-- -----------------------------------------------------
+-- View `CellWithPaths`
+-- Cells with whole header, stub and super-row, in the columns of the former Cell table
+-- -----------------------------------------------------
+DROP VIEW IF EXISTS `CellWithPaths` ;
+
+CREATE VIEW `CellWithPaths` AS
+SELECT c.`idCell`, c.`CellID`, c.`CellType`, c.`Table_idTable`, c.`RowN`, c.`ColumnN`, c.`HeaderRef`,
+  c.`StubRef`, c.`SuperRowRef`, c.`Content`, h.`Value` AS `WholeHeader`, s.`Value` AS `WholeStub`,
+  r.`Value` AS `WholeSuperRow`
+FROM `Cell` c
+  LEFT JOIN `TableHeader` h ON h.`Table_idTable` = c.`Table_idTable` AND h.`Ordinal` = c.`HeaderOrdinal`
+  LEFT JOIN `TableStub` s ON s.`Table_idTable` = c.`Table_idTable` AND s.`Ordinal` = c.`StubOrdinal`
+  LEFT JOIN `TableSuperRow` r ON r.`Table_idTable` = c.`Table_idTable` AND r.`Ordinal` = c.`SuperRowOrdinal`;
+
+
+-- -----------------------------------------------------
+-- View `ArticleText`
+-- Plain text and XML of articles, decompressed (values archived outside the database are NULL)
+-- -----------------------------------------------------
+DROP VIEW IF EXISTS `ArticleText` ;
+
+CREATE VIEW `ArticleText` AS
+SELECT a.`idArticle`, a.`PMCID`, a.`SpecId`,
+  CASE WHEN LEFT(a.`PlainText`, 2) = 0x0001 THEN CONVERT(UNCOMPRESS(SUBSTRING(a.`PlainText`, 3)) USING utf8)
+    WHEN LEFT(a.`PlainText`, 2) = 0x0002 THEN NULL
+    ELSE CONVERT(a.`PlainText` USING utf8) END AS `PlainText`,
+  CASE WHEN LEFT(o.`xml`, 2) = 0x0001 THEN CONVERT(UNCOMPRESS(SUBSTRING(o.`xml`, 3)) USING utf8)
+    WHEN LEFT(o.`xml`, 2) = 0x0002 THEN NULL
+    ELSE CONVERT(o.`xml` USING utf8) END AS `xml`
+FROM `Article` a
+  LEFT JOIN `OriginalArticle` o ON o.`Article_idArticle` = a.`idArticle`;
+
+
 SET SQL_MODE=@OLD_SQL_MODE;
 SET FOREIGN_KEY_CHECKS=@OLD_FOREIGN_KEY_CHECKS;
 SET UNIQUE_CHECKS=@OLD_UNIQUE_CHECKS;
@@ -0,0 +1,90 @@
+-- MySQL Script that moves annotations of an existing Table Annotator database from table Annotation
+-- to CellAnnotation, with concepts (Concept) and provenance (AnnotationProvenance) stored once.
+-- Table Annotation is renamed to AnnotationBeforeProvenance and replaced by view Annotation with the
+-- same columns. Drop AnnotationBeforeProvenance after checking the view.
+--
+-- Hashes are SHA-1 of the values joined with tabs (\N for null), as computed by AnnotationDictionary.
+--
+SET @OLD_UNIQUE_CHECKS=@@UNIQUE_CHECKS, UNIQUE_CHECKS=0;
+SET @OLD_FOREIGN_KEY_CHECKS=@@FOREIGN_KEY_CHECKS, FOREIGN_KEY_CHECKS=0;
+
+CREATE TABLE IF NOT EXISTS `Concept` (
+  `idConcept` INT NOT NULL AUTO_INCREMENT,
+  `Hash` CHAR(40) NOT NULL,
+  `AnnotationID` VARCHAR(500) NULL,
+  `AnnotationURL` VARCHAR(1000) NULL,
+  `AnnotationDescription` VARCHAR(1500) NULL,
+  PRIMARY KEY (`idConcept`),
+  UNIQUE INDEX `Hash_UNIQUE` (`Hash` ASC))
+ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS `AnnotationProvenance` (
+  `idProvenance` INT NOT NULL AUTO_INCREMENT,
+  `Hash` CHAR(40) NOT NULL,
+  `AgentType` VARCHAR(45) NULL,
+  `AgentName` VARCHAR(500) NULL,
+  `EnvironmentDescription` VARCHAR(1000) NULL,
+  `AnnotationSchemaVersion` VARCHAR(500) NULL,
+  `Location` VARCHAR(500) NULL,
+  `DateOfAction` DATETIME NULL,
+  PRIMARY KEY (`idProvenance`),
+  UNIQUE INDEX `Hash_UNIQUE` (`Hash` ASC))
+ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS `CellAnnotation` (
+  `idAnnotation` INT NOT NULL AUTO_INCREMENT,
+  `Content` VARCHAR(1000) NULL,
+  `Start` INT NULL,
+  `End` INT NULL,
+  `Cell_idCell` INT NOT NULL,
+  `Concept_idConcept` INT NOT NULL,
+  `Provenance_idProvenance` INT NOT NULL,
+  PRIMARY KEY (`idAnnotation`),
+  INDEX `fk_CellAnnotation_Cell1_idx` (`Cell_idCell` ASC),
+  INDEX `fk_CellAnnotation_Concept1_idx` (`Concept_idConcept` ASC),
+  INDEX `fk_CellAnnotation_Provenance1_idx` (`Provenance_idProvenance` ASC),
+  CONSTRAINT `fk_CellAnnotation_Cell1`
+    FOREIGN KEY (`Cell_idCell`)
+    REFERENCES `Cell` (`idCell`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION,
+  CONSTRAINT `fk_CellAnnotation_Concept1`
+    FOREIGN KEY (`Concept_idConcept`)
+    REFERENCES `Concept` (`idConcept`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION,
+  CONSTRAINT `fk_CellAnnotation_Provenance1`
+    FOREIGN KEY (`Provenance_idProvenance`)
+    REFERENCES `AnnotationProvenance` (`idProvenance`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+INSERT IGNORE INTO `Concept` (`Hash`, `AnnotationID`, `AnnotationURL`, `AnnotationDescription`)
+SELECT SHA1(CONCAT_WS(CHAR(9), IFNULL(`AnnotationID`,'\\N'), IFNULL(`AnnotationURL`,'\\N'), IFNULL(`AnnotationDescription`,'\\N'))),
+  `AnnotationID`, `AnnotationURL`, `AnnotationDescription`
+FROM `Annotation`;
+
+INSERT IGNORE INTO `AnnotationProvenance` (`Hash`, `AgentType`, `AgentName`, `EnvironmentDescription`, `AnnotationSchemaVersion`, `Location`, `DateOfAction`)
+SELECT SHA1(CONCAT_WS(CHAR(9), IFNULL(`AgentType`,'\\N'), IFNULL(`AgentName`,'\\N'), IFNULL(`EnvironmentDescription`,'\\N'), IFNULL(`AnnotationSchemaVersion`,'\\N'), IFNULL(`Location`,'\\N'), IFNULL(DATE_FORMAT(`DateOfAction`,'%Y-%m-%d'),'\\N'))),
+  `AgentType`, `AgentName`, `EnvironmentDescription`, `AnnotationSchemaVersion`, `Location`, DATE(`DateOfAction`)
+FROM `Annotation`;
+
+INSERT INTO `CellAnnotation` (`idAnnotation`, `Content`, `Start`, `End`, `Cell_idCell`, `Concept_idConcept`, `Provenance_idProvenance`)
+SELECT a.`idAnnotation`, a.`Content`, a.`Start`, a.`End`, a.`Cell_idCell`, c.`idConcept`, p.`idProvenance`
+FROM `Annotation` a
+  JOIN `Concept` c ON c.`Hash` = SHA1(CONCAT_WS(CHAR(9), IFNULL(a.`AnnotationID`,'\\N'), IFNULL(a.`AnnotationURL`,'\\N'), IFNULL(a.`AnnotationDescription`,'\\N')))
+  JOIN `AnnotationProvenance` p ON p.`Hash` = SHA1(CONCAT_WS(CHAR(9), IFNULL(a.`AgentType`,'\\N'), IFNULL(a.`AgentName`,'\\N'), IFNULL(a.`EnvironmentDescription`,'\\N'), IFNULL(a.`AnnotationSchemaVersion`,'\\N'), IFNULL(a.`Location`,'\\N'), IFNULL(DATE_FORMAT(a.`DateOfAction`,'%Y-%m-%d'),'\\N')));
+
+RENAME TABLE `Annotation` TO `AnnotationBeforeProvenance`;
+
+CREATE VIEW `Annotation` AS
+SELECT a.`idAnnotation`, a.`Content`, a.`Start`, a.`End`, c.`AnnotationID`, p.`AnnotationSchemaVersion`,
+  c.`AnnotationDescription`, c.`AnnotationURL`, p.`AgentName`, p.`AgentType`, p.`EnvironmentDescription`,
+  p.`DateOfAction`, p.`Location`, a.`Cell_idCell`
+FROM `CellAnnotation` a
+  JOIN `Concept` c ON c.`idConcept` = a.`Concept_idConcept`
+  JOIN `AnnotationProvenance` p ON p.`idProvenance` = a.`Provenance_idProvenance`;
+
+SET FOREIGN_KEY_CHECKS=@OLD_FOREIGN_KEY_CHECKS;
+SET UNIQUE_CHECKS=@OLD_UNIQUE_CHECKS;
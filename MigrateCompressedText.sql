@@ -0,0 +1,26 @@
+-- MySQL Script that changes Article.PlainText and OriginalArticle.xml of an existing Table Annotator
+-- database to LONGBLOB, for values written by ContentCodec (-databasecompress, -databasearchive). The bytes
+-- of the stored text are kept, and text without a codec marker is still read as UTF-8 text.
+--
+-- The UPDATE statements at the end compress the values saved before in the DEFLATE format of ContentCodec
+-- (codec marker 0x0001 followed by MySQL COMPRESS()); they may be left out.
+--
+ALTER TABLE `Article` MODIFY `PlainText` LONGBLOB NULL;
+ALTER TABLE `OriginalArticle` MODIFY `xml` LONGBLOB NULL;
+
+CREATE VIEW `ArticleText` AS
+SELECT a.`idArticle`, a.`PMCID`, a.`SpecId`,
+  CASE WHEN LEFT(a.`PlainText`, 2) = 0x0001 THEN CONVERT(UNCOMPRESS(SUBSTRING(a.`PlainText`, 3)) USING utf8)
+    WHEN LEFT(a.`PlainText`, 2) = 0x0002 THEN NULL
+    ELSE CONVERT(a.`PlainText` USING utf8) END AS `PlainText`,
+  CASE WHEN LEFT(o.`xml`, 2) = 0x0001 THEN CONVERT(UNCOMPRESS(SUBSTRING(o.`xml`, 3)) USING utf8)
+    WHEN LEFT(o.`xml`, 2) = 0x0002 THEN NULL
+    ELSE CONVERT(o.`xml` USING utf8) END AS `xml`
+FROM `Article` a
+  LEFT JOIN `OriginalArticle` o ON o.`Article_idArticle` = a.`idArticle`;
+
+UPDATE `Article` SET `PlainText` = CONCAT(0x0001, COMPRESS(`PlainText`))
+WHERE LENGTH(`PlainText`) > 0 AND LEFT(`PlainText`, 1) <> 0x00;
+
+UPDATE `OriginalArticle` SET `xml` = CONCAT(0x0001, COMPRESS(`xml`))
+WHERE LENGTH(`xml`) > 0 AND LEFT(`xml`, 1) <> 0x00;
@@ -0,0 +1,9 @@
+-- MySQL Script that prepares an existing Table Annotator database for saving with -databaseincremental.
+-- Adds Article.ContentHash (SHA-1 of the file an article was read from) and indexes on PMCID and SpecId,
+-- by which saved articles are found and replaced. Articles saved before have no hash; the first incremental
+-- run replaces them once.
+--
+ALTER TABLE `Article`
+  ADD COLUMN `ContentHash` CHAR(40) NULL AFTER `PlainText`,
+  ADD INDEX `PMCID_idx` (`PMCID` ASC),
+  ADD INDEX `SpecId_idx` (`SpecId`(100) ASC);
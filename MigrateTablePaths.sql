@@ -0,0 +1,95 @@
+-- MySQL Script that moves whole headers, stubs and super-rows of cells of an existing Table Annotator
+-- database from columns of Cell to tables TableHeader, TableStub and TableSuperRow, where every distinct
+-- value of a table is stored once and numbered (Ordinal). Cell refers to them by HeaderOrdinal, StubOrdinal
+-- and SuperRowOrdinal; view CellWithPaths has the former columns of Cell.
+--
+-- Values are compared by SHA-1, so values that differ only in case or trailing spaces stay distinct. A value
+-- is numbered by the first cell that has it (ordinals of new tables are numbered from 1 by the saver).
+--
+SET @OLD_UNIQUE_CHECKS=@@UNIQUE_CHECKS, UNIQUE_CHECKS=0;
+SET @OLD_FOREIGN_KEY_CHECKS=@@FOREIGN_KEY_CHECKS, FOREIGN_KEY_CHECKS=0;
+
+ALTER TABLE `Cell`
+  ADD COLUMN `HeaderOrdinal` INT NULL AFTER `WholeSuperRow`,
+  ADD COLUMN `StubOrdinal` INT NULL AFTER `HeaderOrdinal`,
+  ADD COLUMN `SuperRowOrdinal` INT NULL AFTER `StubOrdinal`;
+
+CREATE TABLE IF NOT EXISTS `TableHeader` (
+  `Table_idTable` INT NOT NULL,
+  `Ordinal` INT NOT NULL,
+  `Value` VARCHAR(5000) NULL,
+  PRIMARY KEY (`Table_idTable`, `Ordinal`),
+  INDEX `fk_TableHeader_Table1_idx` (`Table_idTable` ASC),
+  CONSTRAINT `fk_TableHeader_Table1`
+    FOREIGN KEY (`Table_idTable`)
+    REFERENCES `ArtTable` (`idTable`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+INSERT INTO `TableHeader` (`Table_idTable`, `Ordinal`, `Value`)
+SELECT `Table_idTable`, MIN(`idCell`), MIN(`WholeHeader`) FROM `Cell` WHERE `WholeHeader` IS NOT NULL
+GROUP BY `Table_idTable`, SHA1(`WholeHeader`);
+
+UPDATE `Cell` c
+  JOIN `TableHeader` p ON p.`Table_idTable` = c.`Table_idTable` AND SHA1(p.`Value`) = SHA1(c.`WholeHeader`)
+SET c.`HeaderOrdinal` = p.`Ordinal`;
+
+CREATE TABLE IF NOT EXISTS `TableStub` (
+  `Table_idTable` INT NOT NULL,
+  `Ordinal` INT NOT NULL,
+  `Value` VARCHAR(5000) NULL,
+  PRIMARY KEY (`Table_idTable`, `Ordinal`),
+  INDEX `fk_TableStub_Table1_idx` (`Table_idTable` ASC),
+  CONSTRAINT `fk_TableStub_Table1`
+    FOREIGN KEY (`Table_idTable`)
+    REFERENCES `ArtTable` (`idTable`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+INSERT INTO `TableStub` (`Table_idTable`, `Ordinal`, `Value`)
+SELECT `Table_idTable`, MIN(`idCell`), MIN(`WholeStub`) FROM `Cell` WHERE `WholeStub` IS NOT NULL
+GROUP BY `Table_idTable`, SHA1(`WholeStub`);
+
+UPDATE `Cell` c
+  JOIN `TableStub` p ON p.`Table_idTable` = c.`Table_idTable` AND SHA1(p.`Value`) = SHA1(c.`WholeStub`)
+SET c.`StubOrdinal` = p.`Ordinal`;
+
+CREATE TABLE IF NOT EXISTS `TableSuperRow` (
+  `Table_idTable` INT NOT NULL,
+  `Ordinal` INT NOT NULL,
+  `Value` VARCHAR(5000) NULL,
+  PRIMARY KEY (`Table_idTable`, `Ordinal`),
+  INDEX `fk_TableSuperRow_Table1_idx` (`Table_idTable` ASC),
+  CONSTRAINT `fk_TableSuperRow_Table1`
+    FOREIGN KEY (`Table_idTable`)
+    REFERENCES `ArtTable` (`idTable`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+INSERT INTO `TableSuperRow` (`Table_idTable`, `Ordinal`, `Value`)
+SELECT `Table_idTable`, MIN(`idCell`), MIN(`WholeSuperRow`) FROM `Cell` WHERE `WholeSuperRow` IS NOT NULL
+GROUP BY `Table_idTable`, SHA1(`WholeSuperRow`);
+
+UPDATE `Cell` c
+  JOIN `TableSuperRow` p ON p.`Table_idTable` = c.`Table_idTable` AND SHA1(p.`Value`) = SHA1(c.`WholeSuperRow`)
+SET c.`SuperRowOrdinal` = p.`Ordinal`;
+
+ALTER TABLE `Cell`
+  DROP COLUMN `WholeHeader`,
+  DROP COLUMN `WholeStub`,
+  DROP COLUMN `WholeSuperRow`;
+
+CREATE VIEW `CellWithPaths` AS
+SELECT c.`idCell`, c.`CellID`, c.`CellType`, c.`Table_idTable`, c.`RowN`, c.`ColumnN`, c.`HeaderRef`,
+  c.`StubRef`, c.`SuperRowRef`, c.`Content`, h.`Value` AS `WholeHeader`, s.`Value` AS `WholeStub`,
+  r.`Value` AS `WholeSuperRow`
+FROM `Cell` c
+  LEFT JOIN `TableHeader` h ON h.`Table_idTable` = c.`Table_idTable` AND h.`Ordinal` = c.`HeaderOrdinal`
+  LEFT JOIN `TableStub` s ON s.`Table_idTable` = c.`Table_idTable` AND s.`Ordinal` = c.`StubOrdinal`
+  LEFT JOIN `TableSuperRow` r ON r.`Table_idTable` = c.`Table_idTable` AND r.`Ordinal` = c.`SuperRowOrdinal`;
+
+SET FOREIGN_KEY_CHECKS=@OLD_FOREIGN_KEY_CHECKS;
+SET UNIQUE_CHECKS=@OLD_UNIQUE_CHECKS;
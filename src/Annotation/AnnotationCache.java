@@ -0,0 +1,267 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Annotation;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileReader;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import Main.MarvinSemAnnotator;
+import Main.Word;
+import Main.WordMeaningOutputElement;
+import Utils.LRUCache;
+import Utils.PersistentCache;
+
+/**
+ * The Class AnnotationCache. Keeps semantic annotations (Marvin) of recently annotated cell values, since
+ * the same values (units, "n (%)", "Placebo"...) repeat in most tables and every call to Marvin is a round
+ * trip to MetaMap or DBPedia. Values are keyed by the annotated text and the annotator configuration
+ * (enabled annotators and their versions from settings.cfg). Cached results are shared between callers
+ * and must not be modified.
+ *
+ * When a store is opened, annotations are also kept on disk (see PersistentCache), so that later runs and
+ * other processes do not query the annotators again. The store is emptied when the configuration changes.
+ */
+public class AnnotationCache {
+
+	/** The default number of cached values. */
+	public static final int DEFAULT_SIZE = 50000;
+
+	private static LRUCache<String, List<Word>> cache = new LRUCache<String, List<Word>>(DEFAULT_SIZE);
+
+	private static String configuration = readConfiguration();
+
+	/** Annotations stored on disk, null if no store is open. */
+	private static PersistentCache store;
+
+	/**
+	 * Reads the annotator part of settings.cfg (use_* and *_desc settings) and MetaMap options from
+	 * metamapSettings, used as part of the key and as the version of the store.
+	 *
+	 * @return the configuration
+	 */
+	private static String readConfiguration()
+	{
+		StringBuilder sb = new StringBuilder();
+		try{
+			BufferedReader br = new BufferedReader(new FileReader("settings.cfg"));
+			String line = br.readLine();
+			while (line != null) {
+				String[] parts = line.split(";");
+				if(parts[0].startsWith("use_") || parts[0].endsWith("_desc"))
+					sb.append(line).append('|');
+				line = br.readLine();
+			}
+			br.close();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+		try{
+			BufferedReader br = new BufferedReader(new FileReader("metamapSettings"));
+			String line = br.readLine();
+			while (line != null) {
+				if(line.contains("Options:"))
+					sb.append(line).append('|');
+				line = br.readLine();
+			}
+			br.close();
+		}catch(Exception ex)
+		{
+			// MetaMap settings are optional
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Opens the store of annotations on disk.
+	 *
+	 * @param fileName the file name
+	 */
+	public static void openStore(String fileName)
+	{
+		try{
+			store = PersistentCache.open(fileName, configuration);
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Gets the store of annotations on disk.
+	 *
+	 * @return the store, null if it is not open
+	 */
+	public static PersistentCache getStore() {
+		return store;
+	}
+
+	/**
+	 * Annotates the text with Marvin, or returns annotations of the same text from the cache. Failed
+	 * annotations (null) are not cached.
+	 *
+	 * @param marvin the annotator
+	 * @param text the text
+	 * @return the annotated words, null if annotation failed
+	 */
+	public static List<Word> annotate(MarvinSemAnnotator marvin, String text)
+	{
+		List<Word> words = lookup(text);
+		if(words!=null)
+			return words;
+		LinkedList<Word> annotated = marvin.annotate(text);
+		if(annotated==null)
+			return null;
+		return put(text, annotated);
+	}
+
+	/**
+	 * Gets annotations of the text from the cache or from the store.
+	 *
+	 * @param text the text
+	 * @return the annotated words, null if the text was not annotated before
+	 */
+	public static List<Word> lookup(String text)
+	{
+		String key = configuration+text;
+		List<Word> words = cache.get(key);
+		if(words!=null)
+			return words;
+		if(store!=null)
+		{
+			byte[] stored = store.get("Marvin|"+text);
+			if(stored!=null)
+			{
+				words = decodeWords(stored);
+				if(words!=null)
+				{
+					cache.put(key, words);
+					return words;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds annotations of the text to the cache and to the store.
+	 *
+	 * @param text the text
+	 * @param annotated the annotated words
+	 * @return the annotated words as they are cached (unmodifiable)
+	 */
+	public static List<Word> put(String text, List<Word> annotated)
+	{
+		List<Word> words = Collections.unmodifiableList(annotated);
+		cache.put(configuration+text, words);
+		if(store!=null)
+		{
+			byte[] encoded = encodeWords(words);
+			if(encoded!=null)
+				store.put("Marvin|"+text, encoded);
+		}
+		return words;
+	}
+
+	static byte[] encodeWords(List<Word> words)
+	{
+		try{
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bos);
+			out.writeInt(words.size());
+			for(Word w:words)
+			{
+				PersistentCache.writeString(out, w.word);
+				out.writeInt(w.starting);
+				out.writeInt(w.ending);
+				out.writeInt(w.wordmeanings.size());
+				for(WordMeaningOutputElement wm:w.wordmeanings)
+				{
+					PersistentCache.writeString(out, wm.AnnotatorSystem);
+					PersistentCache.writeString(out, wm.id);
+					PersistentCache.writeString(out, wm.URL);
+					PersistentCache.writeString(out, wm.appearingWord);
+					PersistentCache.writeString(out, wm.Description);
+					PersistentCache.writeString(out, wm.Location);
+					PersistentCache.writeString(out, wm.EnvironmentDesc);
+					PersistentCache.writeString(out, wm.AgentName);
+					PersistentCache.writeString(out, wm.AgentVersion);
+					PersistentCache.writeString(out, wm.Source);
+					out.writeInt(wm.startAt);
+					out.writeInt(wm.endAt);
+				}
+			}
+			out.close();
+			return bos.toByteArray();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+		return null;
+	}
+
+	static List<Word> decodeWords(byte[] encoded)
+	{
+		try{
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+			LinkedList<Word> words = new LinkedList<Word>();
+			int count = in.readInt();
+			for(int i = 0;i<count;i++)
+			{
+				Word w = new Word();
+				w.word = PersistentCache.readString(in);
+				w.starting = in.readInt();
+				w.ending = in.readInt();
+				int meanings = in.readInt();
+				for(int j = 0;j<meanings;j++)
+				{
+					WordMeaningOutputElement wm = new WordMeaningOutputElement();
+					wm.AnnotatorSystem = PersistentCache.readString(in);
+					wm.id = PersistentCache.readString(in);
+					wm.URL = PersistentCache.readString(in);
+					wm.appearingWord = PersistentCache.readString(in);
+					wm.Description = PersistentCache.readString(in);
+					wm.Location = PersistentCache.readString(in);
+					wm.EnvironmentDesc = PersistentCache.readString(in);
+					wm.AgentName = PersistentCache.readString(in);
+					wm.AgentVersion = PersistentCache.readString(in);
+					wm.Source = PersistentCache.readString(in);
+					wm.startAt = in.readInt();
+					wm.endAt = in.readInt();
+					w.wordmeanings.add(wm);
+				}
+				words.add(w);
+			}
+			return Collections.unmodifiableList(words);
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the maximal number of cached values.
+	 *
+	 * @param size the size, 0 disables caching
+	 */
+	public static void setSize(int size)
+	{
+		cache.setMaxSize(size);
+	}
+
+	public static LRUCache<String, List<Word>> getCache() {
+		return cache;
+	}
+
+}
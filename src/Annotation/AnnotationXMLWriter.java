@@ -0,0 +1,201 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Annotation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * The Class AnnotationXMLWriter. Streams the annotation XML of an article to a file (optionally
+ * gzipped) element by element, so only the currently open elements are kept in memory. Output is
+ * indented in the same way as the DOM output used before, and elements without content are written
+ * as empty elements. The document is written to a temporary file that replaces the output file only
+ * when the article was written completely.
+ */
+public class AnnotationXMLWriter {
+
+	private static XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+	private static final String INDENT = "    ";
+
+	/** Attributes are written ordered by name, as the DOM serializer did. */
+	private static Comparator<String[]> attributeOrder = new Comparator<String[]>() {
+		public int compare(String[] a, String[] b) {
+			return a[0].compareTo(b[0]);
+		}
+	};
+
+	private File file;
+	private File tempFile;
+	private Writer out;
+	private XMLStreamWriter writer;
+	private int depth = 0;
+	/** Whether the innermost open element already has child elements. */
+	private boolean hasChildren = false;
+	/** Start element that is not written yet, since it may still turn out to be empty. */
+	private String pendingElement;
+	private ArrayList<String[]> pendingAttributes = new ArrayList<String[]>();
+
+	/**
+	 * Opens the writer and writes the XML declaration.
+	 *
+	 * @param fileName the output file name
+	 * @param gzip whether to gzip the output
+	 * @throws Exception the exception
+	 */
+	public AnnotationXMLWriter(String fileName, boolean gzip) throws Exception
+	{
+		file = new File(fileName);
+		tempFile = new File(fileName+".part");
+		OutputStream os = new FileOutputStream(tempFile);
+		if(gzip)
+			os = new GZIPOutputStream(os, 65536);
+		out = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"), 65536);
+		writer = outputFactory.createXMLStreamWriter(out);
+		writer.writeStartDocument("UTF-8", "1.0");
+		writer.writeCharacters("\n");
+	}
+
+	/**
+	 * Starts an element. It is written with the first child, or as empty element when it is ended.
+	 *
+	 * @param name the name
+	 * @throws XMLStreamException the XML stream exception
+	 */
+	public void startElement(String name) throws XMLStreamException
+	{
+		flushPending();
+		if(depth>0)
+			newLine(depth);
+		pendingElement = name;
+		depth++;
+		hasChildren = false;
+	}
+
+	/**
+	 * Adds an attribute to the element that was just started. Null values are written as empty.
+	 *
+	 * @param name the name
+	 * @param value the value
+	 */
+	public void attribute(String name, String value)
+	{
+		pendingAttributes.add(new String[]{name, value==null?"":value});
+	}
+
+	/**
+	 * Ends the innermost open element.
+	 *
+	 * @throws XMLStreamException the XML stream exception
+	 */
+	public void endElement() throws XMLStreamException
+	{
+		depth--;
+		if(pendingElement!=null)
+		{
+			writer.writeEmptyElement(pendingElement);
+			writePendingAttributes();
+			pendingElement = null;
+		}
+		else
+		{
+			if(hasChildren)
+				newLine(depth);
+			writer.writeEndElement();
+		}
+		hasChildren = true;
+	}
+
+	/**
+	 * Writes an element containing only text.
+	 *
+	 * @param name the name
+	 * @param text the text, null or empty text gives empty element
+	 * @throws XMLStreamException the XML stream exception
+	 */
+	public void element(String name, String text) throws XMLStreamException
+	{
+		startElement(name);
+		if(text!=null && text.length()>0)
+		{
+			flushPending();
+			writer.writeCharacters(text);
+		}
+		endElement();
+	}
+
+	private void flushPending() throws XMLStreamException
+	{
+		if(pendingElement==null)
+			return;
+		writer.writeStartElement(pendingElement);
+		writePendingAttributes();
+		pendingElement = null;
+	}
+
+	private void writePendingAttributes() throws XMLStreamException
+	{
+		Collections.sort(pendingAttributes, attributeOrder);
+		for(String[] attr:pendingAttributes)
+			writer.writeAttribute(attr[0], attr[1]);
+		pendingAttributes.clear();
+	}
+
+	private void newLine(int level) throws XMLStreamException
+	{
+		StringBuilder sb = new StringBuilder("\n");
+		for(int i = 0;i<level;i++)
+			sb.append(INDENT);
+		writer.writeCharacters(sb.toString());
+	}
+
+	/**
+	 * Ends the document and moves it to the output file.
+	 *
+	 * @throws Exception the exception
+	 */
+	public void close() throws Exception
+	{
+		while(depth>0)
+			endElement();
+		writer.writeEndDocument();
+		writer.writeCharacters("\n");
+		writer.close();
+		out.close();
+		if(file.exists())
+			file.delete();
+		if(!tempFile.renameTo(file))
+			throw new Exception("Could not write "+file.getPath());
+	}
+
+	/**
+	 * Closes the writer after a failure and removes the incomplete output.
+	 */
+	public void abort()
+	{
+		try{
+			writer.close();
+			out.close();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+		tempFile.delete();
+	}
+
+}
@@ -0,0 +1,215 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Annotation;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import Utils.PersistentCache;
+
+/**
+ * The Class AnnotatorRecording. Recording of responses of the semantic annotators (Marvin and MetaMap), so
+ * that annotation can be run and measured without the annotation servers. In record mode every response of
+ * a real annotator is written to the recording file together with the time the call took. In replay mode
+ * responses are served from the file after the recorded time (or a fixed or scaled time), and a share of
+ * calls can be made to fail. Texts that were not recorded get no annotations.
+ *
+ * Keys are "Marvin|text" and "MetaMap|term", values the recorded time in milliseconds followed by the
+ * response in the encoding of the annotation store.
+ */
+public class AnnotatorRecording {
+
+	/** The mode of the recording. */
+	public enum Mode {RECORD, REPLAY};
+
+	private static final String VERSION = "AnnotatorRecording1";
+
+	private static AnnotatorRecording recording;
+
+	private PersistentCache file;
+	private Mode mode;
+	private int fixedLatency = -1;
+	private double latencyScale = 1.0;
+	private double errorRate = 0.0;
+	private Random random = new Random();
+
+	private long recorded = 0;
+	private long replayed = 0;
+	private long missing = 0;
+	private long errors = 0;
+
+	/**
+	 * Starts recording to the file or replaying from it. Annotators use the started recording.
+	 *
+	 * @param fileName the file name
+	 * @param mode the mode
+	 * @return the recording
+	 */
+	public static synchronized AnnotatorRecording start(String fileName, Mode mode)
+	{
+		try{
+			recording = new AnnotatorRecording(PersistentCache.open(fileName, VERSION), mode);
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+		return recording;
+	}
+
+	/**
+	 * Gets the started recording.
+	 *
+	 * @return the recording, null if annotators are used directly
+	 */
+	public static synchronized AnnotatorRecording getRecording() {
+		return recording;
+	}
+
+	/**
+	 * Stops using the recording.
+	 */
+	public static synchronized void stop()
+	{
+		recording = null;
+	}
+
+	private AnnotatorRecording(PersistentCache file, Mode mode)
+	{
+		this.file = file;
+		this.mode = mode;
+	}
+
+	public boolean isReplay() {
+		return mode==Mode.REPLAY;
+	}
+
+	/**
+	 * Sets the same latency for every replayed call, instead of the recorded one.
+	 *
+	 * @param fixedLatency the latency in milliseconds, -1 for the recorded latency
+	 */
+	public synchronized void setFixedLatency(int fixedLatency) {
+		this.fixedLatency = fixedLatency;
+	}
+
+	/**
+	 * Sets the factor by which recorded latencies are multiplied in replay (e.g. 2 for a twice slower server).
+	 *
+	 * @param latencyScale the latency scale
+	 */
+	public synchronized void setLatencyScale(double latencyScale) {
+		this.latencyScale = latencyScale;
+	}
+
+	/**
+	 * Sets the share of replayed calls that fail with an exception.
+	 *
+	 * @param errorRate the error rate, between 0 and 1
+	 */
+	public synchronized void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * Sets the seed of random errors, so the same calls fail in every replay.
+	 *
+	 * @param seed the seed
+	 */
+	public synchronized void setSeed(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * Records the response of an annotator.
+	 *
+	 * @param key the key (annotator and text)
+	 * @param latency the time the call took in milliseconds
+	 * @param response the encoded response
+	 */
+	public void record(String key, long latency, byte[] response)
+	{
+		ByteBuffer value = ByteBuffer.allocate(4+response.length);
+		value.putInt((int)Math.min(Integer.MAX_VALUE, latency));
+		value.put(response);
+		file.put(key, value.array());
+		synchronized(this)
+		{
+			recorded++;
+		}
+	}
+
+	/**
+	 * Replays the response of an annotator, waiting for the latency of the call.
+	 *
+	 * @param key the key (annotator and text)
+	 * @return the encoded response, null if it was not recorded
+	 * @throws Exception the injected error
+	 */
+	public byte[] replay(String key) throws Exception
+	{
+		List<String> keys = new ArrayList<String>();
+		keys.add(key);
+		return replay(keys).get(0);
+	}
+
+	/**
+	 * Replays responses of several texts sent to the annotator in one call. The call takes as long as
+	 * all recorded calls together.
+	 *
+	 * @param keys the keys (annotator and text)
+	 * @return the encoded responses, null for texts that were not recorded
+	 * @throws Exception the injected error
+	 */
+	public List<byte[]> replay(List<String> keys) throws Exception
+	{
+		List<byte[]> responses = new ArrayList<byte[]>();
+		long latency = 0;
+		int found = 0;
+		for(String key:keys)
+		{
+			byte[] value = file.get(key);
+			if(value==null)
+			{
+				responses.add(null);
+				continue;
+			}
+			ByteBuffer buf = ByteBuffer.wrap(value);
+			latency += buf.getInt();
+			byte[] response = new byte[value.length-4];
+			buf.get(response);
+			responses.add(response);
+			found++;
+		}
+		boolean fail;
+		synchronized(this)
+		{
+			if(fixedLatency>=0)
+				latency = fixedLatency;
+			else
+				latency = (long)(latency*latencyScale);
+			fail = random.nextDouble()<errorRate;
+			replayed += found;
+			missing += keys.size()-found;
+			if(fail)
+				errors++;
+		}
+		if(latency>0)
+			Thread.sleep(latency);
+		if(fail)
+			throw new Exception("Injected annotator error");
+		return responses;
+	}
+
+	public synchronized String getStatistics()
+	{
+		if(mode==Mode.RECORD)
+			return "Annotator recording: "+recorded+" responses recorded";
+		return "Annotator replay: "+replayed+" responses replayed, "+missing+" not recorded, "+errors+" injected errors";
+	}
+
+}
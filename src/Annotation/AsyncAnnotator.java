@@ -0,0 +1,436 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Annotation;
+
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import Main.Word;
+import Utils.CircuitBreaker;
+
+/**
+ * The Class AsyncAnnotator. Sends texts to a semantic annotator (Marvin) from a fixed number of worker
+ * threads, so callers can submit the texts of an article and keep processing while the annotator works. At
+ * most a queue size of texts wait for a worker; further submits wait for a free place. Every call has a
+ * deadline counted from its submission, so it includes the time waiting for a worker, and failed calls are
+ * retried after a growing delay with random jitter. After a number of consecutive failed calls a circuit
+ * breaker stops calls to the annotator for a while and fails the texts still waiting; texts are then left
+ * without semantic annotations and reported as failed, so the caller can mark them for backfill. Texts that
+ * only waited too long for a worker count as timeouts, not as failures of the annotator.
+ *
+ * Results are taken from and added to AnnotationCache.
+ */
+public class AsyncAnnotator {
+
+	/** The default number of concurrent calls. */
+	public static final int DEFAULT_CONCURRENCY = 4;
+
+	/** The default deadline of a call in milliseconds. */
+	public static final int DEFAULT_DEADLINE = 30000;
+
+	/** The default number of retries of a failed call. */
+	public static final int DEFAULT_RETRIES = 2;
+
+	/** The default number of texts waiting for a worker. */
+	public static final int DEFAULT_QUEUE_SIZE = 64;
+
+	/** Consecutive failures that open the circuit. */
+	private static final int FAILURE_THRESHOLD = 5;
+
+	/** Time in milliseconds the circuit stays open before a trial call. */
+	private static final long OPEN_TIME = 30000;
+
+	/** Delay before the first retry in milliseconds, doubled for each further retry. */
+	private static final long RETRY_DELAY = 200;
+
+	private static final long WAIT_STEP = 100;
+
+	private static AsyncAnnotator annotator;
+
+	private SemanticAnnotator backend;
+	private ThreadPoolExecutor executor;
+	/** Places for calls running or waiting for a worker. */
+	private Semaphore slots;
+	private int deadline;
+	private int retries;
+	private CircuitBreaker breaker;
+	private Random random = new Random();
+	private Writer backfill;
+
+	private long requests = 0;
+	private long cached = 0;
+	private long failed = 0;
+	private long timeouts = 0;
+	private long refused = 0;
+
+	/**
+	 * The Class Request. Annotation of one text, submitted to the annotator.
+	 */
+	public static class Request {
+		private String text;
+		private List<Word> words;
+		private Task future;
+		private long submitted;
+		private volatile long started = 0;
+		private boolean failed = false;
+		private boolean done = false;
+
+		public String getText() {
+			return text;
+		}
+
+		/**
+		 * Checks whether the annotation failed (error, deadline or open circuit), so the text has no semantic
+		 * annotations and should be annotated again later.
+		 *
+		 * @return true, if failed
+		 */
+		public boolean isFailed() {
+			return failed;
+		}
+	}
+
+	/**
+	 * The Class Task. A call that gives its place back when it finishes or is cancelled.
+	 */
+	private class Task extends FutureTask<List<Word>> {
+		Task(Callable<List<Word>> call) {
+			super(call);
+		}
+
+		protected void done() {
+			// a cancelled call still waiting for a worker leaves the queue before its place is given back
+			if(isCancelled())
+				executor.purge();
+			slots.release();
+		}
+	}
+
+	/**
+	 * Gets the shared annotator using Marvin.
+	 *
+	 * @return the annotator
+	 */
+	public static synchronized AsyncAnnotator getAnnotator()
+	{
+		if(annotator==null)
+			annotator = new AsyncAnnotator(new RecordReplayAnnotator(new MarvinAnnotator()), DEFAULT_CONCURRENCY, DEFAULT_DEADLINE, DEFAULT_RETRIES);
+		return annotator;
+	}
+
+	/**
+	 * Checks whether the shared annotator was used.
+	 *
+	 * @return true, if the annotator was created
+	 */
+	public static synchronized boolean isStarted()
+	{
+		return annotator!=null;
+	}
+
+	/**
+	 * Sets the shared annotator.
+	 *
+	 * @param async the annotator
+	 */
+	public static synchronized void setAnnotator(AsyncAnnotator async)
+	{
+		if(annotator!=null && annotator!=async)
+			annotator.shutdown();
+		annotator = async;
+	}
+
+	/**
+	 * Instantiates a new asynchronous annotator.
+	 *
+	 * @param backend the annotator the calls go to
+	 * @param concurrency the maximal number of concurrent calls
+	 * @param deadline the deadline of a call in milliseconds, including retries
+	 * @param retries the number of retries of a failed call
+	 */
+	public AsyncAnnotator(SemanticAnnotator backend, int concurrency, int deadline, int retries)
+	{
+		this(backend, concurrency, deadline, retries, DEFAULT_QUEUE_SIZE);
+	}
+
+	/**
+	 * Instantiates a new asynchronous annotator.
+	 *
+	 * @param backend the annotator the calls go to
+	 * @param concurrency the maximal number of concurrent calls
+	 * @param deadline the deadline of a call in milliseconds, including waiting for a worker and retries
+	 * @param retries the number of retries of a failed call
+	 * @param queueSize the maximal number of texts waiting for a worker
+	 */
+	public AsyncAnnotator(SemanticAnnotator backend, int concurrency, int deadline, int retries, int queueSize)
+	{
+		this.backend = backend;
+		this.deadline = deadline;
+		this.retries = retries;
+		concurrency = Math.max(1, concurrency);
+		int places = concurrency+Math.max(0, queueSize);
+		slots = new Semaphore(places);
+		breaker = new CircuitBreaker(FAILURE_THRESHOLD, OPEN_TIME);
+		executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(places), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "SemanticAnnotator");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Submits the text for annotation. Texts annotated before are answered from the cache at once. While the
+	 * queue is full the submit waits, at most until the deadline of the text.
+	 *
+	 * @param text the text
+	 * @return the request
+	 */
+	public Request submit(String text)
+	{
+		final Request request = new Request();
+		request.text = text;
+		request.submitted = System.currentTimeMillis();
+		request.words = AnnotationCache.lookup(text);
+		synchronized(this)
+		{
+			requests++;
+			if(request.words!=null)
+				cached++;
+		}
+		if(request.words!=null)
+		{
+			request.done = true;
+			return request;
+		}
+		if(!breaker.allowRequest())
+		{
+			synchronized(this)
+			{
+				refused++;
+			}
+			request.failed = true;
+			request.done = true;
+			return request;
+		}
+		boolean queued = false;
+		try{
+			queued = slots.tryAcquire(request.submitted+deadline-System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		if(!queued)
+		{
+			// workers did not free a place in time; waiting is not a failure of the annotator
+			synchronized(this)
+			{
+				timeouts++;
+			}
+			request.failed = true;
+			request.done = true;
+			return request;
+		}
+		request.future = new Task(new Callable<List<Word>>() {
+			public List<Word> call() throws Exception {
+				request.started = System.currentTimeMillis();
+				return annotate(request);
+			}
+		});
+		try{
+			executor.execute(request.future);
+		}catch(RuntimeException ex)
+		{
+			// annotator shut down
+			slots.release();
+			synchronized(this)
+			{
+				failed++;
+			}
+			request.failed = true;
+			request.done = true;
+		}
+		return request;
+	}
+
+	private List<Word> annotate(Request request) throws Exception
+	{
+		Exception error = null;
+		for(int attempt = 0;;attempt++)
+		{
+			// circuit opened while the request was waiting or retrying
+			if(breaker.isOpen())
+				throw new Exception("Semantic annotator is not available", error);
+			if(System.currentTimeMillis()>=request.submitted+deadline)
+				throw new Exception("Deadline passed before the call", error);
+			try{
+				List<Word> words = backend.annotate(request.text);
+				if(words!=null)
+				{
+					breaker.recordSuccess();
+					return AnnotationCache.put(request.text, words);
+				}
+				error = new Exception("Semantic annotator returned no result");
+			}catch(Exception ex)
+			{
+				error = ex;
+			}
+			breaker.recordFailure();
+			if(attempt>=retries)
+				throw error;
+			long delay = RETRY_DELAY<<attempt;
+			delay += (long)(random.nextDouble()*delay);
+			if(System.currentTimeMillis()+delay>=request.submitted+deadline)
+				throw error;
+			Thread.sleep(delay);
+		}
+	}
+
+	/**
+	 * Gets annotations of the text, waiting until the call finishes or its deadline passes. A text still
+	 * waiting for a worker fails at once when the circuit opens.
+	 *
+	 * @param request the request
+	 * @return the annotated words, null if the annotation failed
+	 */
+	public List<Word> get(Request request)
+	{
+		if(request.done)
+			return request.words;
+		while(!request.done)
+		{
+			if(request.started==0 && breaker.isOpen() && request.future.cancel(false))
+			{
+				synchronized(this)
+				{
+					refused++;
+				}
+				request.failed = true;
+				request.done = true;
+				break;
+			}
+			long wait = Math.min(WAIT_STEP, request.submitted+deadline-System.currentTimeMillis());
+			if(wait<=0)
+			{
+				// a running call may not be interruptible, it is left to finish in the background; the circuit
+				// counts only failures of calls to the annotator
+				request.future.cancel(true);
+				synchronized(this)
+				{
+					timeouts++;
+				}
+				request.failed = true;
+				request.done = true;
+				break;
+			}
+			try{
+				request.words = request.future.get(wait, TimeUnit.MILLISECONDS);
+				request.done = true;
+			}catch(TimeoutException ex)
+			{
+				// deadline is checked again
+			}catch(ExecutionException ex)
+			{
+				synchronized(this)
+				{
+					failed++;
+				}
+				request.failed = true;
+				request.done = true;
+			}catch(InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				request.failed = true;
+				request.done = true;
+			}
+		}
+		return request.words;
+	}
+
+	/**
+	 * Sets the file where texts without semantic annotations are written for backfill.
+	 *
+	 * @param fileName the file name, lines are appended
+	 */
+	public synchronized void setBackfillFile(String fileName)
+	{
+		try{
+			if(backfill!=null)
+				backfill.close();
+			backfill = new OutputStreamWriter(new FileOutputStream(fileName, true), "UTF-8");
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes the place and text of a failed annotation to the backfill file, as one tab separated line.
+	 *
+	 * @param place the place of the text (e.g. PMC, table and cell)
+	 * @param text the text
+	 */
+	public synchronized void markForBackfill(String place, String text)
+	{
+		if(backfill==null)
+			return;
+		try{
+			backfill.write(place+"\t"+text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ')+"\n");
+			backfill.flush();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Gets the number of free places for calls, so that many texts can be submitted without waiting.
+	 *
+	 * @return the free places
+	 */
+	public int getFreeSlots() {
+		return slots.availablePermits();
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		return breaker;
+	}
+
+	/**
+	 * Stops the worker threads and closes the backfill file.
+	 */
+	public synchronized void shutdown()
+	{
+		executor.shutdownNow();
+		try{
+			if(backfill!=null)
+				backfill.close();
+			backfill = null;
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	public synchronized String getStatistics()
+	{
+		return "Semantic annotator: "+requests+" requests, "+cached+" cached, "+failed+" failed, "+timeouts+" timed out, "+refused+" refused while circuit was open ("+breaker.getOpened()+" times)";
+	}
+
+}
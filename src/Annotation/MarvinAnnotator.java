@@ -0,0 +1,39 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Annotation;
+
+import java.util.List;
+
+import Main.MarvinSemAnnotator;
+import Main.Word;
+
+/**
+ * The Class MarvinAnnotator. Annotates texts with Marvin. Every thread has its own MarvinSemAnnotator,
+ * which is created again (reconnecting to the annotators) when it fails.
+ */
+public class MarvinAnnotator implements SemanticAnnotator {
+
+	private ThreadLocal<MarvinSemAnnotator> marvin = new ThreadLocal<MarvinSemAnnotator>() {
+		protected MarvinSemAnnotator initialValue() {
+			return new MarvinSemAnnotator();
+		}
+	};
+
+	public List<Word> annotate(String text) throws Exception
+	{
+		try{
+			List<Word> words = marvin.get().annotate(text);
+			if(words==null)
+				marvin.remove();
+			return words;
+		}catch(Exception ex)
+		{
+			marvin.remove();
+			throw ex;
+		}
+	}
+
+}
@@ -1,105 +1,303 @@
 package Annotation;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedList;
+import java.util.List;
 
+import DataBase.AnnotationDictionary;
 import DataBase.DataBaseAnnotationSaver;
-import Main.MarvinSemAnnotator;
 import Main.Word;
 import Main.WordMeaningOutputElement;
 
 
+/**
+ * The Class MetaMapAnnotatorMain. Backfills semantic annotations of cells already stored in the database.
+ * Cells are read in chunks ordered by idCell, annotated by parallel workers and their annotations are
+ * inserted in one transaction per chunk, together with the last annotated idCell in table BackfillCheckpoint.
+ * When a chunk is annotated, the next chunk is read and as many of its cells as the annotator has free places
+ * are submitted, so they are annotated while the current chunk is saved. A stopped job continues after the
+ * checkpoint when it is started again.
+ *
+ * Arguments: [idCell to start after] [number of workers] [chunk size]. The start is used only when it is
+ * after the checkpoint.
+ */
 public class MetaMapAnnotatorMain {
 
+	private static final String JOB = "MetaMapAnnotatorMain";
+
+	/** The default number of cells in a chunk. */
+	public static final int DEFAULT_CHUNK = 1000;
+
+	/** How many times failed cells of a chunk are annotated again before the chunk is saved. */
+	private static final int CHUNK_RETRIES = 3;
+
+	/** Pause in milliseconds before annotating failed cells again, so that an open circuit can close. */
+	private static final long RETRY_PAUSE = 30000;
+
+	private static class PendingCell {
+		int idCell;
+		String content;
+		AsyncAnnotator.Request request;
+	}
+
 	public static void main(String[] args) {
-		// TODO Auto-generated method stub
+		int startAfter = args.length>0?Integer.parseInt(args[0]):0;
+		int workers = args.length>1?Integer.parseInt(args[1]):AsyncAnnotator.DEFAULT_CONCURRENCY;
+		int chunkSize = args.length>2?Integer.parseInt(args[2]):DEFAULT_CHUNK;
 		DataBaseAnnotationSaver dbas = new DataBaseAnnotationSaver();
+		AsyncAnnotator annotator = new AsyncAnnotator(new RecordReplayAnnotator(new MarvinAnnotator()), workers, AsyncAnnotator.DEFAULT_DEADLINE, AsyncAnnotator.DEFAULT_RETRIES);
+		annotator.setBackfillFile(JOB+".failed");
+		Connection conn = dbas.conn;
 		try {
-			int CellId = Integer.parseInt(args[0]);
-			Statement stmt = dbas.conn.createStatement();
-			String insertTableSQL = "SELECT * FROM Cell where idCell > "+CellId; // change this to be idCell that was available before running the last TableAnnotator load. Currently 489245.
-			ResultSet rs = stmt.executeQuery(insertTableSQL);
-			MarvinSemAnnotator marvin = new MarvinSemAnnotator();
-			while (rs.next()) {
-				int idCell = rs.getInt("idCell");
-				String CellID = rs.getString("CellID");
-				String CellType = rs.getString("CellType");
-				int Table_idTable  = rs.getInt("Table_idTable");
-				int RowN = rs.getInt("RowN");
-				int ColumnN = rs.getInt("ColumnN");
-				String Content = rs.getString("Content");
-				System.out.println("Processing cell record - \n\tidCell: " + idCell + "\n\tCellID: " + CellID + "\n\tCellType: " + CellType + "\n\tTable_idTable: " + Table_idTable + "\n\tRowN: " + RowN + "\n\tColumnN: " + ColumnN);
-				System.out.println("Cell content:" + Content);
-				if(Content==null)
+			run(conn, annotator, AnnotationDictionary.getConcepts(), AnnotationDictionary.getProvenance(), startAfter, chunkSize);
+			System.out.println(annotator.getStatistics());
+			System.out.println(AnnotationDictionary.getConcepts().getStatistics());
+			System.out.println(AnnotationDictionary.getProvenance().getStatistics());
+		} catch (SQLException e) {
+			try{
+				conn.rollback();
+			}catch(Exception ex)
+			{
+				ex.printStackTrace();
+			}
+			e.printStackTrace();
+		}
+		annotator.shutdown();
+		AnnotationDictionary.getConcepts().close();
+		AnnotationDictionary.getProvenance().close();
+		dbas.CloseDBConnection();
+	}
+
+	/**
+	 * Annotates cells after the checkpoint, or after the given idCell when it is later, until all cells are
+	 * annotated or the annotator is not available.
+	 *
+	 * @param conn the connection
+	 * @param annotator the annotator
+	 * @param concepts the dictionary of concepts
+	 * @param provenance the dictionary of provenance
+	 * @param startAfter the idCell to start after
+	 * @param chunkSize the number of cells in a chunk
+	 * @return the last annotated idCell
+	 * @throws SQLException the SQL exception
+	 */
+	public static int run(Connection conn, AsyncAnnotator annotator, AnnotationDictionary concepts, AnnotationDictionary provenance, int startAfter, int chunkSize) throws SQLException
+	{
+		conn.setAutoCommit(false);
+		createCheckpointTable(conn);
+		int lastCell = Math.max(startAfter, readCheckpoint(conn));
+		System.out.println("Annotating cells after idCell "+lastCell);
+		PreparedStatement select = conn.prepareStatement("SELECT idCell, Content FROM Cell WHERE idCell > ? ORDER BY idCell LIMIT ?");
+		PreparedStatement insert = conn.prepareStatement("INSERT INTO CellAnnotation (Content,Start,End,Cell_idCell,Concept_idConcept,Provenance_idProvenance) VALUES (?,?,?,?,?,?)");
+		PreparedStatement checkpoint = conn.prepareStatement("INSERT INTO BackfillCheckpoint (Job,LastCellId,CellsDone,Updated) VALUES (?,?,?,NOW()) ON DUPLICATE KEY UPDATE LastCellId=VALUES(LastCellId), CellsDone=CellsDone+VALUES(CellsDone), Updated=NOW()");
+		DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+		long cellsDone = 0;
+		long start = System.currentTimeMillis();
+		List<PendingCell> chunk = readChunk(select, lastCell, chunkSize);
+		while(!chunk.isEmpty())
+		{
+			if(!awaitChunk(annotator, chunk))
+			{
+				System.out.println("ERROR: semantic annotator is not available, stopped after idCell "+lastCell+". Run again to continue.");
+				break;
+			}
+			// submitting beyond the free places would wait for workers before the current chunk is saved
+			List<PendingCell> next = readChunk(select, chunk.get(chunk.size()-1).idCell, chunkSize);
+			submitChunk(annotator, next, annotator.getFreeSlots());
+			int annotations = saveChunk(conn, insert, checkpoint, annotator, concepts, provenance, chunk, dateFormat.format(new Date()));
+			lastCell = chunk.get(chunk.size()-1).idCell;
+			cellsDone += chunk.size();
+			long seconds = Math.max(1, (System.currentTimeMillis()-start)/1000);
+			System.out.println("Annotated cells up to idCell "+lastCell+": "+chunk.size()+" cells, "+annotations+" annotations ("+cellsDone+" cells, "+(cellsDone/seconds)+" cells/s)");
+			chunk = next;
+		}
+		select.close();
+		insert.close();
+		checkpoint.close();
+		return lastCell;
+	}
+
+	private static void createCheckpointTable(Connection conn) throws SQLException
+	{
+		Statement stmt = conn.createStatement();
+		stmt.executeUpdate("CREATE TABLE IF NOT EXISTS BackfillCheckpoint (Job VARCHAR(100) NOT NULL, LastCellId INT NOT NULL, CellsDone BIGINT NOT NULL DEFAULT 0, Updated DATETIME NULL, PRIMARY KEY (Job)) ENGINE = InnoDB");
+		stmt.close();
+		conn.commit();
+	}
+
+	private static int readCheckpoint(Connection conn) throws SQLException
+	{
+		PreparedStatement stmt = conn.prepareStatement("SELECT LastCellId FROM BackfillCheckpoint WHERE Job = ?");
+		stmt.setString(1, JOB);
+		ResultSet rs = stmt.executeQuery();
+		int lastCell = 0;
+		if(rs.next())
+			lastCell = rs.getInt(1);
+		rs.close();
+		stmt.close();
+		return lastCell;
+	}
+
+	/**
+	 * Reads the next chunk of cells.
+	 */
+	private static List<PendingCell> readChunk(PreparedStatement select, int afterCell, int chunkSize) throws SQLException
+	{
+		List<PendingCell> chunk = new ArrayList<PendingCell>();
+		select.setInt(1, afterCell);
+		select.setInt(2, chunkSize);
+		ResultSet rs = select.executeQuery();
+		while (rs.next()) {
+			PendingCell cell = new PendingCell();
+			cell.idCell = rs.getInt(1);
+			String Content = rs.getString(2);
+			if(Content==null)
+			{
+				Content = "";
+			}
+			int mathTypeIndex = Content.indexOf("MathType@");
+			if(mathTypeIndex>0)
+			{
+				Content = Content.substring(0, mathTypeIndex);
+			}
+			cell.content = Content.trim();
+			chunk.add(cell);
+		}
+		rs.close();
+		return chunk;
+	}
+
+	/**
+	 * Submits cells of the chunk that are not submitted yet for annotation, at most the given number.
+	 */
+	private static void submitChunk(AsyncAnnotator annotator, List<PendingCell> chunk, int limit)
+	{
+		int submitted = 0;
+		for(PendingCell cell:chunk)
+		{
+			if(submitted>=limit)
+				break;
+			if(cell.request!=null || cell.content.length()==0)
+				continue;
+			cell.request = annotator.submit(cell.content);
+			submitted++;
+		}
+	}
+
+	/**
+	 * Submits the rest of the chunk, waits for its annotations and annotates failed cells again. Cells that still fail are written
+	 * to the failed cells file, unless the annotator is not available at all.
+	 *
+	 * @return true, if the chunk can be saved
+	 */
+	private static boolean awaitChunk(AsyncAnnotator annotator, List<PendingCell> chunk)
+	{
+		submitChunk(annotator, chunk, chunk.size());
+		for(int attempt = 0;;attempt++)
+		{
+			List<PendingCell> failed = new ArrayList<PendingCell>();
+			for(PendingCell cell:chunk)
+			{
+				if(cell.request==null)
+					continue;
+				annotator.get(cell.request);
+				if(cell.request.isFailed())
+					failed.add(cell);
+			}
+			if(failed.isEmpty())
+				return true;
+			if(attempt>=CHUNK_RETRIES)
+			{
+				if(annotator.getCircuitBreaker().isOpen())
+					return false;
+				for(PendingCell cell:failed)
 				{
-					Content = "";
+					annotator.markForBackfill(""+cell.idCell, cell.request.getText());
+					cell.request = null;
 				}
-				int mathTypeIndex = Content.indexOf("MathType@");
-				if(mathTypeIndex>0)
+				return true;
+			}
+			System.out.println(failed.size()+" cells failed, annotating them again");
+			try {
+				Thread.sleep(RETRY_PAUSE);
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			for(PendingCell cell:failed)
+				cell.request = annotator.submit(cell.request.getText());
+		}
+	}
+
+	/**
+	 * Inserts annotations of the chunk and moves the checkpoint after it, in one transaction.
+	 *
+	 * @return the number of inserted annotations
+	 */
+	private static int saveChunk(Connection conn, PreparedStatement insert, PreparedStatement checkpoint, AsyncAnnotator annotator, AnnotationDictionary concepts, AnnotationDictionary provenance, List<PendingCell> chunk, String date) throws SQLException
+	{
+		List<WordMeaningOutputElement> meanings = new ArrayList<WordMeaningOutputElement>();
+		List<Integer> meaningCells = new ArrayList<Integer>();
+		for(PendingCell cell:chunk)
+		{
+			if(cell.request==null)
+				continue;
+			List<Word> words = annotator.get(cell.request);
+			if(words==null)
+				continue;
+			for(Word w:words)
+			{
+				for(WordMeaningOutputElement wm: w.wordmeanings)
 				{
-					Content = Content.substring(0, mathTypeIndex);
+					meanings.add(wm);
+					meaningCells.add(cell.idCell);
 				}
-				LinkedList<Word> words = null;
-				if(Content!=null){
-					Content = Content.trim();
-					words = marvin.annotate(Content);
-					if(words == null){
-					    System.out.println("ERROR: Marvin returned NULL when annotating content (see above) - this cell will be skipped for now ");
-					    System.out.println("ERROR: letting process rest and then initiating a new marvin metamap annotation connection....");
-					    try {
-						Thread.sleep(1000);                 //1000 milliseconds is one second.
-					    } catch(InterruptedException ex) {
-						Thread.currentThread().interrupt();
-					    }
-					    marvin = new MarvinSemAnnotator();
-					    continue;
-					}
-					
-					for(Word w:words)
-					{
-						
-						for(WordMeaningOutputElement wm: w.wordmeanings)
-						{
-							System.out.println(wm.AgentName);
-							Statement stmt8 = dbas.conn.createStatement();
-		        	  		String insertTableSQL8 = "INSERT INTO Annotation (Content,Start,End,AnnotationID,AgentType,AgentName,AnnotationURL,EnvironmentDescription,Cell_idCell,AnnotationDescription,AnnotationSchemaVersion,DateOfAction, Location) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)";
-		        	  		PreparedStatement preparedStatement8 = dbas.conn.prepareStatement(insertTableSQL8,Statement.RETURN_GENERATED_KEYS);
-		        	  		preparedStatement8.setString(1,wm.appearingWord);
-		        	  		preparedStatement8.setInt(2,wm.startAt);
-		        	  		preparedStatement8.setInt(3,wm.endAt);
-		        	  		preparedStatement8.setString(4,wm.id);
-		        	  		preparedStatement8.setString(5,"Software");
-		        	  		preparedStatement8.setString(6,wm.AgentName);
-		        	  		preparedStatement8.setString(7,wm.URL);
-		        	  		preparedStatement8.setString(8,wm.EnvironmentDesc); 
-		        	  		preparedStatement8.setInt(9,idCell);
-		        	  		preparedStatement8.setString(10,wm.Description);
-		        	  		preparedStatement8.setString(11,wm.AgentVersion);// Should be version
-		        	  		//DateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-						DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-		        	  		Date date = new Date();
-		        	  		preparedStatement8.setString(12,dateFormat.format(date));
-		        	  		preparedStatement8.setString(13,wm.Location); // Should be location
-		        	  		// execute insert SQL stetement
-		        	  		preparedStatement8.executeUpdate();
-						}
-					}
-				} 
-			  }
-			
-			dbas.CloseDBConnection();
-			
-		} catch (SQLException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			}
 		}
-
+		try{
+			if(meanings.size()>0)
+			{
+				List<String[]> conceptValues = new ArrayList<String[]>();
+				List<String[]> provenanceValues = new ArrayList<String[]>();
+				for(WordMeaningOutputElement wm:meanings)
+				{
+					conceptValues.add(new String[]{wm.id, wm.URL, wm.Description});
+					provenanceValues.add(new String[]{"Software", wm.AgentName, wm.EnvironmentDesc, wm.AgentVersion, wm.Location, date});
+				}
+				int[] conceptIds = concepts.lookup(conceptValues);
+				int[] provenanceIds = provenance.lookup(provenanceValues);
+				for(int i = 0;i<meanings.size();i++)
+				{
+					WordMeaningOutputElement wm = meanings.get(i);
+					insert.setString(1,wm.appearingWord);
+					insert.setInt(2,wm.startAt);
+					insert.setInt(3,wm.endAt);
+					insert.setInt(4,meaningCells.get(i));
+					insert.setInt(5,conceptIds[i]);
+					insert.setInt(6,provenanceIds[i]);
+					insert.addBatch();
+				}
+				insert.executeBatch();
+			}
+			checkpoint.setString(1, JOB);
+			checkpoint.setInt(2, chunk.get(chunk.size()-1).idCell);
+			checkpoint.setInt(3, chunk.size());
+			checkpoint.executeUpdate();
+			conn.commit();
+		}catch(SQLException ex)
+		{
+			insert.clearBatch();
+			conn.rollback();
+			throw ex;
+		}
+		return meanings.size();
 	}
 
 }
@@ -0,0 +1,53 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Annotation;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import Main.Word;
+
+/**
+ * The Class RecordReplayAnnotator. Semantic annotator that records responses of another annotator (Marvin)
+ * to the started AnnotatorRecording, or replays them from it without calling the annotator. If no recording
+ * is started, calls go to the annotator.
+ */
+public class RecordReplayAnnotator implements SemanticAnnotator {
+
+	private SemanticAnnotator annotator;
+
+	/**
+	 * Instantiates a new record/replay annotator.
+	 *
+	 * @param annotator the annotator whose responses are recorded
+	 */
+	public RecordReplayAnnotator(SemanticAnnotator annotator)
+	{
+		this.annotator = annotator;
+	}
+
+	public List<Word> annotate(String text) throws Exception
+	{
+		AnnotatorRecording recording = AnnotatorRecording.getRecording();
+		if(recording!=null && recording.isReplay())
+		{
+			byte[] response = recording.replay("Marvin|"+text);
+			if(response==null)
+				return new LinkedList<Word>();
+			return AnnotationCache.decodeWords(response);
+		}
+		long start = System.currentTimeMillis();
+		List<Word> words = annotator.annotate(text);
+		if(recording!=null && words!=null)
+		{
+			byte[] response = AnnotationCache.encodeWords(words);
+			if(response!=null)
+				recording.record("Marvin|"+text, System.currentTimeMillis()-start, response);
+		}
+		return words;
+	}
+
+}
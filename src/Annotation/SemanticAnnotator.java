@@ -0,0 +1,27 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Annotation;
+
+import java.util.List;
+
+import Main.Word;
+
+/**
+ * The Interface SemanticAnnotator. Gives semantic annotations of a text, e.g. from Marvin. Implementations
+ * are called by several threads at once.
+ */
+public interface SemanticAnnotator {
+
+	/**
+	 * Annotates the text.
+	 *
+	 * @param text the text
+	 * @return the annotated words, null if annotation failed
+	 * @throws Exception the exception
+	 */
+	public List<Word> annotate(String text) throws Exception;
+
+}
@@ -0,0 +1,281 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Class AnnotationDictionary. Dictionary table of values that repeat in many annotations: concepts
+ * (table Concept: AnnotationID, AnnotationURL, AnnotationDescription) and provenance (table
+ * AnnotationProvenance: AgentType, AgentName, EnvironmentDescription, AnnotationSchemaVersion, Location,
+ * DateOfAction). Rows of CellAnnotation refer to them by id. Every distinct combination of values is stored
+ * once, found by the SHA-1 hash of the values joined with tabs (\N for null) in column Hash, the same as
+ * SHA1(CONCAT_WS(CHAR(9), IFNULL(column,'\\N'), ...)) in MySQL.
+ *
+ * Ids of recently used values are kept in memory. New values are inserted over a separate connection that
+ * commits at once, so writers in several threads and processes share the entries without waiting for each
+ * other's transactions.
+ */
+public class AnnotationDictionary {
+
+	/** The number of values whose ids are kept in memory. */
+	public static final int CACHE_SIZE = 100000;
+
+	/** Values inserted or selected in one statement. */
+	private static final int STATEMENT_ROWS = 500;
+
+	private static AnnotationDictionary concepts;
+	private static AnnotationDictionary provenance;
+
+	private String table;
+	private String idColumn;
+	private String[] columns;
+	private Connection conn;
+	private int cacheSize;
+	private LinkedHashMap<String, Integer> cache = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+			return size()>cacheSize;
+		}
+	};
+	private long lookups = 0;
+	private long stored = 0;
+
+	/**
+	 * Gets the dictionary of concepts (AnnotationID, AnnotationURL, AnnotationDescription).
+	 *
+	 * @return the dictionary
+	 */
+	public static synchronized AnnotationDictionary getConcepts()
+	{
+		if(concepts==null)
+			concepts = new AnnotationDictionary("Concept", "idConcept", new String[]{"AnnotationID", "AnnotationURL", "AnnotationDescription"});
+		return concepts;
+	}
+
+	/**
+	 * Gets the dictionary of provenance (AgentType, AgentName, EnvironmentDescription, AnnotationSchemaVersion,
+	 * Location, DateOfAction).
+	 *
+	 * @return the dictionary
+	 */
+	public static synchronized AnnotationDictionary getProvenance()
+	{
+		if(provenance==null)
+			provenance = new AnnotationDictionary("AnnotationProvenance", "idProvenance", new String[]{"AgentType", "AgentName", "EnvironmentDescription", "AnnotationSchemaVersion", "Location", "DateOfAction"});
+		return provenance;
+	}
+
+	/**
+	 * Instantiates a new dictionary.
+	 *
+	 * @param table the dictionary table
+	 * @param idColumn the id column
+	 * @param columns the value columns, in the order of values
+	 */
+	public AnnotationDictionary(String table, String idColumn, String[] columns)
+	{
+		this(table, idColumn, columns, CACHE_SIZE);
+	}
+
+	/**
+	 * Instantiates a new dictionary.
+	 *
+	 * @param table the dictionary table
+	 * @param idColumn the id column
+	 * @param columns the value columns, in the order of values
+	 * @param cacheSize the number of values whose ids are kept in memory
+	 */
+	public AnnotationDictionary(String table, String idColumn, String[] columns, int cacheSize)
+	{
+		this.table = table;
+		this.idColumn = idColumn;
+		this.columns = columns;
+		this.cacheSize = cacheSize;
+	}
+
+	/**
+	 * Joins the values with tabs, writing \N for null.
+	 *
+	 * @param values the values
+	 * @return the key
+	 */
+	public static String key(String[] values)
+	{
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0;i<values.length;i++)
+		{
+			if(i>0)
+				sb.append('\t');
+			sb.append(values[i]==null?"\\N":values[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the SHA-1 hash of the key, as hexadecimal digits.
+	 *
+	 * @param key the key
+	 * @return the hash
+	 */
+	public static String hash(String key)
+	{
+		try{
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+			StringBuilder sb = new StringBuilder();
+			for(byte b:digest)
+				sb.append(String.format("%02x", b));
+			return sb.toString();
+		}catch(Exception ex)
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+
+	/**
+	 * Gets ids of the values, storing values that are not in the dictionary yet.
+	 *
+	 * @param values the values of each annotation, in the order of columns
+	 * @return the ids
+	 * @throws SQLException the SQL exception
+	 */
+	public synchronized int[] lookup(List<String[]> values) throws SQLException
+	{
+		int[] ids = new int[values.size()];
+		String[] keys = new String[values.size()];
+		// ids are read once, as storing missing values may push known values out of the cache
+		HashMap<String, Integer> known = new HashMap<String, Integer>();
+		LinkedHashMap<String, String[]> missing = new LinkedHashMap<String, String[]>();
+		for(int i = 0;i<values.size();i++)
+		{
+			keys[i] = key(values.get(i));
+			if(known.containsKey(keys[i]) || missing.containsKey(keys[i]))
+				continue;
+			Integer id = cache.get(keys[i]);
+			if(id!=null)
+				known.put(keys[i], id);
+			else
+				missing.put(keys[i], values.get(i));
+		}
+		lookups += values.size();
+		if(!missing.isEmpty())
+		{
+			List<String> hashes = new ArrayList<String>();
+			for(String key:missing.keySet())
+				hashes.add(hash(key));
+			Map<String, Integer> found = store(hashes, new ArrayList<String[]>(missing.values()));
+			int i = 0;
+			for(String key:missing.keySet())
+			{
+				Integer id = found.get(hashes.get(i++));
+				if(id==null)
+					throw new SQLException("Value not stored in "+table+": "+key);
+				cache.put(key, id);
+				known.put(key, id);
+			}
+			stored += missing.size();
+		}
+		for(int i = 0;i<keys.length;i++)
+			ids[i] = known.get(keys[i]);
+		return ids;
+	}
+
+	/**
+	 * Inserts values that are not in the dictionary table and reads ids of all of them.
+	 *
+	 * @param hashes the hashes of the values
+	 * @param values the values
+	 * @return the ids by hash
+	 * @throws SQLException the SQL exception
+	 */
+	protected Map<String, Integer> store(List<String> hashes, List<String[]> values) throws SQLException
+	{
+		Map<String, Integer> ids = new HashMap<String, Integer>();
+		try{
+			if(conn==null)
+			{
+				conn = DataBaseAnnotationSaver.openConnection();
+				conn.setAutoCommit(true);
+			}
+			for(int from = 0;from<hashes.size();from += STATEMENT_ROWS)
+			{
+				int to = Math.min(hashes.size(), from+STATEMENT_ROWS);
+				StringBuilder insert = new StringBuilder("INSERT IGNORE INTO "+table+" (Hash");
+				StringBuilder row = new StringBuilder("(?");
+				for(String column:columns)
+				{
+					insert.append(",").append(column);
+					row.append(",?");
+				}
+				row.append(")");
+				insert.append(") VALUES ");
+				StringBuilder select = new StringBuilder("SELECT Hash, "+idColumn+" FROM "+table+" WHERE Hash IN (");
+				for(int i = from;i<to;i++)
+				{
+					insert.append(i>from?",":"").append(row);
+					select.append(i>from?",?":"?");
+				}
+				select.append(")");
+				PreparedStatement stmt = conn.prepareStatement(insert.toString());
+				int p = 1;
+				for(int i = from;i<to;i++)
+				{
+					stmt.setString(p++, hashes.get(i));
+					for(String value:values.get(i))
+						stmt.setString(p++, value);
+				}
+				stmt.executeUpdate();
+				stmt.close();
+				stmt = conn.prepareStatement(select.toString());
+				for(int i = from;i<to;i++)
+					stmt.setString(i-from+1, hashes.get(i));
+				ResultSet rs = stmt.executeQuery();
+				while(rs.next())
+					ids.put(rs.getString(1), rs.getInt(2));
+				rs.close();
+				stmt.close();
+			}
+		}catch(SQLException ex)
+		{
+			close();
+			throw ex;
+		}catch(Exception ex)
+		{
+			close();
+			throw new SQLException("Could not connect to the database: "+ex.getMessage());
+		}
+		return ids;
+	}
+
+	/**
+	 * Closes the connection. It is opened again for the next new value.
+	 */
+	public synchronized void close()
+	{
+		try{
+			if(conn!=null)
+				conn.close();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+		conn = null;
+	}
+
+	public synchronized String getStatistics()
+	{
+		return "Dictionary "+table+": "+lookups+" lookups, "+stored+" values stored";
+	}
+
+}
@@ -0,0 +1,198 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * The Class ArticleIndex. Articles already saved in the database, for saving a folder again without
+ * duplicating its articles (-databaseincremental). An article is identified by its PMCID, or its SpecId when
+ * it has no PMCID, and its content by the SHA-1 hash of the file it was read from (Article.ContentHash).
+ *
+ * A file whose hash is already saved is skipped before it is read. An article whose identifier is saved
+ * with another hash is replaced: the saver deletes the earlier rows in the transaction that inserts the new
+ * ones.
+ *
+ * Identifiers and content hashes are kept as the first 64 bits of their SHA-1 hash in two open addressing
+ * sets of longs, a few dozen bytes per article.
+ */
+public class ArticleIndex {
+
+	private long[] keys = new long[1024];
+	private long[] contents = new long[1024];
+	private int size = 0;
+	private int contentSize = 0;
+
+	/**
+	 * Loads identifiers and content hashes of the articles in the database.
+	 *
+	 * @return the index
+	 * @throws Exception the exception
+	 */
+	public static ArticleIndex load() throws Exception
+	{
+		ArticleIndex index = new ArticleIndex();
+		Connection conn = DataBaseAnnotationSaver.openConnection();
+		try{
+			Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			// streams the rows instead of reading all of them into memory
+			stmt.setFetchSize(Integer.MIN_VALUE);
+			ResultSet rs = stmt.executeQuery("SELECT PMCID, SpecId, ContentHash FROM Article");
+			while(rs.next())
+			{
+				String key = key(rs.getString(1), rs.getString(2));
+				if(key!=null)
+					index.put(key, rs.getString(3));
+			}
+			rs.close();
+			stmt.close();
+		}finally
+		{
+			conn.close();
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the identifier of an article: its PMCID, or its SpecId when it has no PMCID.
+	 *
+	 * @param pmc the PMCID
+	 * @param specId the SpecId
+	 * @return the identifier, or null if the article has neither
+	 */
+	public static String key(String pmc, String specId)
+	{
+		if(pmc!=null && pmc.length()>0)
+			return "PMC\t"+pmc;
+		if(specId!=null && specId.length()>0)
+			return "Spec\t"+specId;
+		return null;
+	}
+
+	/**
+	 * Gets the SHA-1 hash of the file, as hexadecimal digits.
+	 *
+	 * @param file the file
+	 * @return the hash
+	 * @throws Exception the exception
+	 */
+	public static String hashFile(File file) throws Exception
+	{
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		InputStream in = new FileInputStream(file);
+		try{
+			byte[] buf = new byte[1<<16];
+			int n;
+			while((n = in.read(buf))>0)
+				digest.update(buf, 0, n);
+		}finally
+		{
+			in.close();
+		}
+		StringBuilder sb = new StringBuilder();
+		for(byte b:digest.digest())
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the first 64 bits of a hexadecimal hash; never 0, which marks free slots.
+	 */
+	static long prefix(String hash)
+	{
+		long value = (Long.parseLong(hash.substring(0, 8), 16)<<32) | Long.parseLong(hash.substring(8, 16), 16);
+		return value==0?1:value;
+	}
+
+	/**
+	 * Checks whether a file with this content hash is saved.
+	 *
+	 * @param contentHash the content hash
+	 * @return true, if the content is saved
+	 */
+	public synchronized boolean containsContent(String contentHash)
+	{
+		return find(contents, prefix(contentHash))>=0;
+	}
+
+	/**
+	 * Checks whether an article with this identifier is saved.
+	 *
+	 * @param key the identifier
+	 * @return true, if an article with the identifier is saved
+	 */
+	public synchronized boolean containsKey(String key)
+	{
+		return find(keys, prefix(AnnotationDictionary.hash(key)))>=0;
+	}
+
+	/**
+	 * Records a saved article.
+	 *
+	 * @param key the identifier
+	 * @param contentHash the content hash, or null if it is not known (articles saved before ContentHash)
+	 */
+	public synchronized void put(String key, String contentHash)
+	{
+		long k = prefix(AnnotationDictionary.hash(key));
+		if(find(keys, k)<0)
+		{
+			if((size+1)*2>keys.length)
+				keys = rehash(keys, keys.length*2);
+			keys[-find(keys, k)-1] = k;
+			size++;
+		}
+		if(contentHash==null)
+			return;
+		long h = prefix(contentHash);
+		if(find(contents, h)<0)
+		{
+			if((contentSize+1)*2>contents.length)
+				contents = rehash(contents, contents.length*2);
+			contents[-find(contents, h)-1] = h;
+			contentSize++;
+		}
+	}
+
+	public synchronized int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Finds the slot of the value: its index if present, otherwise -(free slot)-1.
+	 */
+	private static int find(long[] table, long value)
+	{
+		int mask = table.length-1;
+		int i = (int)(value^(value>>>32)) & mask;
+		while(table[i]!=0)
+		{
+			if(table[i]==value)
+				return i;
+			i = (i+1) & mask;
+		}
+		return -i-1;
+	}
+
+	private static long[] rehash(long[] table, int length)
+	{
+		long[] result = new long[length];
+		for(long value:table)
+		{
+			if(value!=0)
+				result[-find(result, value)-1] = value;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,29 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import tablInEx.Article;
+
+/**
+ * The Interface ArticleSaver. Saves processed articles with their tables, cells and annotations to a
+ * database over one connection.
+ */
+public interface ArticleSaver {
+
+	/**
+	 * Saves the article.
+	 *
+	 * @param art the article
+	 * @return true, if the article was saved
+	 */
+	public boolean SaveArticleAnnotationToDB(Article art);
+
+	/**
+	 * Closes the connection.
+	 */
+	public void CloseDBConnection();
+
+}
@@ -0,0 +1,338 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import tablInEx.Article;
+import tablInEx.Cell;
+import tablInEx.Table;
+import Utils.Author;
+
+/**
+ * The Class AsyncDataBaseSaver. Saves articles to the database in the background, so processing of the
+ * next article overlaps with saving of the previous ones. A copy of each submitted article (what the
+ * savers read from it) waits in a bounded queue (a full queue blocks the processing thread), so the article
+ * may be changed after it is submitted. Copies are saved by a number of writer threads, which take database
+ * connections from a pool shared by the writers for each article and give them back after it is saved; at
+ * most one connection per writer is opened. A connection on which an article fails is closed and the
+ * article is saved again on another one; articles that fail every time are counted and listed.
+ */
+public class AsyncDataBaseSaver {
+
+	/** The default number of writer threads. */
+	public static final int DEFAULT_WRITERS = 2;
+
+	/** The default number of articles waiting to be saved. */
+	public static final int DEFAULT_QUEUE_SIZE = 16;
+
+	/** The default number of retries of a failed article. */
+	public static final int DEFAULT_RETRIES = 2;
+
+	/** Delay before the first retry in milliseconds, doubled for each further retry. */
+	private static final long RETRY_DELAY = 1000;
+
+	/** Marks the end of the queue for one writer. */
+	private static final Article STOP = new Article("");
+
+	private BlockingQueue<Article> queue;
+	private LinkedBlockingQueue<ArticleSaver> idle = new LinkedBlockingQueue<ArticleSaver>();
+	private Thread[] writers;
+	private Thread shutdownHook;
+	private int retries;
+	private boolean closed = false;
+
+	private long submitted = 0;
+	private long saved = 0;
+	private long retried = 0;
+	private long connections = 0;
+	private List<String> failed = new LinkedList<String>();
+
+	/**
+	 * Instantiates a new asynchronous saver and starts its writers.
+	 *
+	 * @param writerCount the number of writer threads (and the maximal number of database connections)
+	 * @param queueSize the maximal number of articles waiting to be saved
+	 * @param retries the number of retries of a failed article
+	 */
+	public AsyncDataBaseSaver(int writerCount, int queueSize, int retries)
+	{
+		this.retries = retries;
+		queue = new ArrayBlockingQueue<Article>(Math.max(1, queueSize));
+		writers = new Thread[Math.max(1, writerCount)];
+		for(int i = 0;i<writers.length;i++)
+		{
+			writers[i] = new Thread(new Runnable() {
+				public void run() {
+					write();
+				}
+			}, "DataBaseWriter-"+i);
+			writers[i].setDaemon(true);
+			writers[i].start();
+		}
+		// articles still in the queue are saved when the program ends without calling close
+		shutdownHook = new Thread(new Runnable() {
+			public void run() {
+				close();
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Creates a saver with a new connection for the pool.
+	 *
+	 * @return the saver
+	 */
+	protected ArticleSaver createSaver()
+	{
+		return new DataBaseAnnotationSaver();
+	}
+
+	/**
+	 * Submits a copy of the article for saving, waiting while the queue is full.
+	 *
+	 * @param art the article
+	 */
+	public void submit(Article art)
+	{
+		synchronized(this)
+		{
+			if(closed)
+				throw new IllegalStateException("Saver is closed");
+			submitted++;
+		}
+		try{
+			queue.put(snapshot(art));
+		}catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			fail(art);
+		}
+	}
+
+	/**
+	 * Copies the fields of the article, its authors and its tables with cells (and their roles and
+	 * annotations) that the savers read. Annotations themselves are not copied, they are not changed
+	 * after they are created.
+	 */
+	private static Article snapshot(Article art)
+	{
+		Article copy = new Article(art.getFile_name());
+		copy.setTitle(art.getTitle());
+		copy.setPmid(art.getPmid());
+		copy.setPmc(art.getPmc());
+		copy.setPissn(art.getPissn());
+		copy.setEissn(art.getEissn());
+		copy.setAbstract(art.getAbstract());
+		copy.setXML(art.getXML());
+		copy.setPlain_text(art.getPlain_text());
+		copy.setPublisher_name(art.getPublisher_name());
+		copy.setPublisher_loc(art.getPublisher_loc());
+		copy.setJournal_name(art.getJournal_name());
+		copy.setSpec_id(art.getSpec_id());
+		copy.setSource(art.getSource());
+		copy.setContent_hash(art.getContent_hash());
+		LinkedList<Author> authors = new LinkedList<Author>();
+		if(art.getAuthors()!=null)
+		{
+			for(Author author:art.getAuthors())
+			{
+				Author a = new Author();
+				a.name = author.name;
+				a.email = author.email;
+				a.affiliation = new LinkedList<String>(author.affiliation);
+				authors.add(a);
+			}
+		}
+		copy.setAuthors(authors);
+		Table[] tables = art.getTables()==null?new Table[0]:art.getTables();
+		Table[] copies = new Table[tables.length];
+		for(int i = 0;i<tables.length;i++)
+		{
+			if(tables[i]==null)
+				continue;
+			Table t = new Table(tables[i].getTable_title(), tables[i].getTable_caption(), tables[i].getTable_footer());
+			t.setTableStructureType(tables[i].getTableStructureType());
+			t.PragmaticClass = tables[i].PragmaticClass;
+			t.setNoXMLTable(tables[i].isNoXMLTable());
+			t.setSectionOfTable(tables[i].getSectionOfTable());
+			Cell[][] cells = tables[i].cells;
+			if(cells!=null)
+			{
+				t.cells = new Cell[cells.length][];
+				for(int j = 0;j<cells.length;j++)
+				{
+					t.cells[j] = new Cell[cells[j].length];
+					for(int k = 0;k<cells[j].length;k++)
+					{
+						if(cells[j][k]==null)
+							continue;
+						Cell c = new Cell(cells[j][k]);
+						c.setHeader_ref(cells[j][k].getHeader_ref());
+						c.setStub_ref(cells[j][k].getStub_ref());
+						c.setSuper_row_ref(cells[j][k].getSuper_row_ref());
+						c.CellRoles = new LinkedList<String>(cells[j][k].CellRoles);
+						c.annotations.addAll(cells[j][k].annotations);
+						t.cells[j][k] = c;
+					}
+				}
+			}
+			copies[i] = t;
+		}
+		copy.setTables(copies);
+		return copy;
+	}
+
+	/**
+	 * Takes an idle saver from the pool, or creates one when all are in use by other writers.
+	 */
+	private ArticleSaver borrow()
+	{
+		ArticleSaver saver = idle.poll();
+		if(saver!=null)
+			return saver;
+		synchronized(this)
+		{
+			connections++;
+		}
+		return createSaver();
+	}
+
+	private void write()
+	{
+		while(true)
+		{
+			Article art;
+			try{
+				art = queue.take();
+			}catch(InterruptedException ex)
+			{
+				break;
+			}
+			if(art==STOP)
+				break;
+			boolean ok = false;
+			for(int attempt = 0;;attempt++)
+			{
+				ArticleSaver saver = null;
+				try{
+					saver = borrow();
+					ok = saver.SaveArticleAnnotationToDB(art);
+				}catch(Exception ex)
+				{
+					ex.printStackTrace();
+				}
+				if(ok)
+				{
+					idle.offer(saver);
+					break;
+				}
+				// the connection may be broken, the retry gets another one
+				close(saver);
+				if(attempt>=retries)
+					break;
+				synchronized(this)
+				{
+					retried++;
+				}
+				try{
+					Thread.sleep(RETRY_DELAY<<attempt);
+				}catch(InterruptedException ex)
+				{
+					break;
+				}
+			}
+			if(ok)
+			{
+				synchronized(this)
+				{
+					saved++;
+				}
+			}
+			else
+				fail(art);
+		}
+	}
+
+	private void close(ArticleSaver saver)
+	{
+		try{
+			if(saver!=null)
+				saver.CloseDBConnection();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	private synchronized void fail(Article art)
+	{
+		String name = art.getPmc();
+		if(name==null || name.length()==0)
+			name = art.getSpec_id();
+		if(name==null || name.length()==0)
+			name = art.getFile_name();
+		failed.add(name);
+	}
+
+	/**
+	 * Saves all submitted articles, then stops the writers and closes their connections.
+	 */
+	public void close()
+	{
+		synchronized(this)
+		{
+			if(closed)
+				return;
+			closed = true;
+		}
+		try{
+			for(int i = 0;i<writers.length;i++)
+				queue.put(STOP);
+			for(Thread writer:writers)
+				writer.join();
+		}catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		ArticleSaver saver;
+		while((saver = idle.poll())!=null)
+			close(saver);
+		try{
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		}catch(IllegalStateException ex)
+		{
+			// closed by the hook while the program ends
+		}
+	}
+
+	public synchronized long getSaved() {
+		return saved;
+	}
+
+	/**
+	 * Gets the articles that could not be saved.
+	 *
+	 * @return PMC, Spec ID or file names of the articles
+	 */
+	public synchronized List<String> getFailed() {
+		return new LinkedList<String>(failed);
+	}
+
+	public synchronized String getStatistics()
+	{
+		String stats = "Database: "+submitted+" articles submitted, "+saved+" saved, "+retried+" retries, "+failed.size()+" failed, "+connections+" connections opened";
+		if(!failed.isEmpty())
+			stats += " "+failed;
+		return stats;
+	}
+
+}
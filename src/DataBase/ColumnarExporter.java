@@ -0,0 +1,168 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import tablInEx.Annotation;
+import tablInEx.Article;
+import tablInEx.Cell;
+import tablInEx.Table;
+
+/**
+ * The Class ColumnarExporter. Writes the cells and cell annotations of articles to columnar files
+ * (ColumnarFile) for analysis with ColumnarReader, without the database. Every BATCH_SIZE articles make a
+ * batch, written as cells.batch.tcol and annotations.batch.tcol; later runs to the same folder continue the
+ * batch numbers. Column Cell of an annotation is the row of its cell in the cells file of the same batch.
+ */
+public class ColumnarExporter implements ArticleSaver {
+
+	/** Number of articles in a batch of files. */
+	public static final int BATCH_SIZE = 1000;
+
+	public static final String EXTENSION = ".tcol";
+
+	public static final String CELLS = "cells";
+
+	public static final String ANNOTATIONS = "annotations";
+
+	public static final String[] CELL_COLUMNS = {"Article", "TableOrder", "CellID", "RowN", "ColumnN", "Content", "CellType", "Roles", "HeaderRef", "StubRef", "SuperRowRef", "WholeHeader", "WholeStub", "WholeSuperRow"};
+
+	private static final boolean[] CELL_STRINGS = {true, true, true, false, false, true, true, true, true, true, true, true, true, true};
+
+	public static final String[] ANNOTATION_COLUMNS = {"Cell", "Start", "End", "Content", "AnnotationID", "Description", "Source"};
+
+	private static final boolean[] ANNOTATION_STRINGS = {false, false, false, true, true, true, true};
+
+	private File folder;
+	private int batch = 0;
+	private ColumnarFile.Builder cells;
+	private ColumnarFile.Builder annotations;
+	private int batchArticles = 0;
+	private long articles = 0;
+	private long cellCount = 0;
+	private long annotationCount = 0;
+	private int files = 0;
+
+	/**
+	 * Instantiates a new exporter writing to the folder.
+	 *
+	 * @param folderName the folder name
+	 */
+	public ColumnarExporter(String folderName)
+	{
+		folder = new File(folderName);
+		folder.mkdirs();
+		String[] names = folder.list();
+		for(int i = 0;names!=null && i<names.length;i++)
+		{
+			if(names[i].matches("("+CELLS+"|"+ANNOTATIONS+")\\.[0-9]+\\"+EXTENSION))
+				batch = Math.max(batch, Integer.parseInt(names[i].substring(names[i].indexOf('.')+1, names[i].lastIndexOf('.')))+1);
+		}
+		startBatch();
+	}
+
+	private void startBatch()
+	{
+		cells = new ColumnarFile.Builder(CELL_COLUMNS, CELL_STRINGS);
+		annotations = new ColumnarFile.Builder(ANNOTATION_COLUMNS, ANNOTATION_STRINGS);
+		batchArticles = 0;
+	}
+
+	/**
+	 * Adds the cells of the article to the batch, and writes the batch when it is full. Rows of an article
+	 * are added together, after all of them are made.
+	 *
+	 * @param art the article
+	 * @return true, if the rows were added
+	 */
+	public synchronized boolean SaveArticleAnnotationToDB(Article art)
+	{
+		try{
+			String article = ArticleIndex.key(art.getPmc(), art.getSpec_id());
+			if(article==null)
+				article = art.getTitle();
+			List<Object[]> cellRows = new ArrayList<Object[]>();
+			List<Object[]> annotationRows = new ArrayList<Object[]>();
+			Table[] Tables = art.getTables();
+			for(int i = 0;Tables!=null && i<Tables.length;i++)
+			{
+				if(Tables[i]==null || Tables[i].cells==null)
+					continue;
+				Cell[][] table = Tables[i].cells;
+				for(int j = 0;j<table.length;j++)
+				{
+					for(int k = 0;k<table[j].length;k++)
+					{
+						Cell cell = table[j][k];
+						if(cell==null)
+							continue;
+						StringBuilder roles = new StringBuilder();
+						for(String role:cell.CellRoles)
+							roles.append(roles.length()==0?"":",").append(role);
+						int row = cells.getRows()+cellRows.size();
+						cellRows.add(new Object[]{article, Tables[i].getTable_title(), j+"."+k, cell.getRow_number(), cell.getColumn_number(), cell.getCell_content(), cell.getCellType(), roles.toString(), cell.getHeader_ref(), cell.getStub_ref(), cell.getSuper_row_ref(), cell.getHeader_values(), cell.getStub_values(), cell.getSubheader_values()});
+						LinkedList<Annotation> annot = cell.annotations;
+						for(int l = 0;annot!=null && l<annot.size();l++)
+						{
+							Annotation a = annot.get(l);
+							annotationRows.add(new Object[]{row, a.getStart(), a.getEnd(), a.getContent(), a.getID(), a.getDescription(), a.getSource()});
+						}
+					}
+				}
+			}
+			for(Object[] row:cellRows)
+				cells.add(row);
+			for(Object[] row:annotationRows)
+				annotations.add(row);
+			cellCount += cellRows.size();
+			annotationCount += annotationRows.size();
+			articles++;
+			if(++batchArticles>=BATCH_SIZE)
+				writeBatch();
+			return true;
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+		return false;
+	}
+
+	private void writeBatch() throws Exception
+	{
+		if(batchArticles>0)
+		{
+			String number = String.format("%06d", batch);
+			cells.write(new File(folder, CELLS+"."+number+EXTENSION));
+			annotations.write(new File(folder, ANNOTATIONS+"."+number+EXTENSION));
+			files += 2;
+			batch++;
+		}
+		startBatch();
+	}
+
+	/**
+	 * Writes the last batch.
+	 */
+	public synchronized void CloseDBConnection()
+	{
+		try{
+			writeBatch();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	public synchronized String getStatistics()
+	{
+		return "Columnar export: "+articles+" articles, "+cellCount+" cells and "+annotationCount+" annotations written to "+files+" files in "+folder.getPath();
+	}
+
+}
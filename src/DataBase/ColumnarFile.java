@@ -0,0 +1,468 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The Class ColumnarFile. A file of rows stored by column, for scans that read a few columns of many rows.
+ * Columns hold strings or integers. Strings are dictionary encoded: every distinct value of the file is
+ * stored once and rows hold its number. Numbers are written as variable length integers and every column
+ * is compressed separately (deflate), so a reader inflates only the columns it needs.
+ *
+ * The header holds the number of rows and statistics of every column (nulls, distinct values, minimum and
+ * maximum of integers, compressed size), so files can be skipped without reading their columns, and columns
+ * can be read later one by one (load) once earlier ones show they are needed. Layout:
+ * magic, rows, columns, then per column name, type, nulls, distinct, minimum, maximum, size; then the
+ * compressed columns in the same order. A string column is its dictionary (count, then length and UTF-8
+ * bytes of every value) followed by value numbers plus one (0 for null); an integer column is its values,
+ * zig-zag encoded.
+ */
+public class ColumnarFile {
+
+	private static final String MAGIC = "TACOL1";
+
+	/**
+	 * The Class Column. A column read from a file; only the statistics are set when its values were not read.
+	 */
+	public static class Column {
+		public String name;
+		public boolean strings;
+		public int nulls;
+		public int distinct;
+		public int min;
+		public int max;
+		public int size;
+		/** Position of the compressed column in the file. */
+		public long offset;
+		/** Distinct values of a string column. */
+		public String[] dictionary;
+		/** Values of an integer column, or numbers of dictionary values (-1 for null) of a string column. */
+		public int[] values;
+
+		public boolean isLoaded()
+		{
+			return values!=null;
+		}
+
+		public String getString(int row)
+		{
+			int value = values[row];
+			if(strings)
+				return value<0?null:dictionary[value];
+			return Integer.toString(value);
+		}
+
+		public int getInt(int row)
+		{
+			return values[row];
+		}
+
+		/**
+		 * Selects the rows whose values the filter accepts. The filter is called once per distinct value.
+		 *
+		 * @param filter the filter
+		 * @return the rows
+		 */
+		public BitSet select(ColumnarReader.Filter filter)
+		{
+			BitSet rows = new BitSet(values.length);
+			if(strings)
+			{
+				boolean[] accepted = accepted(filter);
+				boolean acceptsNull = filter.accept(null);
+				for(int i = 0;i<values.length;i++)
+				{
+					if(values[i]<0?acceptsNull:accepted[values[i]])
+						rows.set(i);
+				}
+			}
+			else
+			{
+				for(int i = 0;i<values.length;i++)
+				{
+					if(filter.accept(Integer.toString(values[i])))
+						rows.set(i);
+				}
+			}
+			return rows;
+		}
+
+		/**
+		 * Checks whether any value of the column can be accepted, from the dictionary only.
+		 *
+		 * @param filter the filter
+		 * @return false, if no row of the file is accepted
+		 */
+		public boolean mayAccept(ColumnarReader.Filter filter)
+		{
+			if(!strings || dictionary==null)
+				return true;
+			if(nulls>0 && filter.accept(null))
+				return true;
+			for(boolean accepted:accepted(filter))
+			{
+				if(accepted)
+					return true;
+			}
+			return false;
+		}
+
+		private boolean[] accepted(ColumnarReader.Filter filter)
+		{
+			boolean[] accepted = new boolean[dictionary.length];
+			for(int i = 0;i<dictionary.length;i++)
+				accepted[i] = filter.accept(dictionary[i]);
+			return accepted;
+		}
+	}
+
+	/**
+	 * The Class Builder. Collects rows in memory and writes them as a columnar file.
+	 */
+	public static class Builder {
+		private String[] names;
+		private boolean[] strings;
+		private List<HashMap<String, Integer>> dictionaries = new ArrayList<HashMap<String, Integer>>();
+		private int[][] values;
+		private int rows = 0;
+
+		/**
+		 * Instantiates a new builder.
+		 *
+		 * @param names the column names
+		 * @param strings whether each column holds strings (otherwise integers)
+		 */
+		public Builder(String[] names, boolean[] strings)
+		{
+			this.names = names;
+			this.strings = strings;
+			values = new int[names.length][1024];
+			for(int i = 0;i<names.length;i++)
+				dictionaries.add(strings[i]?new LinkedHashMap<String, Integer>():null);
+		}
+
+		/**
+		 * Adds a row.
+		 *
+		 * @param row the values, String for string columns and Integer for integer columns
+		 * @return the number of the row
+		 */
+		public int add(Object... row)
+		{
+			if(rows==values[0].length)
+			{
+				for(int i = 0;i<values.length;i++)
+					values[i] = Arrays.copyOf(values[i], rows*2);
+			}
+			for(int i = 0;i<names.length;i++)
+			{
+				if(strings[i])
+				{
+					String value = (String)row[i];
+					int code = -1;
+					if(value!=null)
+					{
+						Integer known = dictionaries.get(i).get(value);
+						if(known==null)
+						{
+							known = dictionaries.get(i).size();
+							dictionaries.get(i).put(value, known);
+						}
+						code = known;
+					}
+					values[i][rows] = code;
+				}
+				else
+					values[i][rows] = row[i]==null?0:((Number)row[i]).intValue();
+			}
+			return rows++;
+		}
+
+		public int getRows()
+		{
+			return rows;
+		}
+
+		/**
+		 * Writes the rows to the file, under another name first so the file is complete once it exists.
+		 *
+		 * @param file the file
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		public void write(File file) throws IOException
+		{
+			List<byte[]> blocks = new ArrayList<byte[]>();
+			File temp = new File(file.getPath()+".tmp");
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1<<16));
+			out.writeUTF(MAGIC);
+			out.writeInt(rows);
+			out.writeInt(names.length);
+			for(int i = 0;i<names.length;i++)
+			{
+				ByteArrayOutputStream block = new ByteArrayOutputStream();
+				int nulls = 0;
+				int min = 0;
+				int max = 0;
+				int distinct = 0;
+				if(strings[i])
+				{
+					distinct = dictionaries.get(i).size();
+					writeVarInt(block, distinct);
+					for(String value:dictionaries.get(i).keySet())
+					{
+						byte[] bytes = value.getBytes("UTF-8");
+						writeVarInt(block, bytes.length);
+						block.write(bytes);
+					}
+					for(int r = 0;r<rows;r++)
+					{
+						if(values[i][r]<0)
+							nulls++;
+						writeVarInt(block, values[i][r]+1);
+					}
+				}
+				else
+				{
+					for(int r = 0;r<rows;r++)
+					{
+						int value = values[i][r];
+						if(r==0 || value<min)
+							min = value;
+						if(r==0 || value>max)
+							max = value;
+						writeVarInt(block, (value<<1)^(value>>31));
+					}
+				}
+				byte[] compressed = deflate(block.toByteArray());
+				blocks.add(compressed);
+				out.writeUTF(names[i]);
+				out.writeBoolean(strings[i]);
+				out.writeInt(nulls);
+				out.writeInt(distinct);
+				out.writeInt(min);
+				out.writeInt(max);
+				out.writeInt(compressed.length);
+			}
+			for(byte[] block:blocks)
+				out.write(block);
+			out.close();
+			if(file.exists())
+				file.delete();
+			if(!temp.renameTo(file))
+				throw new IOException("Could not write "+file.getPath());
+		}
+	}
+
+	private File file;
+	private int rows;
+	private LinkedHashMap<String, Column> columns = new LinkedHashMap<String, Column>();
+
+	/**
+	 * Reads the file.
+	 *
+	 * @param file the file
+	 * @param names the columns whose values are read, or null for all; statistics of all columns are read
+	 * @return the columnar file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static ColumnarFile read(File file, Collection<String> names) throws IOException
+	{
+		ColumnarFile result = new ColumnarFile();
+		result.file = file;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1<<16));
+		try{
+			if(!MAGIC.equals(in.readUTF()))
+				throw new IOException("Not a columnar file: "+file.getPath());
+			result.rows = in.readInt();
+			int count = in.readInt();
+			List<Column> order = new ArrayList<Column>();
+			for(int i = 0;i<count;i++)
+			{
+				Column column = new Column();
+				column.name = in.readUTF();
+				column.strings = in.readBoolean();
+				column.nulls = in.readInt();
+				column.distinct = in.readInt();
+				column.min = in.readInt();
+				column.max = in.readInt();
+				column.size = in.readInt();
+				order.add(column);
+				result.columns.put(column.name, column);
+			}
+			// the compressed columns end the file
+			long offset = file.length();
+			for(Column column:order)
+				offset -= column.size;
+			if(offset<0)
+				throw new IOException("Columnar file is truncated: "+file.getPath());
+			for(Column column:order)
+			{
+				column.offset = offset;
+				offset += column.size;
+			}
+		}finally
+		{
+			in.close();
+		}
+		if(names==null || !names.isEmpty())
+			result.load(names);
+		return result;
+	}
+
+	/**
+	 * Reads values of columns that were not read yet.
+	 *
+	 * @param names the columns, or null for all
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void load(Collection<String> names) throws IOException
+	{
+		RandomAccessFile in = null;
+		try{
+			for(Column column:columns.values())
+			{
+				if(column.isLoaded() || (names!=null && !names.contains(column.name)))
+					continue;
+				if(in==null)
+					in = new RandomAccessFile(file, "r");
+				if(column.offset+column.size>in.length())
+					throw new IOException("Columnar file is truncated: "+file.getPath());
+				byte[] compressed = new byte[column.size];
+				in.seek(column.offset);
+				in.readFully(compressed);
+				load(column, inflate(compressed));
+			}
+		}catch(DataFormatException ex)
+		{
+			throw new IOException("Corrupt columnar file "+file.getPath()+": "+ex.getMessage());
+		}finally
+		{
+			if(in!=null)
+				in.close();
+		}
+	}
+
+	private void load(Column column, byte[] block)
+	{
+		int[] position = {0};
+		column.values = new int[rows];
+		if(column.strings)
+		{
+			column.dictionary = new String[readVarInt(block, position)];
+			for(int i = 0;i<column.dictionary.length;i++)
+			{
+				int length = readVarInt(block, position);
+				try{
+					column.dictionary[i] = new String(block, position[0], length, "UTF-8");
+				}catch(Exception ex)
+				{
+					throw new RuntimeException(ex);
+				}
+				position[0] += length;
+			}
+			for(int r = 0;r<rows;r++)
+				column.values[r] = readVarInt(block, position)-1;
+		}
+		else
+		{
+			for(int r = 0;r<rows;r++)
+			{
+				int value = readVarInt(block, position);
+				column.values[r] = (value>>>1)^-(value & 1);
+			}
+		}
+	}
+
+	public int getRows()
+	{
+		return rows;
+	}
+
+	public Map<String, Column> getColumns()
+	{
+		return columns;
+	}
+
+	public Column getColumn(String name)
+	{
+		return columns.get(name);
+	}
+
+	private static void writeVarInt(ByteArrayOutputStream out, int value)
+	{
+		while((value & ~0x7f)!=0)
+		{
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarInt(byte[] block, int[] position)
+	{
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do{
+			b = block[position[0]++];
+			value |= (b & 0x7f)<<shift;
+			shift += 7;
+		}while((b & 0x80)!=0);
+		return value;
+	}
+
+	private static byte[] deflate(byte[] bytes)
+	{
+		Deflater deflater = new Deflater();
+		deflater.setInput(bytes);
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length/4+16);
+		byte[] buf = new byte[1<<16];
+		while(!deflater.finished())
+			out.write(buf, 0, deflater.deflate(buf));
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	private static byte[] inflate(byte[] bytes) throws DataFormatException
+	{
+		Inflater inflater = new Inflater();
+		inflater.setInput(bytes);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length*4);
+		byte[] buf = new byte[1<<16];
+		while(!inflater.finished())
+		{
+			int n = inflater.inflate(buf);
+			if(n==0 && inflater.needsInput())
+				throw new DataFormatException("Compressed column is truncated");
+			out.write(buf, 0, n);
+		}
+		inflater.end();
+		return out.toByteArray();
+	}
+
+}
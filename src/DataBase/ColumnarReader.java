@@ -0,0 +1,182 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Class ColumnarReader. Scans the columnar files written by ColumnarExporter without the database.
+ * A scan reads from every file only the columns it filters or returns, selects rows by filters on the
+ * distinct values of the file, and skips a file when the dictionary of a filtered column has no accepted
+ * value. Filtered columns are read one by one and the returned columns only for files that are not skipped.
+ *
+ * For example, numeric cells under a BMI header:
+ * reader.scan(ColumnarExporter.CELLS, filters("CellType", equalTo("Numeric"), "WholeHeader", contains("BMI")),
+ * new String[]{"Article", "Content"}, handler).
+ */
+public class ColumnarReader {
+
+	/**
+	 * The Interface Filter. Accepts values of a column; integers are given as decimal strings.
+	 */
+	public interface Filter {
+		boolean accept(String value);
+	}
+
+	/**
+	 * The Interface RowHandler. Receives the selected rows.
+	 */
+	public interface RowHandler {
+		/**
+		 * Receives a row.
+		 *
+		 * @param file the file, with the filtered and returned columns read
+		 * @param row the row in the file
+		 */
+		void row(ColumnarFile file, int row);
+	}
+
+	private File folder;
+	private long files = 0;
+	private long skipped = 0;
+
+	/**
+	 * Instantiates a new reader of the folder.
+	 *
+	 * @param folderName the folder name
+	 */
+	public ColumnarReader(String folderName)
+	{
+		folder = new File(folderName);
+	}
+
+	/**
+	 * Gets the files of a table (ColumnarExporter.CELLS or ANNOTATIONS), in the order they were written.
+	 *
+	 * @param table the table
+	 * @return the files
+	 */
+	public List<File> getFiles(String table)
+	{
+		List<File> result = new ArrayList<File>();
+		String[] files = folder.list();
+		if(files==null)
+			return result;
+		Arrays.sort(files);
+		for(String file:files)
+		{
+			if(file.startsWith(table+".") && file.endsWith(ColumnarExporter.EXTENSION))
+				result.add(new File(folder, file));
+		}
+		return result;
+	}
+
+	/**
+	 * Makes filters of pairs of a column name and a filter.
+	 *
+	 * @param pairs the column names and filters
+	 * @return the filters by column
+	 */
+	public static Map<String, Filter> filters(Object... pairs)
+	{
+		Map<String, Filter> filters = new LinkedHashMap<String, Filter>();
+		for(int i = 0;i+1<pairs.length;i += 2)
+			filters.put((String)pairs[i], (Filter)pairs[i+1]);
+		return filters;
+	}
+
+	/**
+	 * Accepts values equal to the value.
+	 */
+	public static Filter equalTo(final String value)
+	{
+		return new Filter() {
+			public boolean accept(String v) {
+				return v!=null && v.equals(value);
+			}
+		};
+	}
+
+	/**
+	 * Accepts values that contain the text, ignoring case.
+	 */
+	public static Filter contains(String text)
+	{
+		final String lower = text.toLowerCase();
+		return new Filter() {
+			public boolean accept(String v) {
+				return v!=null && v.toLowerCase().contains(lower);
+			}
+		};
+	}
+
+	/**
+	 * Scans the files of a table.
+	 *
+	 * @param table the table
+	 * @param filters the filters by column; a row is selected when all of them accept it
+	 * @param columns the columns the handler reads
+	 * @param handler the handler
+	 * @return the number of selected rows
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public long scan(String table, Map<String, Filter> filters, String[] columns, RowHandler handler) throws IOException
+	{
+		Set<String> needed = new HashSet<String>(filters.keySet());
+		needed.addAll(Arrays.asList(columns));
+		long selected = 0;
+		for(File f:getFiles(table))
+		{
+			ColumnarFile file = ColumnarFile.read(f, Collections.<String>emptySet());
+			files++;
+			boolean possible = true;
+			for(Map.Entry<String, Filter> filter:filters.entrySet())
+			{
+				ColumnarFile.Column column = file.getColumn(filter.getKey());
+				if(column==null)
+					throw new IOException("No column "+filter.getKey()+" in "+f.getPath());
+				file.load(Collections.singleton(filter.getKey()));
+				if(!column.mayAccept(filter.getValue()))
+				{
+					possible = false;
+					break;
+				}
+			}
+			if(!possible)
+			{
+				skipped++;
+				continue;
+			}
+			file.load(needed);
+			BitSet rows = new BitSet(file.getRows());
+			rows.set(0, file.getRows());
+			for(Map.Entry<String, Filter> filter:filters.entrySet())
+				rows.and(file.getColumn(filter.getKey()).select(filter.getValue()));
+			for(int row = rows.nextSetBit(0);row>=0;row = rows.nextSetBit(row+1))
+			{
+				handler.row(file, row);
+				selected++;
+			}
+		}
+		return selected;
+	}
+
+	public String getStatistics()
+	{
+		return "Columnar scans: "+files+" files, "+skipped+" skipped by their dictionaries";
+	}
+
+}
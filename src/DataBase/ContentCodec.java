@@ -0,0 +1,241 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.sql.ResultSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * The Class ContentCodec. Encodes the largest values of an article (OriginalArticle.xml and
+ * Article.PlainText, LONGBLOB columns) for the database. An encoded value starts with a codec marker: byte 0
+ * followed by the codec. Values without the marker are UTF-8 text, as written by the PLAIN codec and by
+ * earlier versions, which stored these columns as text (text never starts with byte 0).
+ *
+ * DEFLATE values continue in the format of MySQL COMPRESS() (length of the text in 4 bytes, low byte first,
+ * then a zlib stream), so SQL reads them with UNCOMPRESS(SUBSTRING(column, 3)); see view ArticleText.
+ * ARCHIVE values are the SHA-1 hash of the text and a path, relative to the archive folder, of a gzip file
+ * with the text. Files are named by their hash, so a text is archived once.
+ *
+ * Readers decode values with decode(), which handles all codecs.
+ */
+public class ContentCodec {
+
+	public enum Codec {PLAIN, DEFLATE, ARCHIVE}
+
+	private static final byte MARKER = 0;
+	private static final byte DEFLATE_MARKER = 1;
+	private static final byte ARCHIVE_MARKER = 2;
+
+	private static ContentCodec codec = new ContentCodec(Codec.PLAIN, null);
+
+	private Codec mode;
+	private File archive;
+
+	/**
+	 * Instantiates a new codec.
+	 *
+	 * @param mode the codec of values that are written
+	 * @param archiveFolder the archive folder, needed for writing and reading ARCHIVE values
+	 */
+	public ContentCodec(Codec mode, String archiveFolder)
+	{
+		this.mode = mode;
+		if(archiveFolder!=null)
+		{
+			archive = new File(archiveFolder);
+			archive.mkdirs();
+		}
+	}
+
+	/**
+	 * Gets the codec used by the savers of this process.
+	 *
+	 * @return the codec
+	 */
+	public static synchronized ContentCodec getCodec()
+	{
+		return codec;
+	}
+
+	/**
+	 * Sets the codec used by the savers of this process.
+	 *
+	 * @param c the codec
+	 */
+	public static synchronized void setCodec(ContentCodec c)
+	{
+		codec = c;
+	}
+
+	public Codec getMode()
+	{
+		return mode;
+	}
+
+	/**
+	 * Encodes the text.
+	 *
+	 * @param text the text
+	 * @return the value for the database, null for null
+	 * @throws Exception the exception
+	 */
+	public byte[] encode(String text) throws Exception
+	{
+		if(text==null)
+			return null;
+		byte[] bytes = text.getBytes("UTF-8");
+		if(mode==Codec.DEFLATE)
+			return deflate(bytes);
+		if(mode==Codec.ARCHIVE)
+			return store(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Decodes a value written with any codec.
+	 *
+	 * @param value the value from the database
+	 * @return the text, null for null
+	 * @throws Exception the exception
+	 */
+	public String decode(byte[] value) throws Exception
+	{
+		if(value==null)
+			return null;
+		if(value.length<2 || value[0]!=MARKER)
+			return new String(value, "UTF-8");
+		if(value[1]==DEFLATE_MARKER)
+			return new String(inflate(value), "UTF-8");
+		if(value[1]==ARCHIVE_MARKER)
+			return new String(load(value), "UTF-8");
+		throw new DataFormatException("Unknown codec "+value[1]);
+	}
+
+	/**
+	 * Reads and decodes a column.
+	 *
+	 * @param rs the result set
+	 * @param column the column
+	 * @return the text
+	 * @throws Exception the exception
+	 */
+	public String read(ResultSet rs, String column) throws Exception
+	{
+		return decode(rs.getBytes(column));
+	}
+
+	private static byte[] deflate(byte[] bytes)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length/4+16);
+		out.write(MARKER);
+		out.write(DEFLATE_MARKER);
+		for(int i = 0;i<4;i++)
+			out.write((bytes.length>>>(8*i)) & 0xff);
+		Deflater deflater = new Deflater();
+		deflater.setInput(bytes);
+		deflater.finish();
+		byte[] buf = new byte[1<<16];
+		while(!deflater.finished())
+		{
+			int n = deflater.deflate(buf);
+			out.write(buf, 0, n);
+		}
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	private static byte[] inflate(byte[] value) throws DataFormatException
+	{
+		int length = 0;
+		for(int i = 0;i<4;i++)
+			length |= (value[2+i] & 0xff)<<(8*i);
+		byte[] bytes = new byte[length];
+		Inflater inflater = new Inflater();
+		inflater.setInput(value, 6, value.length-6);
+		int n = 0;
+		while(n<length && !inflater.finished())
+		{
+			int read = inflater.inflate(bytes, n, length-n);
+			if(read==0 && inflater.needsInput())
+				break;
+			n += read;
+		}
+		inflater.end();
+		if(n!=length)
+			throw new DataFormatException("Compressed value is truncated");
+		return bytes;
+	}
+
+	private byte[] store(byte[] bytes) throws Exception
+	{
+		if(archive==null)
+			throw new IllegalStateException("No archive folder");
+		String hash = hash(bytes);
+		String path = hash.substring(0, 2)+"/"+hash+".gz";
+		File file = new File(archive, path);
+		if(!file.exists())
+		{
+			file.getParentFile().mkdirs();
+			// written under another name first, so a file of the archive is always complete
+			File temp = new File(file.getPath()+"."+Thread.currentThread().getId()+".tmp");
+			OutputStream out = new GZIPOutputStream(new FileOutputStream(temp));
+			out.write(bytes);
+			out.close();
+			if(!temp.renameTo(file) && !file.exists())
+				throw new IOException("Could not archive "+file.getPath());
+			temp.delete();
+		}
+		byte[] reference = (hash+"\t"+path).getBytes("UTF-8");
+		byte[] value = new byte[reference.length+2];
+		value[0] = MARKER;
+		value[1] = ARCHIVE_MARKER;
+		System.arraycopy(reference, 0, value, 2, reference.length);
+		return value;
+	}
+
+	private byte[] load(byte[] value) throws Exception
+	{
+		String[] reference = new String(value, 2, value.length-2, "UTF-8").split("\t");
+		if(archive==null)
+			throw new IllegalStateException("No archive folder for "+reference[1]);
+		InputStream in = new GZIPInputStream(new FileInputStream(new File(archive, reference[1])));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try{
+			byte[] buf = new byte[1<<16];
+			int n;
+			while((n = in.read(buf))>0)
+				out.write(buf, 0, n);
+		}finally
+		{
+			in.close();
+		}
+		byte[] bytes = out.toByteArray();
+		if(!hash(bytes).equals(reference[0]))
+			throw new DataFormatException("Archived file does not match its hash: "+reference[1]);
+		return bytes;
+	}
+
+	private static String hash(byte[] bytes) throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		for(byte b:MessageDigest.getInstance("SHA-1").digest(bytes))
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+
+}
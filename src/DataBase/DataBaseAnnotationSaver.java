@@ -5,65 +5,65 @@ import java.io.FileReader;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.sql.Types;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedList;
+import java.util.List;
 
 import Main.KeyValue;
+import Utils.Author;
 import tablInEx.Annotation;
 import tablInEx.Article;
 import tablInEx.Cell;
 import tablInEx.Table;
 
-public class DataBaseAnnotationSaver {
+public class DataBaseAnnotationSaver implements ArticleSaver {
+
+	/** Deletes the rows of an article, children before parents; each statement takes the id of the article. */
+	private static final String[] DELETE_ARTICLE = {
+		"DELETE a FROM CellAnnotation a JOIN Cell c ON c.idCell=a.Cell_idCell JOIN ArtTable t ON t.idTable=c.Table_idTable WHERE t.Article_idArticle=?",
+		"DELETE r FROM CellRoles r JOIN Cell c ON c.idCell=r.Cell_idCell JOIN ArtTable t ON t.idTable=c.Table_idTable WHERE t.Article_idArticle=?",
+		"DELETE c FROM Cell c JOIN ArtTable t ON t.idTable=c.Table_idTable WHERE t.Article_idArticle=?",
+		"DELETE p FROM TableHeader p JOIN ArtTable t ON t.idTable=p.Table_idTable WHERE t.Article_idArticle=?",
+		"DELETE p FROM TableStub p JOIN ArtTable t ON t.idTable=p.Table_idTable WHERE t.Article_idArticle=?",
+		"DELETE p FROM TableSuperRow p JOIN ArtTable t ON t.idTable=p.Table_idTable WHERE t.Article_idArticle=?",
+		"DELETE FROM ArtTable WHERE Article_idArticle=?",
+		"DELETE e FROM Email e JOIN Author a ON a.idAuthor=e.Author_idAuthor WHERE a.Article_idArticle=?",
+		"DELETE f FROM Affiliation f JOIN Author a ON a.idAuthor=f.Author_idAuthor WHERE a.Article_idArticle=?",
+		"DELETE FROM Author WHERE Article_idArticle=?",
+		"DELETE FROM OriginalArticle WHERE Article_idArticle=?",
+		"DELETE FROM Article WHERE idArticle=?"
+	};
+
 	public Connection conn = null;
 	Statement stmt = null;
 	ResultSet rs = null;
+	private DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+	private PreparedStatement selectByPmc;
+	private PreparedStatement selectBySpecId;
+	private PreparedStatement[] deleteArticle = new PreparedStatement[DELETE_ARTICLE.length];
+	private PreparedStatement insertArticle;
+	private PreparedStatement insertOriginalArticle;
+	private PreparedStatement insertAuthor;
+	private PreparedStatement insertEmail;
+	private PreparedStatement insertAffiliation;
+	private PreparedStatement insertTable;
+	private PreparedStatement[] insertPath = new PreparedStatement[TablePaths.TABLES.length];
+	private PreparedStatement insertCell;
+	private PreparedStatement insertCellRole;
+	private PreparedStatement insertAnnotation;
 	
 	public DataBaseAnnotationSaver(){
 		 try {
-			 BufferedReader br = new BufferedReader(new FileReader("settings.cfg"));
-			        // StringBuilder sb = new StringBuilder();
-				String line = br.readLine();
-				String host="";
-				String database_name= "";
-				String database_username = "";
-				String database_password = "";
-				String database_port = "";
-				while (line != null && line != "") {
-					KeyValue kv = new KeyValue();
-					String[] parts = line.split(";");
-					kv.key = parts[0];
-					kv.value = parts[1];
-					if (kv.key.equals("database_host")) {
-						host = kv.value;
-					}
-					if (kv.key.equals("database_name")) {
-						database_name = kv.value;
-					}
-					if (kv.key.equals("database_username")) {
-						database_username = kv.value;
-					}
-					if (kv.key.equals("database_password")) {
-						database_password = kv.value;
-					}
-					if (kv.key.equals("database_port")) {
-						database_port = kv.value;
-					}
-					line = br.readLine();
-				}
-			 	
-				database_password = database_password.replace("\"", "");
-				Class.forName("com.mysql.jdbc.Driver").newInstance();
-				String connectionUrl = "jdbc:mysql://"+host+":"+database_port+"/"+database_name;
-				String connectionUser = database_username;
-				String connectionPassword = database_password;
-				conn = DriverManager.getConnection(connectionUrl, connectionUser, connectionPassword);	
+				conn = openConnection();
+				conn.setAutoCommit(false);
+				prepareStatements();
 				//stmt = conn.createStatement();
 		 }catch(SQLException ex)
 		 {
@@ -77,243 +77,393 @@ public class DataBaseAnnotationSaver {
 			 ex.printStackTrace();
 		 }
 	}
+
+	/**
+	 * Opens a connection to the database set in settings.cfg.
+	 *
+	 * @return the connection
+	 * @throws Exception the exception
+	 */
+	public static Connection openConnection() throws Exception
+	{
+		BufferedReader br = new BufferedReader(new FileReader("settings.cfg"));
+		// StringBuilder sb = new StringBuilder();
+		String line = br.readLine();
+		String host="";
+		String database_name= "";
+		String database_username = "";
+		String database_password = "";
+		String database_port = "";
+		while (line != null && line != "") {
+			KeyValue kv = new KeyValue();
+			String[] parts = line.split(";");
+			kv.key = parts[0];
+			kv.value = parts[1];
+			if (kv.key.equals("database_host")) {
+				host = kv.value;
+			}
+			if (kv.key.equals("database_name")) {
+				database_name = kv.value;
+			}
+			if (kv.key.equals("database_username")) {
+				database_username = kv.value;
+			}
+			if (kv.key.equals("database_password")) {
+				database_password = kv.value;
+			}
+			if (kv.key.equals("database_port")) {
+				database_port = kv.value;
+			}
+			line = br.readLine();
+		}
+		br.close();
+
+		database_password = database_password.replace("\"", "");
+		Class.forName("com.mysql.jdbc.Driver").newInstance();
+		// rewriteBatchedStatements sends a batch of inserts as one multi-row insert
+		String connectionUrl = "jdbc:mysql://"+host+":"+database_port+"/"+database_name+"?rewriteBatchedStatements=true";
+		String connectionUser = database_username;
+		String connectionPassword = database_password;
+		return DriverManager.getConnection(connectionUrl, connectionUser, connectionPassword);	
+	}
 	
-	public void SaveArticleAnnotationToDB(Article art)
+	/**
+	 * Prepares the insert statements of the connection, which are used for all saved articles.
+	 *
+	 * @throws SQLException the SQL exception
+	 */
+	private void prepareStatements() throws SQLException
+	{
+		selectByPmc = conn.prepareStatement("SELECT idArticle FROM Article WHERE PMCID=?");
+		selectBySpecId = conn.prepareStatement("SELECT idArticle FROM Article WHERE SpecId=? AND (PMCID IS NULL OR PMCID='')");
+		for(int i = 0;i<deleteArticle.length;i++)
+			deleteArticle[i] = conn.prepareStatement(DELETE_ARTICLE[i]);
+		insertArticle = conn.prepareStatement("INSERT INTO Article (idArticle,PMCID,PMID,pissn,eissn,Title,Abstract,JournalName,JournalPublisherName,JournalPublisherLocation,Source,SpecId,PlainText,ContentHash) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+		insertOriginalArticle = conn.prepareStatement("INSERT INTO OriginalArticle (PMID,PMCID,pissn,eissn,xml,Article_idArticle) VALUES (?,?,?,?,?,?)");
+		insertAuthor = conn.prepareStatement("INSERT INTO Author (idAuthor,FirstName,LastName,Article_idArticle) VALUES (?,?,?,?)");
+		insertEmail = conn.prepareStatement("INSERT INTO Email (Email,Author_idAuthor) VALUES (?,?)");
+		insertAffiliation = conn.prepareStatement("INSERT INTO Affiliation (AffiliationName,Author_idAuthor) VALUES (?,?)");
+		insertTable = conn.prepareStatement("INSERT INTO ArtTable (idTable,TableOrder,TableCaption,TableFooter,StructureType,PragmaticType,HasXML,Article_idArticle,Section) VALUES (?,?,?,?,?,?,?,?,?)");
+		for(int i = 0;i<insertPath.length;i++)
+			insertPath[i] = conn.prepareStatement("INSERT INTO "+TablePaths.TABLES[i]+" (Table_idTable,Ordinal,Value) VALUES (?,?,?)");
+		insertCell = conn.prepareStatement("INSERT INTO Cell (idCell,CellID,CellType,Table_idTable,RowN,ColumnN,HeaderRef,StubRef,SuperRowRef,Content,HeaderOrdinal,StubOrdinal,SuperRowOrdinal) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)");
+		insertCellRole = conn.prepareStatement("INSERT INTO CellRoles (CellRole_idCellRole,Cell_idCell) VALUES (?,?)");
+		insertAnnotation = conn.prepareStatement("INSERT INTO CellAnnotation (Content,Start,End,Cell_idCell,Concept_idConcept,Provenance_idProvenance) VALUES (?,?,?,?,?,?)");
+	}
+
+	/**
+	 * Saves the article with its authors, tables, cells and annotations in one transaction. Ids of all rows
+	 * are allocated first (IdAllocator), then rows of each table are inserted in one batch, parents before
+	 * children; nothing is saved if any of the inserts fails. An article read with a content hash
+	 * (-databaseincremental) replaces the articles saved earlier with its PMCID, or SpecId when it has no
+	 * PMCID, in the same transaction.
+	 *
+	 * @param art the article
+	 * @return true, if the article was saved
+	 */
+	public boolean SaveArticleAnnotationToDB(Article art)
 	{
 		try {
-			Statement stmt = conn.createStatement();
-			String insertTableSQL = "INSERT INTO Article (PMCID,PMID,pissn,eissn,Title,Abstract,JournalName,JournalPublisherName,JournalPublisherLocation,Source,SpecId,PlainText) VALUES (?,?,?,?,?,?,?,?,?,?,?,?)";
-			PreparedStatement preparedStatement = conn.prepareStatement(insertTableSQL,Statement.RETURN_GENERATED_KEYS);
-			preparedStatement.setString(1, art.getPmc());
-			preparedStatement.setString(2, art.getPmid());
-			preparedStatement.setString(3, art.getPissn());
-			preparedStatement.setString(4, art.getPissn());
-			preparedStatement.setString(5, art.getTitle());
-			preparedStatement.setString(6, art.getAbstract());
-			preparedStatement.setString(7, art.getJournal_name());
-			preparedStatement.setString(8, art.getPublisher_name());
-			preparedStatement.setString(9, art.getPublisher_loc());
-			preparedStatement.setString(10, art.getSource());
-			preparedStatement.setString(11, art.getSpec_id());
-			preparedStatement.setString(12, art.getPlain_text());
-			// execute insert SQL stetement
-			int articleId = preparedStatement.executeUpdate();
-			ResultSet rs1 = preparedStatement.getGeneratedKeys();
-	        if(rs1.next())
-	        {
-	        	articleId = rs1.getInt(1);
-	        }
-	        
-            //-----------------------------------------------
-            Statement stmt12 = conn.createStatement();
-	  		String insertTableSQL12 = "INSERT INTO OriginalArticle (PMID,PMCID,pissn,eissn,xml,Article_idArticle) VALUES (?,?,?,?,?,?)";
-	  		PreparedStatement preparedStatement12 = conn.prepareStatement(insertTableSQL12,Statement.RETURN_GENERATED_KEYS);
-	  		preparedStatement12.setString(1,art.getPmid());
-	  		preparedStatement12.setString(2, art.getPmid());
-	  		preparedStatement12.setString(3, art.getPissn());
-	  		preparedStatement12.setString(4, art.getEissn());
-	  		preparedStatement12.setString(5,art.getXML());
-	  		preparedStatement12.setInt(6,articleId);
-	  		
-	  		// execute insert SQL stetement
-	  		int TableXMLId = preparedStatement12.executeUpdate();
-	  		ResultSet rs12 = preparedStatement12.getGeneratedKeys();
-            if(rs12.next())
-            {
-            	TableXMLId = rs12.getInt(1);
-            }
-            
-            
-            //-------------------------------------------------
-	        
-	        
-			int authorId = -1;
-			
-			for(int i = 0;i<art.getAuthors().size();i++)
+			if(insertArticle==null)
+				prepareStatements();
+			if(art.getContent_hash()!=null)
+				deleteEarlier(art);
+			IdAllocator ids = IdAllocator.getAllocator();
+			int articleId = ids.allocate("Article", 1)[0];
+			insertArticle.setInt(1, articleId);
+			insertArticle.setString(2, art.getPmc());
+			insertArticle.setString(3, art.getPmid());
+			insertArticle.setString(4, art.getPissn());
+			insertArticle.setString(5, art.getPissn());
+			insertArticle.setString(6, art.getTitle());
+			insertArticle.setString(7, art.getAbstract());
+			insertArticle.setString(8, art.getJournal_name());
+			insertArticle.setString(9, art.getPublisher_name());
+			insertArticle.setString(10, art.getPublisher_loc());
+			insertArticle.setString(11, art.getSource());
+			insertArticle.setString(12, art.getSpec_id());
+			// plain text and XML are stored compressed or archived when a codec is set (ContentCodec)
+			ContentCodec codec = ContentCodec.getCodec();
+			insertArticle.setBytes(13, codec.encode(art.getPlain_text()));
+			insertArticle.setString(14, art.getContent_hash());
+			insertArticle.executeUpdate();
+
+			insertOriginalArticle.setString(1,art.getPmid());
+			insertOriginalArticle.setString(2, art.getPmid());
+			insertOriginalArticle.setString(3, art.getPissn());
+			insertOriginalArticle.setString(4, art.getEissn());
+			insertOriginalArticle.setBytes(5,codec.encode(art.getXML()));
+			insertOriginalArticle.setInt(6,articleId);
+			insertOriginalArticle.executeUpdate();
+
+			LinkedList<Author> authors = art.getAuthors();
+			if(authors.size()>0)
 			{
+				int[] authorIds = ids.allocate("Author", authors.size());
+				int affiliations = 0;
+				for(int i = 0;i<authors.size();i++)
+				{
+					String AuthorName = authors.get(i).name;
+					String AuthorFName = "";
+					String AuthorSName = "";
+					String[] AuthorFirstSecondName = AuthorName.split(",");
+					if(AuthorFirstSecondName.length>1)
+						AuthorFName = AuthorFirstSecondName[1];
+					AuthorSName = AuthorFirstSecondName[0];
+					insertAuthor.setInt(1, authorIds[i]);
+					insertAuthor.setString(2, AuthorFName);
+					insertAuthor.setString(3, AuthorSName);
+					insertAuthor.setInt(4, articleId);
+					insertAuthor.addBatch();
 
-			    	//Add new Author to DB
-			    	Statement stmt2 = conn.createStatement();
-			  		String insertTableSQL2 = "INSERT INTO Author (FirstName,LastName,Article_idArticle) VALUES (?,?,?)";
-			  		PreparedStatement preparedStatement2 = conn.prepareStatement(insertTableSQL2,Statement.RETURN_GENERATED_KEYS);
-			  		String AuthorName = art.getAuthors().get(i).name;
-			  		String AuthorFName = "";
-			  		String AuthorSName = "";
-			  		String[] AuthorFirstSecondName = AuthorName.split(",");
-			    	if(AuthorFirstSecondName.length>1)
-			    		AuthorFName = AuthorFirstSecondName[1];
-			    	AuthorSName = AuthorFirstSecondName[0];
-			  		preparedStatement2.setString(1, AuthorFName);
-			  		preparedStatement2.setString(2, AuthorSName);
-			  		preparedStatement2.setInt(3, articleId);
-			  		// execute insert SQL stetement
-			  		authorId = preparedStatement2.executeUpdate();
-			  		ResultSet rs = preparedStatement2.getGeneratedKeys();
-	                if(rs.next())
-	                {
-	                	authorId = rs.getInt(1);
-	                }
-			  		
-	                Statement stmt4 = conn.createStatement();
-			  		String insertTableSQL4 = "INSERT INTO Email (Email,Author_idAuthor) VALUES (?,?)";
-			  		PreparedStatement preparedStatement4 = conn.prepareStatement(insertTableSQL4,Statement.RETURN_GENERATED_KEYS);
-			  		preparedStatement4.setString(1, art.getAuthors().get(i).email);
-			  		preparedStatement4.setInt(2, authorId);
-			  		// execute insert SQL stetement
-			  		int EmailId = preparedStatement4.executeUpdate();
-			  		ResultSet rs3 = preparedStatement4.getGeneratedKeys();
-	                if(rs3.next())
-	                {
-	                	EmailId = rs3.getInt(1);
-	                }
-			  		
-			  		LinkedList<String> affs =art.getAuthors().get(i).affiliation;
-			  		for(int j =0;j<affs.size();j++)
-			  		{
-			  			Statement stmt5 = conn.createStatement();
-				  		String insertTableSQL5 = "INSERT INTO Affiliation (AffiliationName,Author_idAuthor) VALUES (?,?)";
-				  		PreparedStatement preparedStatement5 = conn.prepareStatement(insertTableSQL5,Statement.RETURN_GENERATED_KEYS);
-				  		preparedStatement5.setString(1, affs.get(j));
-				  		preparedStatement5.setInt(2, authorId);
-				  		// execute insert SQL stetement
-				  		int AffId = preparedStatement5.executeUpdate();
-				  		ResultSet rs4 = preparedStatement5.getGeneratedKeys();
-		                if(rs4.next())
-		                {
-		                	AffId = rs4.getInt(1);
-		                }
-			  		}     
+					insertEmail.setString(1, authors.get(i).email);
+					insertEmail.setInt(2, authorIds[i]);
+					insertEmail.addBatch();
+					LinkedList<String> affs = authors.get(i).affiliation;
+					for(int j =0;j<affs.size();j++)
+					{
+						insertAffiliation.setString(1, affs.get(j));
+						insertAffiliation.setInt(2, authorIds[i]);
+						insertAffiliation.addBatch();
+						affiliations++;
+					}
+				}
+				insertAuthor.executeBatch();
+				insertEmail.executeBatch();
+				if(affiliations>0)
+					insertAffiliation.executeBatch();
 			}
+
 			Table[] Tables = art.getTables();
+			int tableCount = 0;
+			int cellCount = 0;
+			for(int i = 0;i<Tables.length;i++)
+			{
+				if(Tables[i]==null)
+					continue;
+				tableCount++;
+				Cell[][] cells = Tables[i].cells;
+				for(int j = 0;cells!=null && j<cells.length;j++)
+					cellCount += cells[j].length;
+			}
+			int[] tableIds = ids.allocate("ArtTable", tableCount);
+			int[] cellIds = ids.allocate("Cell", cellCount);
+			String date = dateFormat.format(new Date());
+			int t = 0;
+			int c = 0;
+			int roles = 0;
+			int[] pathCount = new int[insertPath.length];
+			List<Annotation> annotations = new ArrayList<Annotation>();
+			List<Integer> annotationCells = new ArrayList<Integer>();
 			for(int i = 0;i<Tables.length;i++)
 			{
 				if(Tables[i]==null){
 					continue;
 				}
-				Statement stmt6 = conn.createStatement();
-		  		String insertTableSQL6 = "INSERT INTO ArtTable (TableOrder,TableCaption,TableFooter,StructureType,PragmaticType,HasXML,Article_idArticle,Section) VALUES (?,?,?,?,?,?,?,?)";
-		  		PreparedStatement preparedStatement6 = conn.prepareStatement(insertTableSQL6,Statement.RETURN_GENERATED_KEYS);
-		  		preparedStatement6.setString(1,Tables[i].getTable_title());
-		  		preparedStatement6.setString(2, Tables[i].getTable_caption());
-		  		preparedStatement6.setString(3, Tables[i].getTable_footer());
-		  		preparedStatement6.setString(4, Tables[i].getTableStructureType().name());
-		  		preparedStatement6.setString(5, Tables[i].PragmaticClass);
-		  		
-		  		if(Tables[i].isNoXMLTable())
-		  			preparedStatement6.setString(6, "no"); //maybe change
-		  		else 
-		  			preparedStatement6.setString(6, "yes");
-		  		preparedStatement6.setInt(7,articleId);
-		  		preparedStatement6.setString(8, Tables[i].getSectionOfTable());
-		  		
-		  		// execute insert SQL stetement
-		  		int TableId = preparedStatement6.executeUpdate();
-		  		ResultSet rs4 = preparedStatement6.getGeneratedKeys();
-	            if(rs4.next())
-	            {
-	            	TableId = rs4.getInt(1);
-	            }
-	                        
-	            Cell[][] cells = Tables[i].cells;
-	            for(int j = 0;j<cells.length;j++)
-	            {
-	             for(int k = 0;k<cells[j].length;k++){
-	            	Statement stmt7 = conn.createStatement();
-	    	  		String insertTableSQL7 = "INSERT INTO Cell (CellID,CellType,Table_idTable,RowN,ColumnN,HeaderRef,StubRef,SuperRowRef,Content,WholeHeader,WholeStub,WholeSuperRow) VALUES (?,?,?,?,?,?,?,?,?,?,?,?)";
-	    	  		PreparedStatement preparedStatement7 = conn.prepareStatement(insertTableSQL7,Statement.RETURN_GENERATED_KEYS);
-	    	  		preparedStatement7.setString(1,""+j+"."+k);
-	    	  		preparedStatement7.setString(2, cells[j][k].getCellType());
-	    	  		preparedStatement7.setInt(3,TableId);
-	    	  		preparedStatement7.setString(4, cells[j][k].getRow_number()+"");
-	    	  		preparedStatement7.setString(5, cells[j][k].getColumn_number()+"");
-	    	  		preparedStatement7.setString(6, cells[j][k].getHeader_ref()); //maybe change
-	    	  		preparedStatement7.setString(7,cells[j][k].getStub_ref());
-	    	  		preparedStatement7.setString(8,cells[j][k].getSuper_row_ref());
-	    	  		preparedStatement7.setString(9,cells[j][k].getCell_content());
-	    	  		preparedStatement7.setString(10,cells[j][k].getHeader_values());
-	    	  		preparedStatement7.setString(11,cells[j][k].getStub_values());
-	    	  		preparedStatement7.setString(12,cells[j][k].getSubheader_values());
-	    	  		
-	    	  		// execute insert SQL stetement
-	    	  		int CellId = preparedStatement7.executeUpdate();
-	    	  		ResultSet rs5 = preparedStatement7.getGeneratedKeys();
-	                if(rs5.next())
-	                {
-	                	CellId = rs5.getInt(1);
-	                }
-	    	  		
-	    	  		for(int l=0;l<cells[j][k].CellRoles.size();l++)
-	    	  		{
-		  				String insertTableSQL8 = "INSERT INTO CellRoles (CellRole_idCellRole,Cell_idCell) VALUES (?,?)";
-		    	  		PreparedStatement preparedStatement8 = conn.prepareStatement(insertTableSQL8,Statement.RETURN_GENERATED_KEYS);
-	    	  			if(cells[j][k].CellRoles.get(l).equals("Header"))
-	    	  			{
-	    	    	  		preparedStatement8.setInt(1,1);
-	    	  			}
-	    	  			if(cells[j][k].CellRoles.get(l).equals("Stub"))
-	    	  			{
-	    	    	  		preparedStatement8.setInt(1,2);
-	    	  			}
-	    	  			if(cells[j][k].CellRoles.get(l).equals("Data"))
-	    	  			{
-	    	    	  		preparedStatement8.setInt(1,3);
-	    	  			}
-	    	  			if(cells[j][k].CellRoles.get(l).equals("SuperRow"))
-	    	  			{
-	    	    	  		preparedStatement8.setInt(1,4);
-	    	  			}
-		    	  		preparedStatement8.setInt(2, CellId);
-		    	  		preparedStatement8.executeUpdate();
-	    	  			
-	    	  		}
-	    	  		
-	    	  		LinkedList<Annotation> annot = cells[j][k].annotations;
-	    	  		for(int l = 0; l<annot.size();l++)
-	    	  		{
-	    	  			Statement stmt8 = conn.createStatement();
-	        	  		String insertTableSQL8 = "INSERT INTO Annotation (Content,Start,End,AnnotationID,AgentType,AgentName,AnnotationURL,EnvironmentDescription,Cell_idCell,AnnotationDescription,AnnotationSchemaVersion,DateOfAction, Location) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)";
-	        	  		PreparedStatement preparedStatement8 = conn.prepareStatement(insertTableSQL8,Statement.RETURN_GENERATED_KEYS);
-	        	  		preparedStatement8.setString(1,annot.get(l).getContent());
-	        	  		preparedStatement8.setInt(2,annot.get(l).getStart());
-	        	  		preparedStatement8.setInt(3,annot.get(l).getEnd());
-	        	  		preparedStatement8.setString(4,annot.get(l).getID());
-	        	  		preparedStatement8.setString(5,"Software");
-	        	  		preparedStatement8.setString(6,annot.get(l).getSource());
-	        	  		preparedStatement8.setString(7,annot.get(l).getURL());
-	        	  		preparedStatement8.setString(8,annot.get(l).getEnvironment()); 
-	        	  		preparedStatement8.setInt(9,CellId);
-	        	  		preparedStatement8.setString(10,annot.get(l).getDescription());
-	        	  		preparedStatement8.setString(11,annot.get(l).getAgentVersion());// Should be version
-	        	  		//DateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-					DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-	        	  		Date date = new Date();
-	        	  		preparedStatement8.setString(12,dateFormat.format(date));
-	        	  		preparedStatement8.setString(13,annot.get(l).getLocation()); // Should be location
-	        	  		// execute insert SQL stetement
-	        	  		preparedStatement8.executeUpdate();
-	    	  		}
-	               
-	            }
-	            }
+				int TableId = tableIds[t++];
+				insertTable.setInt(1, TableId);
+				insertTable.setString(2,Tables[i].getTable_title());
+				insertTable.setString(3, Tables[i].getTable_caption());
+				insertTable.setString(4, Tables[i].getTable_footer());
+				insertTable.setString(5, Tables[i].getTableStructureType().name());
+				insertTable.setString(6, Tables[i].PragmaticClass);
+				if(Tables[i].isNoXMLTable())
+					insertTable.setString(7, "no"); //maybe change
+				else
+					insertTable.setString(7, "yes");
+				insertTable.setInt(8,articleId);
+				insertTable.setString(9, Tables[i].getSectionOfTable());
+				insertTable.addBatch();
+
+				// whole header, stub and super-row are stored once per table, cells refer to them by ordinal
+				TablePaths paths = new TablePaths();
+				Cell[][] cells = Tables[i].cells;
+				for(int j = 0;cells!=null && j<cells.length;j++)
+				{
+					for(int k = 0;k<cells[j].length;k++){
+						int CellId = cellIds[c++];
+						Integer[] ordinals = paths.getOrdinals(cells[j][k]);
+						insertCell.setInt(1, CellId);
+						insertCell.setString(2,""+j+"."+k);
+						insertCell.setString(3, cells[j][k].getCellType());
+						insertCell.setInt(4,TableId);
+						insertCell.setString(5, cells[j][k].getRow_number()+"");
+						insertCell.setString(6, cells[j][k].getColumn_number()+"");
+						insertCell.setString(7, cells[j][k].getHeader_ref()); //maybe change
+						insertCell.setString(8,cells[j][k].getStub_ref());
+						insertCell.setString(9,cells[j][k].getSuper_row_ref());
+						insertCell.setString(10,cells[j][k].getCell_content());
+						for(int l = 0;l<ordinals.length;l++)
+						{
+							if(ordinals[l]==null)
+								insertCell.setNull(11+l, Types.INTEGER);
+							else
+								insertCell.setInt(11+l, ordinals[l]);
+						}
+						insertCell.addBatch();
+
+						for(int l=0;l<cells[j][k].CellRoles.size();l++)
+						{
+							int role = getCellRoleId(cells[j][k].CellRoles.get(l));
+							if(role==0)
+								continue;
+							insertCellRole.setInt(1,role);
+							insertCellRole.setInt(2, CellId);
+							insertCellRole.addBatch();
+							roles++;
+						}
+
+						for(Annotation annot:cells[j][k].annotations)
+						{
+							annotations.add(annot);
+							annotationCells.add(CellId);
+						}
+					}
+				}
+				for(int l = 0;l<insertPath.length;l++)
+				{
+					List<String> values = paths.getValues(l);
+					for(int o = 0;o<values.size();o++)
+					{
+						insertPath[l].setInt(1, TableId);
+						insertPath[l].setInt(2, o+1);
+						insertPath[l].setString(3, values.get(o));
+						insertPath[l].addBatch();
+						pathCount[l]++;
+					}
+				}
 			}
+			if(tableCount>0)
+				insertTable.executeBatch();
+			for(int l = 0;l<insertPath.length;l++)
+			{
+				if(pathCount[l]>0)
+					insertPath[l].executeBatch();
 			}
-			catch (SQLException ex) {
-			    // handle any errors
-			    System.out.println("SQLException: " + ex.getMessage());
-			    System.out.println("SQLState: " + ex.getSQLState());
-			    System.out.println("VendorError: " + ex.getErrorCode());
-		 }
-		 catch(Exception ex)
-		 {
-			 ex.printStackTrace();
-		 }
-		
+			if(cellCount>0)
+				insertCell.executeBatch();
+			if(roles>0)
+				insertCellRole.executeBatch();
+			if(annotations.size()>0)
+			{
+				// concepts and provenance are stored once, annotations refer to them
+				List<String[]> concepts = new ArrayList<String[]>();
+				List<String[]> provenance = new ArrayList<String[]>();
+				for(Annotation annot:annotations)
+				{
+					concepts.add(new String[]{annot.getID(), annot.getURL(), annot.getDescription()});
+					provenance.add(new String[]{"Software", annot.getSource(), annot.getEnvironment(), annot.getAgentVersion(), annot.getLocation(), date});
+				}
+				int[] conceptIds = AnnotationDictionary.getConcepts().lookup(concepts);
+				int[] provenanceIds = AnnotationDictionary.getProvenance().lookup(provenance);
+				for(int l = 0;l<annotations.size();l++)
+				{
+					insertAnnotation.setString(1,annotations.get(l).getContent());
+					insertAnnotation.setInt(2,annotations.get(l).getStart());
+					insertAnnotation.setInt(3,annotations.get(l).getEnd());
+					insertAnnotation.setInt(4,annotationCells.get(l));
+					insertAnnotation.setInt(5,conceptIds[l]);
+					insertAnnotation.setInt(6,provenanceIds[l]);
+					insertAnnotation.addBatch();
+				}
+				insertAnnotation.executeBatch();
+			}
+			conn.commit();
+			return true;
+		}
+		catch (SQLException ex) {
+			// handle any errors
+			System.out.println("SQLException: " + ex.getMessage());
+			System.out.println("SQLState: " + ex.getSQLState());
+			System.out.println("VendorError: " + ex.getErrorCode());
+			rollback();
+		}
+		catch(Exception ex)
+		{
+			ex.printStackTrace();
+			rollback();
+		}
+		return false;
 	}
-	
+
+	/**
+	 * Deletes the articles saved earlier with the identifier of the article (ArticleIndex.key).
+	 *
+	 * @param art the article
+	 * @throws SQLException the SQL exception
+	 */
+	private void deleteEarlier(Article art) throws SQLException
+	{
+		PreparedStatement select;
+		if(art.getPmc()!=null && art.getPmc().length()>0)
+		{
+			select = selectByPmc;
+			select.setString(1, art.getPmc());
+		}
+		else if(art.getSpec_id()!=null && art.getSpec_id().length()>0)
+		{
+			select = selectBySpecId;
+			select.setString(1, art.getSpec_id());
+		}
+		else
+			return;
+		List<Integer> earlier = new ArrayList<Integer>();
+		ResultSet rs = select.executeQuery();
+		while(rs.next())
+			earlier.add(rs.getInt(1));
+		rs.close();
+		for(int id:earlier)
+		{
+			for(PreparedStatement delete:deleteArticle)
+			{
+				delete.setInt(1, id);
+				delete.executeUpdate();
+			}
+		}
+	}
+
+	private int getCellRoleId(String role)
+	{
+		if(role.equals("Header"))
+			return 1;
+		if(role.equals("Stub"))
+			return 2;
+		if(role.equals("Data"))
+			return 3;
+		if(role.equals("SuperRow"))
+			return 4;
+		return 0;
+	}
+
+	/**
+	 * Rolls back the unfinished article and drops the rows batched for it.
+	 */
+	private void rollback()
+	{
+		try {
+			PreparedStatement[] batched = {insertAuthor, insertEmail, insertAffiliation, insertTable, insertCell, insertCellRole, insertAnnotation};
+			for(PreparedStatement stmt:batched)
+			{
+				if(stmt!=null)
+					stmt.clearBatch();
+			}
+			for(PreparedStatement stmt:insertPath)
+			{
+				if(stmt!=null)
+					stmt.clearBatch();
+			}
+			if(conn!=null)
+				conn.rollback();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
 	public void CloseDBConnection()
 	{
 		try {
-			conn.close();
+			if(conn!=null)
+				conn.close();
 		} catch (SQLException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
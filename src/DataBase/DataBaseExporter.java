@@ -0,0 +1,519 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import tablInEx.Annotation;
+import tablInEx.Article;
+import tablInEx.Cell;
+import tablInEx.Table;
+import Utils.Author;
+
+/**
+ * The Class DataBaseExporter. Writes articles as rows of the database tables (Article, OriginalArticle,
+ * Author, Email, Affiliation, ArtTable, TableHeader, TableStub, TableSuperRow, Cell, CellRoles, Concept, AnnotationProvenance and CellAnnotation)
+ * to tab separated files, which are loaded into MySQL with LOAD DATA instead of inserting rows over JDBC.
+ * Primary and foreign keys are assigned by the exporter, continuing from earlier exports to the same folder,
+ * so the files of a folder are loaded into a database that contains no other rows of these tables.
+ *
+ * Every run writes its own segment of files (Table.run.part.tsv, a new part after SEGMENT_SIZE characters)
+ * and two loader scripts: load.run.sql loads only the segment of the run, into a database that holds the
+ * earlier runs of the folder, and load.sql (rewritten every run) loads all segments of the folder into a
+ * database without rows of these tables. Scripts are run with mysql --local-infile=1 database &lt; load.sql.
+ */
+public class DataBaseExporter implements ArticleSaver {
+
+	/** Number of characters after which a new file of a table is started. */
+	public static final long SEGMENT_SIZE = 256L*1024*1024;
+
+	/** Name of the file with the next free ids and run number. */
+	public static final String STATE_FILE = "export.state";
+
+	/** Name of the loader script of all runs. */
+	public static final String SCRIPT_FILE = "load.sql";
+
+	/** Tables in the order they are loaded. */
+	private static final String[] TABLES = {"Article", "OriginalArticle", "Author", "Email", "Affiliation", "ArtTable", "TableHeader", "TableStub", "TableSuperRow", "Cell", "CellRoles", "Concept", "AnnotationProvenance", "CellAnnotation"};
+
+	/** Columns of the files of each table, primary key first; values of columns marked with @ are hexadecimal bytes (ContentCodec). */
+	private static final String[] COLUMNS = {
+		"idArticle,PMCID,PMID,pissn,eissn,Title,Abstract,JournalName,JournalPublisherName,JournalPublisherLocation,Source,SpecId,@PlainText,ContentHash",
+		"idOriginalArticle,PMID,PMCID,pissn,eissn,@xml,Article_idArticle",
+		"idAuthor,FirstName,LastName,Article_idArticle",
+		"idEmail,Email,Author_idAuthor",
+		"idAffiliation,AffiliationName,Author_idAuthor",
+		"idTable,TableOrder,TableCaption,TableFooter,StructureType,PragmaticType,HasXML,Article_idArticle,Section",
+		"Table_idTable,Ordinal,Value",
+		"Table_idTable,Ordinal,Value",
+		"Table_idTable,Ordinal,Value",
+		"idCell,CellID,CellType,Table_idTable,RowN,ColumnN,HeaderRef,StubRef,SuperRowRef,Content,HeaderOrdinal,StubOrdinal,SuperRowOrdinal",
+		"idCellRoles,CellRole_idCellRole,Cell_idCell",
+		"idConcept,Hash,AnnotationID,AnnotationURL,AnnotationDescription",
+		"idProvenance,Hash,AgentType,AgentName,EnvironmentDescription,AnnotationSchemaVersion,Location,DateOfAction",
+		"idAnnotation,Content,Start,End,Cell_idCell,Concept_idConcept,Provenance_idProvenance"
+	};
+
+	/** Secondary indexes (table, index, column, constraint, referenced table, referenced column), built after loading. */
+	private static final String[][] INDEXES = {
+		{"OriginalArticle", "idOriginalArticle_UNIQUE", "idOriginalArticle", null, null, null},
+		{"OriginalArticle", "fk_OriginalArticle_Article1_idx", "Article_idArticle", "fk_OriginalArticle_Article1", "Article", "idArticle"},
+		{"Author", "fk_Author_Article1_idx", "Article_idArticle", "fk_Author_Article1", "Article", "idArticle"},
+		{"Email", "fk_Email_Author1_idx", "Author_idAuthor", "fk_Email_Author1", "Author", "idAuthor"},
+		{"Affiliation", "fk_Affiliation_Author1_idx", "Author_idAuthor", "fk_Affiliation_Author1", "Author", "idAuthor"},
+		{"ArtTable", "fk_Table_Article1_idx", "Article_idArticle", "fk_Table_Article1", "Article", "idArticle"},
+		{"TableHeader", "fk_TableHeader_Table1_idx", "Table_idTable", "fk_TableHeader_Table1", "ArtTable", "idTable"},
+		{"TableStub", "fk_TableStub_Table1_idx", "Table_idTable", "fk_TableStub_Table1", "ArtTable", "idTable"},
+		{"TableSuperRow", "fk_TableSuperRow_Table1_idx", "Table_idTable", "fk_TableSuperRow_Table1", "ArtTable", "idTable"},
+		{"Cell", "fk_Cell_Table1_idx", "Table_idTable", "fk_Cell_Table1", "ArtTable", "idTable"},
+		{"CellRoles", "fk_CellRoles_CellRole1_idx", "CellRole_idCellRole", "fk_CellRoles_CellRole1", "CellRole", "idCellRole"},
+		{"CellRoles", "fk_CellRoles_Cell1_idx", "Cell_idCell", "fk_CellRoles_Cell1", "Cell", "idCell"},
+		{"Concept", "Hash_UNIQUE", "Hash", null, null, null},
+		{"AnnotationProvenance", "Hash_UNIQUE", "Hash", null, null, null},
+		{"CellAnnotation", "fk_CellAnnotation_Cell1_idx", "Cell_idCell", "fk_CellAnnotation_Cell1", "Cell", "idCell"},
+		{"CellAnnotation", "fk_CellAnnotation_Concept1_idx", "Concept_idConcept", "fk_CellAnnotation_Concept1", "Concept", "idConcept"},
+		{"CellAnnotation", "fk_CellAnnotation_Provenance1_idx", "Provenance_idProvenance", "fk_CellAnnotation_Provenance1", "AnnotationProvenance", "idProvenance"}
+	};
+
+	private File folder;
+	private int run = 0;
+	private HashMap<String, Integer> nextIds = new HashMap<String, Integer>();
+	private HashMap<String, Writer> writers = new HashMap<String, Writer>();
+	private HashMap<String, Long> written = new HashMap<String, Long>();
+	private HashMap<String, Integer> parts = new HashMap<String, Integer>();
+	private HashMap<String, HashMap<String, Integer>> dictionaries = new HashMap<String, HashMap<String, Integer>>();
+	private DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+	private long articles = 0;
+
+	/**
+	 * Instantiates a new exporter writing to the folder.
+	 *
+	 * @param folderName the folder name
+	 */
+	public DataBaseExporter(String folderName)
+	{
+		folder = new File(folderName);
+		folder.mkdirs();
+		for(String table:TABLES)
+			nextIds.put(table, 1);
+		readState();
+		readDictionary("Concept");
+		readDictionary("AnnotationProvenance");
+	}
+
+	/**
+	 * Reads ids of dictionary values (by hash) written by earlier runs, so they are not written again.
+	 */
+	private void readDictionary(String table)
+	{
+		HashMap<String, Integer> dictionary = new HashMap<String, Integer>();
+		dictionaries.put(table, dictionary);
+		String[] files = folder.list();
+		for(int i = 0;files!=null && i<files.length;i++)
+		{
+			if(!files[i].startsWith(table+".") || !files[i].endsWith(".tsv"))
+				continue;
+			try{
+				BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(new File(folder, files[i])), "UTF-8"));
+				String line;
+				while((line = br.readLine())!=null)
+				{
+					String[] fields = line.split("\t", 3);
+					if(fields.length>=2)
+						dictionary.put(fields[1], Integer.parseInt(fields[0]));
+				}
+				br.close();
+			}catch(Exception ex)
+			{
+				ex.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Gets the id of the dictionary value, adding a row for a new value.
+	 */
+	private int lookup(String table, String[] values, HashMap<String, Integer> ids, HashMap<String, Integer> added, StringBuilder rows)
+	{
+		String hash = AnnotationDictionary.hash(AnnotationDictionary.key(values));
+		Integer id = dictionaries.get(table).get(hash);
+		if(id==null)
+			id = added.get(hash);
+		if(id==null)
+		{
+			id = next(ids, table);
+			added.put(hash, id);
+			Object[] row = new Object[values.length+2];
+			row[0] = id;
+			row[1] = hash;
+			System.arraycopy(values, 0, row, 2, values.length);
+			row(rows, row);
+		}
+		return id;
+	}
+
+	private void readState()
+	{
+		File state = new File(folder, STATE_FILE);
+		if(!state.exists())
+			return;
+		try{
+			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(state), "UTF-8"));
+			String line;
+			while((line = br.readLine())!=null)
+			{
+				String[] fields = line.split("\t");
+				if(fields.length<2)
+					continue;
+				if(fields[0].equals("run"))
+					run = Integer.parseInt(fields[1])+1;
+				else
+					nextIds.put(fields[0], Integer.parseInt(fields[1]));
+			}
+			br.close();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	private void writeState() throws Exception
+	{
+		Writer w = new OutputStreamWriter(new FileOutputStream(new File(folder, STATE_FILE)), "UTF-8");
+		w.write("run\t"+run+"\n");
+		for(String table:TABLES)
+			w.write(table+"\t"+nextIds.get(table)+"\n");
+		w.close();
+	}
+
+	/**
+	 * Writes rows of the article. Rows of an article are written together, after all of them are made.
+	 *
+	 * @param art the article
+	 * @return true, if the rows were written
+	 */
+	public synchronized boolean SaveArticleAnnotationToDB(Article art)
+	{
+		try{
+			HashMap<String, Integer> ids = new HashMap<String, Integer>(nextIds);
+			HashMap<String, StringBuilder> rows = new HashMap<String, StringBuilder>();
+			for(String table:TABLES)
+				rows.put(table, new StringBuilder());
+
+			int articleId = next(ids, "Article");
+			ContentCodec codec = ContentCodec.getCodec();
+			row(rows.get("Article"), articleId, art.getPmc(), art.getPmid(), art.getPissn(), art.getPissn(), art.getTitle(), art.getAbstract(), art.getJournal_name(), art.getPublisher_name(), art.getPublisher_loc(), art.getSource(), art.getSpec_id(), hex(codec.encode(art.getPlain_text())), art.getContent_hash());
+			row(rows.get("OriginalArticle"), next(ids, "OriginalArticle"), art.getPmid(), art.getPmid(), art.getPissn(), art.getEissn(), hex(codec.encode(art.getXML())), articleId);
+
+			LinkedList<Author> authors = art.getAuthors();
+			for(int i = 0;authors!=null && i<authors.size();i++)
+			{
+				String[] AuthorFirstSecondName = authors.get(i).name.split(",");
+				String AuthorFName = "";
+				if(AuthorFirstSecondName.length>1)
+					AuthorFName = AuthorFirstSecondName[1];
+				int authorId = next(ids, "Author");
+				row(rows.get("Author"), authorId, AuthorFName, AuthorFirstSecondName[0], articleId);
+				row(rows.get("Email"), next(ids, "Email"), authors.get(i).email, authorId);
+				LinkedList<String> affs = authors.get(i).affiliation;
+				for(int j = 0;j<affs.size();j++)
+					row(rows.get("Affiliation"), next(ids, "Affiliation"), affs.get(j), authorId);
+			}
+
+			String date = dateFormat.format(new Date());
+			HashMap<String, Integer> addedConcepts = new HashMap<String, Integer>();
+			HashMap<String, Integer> addedProvenance = new HashMap<String, Integer>();
+			Table[] Tables = art.getTables();
+			for(int i = 0;Tables!=null && i<Tables.length;i++)
+			{
+				if(Tables[i]==null)
+					continue;
+				int TableId = next(ids, "ArtTable");
+				row(rows.get("ArtTable"), TableId, Tables[i].getTable_title(), Tables[i].getTable_caption(), Tables[i].getTable_footer(), Tables[i].getTableStructureType().name(), Tables[i].PragmaticClass, Tables[i].isNoXMLTable()?"no":"yes", articleId, Tables[i].getSectionOfTable());
+				Cell[][] cells = Tables[i].cells;
+				if(cells==null)
+					continue;
+				TablePaths paths = new TablePaths();
+				for(int j = 0;j<cells.length;j++)
+				{
+					for(int k = 0;k<cells[j].length;k++)
+					{
+						Cell cell = cells[j][k];
+						int CellId = next(ids, "Cell");
+						Integer[] ordinals = paths.getOrdinals(cell);
+						row(rows.get("Cell"), CellId, j+"."+k, cell.getCellType(), TableId, cell.getRow_number(), cell.getColumn_number(), cell.getHeader_ref(), cell.getStub_ref(), cell.getSuper_row_ref(), cell.getCell_content(), ordinals[0], ordinals[1], ordinals[2]);
+						for(int l = 0;l<cell.CellRoles.size();l++)
+						{
+							int role = getCellRoleId(cell.CellRoles.get(l));
+							if(role!=0)
+								row(rows.get("CellRoles"), next(ids, "CellRoles"), role, CellId);
+						}
+						LinkedList<Annotation> annot = cell.annotations;
+						for(int l = 0;l<annot.size();l++)
+						{
+							Annotation a = annot.get(l);
+							int conceptId = lookup("Concept", new String[]{a.getID(), a.getURL(), a.getDescription()}, ids, addedConcepts, rows.get("Concept"));
+							int provenanceId = lookup("AnnotationProvenance", new String[]{"Software", a.getSource(), a.getEnvironment(), a.getAgentVersion(), a.getLocation(), date}, ids, addedProvenance, rows.get("AnnotationProvenance"));
+							row(rows.get("CellAnnotation"), next(ids, "CellAnnotation"), a.getContent(), a.getStart(), a.getEnd(), CellId, conceptId, provenanceId);
+						}
+					}
+				}
+				for(int l = 0;l<TablePaths.TABLES.length;l++)
+				{
+					List<String> values = paths.getValues(l);
+					for(int o = 0;o<values.size();o++)
+						row(rows.get(TablePaths.TABLES[l]), TableId, o+1, values.get(o));
+				}
+			}
+
+			for(String table:TABLES)
+			{
+				if(rows.get(table).length()>0)
+					write(table, rows.get(table));
+			}
+			nextIds = ids;
+			dictionaries.get("Concept").putAll(addedConcepts);
+			dictionaries.get("AnnotationProvenance").putAll(addedProvenance);
+			articles++;
+			return true;
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+		return false;
+	}
+
+	private static int next(HashMap<String, Integer> ids, String table)
+	{
+		int id = ids.get(table);
+		ids.put(table, id+1);
+		return id;
+	}
+
+	private static int getCellRoleId(String role)
+	{
+		if(role.equals("Header"))
+			return 1;
+		if(role.equals("Stub"))
+			return 2;
+		if(role.equals("Data"))
+			return 3;
+		if(role.equals("SuperRow"))
+			return 4;
+		return 0;
+	}
+
+	/**
+	 * Writes bytes as hexadecimal digits, loaded with UNHEX().
+	 */
+	static String hex(byte[] bytes)
+	{
+		if(bytes==null)
+			return null;
+		char[] digits = "0123456789ABCDEF".toCharArray();
+		StringBuilder sb = new StringBuilder(bytes.length*2);
+		for(byte b:bytes)
+			sb.append(digits[(b>>4) & 0xf]).append(digits[b & 0xf]);
+		return sb.toString();
+	}
+
+	/**
+	 * Appends one row in the format of LOAD DATA (tab separated fields, \N for null, escaped with backslash).
+	 */
+	static void row(StringBuilder sb, Object... values)
+	{
+		for(int i = 0;i<values.length;i++)
+		{
+			if(i>0)
+				sb.append('\t');
+			if(values[i]==null)
+			{
+				sb.append("\\N");
+				continue;
+			}
+			String value = values[i].toString();
+			for(int c = 0;c<value.length();c++)
+			{
+				char ch = value.charAt(c);
+				switch(ch)
+				{
+				case '\\': sb.append("\\\\"); break;
+				case '\t': sb.append("\\t"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\0': sb.append("\\0"); break;
+				default: sb.append(ch);
+				}
+			}
+		}
+		sb.append('\n');
+	}
+
+	private void write(String table, StringBuilder rows) throws Exception
+	{
+		Writer w = writers.get(table);
+		long size = written.containsKey(table)?written.get(table):0;
+		if(w!=null && size+rows.length()>SEGMENT_SIZE)
+		{
+			w.close();
+			w = null;
+			parts.put(table, parts.get(table)+1);
+		}
+		if(w==null)
+		{
+			if(!parts.containsKey(table))
+				parts.put(table, 0);
+			w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(folder, table+"."+run+"."+parts.get(table)+".tsv")), "UTF-8"), 1<<16);
+			writers.put(table, w);
+			size = 0;
+		}
+		w.append(rows);
+		written.put(table, size+rows.length());
+	}
+
+	/**
+	 * Gets the name of the loader script of the run.
+	 *
+	 * @param run the run
+	 * @return the file name
+	 */
+	public static String getRunScriptFile(int run)
+	{
+		return "load."+run+".sql";
+	}
+
+	/**
+	 * Closes the files of this run, saves the next free ids and writes the loader scripts of this run and of
+	 * all segments of the folder.
+	 */
+	public synchronized void CloseDBConnection()
+	{
+		try{
+			for(Writer w:writers.values())
+				w.close();
+			writers.clear();
+			writeState();
+			writeScript(getRunScriptFile(run), run);
+			writeScript(SCRIPT_FILE, -1);
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes a loader script.
+	 *
+	 * @param name the file name of the script
+	 * @param onlyRun the run whose segment is loaded into a database holding the earlier runs, or -1 to load
+	 * all segments into a database without rows of these tables
+	 */
+	private void writeScript(String name, int onlyRun) throws Exception
+	{
+		String[] files = folder.list();
+		Arrays.sort(files);
+		boolean all = onlyRun<0;
+		Writer w = new OutputStreamWriter(new FileOutputStream(new File(folder, name)), "UTF-8");
+		if(all)
+			w.write("-- Loads tables exported by TablInEx -databaseexport (all runs) into a Table Annotator database without rows of these tables.\n");
+		else
+			w.write("-- Loads run "+onlyRun+" of TablInEx -databaseexport into a Table Annotator database that holds the earlier runs of this folder.\n");
+		w.write("-- Run as: mysql --local-infile=1 database < "+name+"\n");
+		w.write("SET @OLD_UNIQUE_CHECKS=@@UNIQUE_CHECKS, UNIQUE_CHECKS=0;\n");
+		w.write("SET @OLD_FOREIGN_KEY_CHECKS=@@FOREIGN_KEY_CHECKS, FOREIGN_KEY_CHECKS=0;\n");
+		w.write("SET @OLD_AUTOCOMMIT=@@AUTOCOMMIT, AUTOCOMMIT=0;\n\n");
+		if(all)
+		{
+			w.write("-- secondary indexes and foreign keys are built once, after loading\n");
+			for(String[] index:INDEXES)
+			{
+				if(index[3]!=null)
+					w.write("ALTER TABLE `"+index[0]+"` DROP FOREIGN KEY `"+index[3]+"`, DROP INDEX `"+index[1]+"`;\n");
+				else
+					w.write("ALTER TABLE `"+index[0]+"` DROP INDEX `"+index[1]+"`;\n");
+			}
+			w.write("\n");
+		}
+		String segment = all?"[0-9]+\\.[0-9]+\\.tsv":onlyRun+"\\.[0-9]+\\.tsv";
+		for(int t = 0;t<TABLES.length;t++)
+		{
+			List<String> segments = new ArrayList<String>();
+			for(String file:files)
+			{
+				if(file.startsWith(TABLES[t]+".") && file.endsWith(".tsv") && file.substring(TABLES[t].length()+1).matches(segment))
+					segments.add(file);
+			}
+			for(String file:segments)
+			{
+				String path = new File(folder, file).getAbsolutePath().replace("\\", "\\\\").replace("'", "\\'");
+				w.write("LOAD DATA LOCAL INFILE '"+path+"' INTO TABLE `"+TABLES[t]+"` CHARACTER SET utf8 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' "+columnList(COLUMNS[t])+";\n");
+				w.write("COMMIT;\n");
+			}
+		}
+		w.write("\n");
+		// indexes of the tables already loaded are kept, rebuilding them would read the earlier runs again
+		for(int i = 0;all && i<INDEXES.length;i++)
+		{
+			String[] index = INDEXES[i];
+			if(index[3]!=null)
+				w.write("ALTER TABLE `"+index[0]+"` ADD INDEX `"+index[1]+"` (`"+index[2]+"` ASC), ADD CONSTRAINT `"+index[3]+"` FOREIGN KEY (`"+index[2]+"`) REFERENCES `"+index[4]+"` (`"+index[5]+"`) ON DELETE NO ACTION ON UPDATE NO ACTION;\n");
+			else
+				w.write("ALTER TABLE `"+index[0]+"` ADD UNIQUE INDEX `"+index[1]+"` (`"+index[2]+"` ASC);\n");
+		}
+		w.write("\n-- ids of the loaded rows are not allocated again by -databasesave\n");
+		for(String update:IdAllocator.getSequenceUpdates())
+			w.write(update+";\n");
+		w.write("COMMIT;\n");
+		w.write("\nSET AUTOCOMMIT=@OLD_AUTOCOMMIT;\n");
+		w.write("SET FOREIGN_KEY_CHECKS=@OLD_FOREIGN_KEY_CHECKS;\n");
+		w.write("SET UNIQUE_CHECKS=@OLD_UNIQUE_CHECKS;\n");
+		w.write("ANALYZE TABLE `"+Arrays.toString(TABLES).replace("[", "").replace("]", "").replace(", ", "`, `")+"`;\n");
+		w.close();
+	}
+
+	/**
+	 * Gets the column list of LOAD DATA; hexadecimal columns are read into variables and set with UNHEX().
+	 */
+	private static String columnList(String columns)
+	{
+		StringBuilder list = new StringBuilder("(");
+		StringBuilder set = new StringBuilder();
+		for(String column:columns.split(","))
+		{
+			if(list.length()>1)
+				list.append(",");
+			if(column.startsWith("@"))
+			{
+				list.append(column);
+				set.append(set.length()==0?" SET ":", ").append("`"+column.substring(1)+"` = UNHEX("+column+")");
+			}
+			else
+				list.append("`"+column+"`");
+		}
+		return list.append(")").append(set).toString();
+	}
+
+	public synchronized String getStatistics()
+	{
+		return "Database export: "+articles+" articles written to "+folder.getPath()+" (run "+run+")";
+	}
+
+}
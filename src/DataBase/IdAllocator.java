@@ -0,0 +1,172 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+
+/**
+ * The Class IdAllocator. Assigns primary keys of rows that other rows refer to (Article, Author, ArtTable
+ * and Cell), so all rows of an article can get their ids before anything is inserted and be inserted in
+ * batches. Ids are reserved in blocks from table IdSequence over a separate connection that commits every
+ * reservation at once; the reservation is one atomic update, so writers in several threads and processes
+ * never get the same id. Ids of a reserved block that are not used (e.g. when the program ends) are skipped.
+ *
+ * A sequence starts after the largest id in its table. Rows of these tables must not be inserted with
+ * AUTO_INCREMENT keys while the allocator is used; rows inserted with their own ids (load.sql of
+ * DataBaseExporter) must move the sequences past them (see getSequenceUpdates).
+ */
+public class IdAllocator {
+
+	/** The number of ids reserved at once. */
+	public static final int BLOCK_SIZE = 1000;
+
+	/** Tables whose ids are allocated, with their key columns. */
+	static final String[][] KEYS = {{"Article", "idArticle"}, {"Author", "idAuthor"}, {"ArtTable", "idTable"}, {"Cell", "idCell"}};
+
+	/** Creates table IdSequence. */
+	static final String CREATE_SEQUENCES = "CREATE TABLE IF NOT EXISTS IdSequence (Name VARCHAR(64) NOT NULL, NextId BIGINT NOT NULL, PRIMARY KEY (Name)) ENGINE = InnoDB";
+
+	private static IdAllocator allocator;
+
+	private Connection conn;
+	private HashMap<String, long[]> blocks = new HashMap<String, long[]>();
+	private long reservations = 0;
+
+	/**
+	 * Gets the allocator shared by the savers of this process.
+	 *
+	 * @return the allocator
+	 */
+	public static synchronized IdAllocator getAllocator()
+	{
+		if(allocator==null)
+			allocator = new IdAllocator();
+		return allocator;
+	}
+
+	/**
+	 * Allocates ids of new rows of the table.
+	 *
+	 * @param table the table (Article, Author, ArtTable or Cell)
+	 * @param count the number of rows
+	 * @return the ids
+	 * @throws SQLException the SQL exception
+	 */
+	public synchronized int[] allocate(String table, int count) throws SQLException
+	{
+		int[] ids = new int[count];
+		long[] block = blocks.get(table);
+		for(int i = 0;i<count;i++)
+		{
+			if(block==null || block[0]>=block[1])
+			{
+				int size = Math.max(BLOCK_SIZE, count-i);
+				long first = reserve(table, size);
+				block = new long[]{first, first+size};
+				blocks.put(table, block);
+				reservations++;
+			}
+			ids[i] = (int)block[0]++;
+		}
+		return ids;
+	}
+
+	/**
+	 * Reserves a block of ids in table IdSequence.
+	 *
+	 * @param table the table
+	 * @param size the number of ids
+	 * @return the first id of the block
+	 * @throws SQLException the SQL exception
+	 */
+	protected long reserve(String table, int size) throws SQLException
+	{
+		String column = null;
+		for(String[] key:KEYS)
+		{
+			if(key[0].equals(table))
+				column = key[1];
+		}
+		if(column==null)
+			throw new SQLException("No id sequence for table "+table);
+		try{
+			if(conn==null)
+			{
+				conn = DataBaseAnnotationSaver.openConnection();
+				conn.setAutoCommit(true);
+				Statement stmt = conn.createStatement();
+				stmt.executeUpdate(CREATE_SEQUENCES);
+				stmt.close();
+			}
+			// the first process that uses a sequence starts it after the rows already in the table
+			PreparedStatement start = conn.prepareStatement("INSERT IGNORE INTO IdSequence (Name, NextId) SELECT ?, COALESCE(MAX("+column+"),0)+1 FROM "+table);
+			start.setString(1, table);
+			start.executeUpdate();
+			start.close();
+			PreparedStatement update = conn.prepareStatement("UPDATE IdSequence SET NextId = LAST_INSERT_ID(NextId + ?) WHERE Name = ?");
+			update.setInt(1, size);
+			update.setString(2, table);
+			update.executeUpdate();
+			update.close();
+			Statement stmt = conn.createStatement();
+			ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()");
+			rs.next();
+			long next = rs.getLong(1);
+			rs.close();
+			stmt.close();
+			return next-size;
+		}catch(SQLException ex)
+		{
+			close();
+			throw ex;
+		}catch(Exception ex)
+		{
+			close();
+			throw new SQLException("Could not connect to the database: "+ex.getMessage());
+		}
+	}
+
+	/**
+	 * Gets the statements that move the sequences past the largest ids in their tables, after rows were
+	 * inserted with their own ids. A sequence is never moved back, as blocks before it may be in use.
+	 *
+	 * @return the statements
+	 */
+	public static String[] getSequenceUpdates()
+	{
+		String[] updates = new String[KEYS.length+1];
+		updates[0] = CREATE_SEQUENCES;
+		for(int i = 0;i<KEYS.length;i++)
+			updates[i+1] = "INSERT INTO IdSequence (Name, NextId) SELECT '"+KEYS[i][0]+"', COALESCE(MAX("+KEYS[i][1]+"),0)+1 FROM `"+KEYS[i][0]+"` ON DUPLICATE KEY UPDATE NextId = GREATEST(NextId, VALUES(NextId))";
+		return updates;
+	}
+
+	/**
+	 * Closes the connection. It is opened again for the next reservation.
+	 */
+	public synchronized void close()
+	{
+		try{
+			if(conn!=null)
+				conn.close();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+		conn = null;
+	}
+
+	public synchronized String getStatistics()
+	{
+		return "Id allocator: "+reservations+" blocks reserved";
+	}
+
+}
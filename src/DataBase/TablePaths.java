@@ -0,0 +1,79 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import tablInEx.Cell;
+
+/**
+ * The Class TablePaths. Navigation paths of the cells of one table (whole header, whole stub and whole
+ * super-row, as made by Decomposition) numbered once per table. All cells of a column repeat the same header
+ * and all cells of a row the same stub, so every distinct path is stored once per table in TableHeader,
+ * TableStub or TableSuperRow (Table_idTable, Ordinal, Value) and Cell refers to it by HeaderOrdinal,
+ * StubOrdinal and SuperRowOrdinal. View CellWithPaths joins them back into WholeHeader, WholeStub and
+ * WholeSuperRow.
+ */
+public class TablePaths {
+
+	/** The dictionary tables, in the order of paths. */
+	public static final String[] TABLES = {"TableHeader", "TableStub", "TableSuperRow"};
+
+	public static final int HEADER = 0;
+	public static final int STUB = 1;
+	public static final int SUPER_ROW = 2;
+
+	private List<HashMap<String, Integer>> ordinals = new ArrayList<HashMap<String, Integer>>();
+	private List<List<String>> values = new ArrayList<List<String>>();
+
+	public TablePaths()
+	{
+		for(int i = 0;i<TABLES.length;i++)
+		{
+			ordinals.add(new HashMap<String, Integer>());
+			values.add(new ArrayList<String>());
+		}
+	}
+
+	/**
+	 * Gets ordinals of the header, stub and super-row of the cell, numbering paths not seen in the table yet.
+	 *
+	 * @param cell the cell
+	 * @return the ordinals (null where the cell has no path)
+	 */
+	public Integer[] getOrdinals(Cell cell)
+	{
+		return new Integer[]{ordinal(HEADER, cell.getHeader_values()), ordinal(STUB, cell.getStub_values()), ordinal(SUPER_ROW, cell.getSubheader_values())};
+	}
+
+	private Integer ordinal(int path, String value)
+	{
+		if(value==null)
+			return null;
+		Integer ordinal = ordinals.get(path).get(value);
+		if(ordinal==null)
+		{
+			values.get(path).add(value);
+			ordinal = values.get(path).size();
+			ordinals.get(path).put(value, ordinal);
+		}
+		return ordinal;
+	}
+
+	/**
+	 * Gets the distinct paths of the kind; the value at index i has ordinal i+1.
+	 *
+	 * @param path HEADER, STUB or SUPER_ROW
+	 * @return the values
+	 */
+	public List<String> getValues(int path)
+	{
+		return values.get(path);
+	}
+
+}
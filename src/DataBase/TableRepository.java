@@ -0,0 +1,231 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package DataBase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import tablInEx.Annotation;
+import tablInEx.Cell;
+import tablInEx.Table;
+
+/**
+ * The Class TableRepository. Reads saved tables back from the database in chunks of tables ordered by id,
+ * with their cells (view CellWithPaths), cell roles and, optionally, annotations. Every chunk takes one query
+ * per kind of row instead of queries for every table or cell; rows are streamed (forward only) and the
+ * Table objects are rebuilt in memory.
+ *
+ * The condition selects tables; it is SQL over ArtTable with alias t, e.g. t.HasXML='yes'. The annotation
+ * condition selects annotations loaded into the cells; it is SQL over view Annotation with alias a.
+ */
+public class TableRepository {
+
+	/** The default number of tables read at once. */
+	public static final int DEFAULT_CHUNK = 200;
+
+	/** Names of cell roles, by id in table CellRole. */
+	private static final String[] ROLES = {null, "Header", "Stub", "Data", "SuperRow"};
+
+	/**
+	 * The Class StoredTable. A table read from the database with ids of its rows.
+	 */
+	public static class StoredTable {
+		public int id;
+		public Table table;
+		/** Cells in the order of their ids, also those that share a position or have none in table.cells. */
+		public List<Cell> cells = new ArrayList<Cell>();
+		public List<Integer> cellIds = new ArrayList<Integer>();
+	}
+
+	private Connection conn;
+	private String condition;
+	private String annotationCondition;
+	private int chunk;
+	private int lastId = 0;
+	private boolean done = false;
+
+	/**
+	 * Instantiates a new repository.
+	 *
+	 * @param conn the connection
+	 * @param condition the condition on tables (alias t), or null for all tables
+	 * @param annotationCondition the condition on annotations (alias a), or null to read no annotations
+	 * @param chunk the number of tables read at once
+	 */
+	public TableRepository(Connection conn, String condition, String annotationCondition, int chunk)
+	{
+		this.conn = conn;
+		this.condition = condition;
+		this.annotationCondition = annotationCondition;
+		this.chunk = Math.max(1, chunk);
+	}
+
+	/**
+	 * Gets the id of the cell role.
+	 *
+	 * @param role the role (Header, Stub, Data or SuperRow)
+	 * @return the id, or 0 for an unknown role
+	 */
+	public static int getCellRoleId(String role)
+	{
+		for(int i = 1;i<ROLES.length;i++)
+		{
+			if(ROLES[i].equals(role))
+				return i;
+		}
+		return 0;
+	}
+
+	/**
+	 * Reads the next chunk of tables.
+	 *
+	 * @return the tables, empty when all tables are read
+	 * @throws SQLException the SQL exception
+	 */
+	public List<StoredTable> next() throws SQLException
+	{
+		List<StoredTable> tables = new ArrayList<StoredTable>();
+		if(done)
+			return tables;
+		String where = condition==null?"":" AND ("+condition+")";
+		HashMap<Integer, StoredTable> byId = new HashMap<Integer, StoredTable>();
+		PreparedStatement stmt = prepare("SELECT t.idTable, t.TableOrder, t.TableCaption, t.TableFooter, t.PragmaticType FROM ArtTable t WHERE t.idTable > ?"+where+" ORDER BY t.idTable LIMIT ?");
+		stmt.setInt(1, lastId);
+		stmt.setInt(2, chunk);
+		ResultSet rs = stmt.executeQuery();
+		while(rs.next())
+		{
+			StoredTable stored = new StoredTable();
+			stored.id = rs.getInt(1);
+			stored.table = new Table(rs.getString(2), rs.getString(3), rs.getString(4));
+			stored.table.PragmaticClass = rs.getString(5);
+			tables.add(stored);
+			byId.put(stored.id, stored);
+		}
+		rs.close();
+		stmt.close();
+		if(tables.size()<chunk)
+			done = true;
+		if(tables.isEmpty())
+			return tables;
+		int first = tables.get(0).id;
+		int last = tables.get(tables.size()-1).id;
+		lastId = last;
+
+		HashMap<Integer, Cell> cells = new HashMap<Integer, Cell>();
+		stmt = prepare("SELECT c.idCell, c.Table_idTable, c.CellID, c.RowN, c.ColumnN, c.Content, c.WholeHeader, c.WholeStub, c.WholeSuperRow FROM CellWithPaths c JOIN ArtTable t ON t.idTable=c.Table_idTable WHERE c.Table_idTable BETWEEN ? AND ?"+where+" ORDER BY c.Table_idTable, c.idCell");
+		stmt.setInt(1, first);
+		stmt.setInt(2, last);
+		rs = stmt.executeQuery();
+		while(rs.next())
+		{
+			StoredTable stored = byId.get(rs.getInt(2));
+			if(stored==null)
+				continue;
+			// the type of a cell (CellType) is computed again from its content
+			Cell cell = new Cell(rs.getInt(5), rs.getInt(4));
+			cell.CellId = rs.getString(3);
+			cell.setCell_content(rs.getString(6));
+			cell.setHeader_values(rs.getString(7));
+			cell.setStub_values(rs.getString(8));
+			cell.setSubheader_values(rs.getString(9));
+			stored.cells.add(cell);
+			stored.cellIds.add(rs.getInt(1));
+			cells.put(rs.getInt(1), cell);
+		}
+		rs.close();
+		stmt.close();
+
+		stmt = prepare("SELECT r.Cell_idCell, r.CellRole_idCellRole FROM CellRoles r JOIN Cell c ON c.idCell=r.Cell_idCell JOIN ArtTable t ON t.idTable=c.Table_idTable WHERE c.Table_idTable BETWEEN ? AND ?"+where+" ORDER BY r.idCellRoles");
+		stmt.setInt(1, first);
+		stmt.setInt(2, last);
+		rs = stmt.executeQuery();
+		while(rs.next())
+		{
+			Cell cell = cells.get(rs.getInt(1));
+			int role = rs.getInt(2);
+			if(cell!=null && role>0 && role<ROLES.length)
+				cell.CellRoles.add(ROLES[role]);
+		}
+		rs.close();
+		stmt.close();
+
+		if(annotationCondition!=null)
+		{
+			stmt = prepare("SELECT a.Cell_idCell, a.Content, a.Start, a.End, a.AnnotationID, a.AnnotationDescription, a.AnnotationURL, a.AgentName FROM Annotation a JOIN Cell c ON c.idCell=a.Cell_idCell JOIN ArtTable t ON t.idTable=c.Table_idTable WHERE c.Table_idTable BETWEEN ? AND ?"+where+" AND ("+annotationCondition+") ORDER BY a.idAnnotation");
+			stmt.setInt(1, first);
+			stmt.setInt(2, last);
+			rs = stmt.executeQuery();
+			while(rs.next())
+			{
+				Cell cell = cells.get(rs.getInt(1));
+				if(cell==null)
+					continue;
+				Annotation annot = new Annotation();
+				annot.setContent(rs.getString(2));
+				annot.setStart(rs.getInt(3));
+				annot.setEnd(rs.getInt(4));
+				annot.setID(rs.getString(5));
+				annot.setDescription(rs.getString(6));
+				annot.setURL(rs.getString(7));
+				annot.setAgentName(rs.getString(8));
+				cell.annotations.add(annot);
+			}
+			rs.close();
+			stmt.close();
+		}
+
+		for(StoredTable stored:tables)
+			stored.table.cells = grid(stored.cells);
+		return tables;
+	}
+
+	/**
+	 * Places the cells by their position (CellID row.column, or RowN and ColumnN); missing cells are null.
+	 * A cell is left out when another cell has the same position or its position is negative, so features
+	 * of a table are counted over StoredTable.cells, not over the grid.
+	 */
+	public static Cell[][] grid(List<Cell> cells)
+	{
+		List<int[]> positions = new ArrayList<int[]>();
+		int rows = 0;
+		int columns = 0;
+		for(Cell cell:cells)
+		{
+			int[] position = {cell.getRow_number(), cell.getColumn_number()};
+			if(cell.CellId!=null && cell.CellId.matches("[0-9]+\\.[0-9]+"))
+			{
+				String[] parts = cell.CellId.split("\\.");
+				position = new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+			}
+			positions.add(position);
+			rows = Math.max(rows, position[0]+1);
+			columns = Math.max(columns, position[1]+1);
+		}
+		Cell[][] grid = new Cell[rows][columns];
+		for(int i = 0;i<cells.size();i++)
+		{
+			int[] position = positions.get(i);
+			if(position[0]>=0 && position[1]>=0)
+				grid[position[0]][position[1]] = cells.get(i);
+		}
+		return grid;
+	}
+
+	private PreparedStatement prepare(String sql) throws SQLException
+	{
+		PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		// streams the rows instead of reading all of them into memory
+		stmt.setFetchSize(Integer.MIN_VALUE);
+		return stmt;
+	}
+
+}
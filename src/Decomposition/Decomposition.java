@@ -9,21 +9,13 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.LinkedList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-
 import Utils.Utilities;
 import stats.Statistics;
 import tablInEx.Article;
 import tablInEx.Cell;
 import tablInEx.DataExtractionOutputObj;
+import tablInEx.NavigationIndex;
+import tablInEx.NavigationPathRecord;
 import tablInEx.TablInExMain;
 import tablInEx.Table;
 import tablInEx.TableSimplifier;
@@ -37,6 +29,9 @@ public class Decomposition {
 	/** The folder. */
 	private static String folder;
 	
+	/** Writer of the decomposition output. */
+	private DecompositionWriter writer;
+	
 	/**
 	 * Instantiates a new simple ie.
 	 *
@@ -46,6 +41,7 @@ public class Decomposition {
 		folder = inpath+"_ie";
 		Utilities.DeleteFolderWithContent(folder);
 		Utilities.MakeDirectory(folder);
+		writer = new DecompositionWriter(folder, DecompositionWriter.getLayout(TablInExMain.ieOutputLayout));
 	}
 	
 	public Decomposition(String inpath,boolean newrun) {
@@ -54,6 +50,18 @@ public class Decomposition {
 		Utilities.DeleteFolderWithContent(folder);
 		Utilities.MakeDirectory(folder);
 		}
+		writer = new DecompositionWriter(folder, DecompositionWriter.getLayout(TablInExMain.ieOutputLayout));
+	}
+	
+	/**
+	 * Gets the file name of the table output (relative to the IE folder).
+	 *
+	 * @param table the table
+	 * @return the table file name
+	 */
+	public static String getTableFileName(Table table)
+	{
+		return "/"+table.getDocumentFileName()+table.getTable_title()+"-"+table.tableInTable;
 	}
 	
 	//TODO: Think about reading tables like PMC2361090 Table 2
@@ -376,15 +384,13 @@ public class Decomposition {
 		{
 			if(currentSubHeaderLevel>1)
 			{
-				for(int s = 0;s<original_cells.length-1;s++)
+				int s = getStackKeyRow(headerStackIndexes[i]);
+				if(s>=0 && s<original_cells.length-1)
 				{
-					if((""+s+"0").equals(headerStackIndexes[i]))
+					for(int d= 0;d<original_cells[s].length;d++)
 					{
-						for(int d= 0;d<original_cells[s].length;d++)
-						{
-							if(i-1>=0 && headerStackIndexes[i-1]!=null)
-								original_cells[s][d].setSuperRowIndex(headerStackIndexes[i-1]);
-						}
+						if(i-1>=0 && headerStackIndexes[i-1]!=null)
+							original_cells[s][d].setSuperRowIndex(headerStackIndexes[i-1]);
 					}
 				}
 			}
@@ -399,37 +405,47 @@ public class Decomposition {
 	}
 	
 	/**
-	 * Gets the stack as elements.
+	 * Gets the row whose stack key (row number followed by 0) equals the given key.
+	 *
+	 * @param key the header stack index
+	 * @return the row, or -1 if the key is not a stack key
+	 */
+	private static int getStackKeyRow(String key)
+	{
+		if(key==null || key.length()<2 || key.charAt(key.length()-1)!='0')
+			return -1;
+		String prefix = key.substring(0, key.length()-1);
+		try{
+			int row = Integer.parseInt(prefix);
+			if((""+row).equals(prefix))
+				return row;
+		}catch(NumberFormatException ex)
+		{
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets the stack values - super-row values that form the stub of the cell (SubHeader0..n).
 	 *
 	 * @param stack the stack
 	 * @param prevSubheader the prev subheader
 	 * @param subheaderLevel the subheader level
-	 * @param doc the doc
-	 * @param stub the stub
-	 * @return the stack as elements
+	 * @return the stack values
 	 */
-	public Element getStackAsElements(String[] stack,String prevSubheader, int subheaderLevel,Document doc,Element stub)
+	public String[] getStackValues(String[] stack,String prevSubheader, int subheaderLevel)
 	{
-		//String s = "";
 		int l = 0;
 		if(prevSubheader.length()>0)
-		{
-			Element st = doc.createElement("SubHeader"+l);
-			st.setTextContent(prevSubheader);
-			stub.appendChild(st);
 			l++;
-		}
+		String[] values = new String[l+subheaderLevel];
+		if(l>0)
+			values[0] = prevSubheader;
 		for(int i = 0;i<subheaderLevel;i++)
 		{
-
-				Element st = doc.createElement("SubHeader"+(l+i));
-				st.setTextContent(stack[i]);
-				stub.appendChild(st);
-			//	s+=", "+stack[i];
-			
+			values[l+i] = stack[i]==null?"":stack[i];
 		}
-		
-		return stub;
+		return values;
 	}
 	
 	
@@ -441,21 +457,22 @@ public class Decomposition {
 	public static void getFullHeaderValues(Table table)
 	{
 		Cell[][] cells = table.cells;
+		NavigationIndex nav = new NavigationIndex(cells);
+		//Header path of a column only grows at header rows, so it is built once per column and shared by the cells below
+		String[] WholeHeaders = new String[nav.getColumns()];
+		int[] headersAdded = new int[nav.getColumns()];
+		Arrays.fill(WholeHeaders, "");
 		for(int i = 0;i<cells.length;i++)
 		{
 			for(int j = 0; j<cells[i].length;j++)
 			{
-				String WholeHeader = "";
-				if(i>=1){
-				for(int k =i-1;k>=0;k--)
+				int[] headerRows = nav.getColumnHeaderRows(j);
+				while(headersAdded[j]<nav.getHeadersAbove(i, j))
 				{
-					if(cells[k][j].isIs_header())
-					{
-						WholeHeader=cells[k][j].getCell_content()+" ; "+WholeHeader;
-					}
-				}
+					WholeHeaders[j]+=cells[headerRows[headersAdded[j]]][j].getCell_content()+" ; ";
+					headersAdded[j]++;
 				}
-				cells[i][j].setHeader_values(WholeHeader);
+				cells[i][j].setHeader_values(WholeHeaders[j]);
 			}
 		}
 	}
@@ -590,6 +607,156 @@ public class Decomposition {
 		return table;
 	}
 	
+	/**
+	 * Analyses structure of the table in one pass over its rows and decides which processor decomposes it.
+	 * Multi-table header rows are marked first (as before the checks), then for each row the multi-table and
+	 * super-row conditions are evaluated together. The checks give up on the table in the same cases as
+	 * isMultiTable, isListTable and hasTableSubheader did.
+	 *
+	 * @param cells the cells
+	 * @param table the table
+	 * @return the table structure, with null type if the table should not be decomposed
+	 */
+	public TableStructure analyseStructure(Cell[][] cells, Table table)
+	{
+		TableStructure structure = new TableStructure();
+		boolean scanMulti = true;
+		boolean multi = false;
+		try{
+			table.original_cells = markMultiTableHeaders(table.original_cells);
+			table.cells = markMultiTableHeaders(table.cells);
+		}catch(Exception ex)
+		{
+			// Table that can not be marked is not a multi-table
+			scanMulti = false;
+		}
+		int columns = table.getNum_of_columns();
+		boolean scanSubheaders = columns>=2;
+		boolean subheader = false;
+		boolean subheaderError = false;
+		boolean[] checkedCells = new boolean[cells.length];
+		for(int i = 0; i<cells.length;i++)
+		{
+			if(scanMulti)
+			{
+				try{
+					if(cells[i].length>0 && cells[i][0].isBreakingLineOverRow())
+					{
+						if(i-2>=0 && cells[i-2][0].isIs_header() && isSequentiallyBreakingLine(cells,i-2,0) && cells[i-2][0].isBreakingLineOverRow()&&!Utilities.isOneCellFilledRow(cells[i-1]))
+						{
+							multi = true;
+							scanMulti = false;
+						}
+					}
+				}catch(Exception ex)
+				{
+					scanMulti = false;
+				}
+			}
+			if(scanSubheaders && i>0)
+			{
+				try{
+					if(!cells[i][0].isIs_header())
+					{
+						boolean hasSubheader = false;
+						if(cells[i][0].isIs_columnspanning() && columns>1 && cells[i][0].getCells_columnspanning()>=columns && !Utilities.isSpaceOrEmpty(cells[i][0].getCell_content()))
+							hasSubheader = true;
+						else if(cells[i][0].isIs_subheader())
+							hasSubheader = true;
+						//Tree structures
+						else if(Utilities.numOfBegeningSpaces(cells[i][0].getCell_content())>0)
+							hasSubheader = true;
+						else
+						{
+							boolean emptyCells = true;
+							for(int j=1;j<cells[i].length;j++)
+							{
+								String content = cells[i][j].getCell_content()==null?"":cells[i][j].getCell_content();
+								if((!Utilities.isSpaceOrEmpty(cells[i][0].getCell_content()) && !Utilities.isSpaceOrEmpty(content))||(Utilities.isSpaceOrEmpty(cells[i][0].getCell_content()) && Utilities.isSpaceOrEmpty(content)))
+								{
+									emptyCells = false;
+								}
+							}
+							checkedCells[i] = true;
+							if(emptyCells == true && columns>2)
+								hasSubheader = true;
+						}
+						if(hasSubheader)
+						{
+							subheader = true;
+							scanSubheaders = false;
+						}
+					}
+				}catch(Exception ex)
+				{
+					subheaderError = true;
+					scanSubheaders = false;
+				}
+			}
+		}
+		if(multi)
+		{
+			structure.setType(Table.StructureType.MULTI);
+			return structure;
+		}
+		boolean isList = false;
+		boolean listError = false;
+		if(cells.length>0 && cells[0]!=null && cells[0].length>0)
+		{
+			try{
+				isList = isListTable(cells, table);
+				// Tables that are not lists have always continued with the working grid as original cells
+				if(!isList)
+				{
+					table.cells = cells;
+					table.original_cells = cells;
+				}
+			}catch(Exception ex)
+			{
+				listError = true;
+			}
+		}
+		// Missing cells of the rows checked for super-rows are treated as empty strings from now on. List
+		// tables are decomposed before that, so their missing cells are filled after processing.
+		if(!isList)
+			fillCheckedCells(cells, checkedCells);
+		else
+			structure.setCheckedRows(checkedCells);
+		if(isList)
+			structure.setType(Table.StructureType.LIST);
+		else if(subheaderError)
+			structure.setType(null);
+		else if(subheader)
+			structure.setType(Table.StructureType.SUBHEADER);
+		else if(listError)
+			structure.setType(null);
+		else
+			structure.setType(Table.StructureType.MATRIX);
+		return structure;
+	}
+	
+	/**
+	 * Sets empty content to missing cells (except the first one) of the given rows.
+	 *
+	 * @param cells the cells
+	 * @param rows the rows to fill
+	 */
+	public void fillCheckedCells(Cell[][] cells, boolean[] rows)
+	{
+		if(rows==null)
+			return;
+		for(int i = 0; i<cells.length && i<rows.length;i++)
+		{
+			if(!rows[i])
+				continue;
+			for(int j=1;j<cells[i].length;j++)
+			{
+				if(cells[i][j].getCell_content()==null)
+					cells[i][j].setCell_content("");
+			}
+		}
+	}
+	
 	/**
 	 * Process table with subheaders without header.
 	 *
@@ -600,10 +767,6 @@ public class Decomposition {
 	 */
 	private Table processTableWithSubheaders(Cell[][] cells,Table table, Article art, String tableFileName)
 	{
-		if(!hasTableSubheader(cells,table))
-		{
-			return table;
-		}
 		if(table.getTableStructureType()!=Table.StructureType.SUBHEADER && table.getTableStructureType()!=null)
 		{
 			return table;
@@ -821,101 +984,37 @@ public class Decomposition {
 			{
 				
 				try{ 
-					DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-					DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-
-					//root elements
-					Document doc = docBuilder.newDocument();
-
-					Element rootElement = doc.createElement("information");
-					doc.appendChild(rootElement);
-					Element cell = doc.createElement("Cell");
-					rootElement.appendChild(cell);
-					
-					Element NavigationPath = doc.createElement("NavigationPath");
+					NavigationPathRecord rec = new NavigationPathRecord(j, k);
 					if(!Utilities.isSpaceOrEmpty(cells[0][0].getCell_content()) && cells[0][0].isIs_header())
 					{
-						Element Head00 = doc.createElement("Head00");
-						Head00.setTextContent(cells[0][0].getCell_content());
+						rec.setHead00(cells[0][0].getCell_content());
 						cells[j][k].setHead00(cells[0][0].getCell_content());
-						NavigationPath.appendChild(Head00);
 					}
-					Element Stub = doc.createElement("Stub");								
-					
+					String[] SubHeaders = new String[0];
 					if(currentSubHeaderLevel>0)
 					{
-						getStackAsElements(headerStackA,prevSubheader, currentSubHeaderLevel, doc, Stub);
+						SubHeaders = getStackValues(headerStackA,prevSubheader, currentSubHeaderLevel);
 						getStackIndex(headerStackIndexes,prevSubheaderIndex,currentSubHeaderLevel,cells[j][k],table);
 						
 					}
 					String subheaderValues = "";
-					String[] SubHeaders = new String[Stub.getChildNodes().getLength()] ;
-					for(int l=0;l<Stub.getChildNodes().getLength();l++)
+					for(int l=0;l<SubHeaders.length;l++)
 					{
-						subheaderValues+=" "+Stub.getChildNodes().item(l).getTextContent();
-						SubHeaders[l]= Stub.getChildNodes().item(l).getTextContent();
+						subheaderValues+=" "+SubHeaders[l];
 					}
 					cells[j][k].setSubheader_values(subheaderValues);
-					Element ss = doc.createElement("StubValue");
-					ss.setTextContent(cells[j][0].getCell_content());
+					rec.setStub(SubHeaders, cells[j][0].getCell_content());
 					cells[j][k].setStub_values(cells[j][0].getCell_content());
-					Stub.appendChild(ss);
-					
-					NavigationPath.appendChild(Stub);
 					if(cells[0][k].isIs_header()){
-						for(int s = 0;s<cells[0][k].headers.size();s++){
-							Element Header = doc.createElement("HeaderValue"+s);
-							Header.setTextContent(cells[0][k].headers.get(s));
-							//cells[j][k].setHeader_values(cells[0][k].getCell_content());
-							NavigationPath.appendChild(Header);
-						}
+						rec.setHeaders(cells[0][k].headers.toArray(new String[0]));
 					}
-					cell.appendChild(NavigationPath);
-					
-					//info elements
-					Element info = doc.createElement("value");
-					info.setTextContent(cells[j][k].getCell_content());
-					cell.appendChild(info);
-					
-					Element CellType = doc.createElement("CellType");
-					CellType.setTextContent(cells[j][k].getCellType());
-					cell.appendChild(CellType);
-					
-					Element tableEl = doc.createElement("Table");
-					rootElement.appendChild(tableEl);
-					
-					Element tname = doc.createElement("tableName");
-					tname.setTextContent(table.getTable_caption());
-					tableEl.appendChild(tname);
-					
-					Element TableType = doc.createElement("TableType");
-					TableType.setTextContent("Subheader");
-					tableEl.appendChild(TableType);
-					
-
-					
-					Element torder = doc.createElement("tableOrder");
-					torder.setTextContent(table.getTable_title());
-					tableEl.appendChild(torder);
-					
-					Element tfooter = doc.createElement("tableFooter");
-					tfooter.setTextContent(table.getTable_footer());
-					tableEl.appendChild(tfooter);
-					
-					Element document = doc.createElement("Document");
-					rootElement.appendChild(document);
-					
-					Element docTitle = doc.createElement("DocumentTitle");
-					docTitle.setTextContent(art.getTitle());
-					document.appendChild(docTitle);
-					
-					Element pmc = doc.createElement("PMC");
-					pmc.setTextContent(art.getPmc());
-					document.appendChild(pmc);
+					rec.setValue(cells[j][k].getCell_content());
+					rec.setCellType(cells[j][k].getCellType());
+					rec.setTableInfo(table, "Subheader", art);
 					if(TablInExMain.ExportLinkedData){
 						TablInExMain.linkedData.AddCell(cells[j][0].getCell_content(), SubHeaders, cells[j][k].getCell_content(), cells[j][k].getCellType(),  cells[0][k].headers.toArray(new String[0]), cells[0][0].getCell_content(), j, k);					
 					}
-					DataExtractionOutputObj dataExtObj = new DataExtractionOutputObj(folder+tableFileName+"e"+j+","+k+".xml", doc);
+					DataExtractionOutputObj dataExtObj = new DataExtractionOutputObj(folder+tableFileName+"e"+j+","+k+".xml", rec);
 					//TablInExMain.outputs.add(dataExtObj);
 					table.output.add(dataExtObj);
 					
@@ -1012,78 +1111,19 @@ public class Decomposition {
 								continue;
 							}
 						}
-						DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-						DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-
-						//root elements
-						Document doc = docBuilder.newDocument();
-
-						Element rootElement = doc.createElement("information");
-						doc.appendChild(rootElement);
-						
-						Element cell = doc.createElement("Cell");
-						rootElement.appendChild(cell);
-						
-						Element NavigationPath = doc.createElement("NavigationPath");
-						String WholeHeader = "";
-						for(int s = 0;s<cells[0][k].headers.size();s++){
-							Element Header = doc.createElement("HeaderValue"+s);
-							Header.setTextContent(cells[0][k].headers.get(s));
-							WholeHeader+=cells[0][k].headers.get(s)+" ";
-							NavigationPath.appendChild(Header);
-						}
-						//cells[0][k].setHeader_values(WholeHeader);
+						NavigationPathRecord rec = new NavigationPathRecord(j, k);
+						rec.setHeaders(cells[0][k].headers.toArray(new String[0]));
 						if(currentSubHeader!=""){
-						Element SubHeader = doc.createElement("SubHeader");
-						SubHeader.setTextContent(currentSubHeader);
+						rec.setListSubHeader(currentSubHeader);
 						cells[j][k].setSuperRowIndex(SubHeaderIndex);
-						NavigationPath.appendChild(SubHeader);
 						}
-						cell.appendChild(NavigationPath);
-						//cells[j][k].setHeader_values(cells[0][k].getCell_content());
-						
-						//info elements
-						Element info = doc.createElement("value");
-						info.setTextContent(cells[j][k].getCell_content());
-						cell.appendChild(info);
-						
-						Element CellType = doc.createElement("CellType");
-						CellType.setTextContent(cells[j][k].getCellType());
-						cell.appendChild(CellType);
-						
-						Element tableA = doc.createElement("Table");
-						rootElement.appendChild(tableA);
-						
-						Element tname = doc.createElement("tableName");
-						tname.setTextContent(table.getTable_caption());
-						tableA.appendChild(tname);
-						
-						Element TableType = doc.createElement("TableType");
-						TableType.setTextContent("List");
-						tableA.appendChild(TableType);			
-						
-						Element torder = doc.createElement("tableOrder");
-						torder.setTextContent(table.getTable_title());
-						tableA.appendChild(torder);
-						
-						Element tfooter = doc.createElement("tableFooter");
-						tfooter.setTextContent(table.getTable_footer());
-						tableA.appendChild(tfooter);
-						
-						Element document = doc.createElement("Document");
-						rootElement.appendChild(document);
-						
-						Element docTitle = doc.createElement("DocumentTitle");
-						docTitle.setTextContent(art.getTitle());
-						document.appendChild(docTitle);
-						
-						Element pmc = doc.createElement("PMC");
-						pmc.setTextContent(art.getPmc());
-						document.appendChild(pmc);
+						rec.setValue(cells[j][k].getCell_content());
+						rec.setCellType(cells[j][k].getCellType());
+						rec.setTableInfo(table, "List", art);
 						if(TablInExMain.ExportLinkedData){
 							TablInExMain.linkedData.AddCell("", null, cells[j][k].getCell_content(), cells[j][k].getCellType(), cells[0][k].headers.toArray(new String[0]), "", j, k);
 						}
-						DataExtractionOutputObj dataExtObj = new DataExtractionOutputObj(folder+tableFileName+"e"+j+","+k+".xml", doc);
+						DataExtractionOutputObj dataExtObj = new DataExtractionOutputObj(folder+tableFileName+"e"+j+","+k+".xml", rec);
 						//TablInExMain.outputs.add(dataExtObj);
 						table.output.add(dataExtObj);
 					}catch(Exception ex)
@@ -1131,93 +1171,25 @@ public class Decomposition {
 			for(int k=0;k<cells[j].length;k++)
 			{
 				try{
-					DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-					DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-
-					//root elements
-					Document doc = docBuilder.newDocument();
-
-					Element rootElement = doc.createElement("information");
-					doc.appendChild(rootElement);
-					
-					Element cell = doc.createElement("Cell");
-					rootElement.appendChild(cell);
-					
-					Element NavigationPath = doc.createElement("NavigationPath");
+					NavigationPathRecord rec = new NavigationPathRecord(j, k);
 					if(!Utilities.isSpaceOrEmpty(cells[0][0].getCell_content()) && cells[0][0].isIs_header()){
-					Element TopLeftHeader = doc.createElement("Head00");
-					TopLeftHeader.setTextContent(cells[0][0].getCell_content());
+					rec.setHead00(cells[0][0].getCell_content());
 					cells[j][k].setHead00(cells[0][0].getCell_content());
-					NavigationPath.appendChild(TopLeftHeader);
 					}
 					if(!Utilities.isSpaceOrEmpty(cells[j][0].getCell_content())){
-						Element Stub = doc.createElement("Stub");
-						Element StubValue = doc.createElement("StubValue");
-						StubValue.setTextContent(cells[j][0].getCell_content());
+						rec.setStub(null, cells[j][0].getCell_content());
 						cells[j][k].setStub_values(cells[j][0].getCell_content());
-						Stub.appendChild(StubValue);
-						NavigationPath.appendChild(Stub);
 						}
 					if(!Utilities.isSpaceOrEmpty(cells[0][k].getCell_content()) && cells[0][k].isIs_header()){
-						//Element HeaderValue = doc.createElement("HeaderValue");
-						//HeaderValue.setTextContent(cells[0][k].getCell_content());
-						//cells[j][k].setHeader_values(cells[0][k].getCell_content());
-						//NavigationPath.appendChild(HeaderValue);
-						String WholeHeader = "";
-						for(int s = 0;s<cells[0][k].headers.size();s++){
-							Element Header = doc.createElement("HeaderValue"+s);
-							Header.setTextContent(cells[0][k].headers.get(s));
-							WholeHeader +=cells[0][k].headers.get(s)+" ";
-							
-							NavigationPath.appendChild(Header);
+						rec.setHeaders(cells[0][k].headers.toArray(new String[0]));
 						}
-						//cells[j][k].setHeader_values(WholeHeader);
-						}
-					
-					cell.appendChild(NavigationPath);
-					
-					//info elements
-					Element info = doc.createElement("value");
-					info.setTextContent(cells[j][k].getCell_content());
-					cell.appendChild(info);
-					
-					Element CellType = doc.createElement("CellType");
-					CellType.setTextContent(cells[j][k].getCellType());
-					cell.appendChild(CellType);
-					
-					Element tableA = doc.createElement("Table");
-					rootElement.appendChild(tableA);
-					
-					Element TableType = doc.createElement("TableType");
-					TableType.setTextContent("Matrix");
-					tableA.appendChild(TableType);
-										
-					Element tname = doc.createElement("tableName");
-					tname.setTextContent(tables[tableindex].getTable_caption());
-					tableA.appendChild(tname);
-					
-					Element torder = doc.createElement("tableOrder");
-					torder.setTextContent(tables[tableindex].getTable_title());
-					tableA.appendChild(torder);
-					
-					Element tfooter = doc.createElement("tableFooter");
-					tfooter.setTextContent(tables[tableindex].getTable_footer());
-					tableA.appendChild(tfooter);
-					
-					Element document = doc.createElement("Document");
-					rootElement.appendChild(document);
-					
-					Element docTitle = doc.createElement("DocumentTitle");
-					docTitle.setTextContent(art.getTitle());
-					document.appendChild(docTitle);
-					
-					Element pmc = doc.createElement("PMC");
-					pmc.setTextContent(art.getPmc());
-					document.appendChild(pmc);
+					rec.setValue(cells[j][k].getCell_content());
+					rec.setCellType(cells[j][k].getCellType());
+					rec.setTableInfo(tables[tableindex], "Matrix", art);
 					if(TablInExMain.ExportLinkedData){
 						TablInExMain.linkedData.AddCell(cells[j][0].getCell_content(), null, cells[j][k].getCell_content(), cells[j][k].getCellType(), cells[0][k].headers.toArray(new String[0]), cells[0][0].getCell_content(), j, k);					
 					}				
-					DataExtractionOutputObj dataExtObj = new DataExtractionOutputObj(folder+tableFileName+"e"+j+","+k+".xml", doc);
+					DataExtractionOutputObj dataExtObj = new DataExtractionOutputObj(folder+tableFileName+"e"+j+","+k+".xml", rec);
 					//TablInExMain.outputs.add(dataExtObj);
 					tables[tableindex].output.add(dataExtObj);
 					
@@ -1287,6 +1259,7 @@ public class Decomposition {
 		}
 
 		cells = table.cells;
+		NavigationIndex nav = new NavigationIndex(cells);
 		boolean firstHeader = true;
 		for(int j=0;j<cells.length;j++)
 		{
@@ -1435,135 +1408,50 @@ public class Decomposition {
 			{
 				
 				try{ 
-					DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-					DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-
-					//root elements
-					Document doc = docBuilder.newDocument();
-
-					Element rootElement = doc.createElement("information");
-					doc.appendChild(rootElement);
-					Element cell = doc.createElement("Cell");
-					rootElement.appendChild(cell);
-					
-					Element NavigationPath = doc.createElement("NavigationPath");
+					NavigationPathRecord rec = new NavigationPathRecord(j, k);
 					String Head00Str = "";
 					if(!Utilities.isSpaceOrEmpty(cells[0][0].getCell_content()) && cells[0][0].isIs_header())
 					{
 						
-						boolean foundHeader = false;
-						for(int l = j;l>=0;l--)
+						for(int l = nav.getHeaderBlockEnd(j, 0);l>=0 && l>=nav.getHeaderBlockStart(j, 0);l--)
 						{
-							if(cells[l][0].isIs_header())
-							{
-								if(!cells[l][0].getCell_content().equals(""))
-									Head00Str = cells[l][0].getCell_content();
-								foundHeader = true;
-							}
-							if(foundHeader && !cells[l][0].isIs_header())
-							{
-								break;
-							}
+							if(!cells[l][0].getCell_content().equals(""))
+								Head00Str = cells[l][0].getCell_content();
 						}
 						
-						Element Head00 = doc.createElement("Head00");
-						Head00.setTextContent(Head00Str);
+						rec.setHead00(Head00Str);
 						cells[j][k].setHead00(Head00Str);
-						NavigationPath.appendChild(Head00);
 					}
-					Element Stub = doc.createElement("Stub");								
-					
+					String[] SubHeaders = new String[0];
 					if(currentSubHeaderLevel>0)
 					{
-						getStackAsElements(headerStackA,prevSubheader, currentSubHeaderLevel, doc, Stub);
+						SubHeaders = getStackValues(headerStackA,prevSubheader, currentSubHeaderLevel);
 						getStackIndex(headerStackIndexes,prevSubheaderIndex,currentSubHeaderLevel,cells[j][k],table);
 						
 					}
 					String subheaderValues = "";
-					String[] SubHeaders = new String[Stub.getChildNodes().getLength()] ;
-					for(int l=0;l<Stub.getChildNodes().getLength();l++)
+					for(int l=0;l<SubHeaders.length;l++)
 					{
-						subheaderValues+=" "+Stub.getChildNodes().item(l).getTextContent();
-						SubHeaders[l]= Stub.getChildNodes().item(l).getTextContent();
+						subheaderValues+=" "+SubHeaders[l];
 					}
 					cells[j][k].setSubheader_values(subheaderValues);
-					Element ss = doc.createElement("StubValue");
-					ss.setTextContent(cells[j][0].getCell_content());
+					rec.setStub(SubHeaders, cells[j][0].getCell_content());
 					cells[j][k].setStub_values(cells[j][0].getCell_content());
-					Stub.appendChild(ss);
 					
-					NavigationPath.appendChild(Stub);
 					LinkedList<String> headers = new LinkedList<String>();
-					boolean foundHeader = false;
-					for(int l = j;l>=0;l--)
+					for(int l = nav.getHeaderBlockEnd(j, k);l>=0 && l>=nav.getHeaderBlockStart(j, k);l--)
 					{
-						if(cells[l][k].isIs_header())
-						{
-							if(!cells[l][k].getCell_content().equals(""))
-							headers.addFirst(cells[l][k].getCell_content());
-							foundHeader = true;
-						}
-						if(foundHeader && !cells[l][k].isIs_header())
-						{
-							break;
-						}
+						if(!cells[l][k].getCell_content().equals(""))
+						headers.addFirst(cells[l][k].getCell_content());
 					}
-					
-					String WholeHeader="";
-						for(int s = 0;s<headers.size();s++){
-							Element Header = doc.createElement("HeaderValue"+s);
-							Header.setTextContent(headers.get(s));
-							WholeHeader += headers.get(s)+" ";
-							//cells[j][k].setHeader_values(headers.toString());
-							NavigationPath.appendChild(Header);
-						}			
-						//cells[j][k].setHeader_values(WholeHeader);
-					cell.appendChild(NavigationPath);
-					
-					//info elements
-					Element info = doc.createElement("value");
-					info.setTextContent(cells[j][k].getCell_content());
-					cell.appendChild(info);
-					
-					Element CellType = doc.createElement("CellType");
-					CellType.setTextContent(cells[j][k].getCellType());
-					cell.appendChild(CellType);
-					
-					Element tableEl = doc.createElement("Table");
-					rootElement.appendChild(tableEl);
-					
-					Element tname = doc.createElement("tableName");
-					tname.setTextContent(table.getTable_caption());
-					tableEl.appendChild(tname);
-					
-					Element TableType = doc.createElement("TableType");
-					TableType.setTextContent("Multi-Table");
-					tableEl.appendChild(TableType);
-					
-
-					
-					Element torder = doc.createElement("tableOrder");
-					torder.setTextContent(table.getTable_title());
-					tableEl.appendChild(torder);
-					
-					Element tfooter = doc.createElement("tableFooter");
-					tfooter.setTextContent(table.getTable_footer());
-					tableEl.appendChild(tfooter);
-					
-					Element document = doc.createElement("Document");
-					rootElement.appendChild(document);
-					
-					Element docTitle = doc.createElement("DocumentTitle");
-					docTitle.setTextContent(art.getTitle());
-					document.appendChild(docTitle);
-					
-					Element pmc = doc.createElement("PMC");
-					pmc.setTextContent(art.getPmc());
-					document.appendChild(pmc);
+					rec.setHeaders(headers.toArray(new String[0]));
+					rec.setValue(cells[j][k].getCell_content());
+					rec.setCellType(cells[j][k].getCellType());
+					rec.setTableInfo(table, "Multi-Table", art);
 					if(TablInExMain.ExportLinkedData){
 						TablInExMain.linkedData.AddCell(cells[j][0].getCell_content(), SubHeaders, cells[j][k].getCell_content(), cells[j][k].getCellType(),  cells[0][k].headers.toArray(new String[0]), cells[0][0].getCell_content(), j, k);					
 					}
-					DataExtractionOutputObj dataExtObj = new DataExtractionOutputObj(folder+tableFileName+"e"+j+","+k+".xml", doc);
+					DataExtractionOutputObj dataExtObj = new DataExtractionOutputObj(folder+tableFileName+"e"+j+","+k+".xml", rec);
 					//TablInExMain.outputs.add(dataExtObj);
 					table.output.add(dataExtObj);
 					
@@ -1577,6 +1465,7 @@ public class Decomposition {
 		else
 		{
 			//List table
+			NavigationIndex nav = new NavigationIndex(cells);
 			boolean hasSubheaders = hasSuperRowsListTable(cells, table);
 			boolean TopLevel = false;
 			String currentSubHeader = "";
@@ -1608,98 +1497,24 @@ public class Decomposition {
 								continue;
 							}
 						}
-						DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-						DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-
-						//root elements
-						Document doc = docBuilder.newDocument();
-
-						Element rootElement = doc.createElement("information");
-						doc.appendChild(rootElement);
-						
-						Element cell = doc.createElement("Cell");
-						rootElement.appendChild(cell);
-						
-						Element NavigationPath = doc.createElement("NavigationPath");
-						
-						
+						NavigationPathRecord rec = new NavigationPathRecord(j, k);
 						LinkedList<String> headers = new LinkedList<String>();
-						boolean foundHeader = false;
-						for(int l = j;l>=0;l--)
+						for(int l = nav.getHeaderBlockEnd(j, k);l>=0 && l>=nav.getHeaderBlockStart(j, k);l--)
 						{
-							if(cells[l][k].isIs_header())
-							{
-								if(!cells[l][k].getCell_content().equals(""))
-								headers.addFirst(cells[l][k].getCell_content());
-								foundHeader = true;
-							}
-							if(foundHeader && !cells[l][k].isIs_header())
-							{
-								break;
-							}
+							if(!cells[l][k].getCell_content().equals(""))
+							headers.addFirst(cells[l][k].getCell_content());
 						}
-						
-						String WholeHeader = "";
-							for(int s = 0;s<headers.size();s++){
-								Element Header = doc.createElement("HeaderValue"+s);
-								Header.setTextContent(headers.get(s));
-								WholeHeader +=headers.get(s)+" ";
-								//cells[j][k].setHeader_values(headers.toString());
-								NavigationPath.appendChild(Header);
-							}	
-							//cells[j][k].setHeader_values(WholeHeader);
-						
-						
+						rec.setHeaders(headers.toArray(new String[0]));
 						if(currentSubHeader!=""){
-						Element SubHeader = doc.createElement("SubHeader");
-						SubHeader.setTextContent(currentSubHeader);
-						NavigationPath.appendChild(SubHeader);
+						rec.setListSubHeader(currentSubHeader);
 						}
-						cell.appendChild(NavigationPath);
-						//cells[j][k].setHeader_values(cells[0][k].getCell_content());
-						
-						//info elements
-						Element info = doc.createElement("value");
-						info.setTextContent(cells[j][k].getCell_content());
-						cell.appendChild(info);
-						
-						Element CellType = doc.createElement("CellType");
-						CellType.setTextContent(cells[j][k].getCellType());
-						cell.appendChild(CellType);
-						
-						Element tableA = doc.createElement("Table");
-						rootElement.appendChild(tableA);
-						
-						Element tname = doc.createElement("tableName");
-						tname.setTextContent(table.getTable_caption());
-						tableA.appendChild(tname);
-						
-						Element TableType = doc.createElement("TableType");
-						TableType.setTextContent("Multi-Table");
-						tableA.appendChild(TableType);			
-						
-						Element torder = doc.createElement("tableOrder");
-						torder.setTextContent(table.getTable_title());
-						tableA.appendChild(torder);
-						
-						Element tfooter = doc.createElement("tableFooter");
-						tfooter.setTextContent(table.getTable_footer());
-						tableA.appendChild(tfooter);
-						
-						Element document = doc.createElement("Document");
-						rootElement.appendChild(document);
-						
-						Element docTitle = doc.createElement("DocumentTitle");
-						docTitle.setTextContent(art.getTitle());
-						document.appendChild(docTitle);
-						
-						Element pmc = doc.createElement("PMC");
-						pmc.setTextContent(art.getPmc());
-						document.appendChild(pmc);
+						rec.setValue(cells[j][k].getCell_content());
+						rec.setCellType(cells[j][k].getCellType());
+						rec.setTableInfo(table, "Multi-Table", art);
 						if(TablInExMain.ExportLinkedData){
 							TablInExMain.linkedData.AddCell("", null, cells[j][k].getCell_content(), cells[j][k].getCellType(), cells[0][k].headers.toArray(new String[0]), "", j, k);
 						}
-						DataExtractionOutputObj dataExtObj = new DataExtractionOutputObj(folder+tableFileName+"e"+j+","+k+".xml", doc);
+						DataExtractionOutputObj dataExtObj = new DataExtractionOutputObj(folder+tableFileName+"e"+j+","+k+".xml", rec);
 						//TablInExMain.outputs.add(dataExtObj);
 						table.output.add(dataExtObj);
 					}catch(Exception ex)
@@ -1724,51 +1539,49 @@ public class Decomposition {
 	{
 		if(art==null)
 			return;
-		TablInExMain.linkedData.AddArticle(art);
+		if(TablInExMain.ExportLinkedData){
+			TablInExMain.linkedData.AddArticle(art);
+		}
 		Table[] tables = art.getTables();
 		for(int i = 0; i< tables.length;i++)
 		{
 			if(tables[i]==null || tables[i].cells==null || tables[i].cells.length==0)
 				continue;
-			String tableFileName = "/"+tables[i].getDocumentFileName()+tables[i].getTable_title()+"-"+tables[i].tableInTable;
+			String tableFileName = getTableFileName(tables[i]);
 			getFullHeaderValues(tables[i]);
 			Cell[][] cells = tables[i].cells;
+			TableStructure structure = null;
 			try{
-			if(isMultiTable(cells, tables[i]))
-			{
-				tables[i] = processMultiTable(cells,tables[i], art, tableFileName);
-				
-			}
+				structure = analyseStructure(cells, tables[i]);
 			}catch(Exception ex)
 			{
 				ex.printStackTrace();
 			}
-			if(tables[i].getTableStructureType()!=null && tables[i].getTableStructureType().equals(Table.StructureType.MULTI))
+			if(structure==null || structure.getType()==null)
 				continue;
 			try{
-			tables[i] = processListTable(cells,tables[i], art, tableFileName);
-			}catch(Exception ex)
-			{
-				ex.printStackTrace();
-			}
-			try{
-			tables[i] = processTableWithSubheaders(cells,tables[i],art,tableFileName);//processTableWithSubheaders(cells,tables[i],art,tableFileName);
-			}catch(Exception ex)
-			{
-				ex.printStackTrace();
-			}
-			try{
-			if(!isListTable(cells, tables[i]) && !hasTableSubheader(cells, tables[i]))
-			{
-				tables[i] = processRegularTable(cells,  tables, art, tableFileName, i);
-			}
+				switch(structure.getType())
+				{
+				case MULTI:
+					tables[i] = processMultiTable(cells,tables[i], art, tableFileName);
+					break;
+				case LIST:
+					tables[i] = processListTable(cells,tables[i], art, tableFileName);
+					fillCheckedCells(cells, structure.getCheckedRows());
+					break;
+				case SUBHEADER:
+					tables[i] = processTableWithSubheaders(cells,tables[i],art,tableFileName);
+					break;
+				default:
+					tables[i] = processRegularTable(cells,  tables, art, tableFileName, i);
+				}
 			}catch(Exception ex)
 			{
 				ex.printStackTrace();
 			}
 		}
 		art.setTables(tables);
-		
+		writer.writeArticle(art);
 	}
 
 
@@ -0,0 +1,229 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Decomposition;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import tablInEx.Article;
+import tablInEx.DataExtractionOutputObj;
+import tablInEx.NavigationPathRecord;
+import tablInEx.TablInExMain;
+import tablInEx.Table;
+
+/**
+ * The Class DecompositionWriter. Writes decomposition output of an article to the IE folder. By default
+ * all cells of a table are streamed to one file through a buffered writer. It is also possible to write
+ * one file per article, or one file per cell (e&lt;row&gt;,&lt;column&gt;.xml) as in the older versions.
+ */
+public class DecompositionWriter {
+
+	/** The output layout. */
+	public enum Layout {TABLE, ARTICLE, CELL};
+
+	private static XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+	private String folder;
+	private Layout layout;
+
+	/**
+	 * Instantiates a new decomposition writer.
+	 *
+	 * @param folder the output folder
+	 * @param layout the layout
+	 */
+	public DecompositionWriter(String folder, Layout layout)
+	{
+		this.folder = folder;
+		this.layout = layout;
+	}
+
+	/**
+	 * Gets the layout from its name (table, article or cell). Unknown names give the table layout.
+	 *
+	 * @param name the name
+	 * @return the layout
+	 */
+	public static Layout getLayout(String name)
+	{
+		if(name!=null && name.equalsIgnoreCase("article"))
+			return Layout.ARTICLE;
+		if(name!=null && name.equalsIgnoreCase("cell"))
+			return Layout.CELL;
+		return Layout.TABLE;
+	}
+
+	/**
+	 * Writes decomposition output of all tables of the article.
+	 *
+	 * @param art the article
+	 */
+	public void writeArticle(Article art)
+	{
+		if(art==null || art.getTables()==null)
+			return;
+		Table[] tables = art.getTables();
+		if(TablInExMain.shouldTag)
+		{
+			for(Table table:tables)
+			{
+				if(table!=null && table.output.size()>0)
+					DataExtractionOutputObj.MetamapTagTable(table.output);
+			}
+		}
+		if(layout==Layout.CELL)
+		{
+			for(Table table:tables)
+			{
+				if(table==null)
+					continue;
+				for(DataExtractionOutputObj obj:table.output)
+					obj.CreateOutput();
+			}
+			return;
+		}
+		if(layout==Layout.ARTICLE)
+		{
+			boolean hasOutput = false;
+			for(Table table:tables)
+			{
+				if(table!=null && table.output.size()>0)
+					hasOutput = true;
+			}
+			if(!hasOutput)
+				return;
+			XMLStreamWriter writer = null;
+			Writer out = null;
+			try{
+				out = openFile(folder+"/"+art.getFile_name()+".xml");
+				writer = outputFactory.createXMLStreamWriter(out);
+				writer.writeStartDocument("UTF-8", "1.0");
+				writer.writeStartElement("decomposition");
+				for(Table table:tables)
+				{
+					if(table!=null && table.output.size()>0)
+						writeTable(writer, table);
+				}
+				writer.writeEndElement();
+				writer.writeEndDocument();
+			}catch(Exception ex)
+			{
+				ex.printStackTrace();
+			}
+			finally
+			{
+				close(writer, out);
+			}
+			return;
+		}
+		for(Table table:tables)
+		{
+			if(table==null || table.output.size()==0)
+				continue;
+			XMLStreamWriter writer = null;
+			Writer out = null;
+			try{
+				out = openFile(folder+Decomposition.getTableFileName(table)+".xml");
+				writer = outputFactory.createXMLStreamWriter(out);
+				writer.writeStartDocument("UTF-8", "1.0");
+				writer.writeStartElement("decomposition");
+				writeTable(writer, table);
+				writer.writeEndElement();
+				writer.writeEndDocument();
+			}catch(Exception ex)
+			{
+				ex.printStackTrace();
+			}
+			finally
+			{
+				close(writer, out);
+			}
+		}
+	}
+
+	private static Writer openFile(String fileName) throws Exception
+	{
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), "UTF-8"), 65536);
+	}
+
+	private static void close(XMLStreamWriter writer, Writer out)
+	{
+		try{
+			if(writer!=null)
+				writer.close();
+			if(out!=null)
+				out.close();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes cells of one table as information elements inside table element.
+	 *
+	 * @param writer the writer
+	 * @param table the table
+	 * @throws XMLStreamException the XML stream exception
+	 */
+	private void writeTable(XMLStreamWriter writer, Table table) throws XMLStreamException
+	{
+		writer.writeStartElement("table");
+		if(table.getTable_title()!=null)
+			writer.writeAttribute("tableOrder", table.getTable_title());
+		writer.writeAttribute("tableInTable", ""+table.tableInTable);
+		for(DataExtractionOutputObj obj:table.output)
+		{
+			NavigationPathRecord rec = obj.getRecord();
+			if(TablInExMain.shouldTag && obj.getXMLDocumentTagged()!=null)
+				writeNode(writer, obj.getXMLDocumentTagged().getDocumentElement());
+			else if(rec!=null)
+				rec.write(writer, true);
+			else if(obj.getXMLDocument()!=null)
+				writeNode(writer, obj.getXMLDocument().getDocumentElement());
+		}
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Copies DOM node to the stream (used for documents that were not created from records, e.g. tagged ones).
+	 *
+	 * @param writer the writer
+	 * @param node the node
+	 * @throws XMLStreamException the XML stream exception
+	 */
+	private static void writeNode(XMLStreamWriter writer, Node node) throws XMLStreamException
+	{
+		if(node.getNodeType()==Node.TEXT_NODE || node.getNodeType()==Node.CDATA_SECTION_NODE)
+		{
+			writer.writeCharacters(node.getNodeValue());
+			return;
+		}
+		if(node.getNodeType()!=Node.ELEMENT_NODE)
+			return;
+		writer.writeStartElement(node.getNodeName());
+		NamedNodeMap attributes = node.getAttributes();
+		for(int i = 0;i<attributes.getLength();i++)
+			writer.writeAttribute(attributes.item(i).getNodeName(), attributes.item(i).getNodeValue());
+		for(Node child = node.getFirstChild();child!=null;child = child.getNextSibling())
+			writeNode(writer, child);
+		writer.writeEndElement();
+	}
+
+	public Layout getLayout() {
+		return layout;
+	}
+
+}
@@ -0,0 +1,309 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Decomposition;
+
+import gov.nih.nlm.nls.metamap.MetaMapApi;
+import gov.nih.nlm.nls.metamap.MetaMapApiImpl;
+import gov.nih.nlm.nls.metamap.Result;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class MetaMapClientPool. Pool of connections to the MetaMap server shared by all threads. Settings
+ * (host, port and options) are read from metamapSettings once, connections are opened when needed (up to the
+ * size of the pool) and reused between requests. A connection that was not used for a while is checked
+ * with a short request before it is reused; a connection that failed is closed and the request is repeated
+ * once on a new connection.
+ */
+public class MetaMapClientPool {
+
+	/** The default number of connections. */
+	public static final int DEFAULT_SIZE = 4;
+
+	/** The default timeout of a request in milliseconds. */
+	public static final int DEFAULT_TIMEOUT = 60000;
+
+	/** Connections idle for longer than this (in milliseconds) are checked before they are reused. */
+	private static final long HEALTH_CHECK_INTERVAL = 60000;
+
+	private static final String HEALTH_CHECK_TEXT = "heart";
+
+	private static final long WAIT_STEP = 100;
+
+	private static MetaMapClientPool pool;
+
+	private static int poolSize = DEFAULT_SIZE;
+	private static int poolTimeout = DEFAULT_TIMEOUT;
+	private static Connector poolConnector;
+
+	private String host = MetaMapApi.DEFAULT_SERVER_HOST;
+	private int port = MetaMapApi.DEFAULT_SERVER_PORT;
+	private List<String> options = new ArrayList<String>();
+	private int size;
+	private int timeout;
+	private Connector connector;
+
+	private LinkedBlockingQueue<Client> idle = new LinkedBlockingQueue<Client>();
+	private int open = 0;
+	private long requests = 0;
+	private long connects = 0;
+	private long failures = 0;
+
+	/**
+	 * Opens a connection to MetaMap, used instead of the MetaMap API when given (stand-ins in tests).
+	 */
+	public interface Connector {
+		MetaMapApi connect() throws Exception;
+	}
+
+	private static class Client {
+		MetaMapApi api;
+		long lastUsed;
+	}
+
+	/**
+	 * Gets the pool, reading metamapSettings when it is first used.
+	 *
+	 * @return the pool
+	 */
+	public static synchronized MetaMapClientPool getPool()
+	{
+		if(pool==null)
+			pool = new MetaMapClientPool(poolSize, poolTimeout, poolConnector);
+		return pool;
+	}
+
+	/**
+	 * Checks whether the pool was used.
+	 *
+	 * @return true, if the pool was created
+	 */
+	public static synchronized boolean isOpen()
+	{
+		return pool!=null;
+	}
+
+	/**
+	 * Sets size and request timeout of the pool. The current pool is closed, a new one is created when needed.
+	 *
+	 * @param size the maximal number of connections
+	 * @param timeout the timeout of a request in milliseconds, 0 waits without limit
+	 */
+	public static synchronized void configure(int size, int timeout)
+	{
+		configure(size, timeout, null);
+	}
+
+	/**
+	 * Sets size, request timeout and connector of the pool. The current pool is closed, a new one is created when needed.
+	 *
+	 * @param size the maximal number of connections
+	 * @param timeout the timeout of a request in milliseconds, 0 waits without limit
+	 * @param connector the connector, null for connections to the MetaMap server
+	 */
+	public static synchronized void configure(int size, int timeout, Connector connector)
+	{
+		poolSize = Math.max(1, size);
+		poolTimeout = Math.max(0, timeout);
+		poolConnector = connector;
+		if(pool!=null)
+		{
+			pool.close();
+			pool = null;
+		}
+	}
+
+	private MetaMapClientPool(int size, int timeout, Connector connector)
+	{
+		this.size = size;
+		this.timeout = timeout;
+		this.connector = connector;
+		try{
+			BufferedReader bropt = new BufferedReader(new FileReader("metamapSettings"));
+			String linea;
+			while ((linea = bropt.readLine()) != null) {
+				if(linea.contains("Host:"))
+				{
+					host = linea.substring(5);
+				}
+				if(linea.contains("Port:"))
+				{
+					port = Integer.parseInt(linea.substring(5));
+				}
+				if(linea.contains("Options:"))
+				{
+					String[] opts = linea.substring(8).split(" ");
+					for(int i = 0;i<opts.length;i++)
+						options.add(opts[i]);
+				}
+			}
+			bropt.close();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Processes the text with MetaMap on one of the pooled connections.
+	 *
+	 * @param text the text
+	 * @return the results
+	 * @throws Exception the exception, if the request failed on two connections or no connection was available in time
+	 */
+	public List<Result> process(String text) throws Exception
+	{
+		synchronized(this)
+		{
+			requests++;
+		}
+		Client client = borrow();
+		try{
+			List<Result> results = client.api.processCitationsFromString(text);
+			release(client);
+			return results;
+		}catch(Exception ex)
+		{
+			discard(client);
+		}
+		// the connection may have been closed by the server, repeat the request on a new one
+		client = borrow();
+		try{
+			List<Result> results = client.api.processCitationsFromString(text);
+			release(client);
+			return results;
+		}catch(Exception ex)
+		{
+			discard(client);
+			throw ex;
+		}
+	}
+
+	private Client borrow() throws Exception
+	{
+		long deadline = System.currentTimeMillis()+timeout;
+		Client client = idle.poll();
+		while(client==null)
+		{
+			synchronized(this)
+			{
+				if(open<size)
+				{
+					open++;
+					return connect();
+				}
+			}
+			// wait for a connection in short steps, since a failed connection frees place for a new one
+			long wait = timeout==0?WAIT_STEP:Math.min(WAIT_STEP, deadline-System.currentTimeMillis());
+			if(wait<=0)
+				throw new Exception("No MetaMap connection available in "+timeout+" ms");
+			client = idle.poll(wait, TimeUnit.MILLISECONDS);
+		}
+		if(System.currentTimeMillis()-client.lastUsed>HEALTH_CHECK_INTERVAL && !isHealthy(client))
+		{
+			discard(client);
+			synchronized(this)
+			{
+				open++;
+			}
+			return connect();
+		}
+		return client;
+	}
+
+	/**
+	 * Opens a new connection. The caller has already counted it as open.
+	 */
+	private Client connect() throws Exception
+	{
+		try{
+			MetaMapApi api = connector==null?new MetaMapApiImpl():connector.connect();
+			api.setHost(host);
+			api.setPort(port);
+			api.setTimeout(timeout);
+			for(String opt: options)
+				api.setOptions(opt);
+			Client client = new Client();
+			client.api = api;
+			synchronized(this)
+			{
+				connects++;
+			}
+			return client;
+		}catch(Exception ex)
+		{
+			synchronized(this)
+			{
+				open--;
+			}
+			throw ex;
+		}
+	}
+
+	private boolean isHealthy(Client client)
+	{
+		try{
+			client.api.processCitationsFromString(HEALTH_CHECK_TEXT);
+			return true;
+		}catch(Exception ex)
+		{
+			return false;
+		}
+	}
+
+	private void release(Client client)
+	{
+		client.lastUsed = System.currentTimeMillis();
+		idle.offer(client);
+	}
+
+	private void discard(Client client)
+	{
+		synchronized(this)
+		{
+			open--;
+			failures++;
+		}
+		try{
+			client.api.disconnect();
+		}catch(Exception ex)
+		{
+			// connection is already broken
+		}
+	}
+
+	/**
+	 * Closes idle connections. Connections in use are closed by the server when it times them out.
+	 */
+	public void close()
+	{
+		Client client;
+		while((client = idle.poll())!=null)
+		{
+			synchronized(this)
+			{
+				open--;
+			}
+			try{
+				client.api.disconnect();
+			}catch(Exception ex)
+			{
+				ex.printStackTrace();
+			}
+		}
+	}
+
+	public synchronized String getStatistics()
+	{
+		return "MetaMap connections: "+requests+" requests, "+connects+" connections opened, "+failures+" failed";
+	}
+
+}
@@ -2,77 +2,64 @@ package Decomposition;
 
 import gov.nih.nlm.nls.metamap.Ev;
 import gov.nih.nlm.nls.metamap.Mapping;
-import gov.nih.nlm.nls.metamap.MetaMapApi;
-import gov.nih.nlm.nls.metamap.MetaMapApiImpl;
 import gov.nih.nlm.nls.metamap.PCM;
+import gov.nih.nlm.nls.metamap.Position;
+import gov.nih.nlm.nls.metamap.PositionImpl;
 import gov.nih.nlm.nls.metamap.Result;
 import gov.nih.nlm.nls.metamap.Utterance;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.FileReader;
-import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import Annotation.AnnotationCache;
+import Annotation.AnnotatorRecording;
+import Utils.PersistentCache;
+
 public class MetaMapping {
-	//initialise MetaMap api
-	private static MetaMapApi api;
-	public static HashMap<String, String> SemanticTypes;
-	
-	
-	public MetaMapping() throws MalformedURLException
+	/** Maximal length of text sent to MetaMap in one batch. */
+	private static final int MAX_BATCH_LENGTH = 20000;
+
+	public static HashMap<String, String> SemanticTypes = readSemanticTypes();
+
+	private static MetaMapping instance = new MetaMapping();
+
+	/**
+	 * MetaMapping keeps no state of its own, requests go to the shared MetaMapClientPool,
+	 * so one instance can be used by all callers and threads.
+	 */
+	public MetaMapping()
 	{
-		
-		/**
-		 * set parameters (set parameters in conf/metamap.properties)
-		 */
-		List<String> theOptions=new ArrayList<String>();;
-		try{
-		String HostName = "";
-		int PortNumber = 0;
-		String [] options = new String[0];
-		BufferedReader bropt = new BufferedReader(new FileReader("metamapSettings"));
-		String linea;
-		while ((linea = bropt.readLine()) != null) {
-			if(linea.contains("Host:"))
-			{
-				HostName = linea.substring(5);
-			}
-			if(linea.contains("Port:"))
-			{
-				PortNumber = Integer.parseInt(linea.substring(5));
-			}
-			if(linea.contains("Options:"))
-			{
-				String opt = linea.substring(8);
-				options = opt.split(" ");
-			}
-		}
-		
+	}
 
-		api = new MetaMapApiImpl();
-		api.setHost(HostName);
-		api.setPort(PortNumber);
-	   
-		for(int i = 0;i<options.length;i++)
-		{
-			theOptions.add(options[i]); 	
-		}
-		}catch(Exception ex)
-		{
-			ex.printStackTrace();
-		}
-		for(String opt: theOptions)
-	    	api.setOptions(opt);
+	/**
+	 * Gets the shared instance.
+	 *
+	 * @return the instance
+	 */
+	public static MetaMapping getInstance()
+	{
+		return instance;
+	}
+
+	private static HashMap<String, String> readSemanticTypes()
+	{
+		HashMap<String, String> types = new HashMap<String, String>();
 		try{
-		SemanticTypes = new HashMap<String, String>();
 		BufferedReader br = new BufferedReader(new FileReader("SemanticTypes"));
 		String line;
 		while ((line = br.readLine()) != null) {
 			String[] splitted = line.split("\\|");
-			SemanticTypes.put(splitted[0], splitted[2]);
+			types.put(splitted[0], splitted[2]);
 		   // process the line.
 		}
 		br.close();
@@ -81,8 +68,7 @@ public class MetaMapping {
 		{
 			ex.printStackTrace();
 		}
-		
-
+		return types;
 	}
 	
 	public static String getNiceSemanticType(String str)
@@ -92,15 +78,210 @@ public class MetaMapping {
 	
 	public Map<Object, Object> getClassification(String term) throws Exception
 	{
-		//String[] classfication = new String[3]; 
-		Map<Object, Object> mp = new HashMap<Object, Object>();
+		term = filterTerm(term);
+		return shiftPositions(classifyText(term.trim()), term);
+	}
+
+	/**
+	 * Gets classification of a trimmed text from the annotation store, the recording or MetaMap. Positions
+	 * of concepts are relative to the trimmed text.
+	 */
+	private Map<Object, Object> classifyText(String term) throws Exception
+	{
+		PersistentCache store = AnnotationCache.getStore();
+		if(store!=null)
+		{
+			byte[] stored = store.get("MetaMap|"+term);
+			if(stored!=null)
+				return decodeClassification(stored);
+		}
+
+		AnnotatorRecording recording = AnnotatorRecording.getRecording();
+		if(recording!=null && recording.isReplay())
+		{
+			byte[] response = recording.replay("MetaMap|"+term);
+			if(response==null)
+				return new HashMap<Object, Object>();
+			return decodeClassification(response);
+		}
+		long start = System.currentTimeMillis();
+		List<Result> resultList = MetaMapClientPool.getPool().process(term);
+		Map<Object, Object> mp = classify(resultList);
+		if(recording!=null)
+			recording.record("MetaMap|"+term, System.currentTimeMillis()-start, encodeClassification(mp));
+		if(store!=null)
+			store.put("MetaMap|"+term, encodeClassification(mp));
+		return mp;
+	}
 
-		//Certain characters may cause MetaMap to throw an exception; 
-		//filter terms before passing to mm.
+	/**
+	 * Certain characters may cause MetaMap to throw an exception; 
+	 * filter terms before passing to mm.
+	 */
+	private static String filterTerm(String term)
+	{
 		term = term.replaceAll("'", "");
 		term = term.replaceAll("\"", "");
+		return term;
+	}
 
-		List<Result> resultList = api.processCitationsFromString(term);
+	/**
+	 * MetaMap gets terms without leading and trailing whitespace (it drops them from batched terms anyway),
+	 * so positions of concepts are moved by the whitespace the filtered term starts with.
+	 */
+	private static Map<Object, Object> shiftPositions(Map<Object, Object> mp, String term)
+	{
+		int offset = 0;
+		while(offset<term.length() && term.charAt(offset)<=' ')
+			offset++;
+		if(offset==0 || offset==term.length())
+			return mp;
+		Map<Object, Object> shifted = new HashMap<Object, Object>(mp);
+		for(int i = 2;i<mp.size();i=i+6)
+		{
+			ArrayList<Position> positions = new ArrayList<Position>();
+			for(Object p:(List<?>)mp.get(i))
+				positions.add(new PositionImpl(((Position)p).getX()+offset, ((Position)p).getY()));
+			shifted.put(i, positions);
+		}
+		return shifted;
+	}
+
+	/**
+	 * Collapses whitespace of the text, the way MetaMap reports input text of a batched term.
+	 */
+	private static String normalize(String text)
+	{
+		if(text==null)
+			return null;
+		return text.trim().replaceAll("\\s+", " ");
+	}
+
+	/**
+	 * Gets classifications of many terms, sending them to MetaMap in batches (terms separated by blank
+	 * lines) instead of one request per term. Terms are trimmed before they are sent. MetaMap returns one
+	 * result per term of the batch, which is checked against the term text with whitespace collapsed; if results can not be matched to terms, terms of the batch are
+	 * classified one by one. Classification of each term is the same as from getClassification.
+	 *
+	 * @param terms the terms, may repeat
+	 * @return the classification of every distinct term
+	 * @throws Exception the exception
+	 */
+	public Map<String, Map<Object, Object>> getClassifications(Collection<String> terms) throws Exception
+	{
+		Map<String, Map<Object, Object>> classifications = new HashMap<String, Map<Object, Object>>();
+		// distinct filtered and trimmed terms waiting for MetaMap, with terms they come from
+		LinkedHashMap<String, List<String>> pending = new LinkedHashMap<String, List<String>>();
+		PersistentCache store = AnnotationCache.getStore();
+		for(String term:terms)
+		{
+			if(term==null || classifications.containsKey(term))
+				continue;
+			String filtered = filterTerm(term);
+			String text = filtered.trim();
+			if(store!=null)
+			{
+				byte[] stored = store.get("MetaMap|"+text);
+				if(stored!=null)
+				{
+					classifications.put(term, shiftPositions(decodeClassification(stored), filtered));
+					continue;
+				}
+			}
+			// blank lines separate terms of a batch, so such terms (and empty ones) are sent alone
+			if(text.length()==0 || text.indexOf('\n')>=0 || text.indexOf('\r')>=0)
+			{
+				classifications.put(term, getClassification(term));
+				continue;
+			}
+			List<String> sources = pending.get(text);
+			if(sources==null)
+			{
+				sources = new ArrayList<String>();
+				pending.put(text, sources);
+			}
+			if(!sources.contains(term))
+				sources.add(term);
+		}
+		List<String> batch = new ArrayList<String>();
+		int length = 0;
+		for(String filtered:pending.keySet())
+		{
+			if(batch.size()>0 && length+filtered.length()>MAX_BATCH_LENGTH)
+			{
+				classifyBatch(batch, pending, classifications);
+				batch.clear();
+				length = 0;
+			}
+			batch.add(filtered);
+			length += filtered.length()+2;
+		}
+		if(batch.size()>0)
+			classifyBatch(batch, pending, classifications);
+		return classifications;
+	}
+
+	private void classifyBatch(List<String> batch, Map<String, List<String>> sources, Map<String, Map<Object, Object>> classifications) throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		for(String term:batch)
+		{
+			if(sb.length()>0)
+				sb.append("\n\n");
+			sb.append(term);
+		}
+		AnnotatorRecording recording = AnnotatorRecording.getRecording();
+		if(recording!=null && recording.isReplay())
+		{
+			List<String> keys = new ArrayList<String>();
+			for(String term:batch)
+				keys.add("MetaMap|"+term);
+			List<byte[]> responses = recording.replay(keys);
+			for(int i = 0;i<batch.size();i++)
+			{
+				Map<Object, Object> mp = responses.get(i)==null?new HashMap<Object, Object>():decodeClassification(responses.get(i));
+				for(String source:sources.get(batch.get(i)))
+					classifications.put(source, shiftPositions(mp, filterTerm(source)));
+			}
+			return;
+		}
+		long start = System.currentTimeMillis();
+		List<Result> resultList = MetaMapClientPool.getPool().process(sb.toString());
+		// time of the call is shared by terms of the batch
+		long latency = (System.currentTimeMillis()-start)/batch.size();
+		boolean matched = resultList.size()==batch.size();
+		for(int i = 0;matched && i<batch.size();i++)
+			matched = normalize(batch.get(i)).equals(normalize(resultList.get(i).getInputText()));
+		PersistentCache store = AnnotationCache.getStore();
+		for(int i = 0;i<batch.size();i++)
+		{
+			String term = batch.get(i);
+			Map<Object, Object> mp;
+			if(matched)
+			{
+				mp = classify(resultList.subList(i, i+1));
+				if(recording!=null)
+					recording.record("MetaMap|"+term, latency, encodeClassification(mp));
+				if(store!=null)
+					store.put("MetaMap|"+term, encodeClassification(mp));
+			}
+			else
+			{
+				mp = classifyText(term);
+			}
+			for(String source:sources.get(term))
+				classifications.put(source, shiftPositions(mp, filterTerm(source)));
+		}
+	}
+
+	/**
+	 * Collects concepts of MetaMap results, six values per concept: concept id, matched words, positions,
+	 * semantic type, concept name and preferred name.
+	 */
+	private static Map<Object, Object> classify(List<Result> resultList) throws Exception
+	{
+		//String[] classfication = new String[3]; 
+		Map<Object, Object> mp = new HashMap<Object, Object>();
 	    //Result result = resultList.get(0);
 		int i = 0;
 	    for(Result result:resultList){
@@ -140,4 +321,61 @@ public class MetaMapping {
 	return mp;
 	}
 	
+	/**
+	 * Encodes classification for the annotation store. Every concept is six values: concept id, matched
+	 * words, positions, semantic type, concept name and preferred name.
+	 */
+	private static byte[] encodeClassification(Map<Object, Object> mp) throws Exception
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bos);
+		out.writeInt(mp.size()/6);
+		for(int i = 0;i+5<mp.size();i=i+6)
+		{
+			PersistentCache.writeString(out, (String)mp.get(i));
+			List<?> matched = (List<?>)mp.get(i+1);
+			out.writeInt(matched.size());
+			for(Object word:matched)
+				PersistentCache.writeString(out, word.toString());
+			List<?> positions = (List<?>)mp.get(i+2);
+			out.writeInt(positions.size());
+			for(Object p:positions)
+			{
+				out.writeInt(((Position)p).getX());
+				out.writeInt(((Position)p).getY());
+			}
+			PersistentCache.writeString(out, (String)mp.get(i+3));
+			PersistentCache.writeString(out, (String)mp.get(i+4));
+			PersistentCache.writeString(out, (String)mp.get(i+5));
+		}
+		out.close();
+		return bos.toByteArray();
+	}
+
+	private static Map<Object, Object> decodeClassification(byte[] encoded) throws Exception
+	{
+		Map<Object, Object> mp = new HashMap<Object, Object>();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+		int concepts = in.readInt();
+		int i = 0;
+		for(int c = 0;c<concepts;c++)
+		{
+			mp.put(i++, PersistentCache.readString(in));
+			int count = in.readInt();
+			ArrayList<String> matched = new ArrayList<String>();
+			for(int k = 0;k<count;k++)
+				matched.add(PersistentCache.readString(in));
+			mp.put(i++, matched);
+			count = in.readInt();
+			ArrayList<Position> positions = new ArrayList<Position>();
+			for(int k = 0;k<count;k++)
+				positions.add(new PositionImpl(in.readInt(), in.readInt()));
+			mp.put(i++, positions);
+			mp.put(i++, PersistentCache.readString(in));
+			mp.put(i++, PersistentCache.readString(in));
+			mp.put(i++, PersistentCache.readString(in));
+		}
+		return mp;
+	}
+
 }
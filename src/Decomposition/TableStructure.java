@@ -0,0 +1,38 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Decomposition;
+
+import tablInEx.Table;
+
+/**
+ * The Class TableStructure. Result of structural analysis of a table: its structure type, which
+ * decides the processor used for decomposition, and the rows checked for super-rows in the same pass.
+ */
+public class TableStructure {
+
+	/** The structure type, null if the table can not be decomposed. */
+	private Table.StructureType type;
+
+	/** Rows whose cells were checked for super-row, missing cells in them are filled after list processing. */
+	private boolean[] checkedRows;
+
+	public Table.StructureType getType() {
+		return type;
+	}
+
+	public void setType(Table.StructureType type) {
+		this.type = type;
+	}
+
+	public boolean[] getCheckedRows() {
+		return checkedRows;
+	}
+
+	public void setCheckedRows(boolean[] checkedRows) {
+		this.checkedRows = checkedRows;
+	}
+
+}
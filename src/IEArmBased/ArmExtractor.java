@@ -61,7 +61,7 @@ public class ArmExtractor {
 		if(tables==null)
 			return;
 		LinkedList <ClinicalArm> arms = new LinkedList<ClinicalArm>();
-		MetaMapping m = new MetaMapping();
+		MetaMapping m = MetaMapping.getInstance();
 		
 		for(int i = 0; i <tables.length;i++)
 		{
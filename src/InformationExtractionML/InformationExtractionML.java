@@ -2,16 +2,24 @@ package InformationExtractionML;
 
 import java.awt.BufferCapabilities.FlipContents;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import com.hp.hpl.jena.util.Tokenizer;
 
@@ -27,14 +35,40 @@ import weka.core.stopwords.StopwordsHandler;
 import weka.core.tokenizers.WordTokenizer;
 import weka.filters.Filter;
 import weka.filters.unsupervised.attribute.StringToWordVector;
+import tablInEx.Cell;
+import DataBase.TableRepository;
+import DataBase.TableRepository.StoredTable;
 import Main.KeyValue;
 
 public class InformationExtractionML {
 
+	/** The default number of threads classifying cells. */
+	public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
 	private String ClassifierPath = "";
 	// private Classifier classifier;
 
-	InputMappedClassifier classifier = new InputMappedClassifier();
+	// classifiers are not thread safe, every thread loads its own copy of the model
+	private ThreadLocal<InputMappedClassifier> classifier = new ThreadLocal<InputMappedClassifier>() {
+		protected InputMappedClassifier initialValue() {
+			InputMappedClassifier c = new InputMappedClassifier();
+			try {
+				c.setModelPath(ClassifierPath);
+				c.setTrim(true);
+				c.setIgnoreCaseForNames(true);
+				//c.setSuppressMappingReport(true);
+				//RandomForest rf  = new RandomForest();
+				//rf.setMaxDepth(0);
+				//rf.setNumExecutionSlots(1);
+				//rf.setNumFeatures(0);
+				//rf.setNumTrees(100);	
+				//c.setClassifier(rf);
+			} catch (Exception ex) {
+				ex.printStackTrace();
+			}
+			return c;
+		}
+	};
 	Connection conn = null;
 	Statement stmt = null;
 	ResultSet rs = null;
@@ -92,88 +126,103 @@ public class InformationExtractionML {
 	}
 
 	public void processCells(String pathOfModel) {
+		processCells(pathOfModel, DEFAULT_THREADS, TableRepository.DEFAULT_CHUNK);
+	}
+
+	/**
+	 * Classifies cells of baseline characteristic tables in chunks of tables: a chunk is read with a few
+	 * queries, its cells are classified in parallel while the next chunk is read, and the results are appended
+	 * to gender.txt through one buffered writer, in the order of cells.
+	 *
+	 * @param pathOfModel the path of model
+	 * @param threads the number of threads classifying cells
+	 * @param chunk the number of tables read at once
+	 */
+	public void processCells(String pathOfModel, int threads, int chunk) {
 		DataBase();
 		ClassifierPath = pathOfModel;
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "InformationExtractionML");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		Writer out = null;
 		try {
-			classifier.setModelPath(ClassifierPath);
-			classifier.setTrim(true);
-			classifier.setIgnoreCaseForNames(true);
-			//classifier.setSuppressMappingReport(true);
-			//RandomForest rf  = new RandomForest();
-			//rf.setMaxDepth(0);
-			//rf.setNumExecutionSlots(1);
-			//rf.setNumFeatures(0);
-			//rf.setNumTrees(100);	
-			//classifier.setClassifier(rf);
-			String SQL = "select * from cell inner join arttable on cell.Table_idTable=arttable.idTable where arttable.SpecPragmatic='BaselineCharacteristic'";
-			Statement st = conn.createStatement();
-
-			rs = st.executeQuery(SQL);
-			while (rs.next()) {
-				String classification = classifyCell(rs.getInt(1));
-				String text = rs.getInt(1)+"  "+rs.getInt(4)+"  "+rs.getString(10)+"   "+ rs.getString(11)+rs.getString(12)+"   "+rs.getString(13)+"    class:" +classification+"\r\n";
-				Files.write(Paths.get("gender.txt"), text.getBytes(), StandardOpenOption.APPEND);
-				// SQL = "Update arttable set SpecPragmatic='" + classification
-				// + "' where idTable=" + rs.getInt(1);
-				// Statement st2 = conn.createStatement();
-
-				// int res = st2.executeUpdate(SQL);
-
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream("gender.txt", true)), 1<<16);
+			TableRepository repository = new TableRepository(conn, "t.SpecPragmatic='BaselineCharacteristic'", null, chunk);
+			List<StoredTable> tables = repository.next();
+			while (!tables.isEmpty()) {
+				List<Future<String>> results = new ArrayList<Future<String>>();
+				for (StoredTable table : tables) {
+					for (final Cell cell : table.cells) {
+						results.add(executor.submit(new Callable<String>() {
+							public String call() {
+								return classifyCell(cell);
+							}
+						}));
+					}
+				}
+				List<StoredTable> next = repository.next();
+				int r = 0;
+				for (StoredTable table : tables) {
+					for (int i = 0; i < table.cells.size(); i++) {
+						Cell cell = table.cells.get(i);
+						String classification = results.get(r++).get();
+						out.write(table.cellIds.get(i)+"  "+table.id+"  "+cell.getCell_content()+"   "+ cell.getHeader_values()+cell.getStub_values()+"   "+cell.getSubheader_values()+"    class:" +classification+"\r\n");
+					}
+				}
+				tables = next;
 			}
 		} catch (Exception ex) {
 			ex.printStackTrace();
 		}
+		try {
+			if (out != null)
+				out.close();
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+		executor.shutdown();
 
 	}
 
-	public String classifyCell(int cellid) {
+	public String classifyCell(Cell cell) {
 		String classification = "No";
 		try {
 			String CellContent = "";
 			String StubContent = "";
 			String HeaderContent = "";
 			String SuperRowContent = "";
-			int rowN = 0;
-			int columnN = 0;
+			int rowN = cell.getRow_number();
+			int columnN = cell.getColumn_number();
 			int function = 0;
 
-			String SQL = "select * from cell where idCell=" + cellid;
-			Statement st = conn.createStatement();
-
-			ResultSet rs = st.executeQuery(SQL);
-
-			// iterate through the java resultset
-			while (rs.next()) {
-				rowN = rs.getInt(5);
-				columnN = rs.getInt(6);
-				CellContent = rs.getString(10);
-				if(CellContent!=null)
-					CellContent = CellContent.replaceAll("[0-9]", "x");
-				else
-					CellContent = "";
-				HeaderContent = rs.getString(11);
-				if(HeaderContent!=null)
-					HeaderContent = HeaderContent.replaceAll("[0-9]", "x");
-				else
-					HeaderContent = "";
-				StubContent = rs.getString(12);
-				if(StubContent!=null)
-					StubContent = StubContent.replaceAll("[0-9]", "x");
-				else
-					StubContent = "";
-				SuperRowContent = rs.getString(13);
-				if(SuperRowContent!=null)
-					SuperRowContent = SuperRowContent.replaceAll("[0-9]", "x");
-				else
-					SuperRowContent = "";
-			}
-			SQL = "select * from cellroles where Cell_idCell=" + cellid;
-			Statement st1 = conn.createStatement();
-
-			ResultSet rs2 = st1.executeQuery(SQL);
+			CellContent = cell.getCell_content();
+			if(CellContent!=null)
+				CellContent = CellContent.replaceAll("[0-9]", "x");
+			else
+				CellContent = "";
+			HeaderContent = cell.getHeader_values();
+			if(HeaderContent!=null)
+				HeaderContent = HeaderContent.replaceAll("[0-9]", "x");
+			else
+				HeaderContent = "";
+			StubContent = cell.getStub_values();
+			if(StubContent!=null)
+				StubContent = StubContent.replaceAll("[0-9]", "x");
+			else
+				StubContent = "";
+			SuperRowContent = cell.getSubheader_values();
+			if(SuperRowContent!=null)
+				SuperRowContent = SuperRowContent.replaceAll("[0-9]", "x");
+			else
+				SuperRowContent = "";
+			// the function is the ids of the roles of the cell, written one after another
 			String s = "";
-			while (rs2.next()) {
-				s += rs2.getInt(2);
+			for (String role : cell.CellRoles) {
+				s += TableRepository.getCellRoleId(role);
 			}
 			try{
 			function = Integer.parseInt(s);
@@ -253,7 +302,7 @@ public class InformationExtractionML {
 				e1.printStackTrace();
 			}
 
-			double result = classifier.classifyInstance(ins
+			double result = classifier.get().classifyInstance(ins
 					.firstInstance());
 			Instances.firstInstance().setClassValue(result);
 			prediction = Instances.firstInstance().classAttribute()
@@ -0,0 +1,91 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import DataBase.AnnotationDictionary;
+
+public class AnnotationDictionaryTests {
+
+	/**
+	 * Dictionary whose table is kept in memory.
+	 */
+	private static class StandIn extends AnnotationDictionary {
+		HashMap<String, Integer> table = new HashMap<String, Integer>();
+		int stored = 0;
+		int calls = 0;
+
+		StandIn(int cacheSize)
+		{
+			super("Concept", "idConcept", new String[]{"AnnotationID", "AnnotationURL", "AnnotationDescription"}, cacheSize);
+		}
+
+		protected Map<String, Integer> store(List<String> hashes, List<String[]> values)
+		{
+			calls++;
+			Map<String, Integer> ids = new HashMap<String, Integer>();
+			for(String hash:hashes)
+			{
+				if(!table.containsKey(hash))
+				{
+					table.put(hash, table.size()+1);
+					stored++;
+				}
+				ids.put(hash, table.get(hash));
+			}
+			return ids;
+		}
+	}
+
+	@Test
+	public void HashTest() {
+		if(!AnnotationDictionary.hash("abc").equals("a9993e364706816aba3e25717850c26c9cd0d89d"))
+			fail("Hash should be SHA-1 in hexadecimal digits");
+		if(!AnnotationDictionary.key(new String[]{"C0001", null, "a\tb"}).equals("C0001\t\\N\ta\tb"))
+			fail("Values should be joined with tabs and \\N for null");
+	}
+
+	@Test
+	public void LookupTest() throws Exception {
+		StandIn dictionary = new StandIn(AnnotationDictionary.CACHE_SIZE);
+		List<String[]> values = new ArrayList<String[]>();
+		for(int i = 0;i<100;i++)
+			values.add(new String[]{"C000"+(i%3), "http://example.org/"+(i%3), null});
+		int[] ids = dictionary.lookup(values);
+		if(dictionary.stored!=3 || dictionary.calls!=1)
+			fail("Each value should be stored once, in one call");
+		for(int i = 0;i<100;i++)
+			if(ids[i]!=ids[i%3])
+				fail("Same values should get the same id");
+		if(ids[0]==ids[1] || ids[1]==ids[2])
+			fail("Different values should get different ids");
+		dictionary.lookup(values.subList(0, 10));
+		if(dictionary.calls!=1)
+			fail("Known values should be taken from memory");
+	}
+
+	@Test
+	public void SmallCacheTest() throws Exception {
+		StandIn dictionary = new StandIn(2);
+		List<String[]> values = new ArrayList<String[]>();
+		for(int i = 0;i<2;i++)
+			values.add(new String[]{"C000"+i, null, null});
+		int[] first = dictionary.lookup(values);
+		// the known values are pushed out of the cache by the new values of the same lookup
+		for(int i = 2;i<6;i++)
+			values.add(new String[]{"C000"+i, null, null});
+		int[] ids = dictionary.lookup(values);
+		if(ids[0]!=first[0] || ids[1]!=first[1])
+			fail("Known values should keep their ids");
+		for(int i = 0;i<6;i++)
+			if(ids[i]!=i+1)
+				fail("Wrong id of value "+i+": "+ids[i]);
+	}
+
+}
@@ -0,0 +1,101 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import Annotation.AnnotationXMLWriter;
+
+public class AnnotationWriterTests {
+
+	private void writeArticle(AnnotationXMLWriter w) throws Exception
+	{
+		w.startElement("Article");
+		w.element("PMCID", "123");
+		w.element("PMID", null);
+		w.startElement("Authors");
+		w.endElement();
+		w.startElement("Tables");
+		w.startElement("Table");
+		w.startElement("Cells");
+		w.startElement("Cell");
+		w.element("CellValue", "a<b");
+		w.startElement("Annotations");
+		w.startElement("Annotation");
+		w.attribute("Type", "ValueType");
+		w.attribute("Content", "b");
+		w.attribute("ID", null);
+		w.endElement();
+		w.endElement();
+		w.endElement();
+		w.close();
+	}
+
+	@Test
+	public void PlainWriterTest() {
+		try{
+			String fileName = System.getProperty("java.io.tmpdir")+"/AnnotationWriterTests.xml";
+			writeArticle(new AnnotationXMLWriter(fileName, false));
+			if(new File(fileName+".part").exists())
+				fail("Temporary file left");
+			Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(fileName));
+			if(!doc.getElementsByTagName("PMCID").item(0).getTextContent().equals("123"))
+				fail("Wrong PMCID");
+			if(doc.getElementsByTagName("Authors").getLength()!=1 || doc.getElementsByTagName("PMID").getLength()!=1)
+				fail("Empty elements not written");
+			if(!doc.getElementsByTagName("CellValue").item(0).getTextContent().equals("a<b"))
+				fail("Wrong cell value");
+			Element annot = (Element)doc.getElementsByTagName("Annotation").item(0);
+			if(!annot.getAttribute("Content").equals("b") || !annot.hasAttribute("ID"))
+				fail("Wrong annotation attributes");
+			if(!annot.getParentNode().getParentNode().getNodeName().equals("Cell"))
+				fail("Elements not closed in order");
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+			fail(ex.getMessage());
+		}
+	}
+
+	@Test
+	public void GzipWriterTest() {
+		try{
+			String fileName = System.getProperty("java.io.tmpdir")+"/AnnotationWriterTests.xml.gz";
+			writeArticle(new AnnotationXMLWriter(fileName, true));
+			Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new GZIPInputStream(new FileInputStream(fileName)));
+			if(doc.getElementsByTagName("Cell").getLength()!=1)
+				fail("Wrong number of cells");
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+			fail(ex.getMessage());
+		}
+	}
+
+	@Test
+	public void AbortTest() {
+		try{
+			String fileName = System.getProperty("java.io.tmpdir")+"/AnnotationWriterAbort.xml";
+			new File(fileName).delete();
+			AnnotationXMLWriter w = new AnnotationXMLWriter(fileName, false);
+			w.startElement("Article");
+			w.element("PMCID", "123");
+			w.abort();
+			if(new File(fileName).exists() || new File(fileName+".part").exists())
+				fail("Incomplete output left");
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+			fail(ex.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import Annotation.AnnotatorRecording;
+import Annotation.RecordReplayAnnotator;
+import Annotation.SemanticAnnotator;
+import Decomposition.MetaMapping;
+import Main.Word;
+import Main.WordMeaningOutputElement;
+
+public class AnnotatorRecordingTests {
+
+	private static class SlowAnnotator implements SemanticAnnotator {
+		int calls = 0;
+
+		public List<Word> annotate(String text) throws Exception
+		{
+			calls++;
+			Thread.sleep(100);
+			LinkedList<Word> words = new LinkedList<Word>();
+			Word w = new Word();
+			w.word = text;
+			WordMeaningOutputElement wm = new WordMeaningOutputElement();
+			wm.id = "C"+text.length();
+			wm.appearingWord = text;
+			w.wordmeanings.add(wm);
+			words.add(w);
+			return words;
+		}
+	}
+
+	private String newFile(String name)
+	{
+		String fileName = System.getProperty("java.io.tmpdir")+"/"+name;
+		new File(fileName).delete();
+		return fileName;
+	}
+
+	@Test
+	public void RecordReplayTest() {
+		try{
+			String fileName = newFile("AnnotatorRecordingTests.rec");
+			SlowAnnotator slow = new SlowAnnotator();
+			RecordReplayAnnotator annotator = new RecordReplayAnnotator(slow);
+			AnnotatorRecording.start(fileName, AnnotatorRecording.Mode.RECORD);
+			annotator.annotate("Placebo");
+			AnnotatorRecording.start(fileName, AnnotatorRecording.Mode.REPLAY);
+			long start = System.currentTimeMillis();
+			List<Word> words = annotator.annotate("Placebo");
+			long time = System.currentTimeMillis()-start;
+			if(slow.calls!=1)
+				fail("Annotator called in replay");
+			if(words.size()!=1 || !words.get(0).wordmeanings.get(0).id.equals("C7"))
+				fail("Wrong replayed annotation");
+			if(time<80)
+				fail("Recorded latency not replayed");
+			if(annotator.annotate("Aspirin").size()!=0)
+				fail("Annotations of text that was not recorded");
+			AnnotatorRecording.getRecording().setFixedLatency(0);
+			start = System.currentTimeMillis();
+			annotator.annotate("Placebo");
+			if(System.currentTimeMillis()-start>=80)
+				fail("Fixed latency not used");
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+			fail(ex.getMessage());
+		}
+		finally
+		{
+			AnnotatorRecording.stop();
+		}
+	}
+
+	@Test
+	public void ErrorInjectionTest() {
+		try{
+			String fileName = newFile("AnnotatorRecordingErrors.rec");
+			RecordReplayAnnotator annotator = new RecordReplayAnnotator(new SlowAnnotator());
+			AnnotatorRecording recording = AnnotatorRecording.start(fileName, AnnotatorRecording.Mode.REPLAY);
+			recording.setErrorRate(0.5);
+			recording.setSeed(1);
+			int errors = 0;
+			for(int i = 0;i<200;i++)
+			{
+				try{
+					annotator.annotate("text "+i);
+				}catch(Exception ex)
+				{
+					errors++;
+				}
+			}
+			if(errors<60 || errors>140)
+				fail("Wrong number of injected errors: "+errors);
+		}finally
+		{
+			AnnotatorRecording.stop();
+		}
+	}
+
+	@Test
+	public void MetaMapReplayTest() {
+		try{
+			String fileName = newFile("AnnotatorRecordingMetaMap.rec");
+			AnnotatorRecording.start(fileName, AnnotatorRecording.Mode.REPLAY);
+			List<String> terms = new ArrayList<String>();
+			terms.add("heart attack");
+			terms.add("Age, yr");
+			terms.add("heart attack");
+			// no MetaMap server is needed in replay
+			Map<String, Map<Object, Object>> classifications = MetaMapping.getInstance().getClassifications(terms);
+			if(classifications.size()!=2 || classifications.get("Age, yr").size()!=0)
+				fail("Wrong classifications of terms that were not recorded");
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+			fail(ex.getMessage());
+		}finally
+		{
+			AnnotatorRecording.stop();
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.Test;
+
+import DataBase.AnnotationDictionary;
+import DataBase.ArticleIndex;
+
+public class ArticleIndexTests {
+
+	@Test
+	public void ContainsTest() {
+		ArticleIndex index = new ArticleIndex();
+		for(int i = 0;i<5000;i++)
+			index.put(ArticleIndex.key("PMC"+i, null), AnnotationDictionary.hash("content "+i));
+		index.put(ArticleIndex.key(null, "spec-1"), null);
+		if(index.size()!=5001)
+			fail("Wrong number of articles: "+index.size());
+		for(int i = 0;i<5000;i++)
+		{
+			if(!index.containsKey(ArticleIndex.key("PMC"+i, "ignored")) || !index.containsContent(AnnotationDictionary.hash("content "+i)))
+				fail("Article "+i+" should be in the index");
+		}
+		if(!index.containsKey(ArticleIndex.key("", "spec-1")) || index.containsKey(ArticleIndex.key("spec-1", null)))
+			fail("SpecId should identify articles without PMCID only");
+		if(index.containsKey(ArticleIndex.key("PMC5000", null)) || index.containsContent(AnnotationDictionary.hash("content 5000")))
+			fail("Unsaved article found");
+		if(ArticleIndex.key(null, "")!=null)
+			fail("Articles without identifiers have no key");
+	}
+
+	@Test
+	public void HashFileTest() throws Exception {
+		File f = File.createTempFile("article", ".xml");
+		FileOutputStream out = new FileOutputStream(f);
+		out.write("<article/>".getBytes("UTF-8"));
+		out.close();
+		if(!ArticleIndex.hashFile(f).equals(AnnotationDictionary.hash("<article/>")))
+			fail("Wrong file hash");
+		f.delete();
+	}
+
+}
@@ -0,0 +1,221 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import Annotation.AsyncAnnotator;
+import Annotation.SemanticAnnotator;
+import Main.Word;
+import Utils.CircuitBreaker;
+
+public class AsyncAnnotatorTests {
+
+	/**
+	 * Stand-in for the annotation server, with latency and failures of the first calls.
+	 */
+	private static class StandIn implements SemanticAnnotator {
+		long latency;
+		int failFirst;
+		int calls = 0;
+		int inFlight = 0;
+		int maxInFlight = 0;
+
+		StandIn(long latency, int failFirst)
+		{
+			this.latency = latency;
+			this.failFirst = failFirst;
+		}
+
+		public List<Word> annotate(String text) throws Exception
+		{
+			int call;
+			synchronized(this)
+			{
+				call = ++calls;
+				inFlight++;
+				maxInFlight = Math.max(maxInFlight, inFlight);
+			}
+			try{
+				Thread.sleep(latency);
+				if(call<=failFirst)
+					throw new Exception("Stand-in failure");
+				LinkedList<Word> words = new LinkedList<Word>();
+				Word w = new Word();
+				w.word = text;
+				words.add(w);
+				return words;
+			}
+			finally
+			{
+				synchronized(this)
+				{
+					inFlight--;
+				}
+			}
+		}
+	}
+
+	@Test
+	public void ConcurrencyTest() {
+		StandIn standIn = new StandIn(100, 0);
+		AsyncAnnotator annotator = new AsyncAnnotator(standIn, 3, 5000, 0);
+		List<AsyncAnnotator.Request> requests = new ArrayList<AsyncAnnotator.Request>();
+		long start = System.currentTimeMillis();
+		for(int i = 0;i<12;i++)
+			requests.add(annotator.submit("ConcurrencyTest "+i));
+		for(AsyncAnnotator.Request request:requests)
+		{
+			List<Word> words = annotator.get(request);
+			if(words==null || !words.get(0).word.equals(request.getText()))
+				fail("Wrong annotation of "+request.getText());
+		}
+		long time = System.currentTimeMillis()-start;
+		annotator.shutdown();
+		if(standIn.maxInFlight>3)
+			fail("More than 3 calls at once");
+		if(time>=12*100)
+			fail("Calls were not concurrent");
+	}
+
+	@Test
+	public void RetryTest() {
+		StandIn standIn = new StandIn(1, 2);
+		AsyncAnnotator annotator = new AsyncAnnotator(standIn, 1, 5000, 2);
+		AsyncAnnotator.Request request = annotator.submit("RetryTest");
+		if(annotator.get(request)==null || request.isFailed())
+			fail("Failed call not retried");
+		if(standIn.calls!=3)
+			fail("Wrong number of calls: "+standIn.calls);
+		annotator.shutdown();
+	}
+
+	@Test
+	public void DeadlineTest() {
+		StandIn standIn = new StandIn(3000, 0);
+		AsyncAnnotator annotator = new AsyncAnnotator(standIn, 1, 200, 0);
+		long start = System.currentTimeMillis();
+		AsyncAnnotator.Request request = annotator.submit("DeadlineTest");
+		if(annotator.get(request)!=null || !request.isFailed())
+			fail("Slow call not given up");
+		if(System.currentTimeMillis()-start>2000)
+			fail("Deadline not respected");
+		annotator.shutdown();
+	}
+
+	@Test
+	public void QueuedDeadlineTest() {
+		// the worker is stuck in the first call, the other texts wait for it
+		StandIn standIn = new StandIn(3000, 0);
+		AsyncAnnotator annotator = new AsyncAnnotator(standIn, 1, 300, 0);
+		long start = System.currentTimeMillis();
+		List<AsyncAnnotator.Request> requests = new ArrayList<AsyncAnnotator.Request>();
+		for(int i = 0;i<3;i++)
+			requests.add(annotator.submit("QueuedDeadlineTest "+i));
+		for(AsyncAnnotator.Request request:requests)
+		{
+			if(annotator.get(request)!=null || !request.isFailed())
+				fail("Waiting call not given up");
+		}
+		if(System.currentTimeMillis()-start>1500)
+			fail("Deadline not counted from submission");
+		annotator.shutdown();
+	}
+
+	@Test
+	public void QueueSizeTest() {
+		StandIn standIn = new StandIn(100, 0);
+		AsyncAnnotator annotator = new AsyncAnnotator(standIn, 1, 5000, 0, 1);
+		List<AsyncAnnotator.Request> requests = new ArrayList<AsyncAnnotator.Request>();
+		long start = System.currentTimeMillis();
+		for(int i = 0;i<4;i++)
+			requests.add(annotator.submit("QueueSizeTest "+i));
+		// two calls run or wait, so the last submit waits for the first two calls
+		if(System.currentTimeMillis()-start<150)
+			fail("Submit did not wait for a place in the queue");
+		for(AsyncAnnotator.Request request:requests)
+		{
+			if(annotator.get(request)==null || request.isFailed())
+				fail("Wrong annotation of "+request.getText());
+		}
+		annotator.shutdown();
+	}
+
+	@Test
+	public void BacklogTest() {
+		// a slow but healthy annotator with a full queue: texts time out, but the annotator does not fail
+		StandIn standIn = new StandIn(100, 0);
+		AsyncAnnotator annotator = new AsyncAnnotator(standIn, 1, 250, 0, 1);
+		List<AsyncAnnotator.Request> requests = new ArrayList<AsyncAnnotator.Request>();
+		for(int i = 0;i<12;i++)
+			requests.add(annotator.submit("BacklogTest "+i));
+		int timedOut = 0;
+		for(AsyncAnnotator.Request request:requests)
+		{
+			annotator.get(request);
+			if(request.isFailed())
+				timedOut++;
+		}
+		if(timedOut<5)
+			fail("Too few texts timed out to test the circuit: "+timedOut);
+		if(annotator.getCircuitBreaker().getState()!=CircuitBreaker.State.CLOSED)
+			fail("Circuit opened by texts waiting in the queue");
+		AsyncAnnotator.Request request = annotator.submit("BacklogTest after");
+		if(annotator.get(request)==null)
+			fail("Annotator refused texts after a backlog");
+		annotator.shutdown();
+	}
+
+	@Test
+	public void CircuitOpenTest() {
+		StandIn standIn = new StandIn(1, Integer.MAX_VALUE);
+		AsyncAnnotator annotator = new AsyncAnnotator(standIn, 1, 5000, 0);
+		for(int i = 0;i<5;i++)
+		{
+			AsyncAnnotator.Request request = annotator.submit("CircuitOpenTest "+i);
+			if(annotator.get(request)!=null || !request.isFailed())
+				fail("Failure not reported");
+		}
+		if(annotator.getCircuitBreaker().getState()!=CircuitBreaker.State.OPEN)
+			fail("Circuit not opened");
+		AsyncAnnotator.Request request = annotator.submit("CircuitOpenTest 5");
+		if(annotator.get(request)!=null || !request.isFailed() || standIn.calls!=5)
+			fail("Call sent while circuit is open");
+		annotator.shutdown();
+	}
+
+	@Test
+	public void HalfOpenTest() {
+		CircuitBreaker breaker = new CircuitBreaker(2, 50);
+		breaker.recordFailure();
+		if(!breaker.allowRequest())
+			fail("Opened too early");
+		breaker.recordFailure();
+		if(breaker.allowRequest())
+			fail("Not opened");
+		try{
+			Thread.sleep(100);
+		}catch(InterruptedException ex)
+		{
+			fail(ex.getMessage());
+		}
+		if(!breaker.allowRequest() || breaker.allowRequest())
+			fail("Not exactly one trial request");
+		try{
+			Thread.sleep(100);
+		}catch(InterruptedException ex)
+		{
+			fail(ex.getMessage());
+		}
+		if(!breaker.allowRequest() || breaker.allowRequest())
+			fail("Trial request without result not replaced");
+		breaker.recordSuccess();
+		if(breaker.getState()!=CircuitBreaker.State.CLOSED || !breaker.allowRequest())
+			fail("Not closed after successful trial");
+	}
+
+}
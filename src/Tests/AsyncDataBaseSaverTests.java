@@ -0,0 +1,189 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import DataBase.ArticleSaver;
+import DataBase.AsyncDataBaseSaver;
+import tablInEx.Annotation;
+import tablInEx.Article;
+import tablInEx.Cell;
+import tablInEx.Table;
+
+public class AsyncDataBaseSaverTests {
+
+	/**
+	 * Stand-in for the database, with latency and failures of the first saves.
+	 */
+	private static class StandIn implements ArticleSaver {
+		static HashMap<String, Integer> saved = new HashMap<String, Integer>();
+		/** Title and first cell of the saved articles. */
+		static HashMap<String, String> contents = new HashMap<String, String>();
+		static int calls = 0;
+		static int connections = 0;
+		static int closed = 0;
+
+		long latency;
+		int failFirst;
+
+		StandIn(long latency, int failFirst)
+		{
+			this.latency = latency;
+			this.failFirst = failFirst;
+			synchronized(StandIn.class)
+			{
+				connections++;
+			}
+		}
+
+		public boolean SaveArticleAnnotationToDB(Article art)
+		{
+			int call;
+			synchronized(StandIn.class)
+			{
+				call = ++calls;
+			}
+			try{
+				Thread.sleep(latency);
+			}catch(InterruptedException ex)
+			{
+				return false;
+			}
+			if(call<=failFirst)
+				return false;
+			synchronized(StandIn.class)
+			{
+				Integer count = saved.get(art.getPmc());
+				saved.put(art.getPmc(), count==null?1:count+1);
+				String content = art.getTitle();
+				if(art.getTables()!=null && art.getTables().length>0)
+					content += "|"+art.getTables()[0].cells[0][0].getCell_content()+"|"+art.getTables()[0].cells[0][0].annotations.size();
+				contents.put(art.getPmc(), content);
+			}
+			return true;
+		}
+
+		public void CloseDBConnection()
+		{
+			synchronized(StandIn.class)
+			{
+				closed++;
+			}
+		}
+	}
+
+	private static AsyncDataBaseSaver createSaver(int writers, int queueSize, int retries, final long latency, final int failFirst)
+	{
+		StandIn.saved.clear();
+		StandIn.contents.clear();
+		StandIn.calls = 0;
+		StandIn.connections = 0;
+		StandIn.closed = 0;
+		return new AsyncDataBaseSaver(writers, queueSize, retries) {
+			protected ArticleSaver createSaver() {
+				return new StandIn(latency, failFirst);
+			}
+		};
+	}
+
+	private static Article article(String pmc)
+	{
+		Article art = new Article("");
+		art.setPmc(pmc);
+		return art;
+	}
+
+	@Test
+	public void WriteBehindTest() {
+		AsyncDataBaseSaver saver = createSaver(3, 4, 0, 100, 0);
+		long start = System.currentTimeMillis();
+		for(int i = 0;i<12;i++)
+			saver.submit(article("PMC"+i));
+		saver.close();
+		long time = System.currentTimeMillis()-start;
+		if(saver.getSaved()!=12 || StandIn.saved.size()!=12)
+			fail("Not all articles saved: "+saver.getStatistics());
+		for(Integer count:StandIn.saved.values())
+			if(count!=1)
+				fail("Article saved more than once");
+		if(StandIn.connections!=3)
+			fail("Writers should keep one connection each, opened "+StandIn.connections);
+		if(time>=1200)
+			fail("Articles were not saved in parallel, took "+time+" ms");
+	}
+
+	@Test
+	public void RetryTest() {
+		AsyncDataBaseSaver saver = createSaver(1, 4, 2, 0, 2);
+		saver.submit(article("PMC1"));
+		saver.submit(article("PMC2"));
+		saver.close();
+		if(saver.getSaved()!=2 || !saver.getFailed().isEmpty())
+			fail("Failed articles should be saved on retry: "+saver.getStatistics());
+		if(StandIn.connections!=3)
+			fail("Retry should use a new connection, opened "+StandIn.connections);
+	}
+
+	@Test
+	public void FailureTest() {
+		AsyncDataBaseSaver saver = createSaver(2, 4, 1, 0, 100);
+		saver.submit(article("PMC1"));
+		saver.submit(article("PMC2"));
+		saver.close();
+		List<String> failed = saver.getFailed();
+		if(saver.getSaved()!=0 || failed.size()!=2 || !failed.contains("PMC1") || !failed.contains("PMC2"))
+			fail("Failed articles should be listed: "+saver.getStatistics());
+		try{
+			saver.submit(article("PMC3"));
+			fail("Closed saver should not accept articles");
+		}catch(IllegalStateException ex)
+		{
+		}
+	}
+
+	@Test
+	public void SnapshotTest() {
+		AsyncDataBaseSaver saver = createSaver(1, 4, 0, 200, 0);
+		Article art = article("PMC1");
+		art.setTitle("Title");
+		Cell cell = new Cell(0,0);
+		cell.setCell_content("12");
+		Table table = new Table("Table 1", "Caption", "Footer");
+		table.cells = new Cell[][]{{cell}};
+		art.setTables(new Table[]{table});
+		saver.submit(art);
+		// the processing thread goes on with the article while the writer saves it
+		art.setTitle("Changed");
+		cell.setCell_content("14");
+		cell.annotations.add(new Annotation());
+		table.cells = new Cell[0][];
+		saver.close();
+		if(!"Title|12|0".equals(StandIn.contents.get("PMC1")))
+			fail("Article changed after it was submitted: "+StandIn.contents.get("PMC1"));
+	}
+
+	@Test
+	public void PoolTest() {
+		AsyncDataBaseSaver saver = createSaver(4, 8, 1, 0, 0);
+		// one article at a time, so one pooled connection serves all writers
+		for(int i = 0;i<10;i++)
+		{
+			saver.submit(article("PMC"+i));
+			long start = System.currentTimeMillis();
+			while(saver.getSaved()<=i && System.currentTimeMillis()-start<5000)
+				Thread.yield();
+		}
+		saver.close();
+		if(saver.getSaved()!=10)
+			fail("Not all articles saved: "+saver.getStatistics());
+		if(StandIn.connections!=1)
+			fail("Writers should share pooled connections, opened "+StandIn.connections);
+		if(StandIn.closed!=StandIn.connections)
+			fail("Pooled connections not closed: "+StandIn.closed+" of "+StandIn.connections);
+	}
+
+}
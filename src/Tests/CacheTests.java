@@ -0,0 +1,60 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import Utils.LRUCache;
+import ValueParser.ValueItem;
+import ValueParser.ValueParser;
+
+public class CacheTests {
+
+	@Test
+	public void EvictionTest() {
+		LRUCache<String, String> cache = new LRUCache<String, String>(2);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.get("a");
+		cache.put("c", "3");
+		if(cache.get("b")!=null)
+			fail("Least recently used entry not evicted");
+		if(cache.get("a")==null || cache.get("c")==null)
+			fail("Recently used entry evicted");
+		if(cache.getHits()!=3 || cache.getMisses()!=1)
+			fail("Wrong hit count");
+		cache.setMaxSize(1);
+		if(cache.size()!=1)
+			fail("Cache not shrunk");
+		cache.setMaxSize(0);
+		cache.put("d", "4");
+		if(cache.size()!=0)
+			fail("Disabled cache stores values");
+	}
+
+	@Test
+	public void CachedValueParserTest() {
+		ValueParser parser = new ValueParser();
+		ValueParser cachedParser = new ValueParser(100);
+		String[] values = {"12 (3.4)", " 12 (3.4) ", "Placebo", "n (%)", "12 (3.4)", "15.2 - 18.3", "n (%)"};
+		for(String value:values)
+		{
+			List<ValueItem> expected = parser.parseValue(value);
+			List<ValueItem> actual = cachedParser.parseValue(value);
+			if(expected.size()!=actual.size())
+				fail("Cached result differs for '"+value+"'");
+			for(int i = 0;i<expected.size();i++)
+			{
+				if(expected.get(i).type!=actual.get(i).type || expected.get(i).start_position!=actual.get(i).start_position || !expected.get(i).value.equals(actual.get(i).value))
+					fail("Cached result differs for '"+value+"'");
+			}
+		}
+		if(cachedParser.getCache().getHits()!=3)
+			fail("Repeated values not found in cache");
+		if(cachedParser.parseValue("Placebo")!=cachedParser.parseValue(" Placebo"))
+			fail("Cached result not shared");
+	}
+
+}
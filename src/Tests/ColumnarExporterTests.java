@@ -0,0 +1,116 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import DataBase.ColumnarExporter;
+import DataBase.ColumnarFile;
+import DataBase.ColumnarReader;
+import tablInEx.Annotation;
+import tablInEx.Article;
+import tablInEx.Cell;
+import tablInEx.Table;
+
+public class ColumnarExporterTests {
+
+	private static Article article(String pmc, String header, String value)
+	{
+		Article art = new Article("test.xml");
+		art.setPmc(pmc);
+		Table table = new Table("Table 1", "Baseline", "");
+		table.cells = new Cell[2][1];
+		table.cells[0][0] = new Cell(0, 0);
+		table.cells[0][0].setCell_content(header);
+		table.cells[0][0].CellRoles.add("Header");
+		table.cells[1][0] = new Cell(0, 1);
+		table.cells[1][0].setCell_content(value);
+		table.cells[1][0].setHeader_values(header);
+		table.cells[1][0].CellRoles.add("Data");
+		Annotation a = new Annotation();
+		a.setContent(header);
+		a.setStart(0);
+		a.setEnd(header.length());
+		a.setID("C0005893");
+		a.setSource("MetaMap");
+		table.cells[0][0].annotations.add(a);
+		art.setTables(new Table[]{table});
+		return art;
+	}
+
+	private static File folder() throws Exception
+	{
+		File folder = File.createTempFile("columnar", "");
+		folder.delete();
+		return folder;
+	}
+
+	@Test
+	public void ScanTest() throws Exception {
+		File folder = folder();
+		ColumnarExporter exporter = new ColumnarExporter(folder.getPath());
+		exporter.SaveArticleAnnotationToDB(article("1", "BMI (kg/m2)", "27.5"));
+		exporter.SaveArticleAnnotationToDB(article("2", "Age", "54"));
+		exporter.CloseDBConnection();
+		// a second run writes the next batch
+		exporter = new ColumnarExporter(folder.getPath());
+		exporter.SaveArticleAnnotationToDB(article("3", "Sex", "male"));
+		exporter.CloseDBConnection();
+		ColumnarReader reader = new ColumnarReader(folder.getPath());
+		if(reader.getFiles(ColumnarExporter.CELLS).size()!=2 || reader.getFiles(ColumnarExporter.ANNOTATIONS).size()!=2)
+			fail("Every run should write its own batch");
+
+		final List<String> found = new ArrayList<String>();
+		long selected = reader.scan(ColumnarExporter.CELLS, ColumnarReader.filters("CellType", ColumnarReader.equalTo("Numeric"), "WholeHeader", ColumnarReader.contains("bmi")), new String[]{"Article", "Content"}, new ColumnarReader.RowHandler() {
+			public void row(ColumnarFile file, int row) {
+				found.add(file.getColumn("Article").getString(row)+" "+file.getColumn("Content").getString(row));
+				if(file.getColumn("Roles").isLoaded())
+					fail("Columns that are not scanned should not be read");
+			}
+		});
+		if(selected!=1 || !found.equals(Arrays.asList("PMC\t1 27.5")))
+			fail("Wrong numeric cells under a BMI header: "+found);
+		// the first batch has no BMI header, the second no sex header
+		reader.scan(ColumnarExporter.CELLS, ColumnarReader.filters("WholeHeader", ColumnarReader.contains("sex")), new String[]{"Content"}, new ColumnarReader.RowHandler() {
+			public void row(ColumnarFile file, int row) {
+				if(!file.getColumn("Content").getString(row).equals("male"))
+					fail("Wrong cell under a sex header");
+			}
+		});
+		if(!reader.getStatistics().equals("Columnar scans: 4 files, 2 skipped by their dictionaries"))
+			fail("Files without accepted values should be skipped: "+reader.getStatistics());
+	}
+
+	@Test
+	public void AnnotationTest() throws Exception {
+		File folder = folder();
+		ColumnarExporter exporter = new ColumnarExporter(folder.getPath());
+		exporter.SaveArticleAnnotationToDB(article("1", "BMI", "27.5"));
+		exporter.SaveArticleAnnotationToDB(article("2", "Age", "54"));
+		exporter.CloseDBConnection();
+		ColumnarReader reader = new ColumnarReader(folder.getPath());
+		ColumnarFile cells = ColumnarFile.read(reader.getFiles(ColumnarExporter.CELLS).get(0), null);
+		ColumnarFile annotations = ColumnarFile.read(reader.getFiles(ColumnarExporter.ANNOTATIONS).get(0), null);
+		if(cells.getRows()!=4 || annotations.getRows()!=2)
+			fail("Wrong number of rows");
+		ColumnarFile header = ColumnarFile.read(reader.getFiles(ColumnarExporter.CELLS).get(0), Arrays.<String>asList());
+		if(header.getRows()!=4 || header.getColumn("Content").isLoaded())
+			fail("Only the header should be read");
+		header.load(Arrays.asList("Content"));
+		if(!header.getColumn("Content").getString(2).equals("Age") || header.getColumn("Roles").isLoaded())
+			fail("Only the loaded column should be read");
+		ColumnarFile.Column cell = annotations.getColumn("Cell");
+		if(!cells.getColumn("Content").getString(cell.getInt(1)).equals("Age") || annotations.getColumn("End").getInt(1)!=3)
+			fail("Annotations should refer to rows of their cells");
+		if(cells.getColumn("RowN").min!=0 || cells.getColumn("RowN").max!=1 || cells.getColumn("Roles").distinct!=2 || cells.getColumn("WholeHeader").nulls!=2)
+			fail("Wrong column statistics");
+		if(!cells.getColumn("Roles").getString(0).equals("Header") || cells.getColumn("WholeHeader").getString(0)!=null)
+			fail("Wrong values");
+	}
+
+}
@@ -0,0 +1,58 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import DataBase.ContentCodec;
+
+public class ContentCodecTests {
+
+	private static final String TEXT = "<article><p>Baseline characteristics – age, sex</p></article>";
+
+	@Test
+	public void DeflateTest() throws Exception {
+		ContentCodec codec = new ContentCodec(ContentCodec.Codec.DEFLATE, null);
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0;i<200;i++)
+			sb.append(TEXT);
+		byte[] value = codec.encode(sb.toString());
+		if(value[0]!=0 || value[1]!=1 || value.length>sb.length()/4)
+			fail("Text should be compressed after the codec marker");
+		int length = (value[2] & 0xff) | (value[3] & 0xff)<<8 | (value[4] & 0xff)<<16 | (value[5] & 0xff)<<24;
+		if(length!=sb.toString().getBytes("UTF-8").length || (value[6] & 0xff)!=0x78)
+			fail("Compressed value should have the format of MySQL COMPRESS()");
+		if(!new ContentCodec(ContentCodec.Codec.PLAIN, null).decode(value).equals(sb.toString()))
+			fail("Compressed text should be decoded by any codec");
+		if(!codec.decode(codec.encode("")).equals("") || codec.encode(null)!=null)
+			fail("Wrong empty or null value");
+	}
+
+	@Test
+	public void PlainTest() throws Exception {
+		ContentCodec codec = new ContentCodec(ContentCodec.Codec.DEFLATE, null);
+		if(!codec.decode(TEXT.getBytes("UTF-8")).equals(TEXT))
+			fail("Values without a codec marker should be read as text");
+		if(!new String(new ContentCodec(ContentCodec.Codec.PLAIN, null).encode(TEXT), "UTF-8").equals(TEXT))
+			fail("Plain codec should write text");
+	}
+
+	@Test
+	public void ArchiveTest() throws Exception {
+		File folder = File.createTempFile("archive", "");
+		folder.delete();
+		ContentCodec codec = new ContentCodec(ContentCodec.Codec.ARCHIVE, folder.getPath());
+		byte[] value = codec.encode(TEXT);
+		byte[] again = codec.encode(TEXT);
+		if(value[0]!=0 || value[1]!=2 || value.length>100 || !new String(value, 2, value.length-2, "UTF-8").equals(new String(again, 2, again.length-2, "UTF-8")))
+			fail("Archived text should be referred to by hash and path");
+		String path = new String(value, 2, value.length-2, "UTF-8").split("\t")[1];
+		if(!new File(folder, path).exists())
+			fail("Text should be written to the archive");
+		if(!new ContentCodec(ContentCodec.Codec.PLAIN, folder.getPath()).decode(value).equals(TEXT))
+			fail("Archived text should be read from the archive");
+	}
+
+}
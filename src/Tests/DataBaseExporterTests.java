@@ -0,0 +1,139 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.LinkedList;
+
+import org.junit.Test;
+
+import DataBase.AnnotationDictionary;
+import DataBase.DataBaseExporter;
+import Utils.Author;
+import tablInEx.Annotation;
+import tablInEx.Article;
+import tablInEx.Cell;
+import tablInEx.Table;
+
+public class DataBaseExporterTests {
+
+	private static Article article(String pmc, String title)
+	{
+		Article art = new Article("");
+		art.setPmc(pmc);
+		art.setTitle(title);
+		LinkedList<Author> authors = new LinkedList<Author>();
+		Author author = new Author();
+		author.name = "Smith,John";
+		author.email = "john@example.org";
+		author.affiliation.add("Manchester");
+		authors.add(author);
+		art.setAuthors(authors);
+		Table table = new Table("Table 1");
+		table.setTableStructureType(Table.StructureType.LIST);
+		Cell cell = new Cell(0, 0);
+		cell.setCell_content("12\t(3)");
+		cell.CellRoles.add("Data");
+		Annotation a = new Annotation();
+		a.setContent("12");
+		cell.annotations.add(a);
+		cell.setHeader_values("Age ; ");
+		Cell other = new Cell(1, 0);
+		other.setHeader_values("Age ; ");
+		other.setStub_values("Men ; ");
+		table.cells = new Cell[][]{{cell, other}};
+		art.setTables(new Table[]{table, null});
+		return art;
+	}
+
+	private static String read(File f) throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		Reader r = new InputStreamReader(new FileInputStream(f), "UTF-8");
+		char[] buf = new char[4096];
+		int n;
+		while((n = r.read(buf))>0)
+			sb.append(buf, 0, n);
+		r.close();
+		return sb.toString();
+	}
+
+	private static File folder() throws Exception
+	{
+		File folder = File.createTempFile("export", "");
+		folder.delete();
+		return folder;
+	}
+
+	@Test
+	public void EscapingTest() throws Exception {
+		File folder = folder();
+		DataBaseExporter exporter = new DataBaseExporter(folder.getPath());
+		if(!exporter.SaveArticleAnnotationToDB(article("PMC1", "a\tb\nc\\d")))
+			fail("Article not exported");
+		exporter.CloseDBConnection();
+		String[] article = read(new File(folder, "Article.0.0.tsv")).split("\n");
+		if(article.length!=1)
+			fail("Escaped line breaks should keep one row per line");
+		String[] fields = article[0].split("\t", -1);
+		if(fields.length!=14 || !fields[0].equals("1") || !fields[1].equals("PMC1") || !fields[2].equals("\\N") || !fields[5].equals("a\\tb\\nc\\\\d"))
+			fail("Wrong article row: "+article[0]);
+		String cells = read(new File(folder, "Cell.0.0.tsv"));
+		if(!cells.startsWith("1\t0.0\tPartially Numeric\t1\t0\t0\t") || !cells.contains("\t12\\t(3)\t") || cells.split("\n").length!=2)
+			fail("Wrong cell rows: "+cells);
+		if(!cells.contains("\t12\\t(3)\t1\t\\N\t\\N\n") || !cells.endsWith("\t1\t1\t\\N\n"))
+			fail("Cells should refer to headers and stubs by ordinal: "+cells);
+		if(!read(new File(folder, "TableHeader.0.0.tsv")).equals("1\t1\tAge ; \n") || !read(new File(folder, "TableStub.0.0.tsv")).equals("1\t1\tMen ; \n"))
+			fail("Each header and stub should be written once per table");
+		if(new File(folder, "TableSuperRow.0.0.tsv").exists())
+			fail("No super-rows were set");
+		if(!read(new File(folder, "CellRoles.0.0.tsv")).equals("1\t3\t1\n"))
+			fail("Wrong cell role row");
+		if(!read(new File(folder, "CellAnnotation.0.0.tsv")).equals("1\t12\t0\t0\t1\t1\t1\n"))
+			fail("Wrong annotation row");
+		String hash = AnnotationDictionary.hash("\\N\t\\N\t\\N");
+		if(!read(new File(folder, "Concept.0.0.tsv")).equals("1\t"+hash+"\t\\N\t\\N\t\\N\n"))
+			fail("Wrong concept row");
+	}
+
+	@Test
+	public void SegmentsTest() throws Exception {
+		File folder = folder();
+		DataBaseExporter exporter = new DataBaseExporter(folder.getPath());
+		exporter.SaveArticleAnnotationToDB(article("PMC1", "First"));
+		exporter.SaveArticleAnnotationToDB(article("PMC2", "Second"));
+		exporter.CloseDBConnection();
+		exporter = new DataBaseExporter(folder.getPath());
+		exporter.SaveArticleAnnotationToDB(article("PMC3", "Third"));
+		exporter.CloseDBConnection();
+		String second = read(new File(folder, "Cell.1.0.tsv"));
+		if(!second.startsWith("5\t0.0\tPartially Numeric\t3\t"))
+			fail("Ids should continue from the previous run: "+second);
+		String affiliations = read(new File(folder, "Affiliation.1.0.tsv"));
+		if(!affiliations.equals("3\tManchester\t3\n"))
+			fail("Wrong affiliation row: "+affiliations);
+		if(new File(folder, "Concept.1.0.tsv").exists() || !read(new File(folder, "CellAnnotation.1.0.tsv")).equals("3\t12\t0\t0\t5\t1\t1\n"))
+			fail("Concepts and provenance of earlier runs should be reused");
+		String script = read(new File(folder, DataBaseExporter.SCRIPT_FILE));
+		if(!script.contains("Cell.0.0.tsv' INTO TABLE `Cell`") || !script.contains("Cell.1.0.tsv' INTO TABLE `Cell`"))
+			fail("Script should load segments of all runs");
+		if(!script.contains("@xml,`Article_idArticle`) SET `xml` = UNHEX(@xml);"))
+			fail("XML should be loaded from hexadecimal bytes");
+		if(script.indexOf("INTO TABLE `Article`")>script.indexOf("INTO TABLE `Cell`") || script.indexOf("DROP FOREIGN KEY `fk_Cell_Table1`")>script.indexOf("INTO TABLE `Cell`") || script.indexOf("ADD CONSTRAINT `fk_Cell_Table1`")<script.indexOf("INTO TABLE `CellAnnotation`"))
+			fail("Script should drop keys, load parents before children and add keys after loading");
+		if(script.indexOf("SELECT 'Cell', COALESCE(MAX(idCell),0)+1 FROM `Cell` ON DUPLICATE KEY UPDATE NextId = GREATEST(NextId, VALUES(NextId))")<script.indexOf("INTO TABLE `CellAnnotation`"))
+			fail("Script should move the id sequences past the loaded rows");
+		String first = read(new File(folder, DataBaseExporter.getRunScriptFile(0)));
+		String run = read(new File(folder, DataBaseExporter.getRunScriptFile(1)));
+		if(!first.contains("Cell.0.0.tsv' INTO TABLE `Cell`") || first.contains("Cell.1.0.tsv'"))
+			fail("Script of the first run should load only its segment");
+		if(!run.contains("Cell.1.0.tsv' INTO TABLE `Cell`") || !run.contains("Article.1.0.tsv' INTO TABLE `Article`") || run.contains(".0.0.tsv'"))
+			fail("Script of the second run should load only its segment: "+run);
+		if(run.contains("DROP INDEX") || run.contains("ADD CONSTRAINT") || !run.contains("SELECT 'Cell', COALESCE(MAX(idCell),0)+1 FROM `Cell`"))
+			fail("Script of a run should keep the indexes of the loaded tables and move the id sequences");
+	}
+
+}
@@ -0,0 +1,207 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import Decomposition.Decomposition;
+import tablInEx.Article;
+import tablInEx.Cell;
+import tablInEx.DataExtractionOutputObj;
+import tablInEx.Table;
+
+public class DecompositionEquivalenceTests {
+
+	private static String[] contents = {"", " ", "A", "  B", "12", "- x", null, " ", "Total", "   C", "12 (3.4)", "n=20"};
+
+	private String tmp = System.getProperty("java.io.tmpdir");
+
+	private Cell cell(int row, int column, String content, boolean header)
+	{
+		Cell c = new Cell(column, row);
+		c.setRow_number(row);
+		c.setColumn_number(column);
+		c.setCell_content(content);
+		c.setIs_header(header);
+		if(header)
+			c.headers.add(content);
+		return c;
+	}
+
+	private Table table(String title, Cell[][] cells, int columns, long pmc)
+	{
+		Table t = new Table(title, "Caption n=12", "Footer", columns, cells.length);
+		t.setDocumentFileName("PMC"+pmc);
+		t.setHasHeader(true);
+		t.cells = cells;
+		Cell[][] original = new Cell[cells.length][];
+		for(int i = 0;i<cells.length;i++)
+		{
+			original[i] = new Cell[cells[i].length];
+			for(int j = 0;j<cells[i].length;j++)
+				original[i][j] = new Cell(cells[i][j]);
+		}
+		t.original_cells = original;
+		return t;
+	}
+
+	private Table grid(String title, String[][] rows, int headerRows, long pmc)
+	{
+		Cell[][] cells = new Cell[rows.length][];
+		for(int i = 0;i<rows.length;i++)
+		{
+			cells[i] = new Cell[rows[i].length];
+			for(int j = 0;j<rows[i].length;j++)
+				cells[i][j] = cell(i, j, rows[i][j], i<headerRows);
+		}
+		return table(title, cells, rows[0].length, pmc);
+	}
+
+	private Article article(long pmc, Table[] tables)
+	{
+		Article art = new Article("PMC"+pmc);
+		art.setTitle("Title");
+		art.setPmc(""+pmc);
+		art.setTables(tables);
+		return art;
+	}
+
+	/**
+	 * Article with a table of each structure: a matrix, a one row list, super-rows given by a spanning
+	 * cell, by the subheader flag, by indentation and by a row with only the first cell filled, and a
+	 * table made of two tables with breaking lines under their headers.
+	 */
+	private Article knownArticle()
+	{
+		Table matrix = grid("Table 1", new String[][]{{"Group","Drug","Placebo"},{"Age","52","54"},{"BMI","27.1","26.4"}}, 1, 1);
+		Table list = grid("Table 2", new String[][]{{"Inclusion criteria"},{"Age over 18"},{"Signed consent"}}, 1, 1);
+		Table spanning = grid("Table 3", new String[][]{{"Group","Drug","Placebo"},{"Men","",""},{"Age","52","54"},{"BMI","27.1","26.4"}}, 1, 1);
+		spanning.cells[1][0].setIs_columnspanning(true);
+		spanning.cells[1][0].setCells_columnspanning(3);
+		Table flagged = grid("Table 4", new String[][]{{"Group","Drug","Placebo"},{"Baseline","1","2"},{"Age","52","54"}}, 1, 1);
+		flagged.cells[1][0].setIs_subheader(true);
+		Table indented = grid("Table 5", new String[][]{{"Group","Drug","Placebo"},{"Adverse events","3","4"},{"  Nausea","1","2"},{"  Headache","2","2"}}, 1, 1);
+		Table emptyRow = grid("Table 6", new String[][]{{"Group","Drug","Placebo"},{"Women","",""},{"Age","50","51"}}, 1, 1);
+		Table multi = grid("Table 7", new String[][]{{"Group","Drug","Placebo"},{"Age","52","54"},{"Outcome","Drug","Placebo"},{"Death","2","5"},{"Stroke","1","3"}}, 1, 1);
+		for(int i:new int[]{0,2,4})
+			for(Cell c:multi.cells[i])
+				c.setBreakingLineOverRow(true);
+		multi.cells[2][0].setIs_header(true);
+		return article(1, new Table[]{matrix, list, spanning, flagged, indented, emptyRow, multi});
+	}
+
+	private Article randomArticle(long seed)
+	{
+		Random random = new Random(seed);
+		Table[] tables = new Table[1+random.nextInt(2)];
+		for(int t = 0;t<tables.length;t++)
+		{
+			int rows = 1+random.nextInt(8);
+			int columns = 1+random.nextInt(4);
+			int headerRows = random.nextInt(3);
+			Cell[][] cells = new Cell[rows][];
+			for(int i = 0;i<rows;i++)
+			{
+				cells[i] = new Cell[random.nextInt(10)==0?Math.max(0, columns-1):columns];
+				for(int j = 0;j<cells[i].length;j++)
+				{
+					Cell c = cell(i, j, random.nextInt(12)==0?null:contents[random.nextInt(contents.length)], i<headerRows || random.nextInt(15)==0);
+					if(j==0 && random.nextInt(4)==0)
+					{
+						c.setIs_columnspanning(true);
+						c.setCells_columnspanning(random.nextBoolean()?columns:1);
+					}
+					c.setBreakingLineOverRow(random.nextInt(3)==0);
+					c.setIs_subheader(random.nextInt(8)==0);
+					c.setIs_stub(j==0 && random.nextBoolean());
+					cells[i][j] = c;
+				}
+			}
+			tables[t] = table("Table "+(t+1), cells, columns, seed);
+			tables[t].setHasHeader(random.nextBoolean());
+		}
+		return article(seed, tables);
+	}
+
+	private String output(Article art)
+	{
+		StringBuilder sb = new StringBuilder();
+		for(Table t:art.getTables())
+		{
+			sb.append(t.getTable_title()).append(' ').append(t.getTableStructureType()).append('\n');
+			for(DataExtractionOutputObj o:t.output)
+			{
+				String name = o.getFilename();
+				sb.append(name.substring(name.indexOf("_ie"))).append(' ');
+				sb.append(o.getXMLDocument().getDocumentElement().getTextContent()).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	private String files(String folder) throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		File[] files = new File(folder+"_ie").listFiles();
+		if(files==null)
+			return sb.toString();
+		Arrays.sort(files);
+		for(File f:files)
+			sb.append(f.getName()).append('\n').append(new String(Files.readAllBytes(f.toPath()), "UTF-8")).append('\n');
+		return sb.toString();
+	}
+
+	private void assertSame(String name, Article legacy, Article current, HashSet<Table.StructureType> types) throws Exception
+	{
+		String legacyFolder = tmp+"/DecompositionEquivalenceTestsLegacy";
+		String folder = tmp+"/DecompositionEquivalenceTests";
+		// Both decompositions print the tables they process and the ones they give up on
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		try{
+			System.setOut(new PrintStream(new ByteArrayOutputStream()));
+			System.setErr(new PrintStream(new ByteArrayOutputStream()));
+			new LegacyDecomposition(legacyFolder, true).ExtractData(legacy);
+			new Decomposition(folder, true).ExtractData(current);
+		}finally{
+			System.setOut(out);
+			System.setErr(err);
+		}
+		String expected = output(legacy);
+		String actual = output(current);
+		if(!expected.equals(actual))
+			fail("Different output for "+name+":\n"+expected+"instead of\n"+actual);
+		if(!files(legacyFolder).equals(files(folder)))
+			fail("Different files written for "+name);
+		for(Table t:current.getTables())
+			types.add(t.getTableStructureType());
+	}
+
+	@Test
+	public void KnownTablesTest() throws Exception {
+		HashSet<Table.StructureType> types = new HashSet<Table.StructureType>();
+		assertSame("known tables", knownArticle(), knownArticle(), types);
+		for(Table.StructureType type:new Table.StructureType[]{Table.StructureType.MATRIX, Table.StructureType.LIST, Table.StructureType.SUBHEADER})
+			if(!types.contains(type))
+				fail("No known table decomposed as "+type);
+	}
+
+	@Test
+	public void RandomTablesTest() throws Exception {
+		HashSet<Table.StructureType> types = new HashSet<Table.StructureType>();
+		for(long seed = 0;seed<500;seed++)
+			assertSame("seed "+seed, randomArticle(seed), randomArticle(seed), types);
+		for(Table.StructureType type:new Table.StructureType[]{Table.StructureType.MATRIX, Table.StructureType.LIST, Table.StructureType.SUBHEADER, Table.StructureType.MULTI, null})
+			if(!types.contains(type))
+				fail("No random table decomposed as "+type);
+	}
+
+}
@@ -0,0 +1,95 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import Decomposition.Decomposition;
+import Decomposition.DecompositionWriter;
+import tablInEx.Article;
+import tablInEx.Cell;
+import tablInEx.DataExtractionOutputObj;
+import tablInEx.Table;
+
+public class DecompositionOutputTests {
+
+	private Article createArticle()
+	{
+		String[][] contents = new String[][]{{"Group","Drug"},{"A","12"},{"B","14"}};
+		Cell[][] cells = new Cell[contents.length][];
+		for(int i = 0;i<contents.length;i++)
+		{
+			cells[i] = new Cell[contents[i].length];
+			for(int j = 0;j<contents[i].length;j++)
+			{
+				cells[i][j] = new Cell(j,i);
+				cells[i][j].setCell_content(contents[i][j]);
+				cells[i][j].setIs_header(i==0);
+				if(i==0)
+					cells[i][j].headers.add(contents[i][j]);
+			}
+		}
+		Table t = new Table("Table 1", "Caption", "Footer");
+		t.setDocumentFileName("PMC1");
+		t.setHasHeader(true);
+		t.cells = cells;
+		Article art = new Article("PMC1");
+		art.setTitle("Title");
+		art.setPmc("1");
+		art.setTables(new Table[]{t});
+		return art;
+	}
+
+	@Test
+	public void RegularTableRecordTest() {
+		String folder = System.getProperty("java.io.tmpdir")+"/DecompositionOutputTests";
+		Decomposition dec = new Decomposition(folder);
+		Article art = createArticle();
+		Table t = dec.processRegularTable(art.getTables()[0].cells, art.getTables(), art, Decomposition.getTableFileName(art.getTables()[0]), 0);
+		if(t.output.size()!=4)
+			fail("Wrong number of decomposed cells");
+		Document doc = t.output.get(1).getXMLDocument();
+		if(!doc.getElementsByTagName("Head00").item(0).getTextContent().equals("Group"))
+			fail("Wrong Head00");
+		if(!doc.getElementsByTagName("StubValue").item(0).getTextContent().equals("A"))
+			fail("Wrong stub");
+		if(!doc.getElementsByTagName("HeaderValue0").item(0).getTextContent().equals("Drug"))
+			fail("Wrong header");
+		if(!doc.getElementsByTagName("value").item(0).getTextContent().equals("12"))
+			fail("Wrong value");
+	}
+
+	@Test
+	public void TableLayoutTest() {
+		try{
+			String folder = System.getProperty("java.io.tmpdir")+"/DecompositionOutputTests";
+			Decomposition dec = new Decomposition(folder);
+			Article art = createArticle();
+			dec.processRegularTable(art.getTables()[0].cells, art.getTables(), art, Decomposition.getTableFileName(art.getTables()[0]), 0);
+			new DecompositionWriter(folder+"_ie", DecompositionWriter.Layout.TABLE).writeArticle(art);
+			File f = new File(folder+"_ie"+Decomposition.getTableFileName(art.getTables()[0])+".xml");
+			if(!f.exists())
+				fail("Table file not written");
+			Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(f);
+			if(doc.getElementsByTagName("information").getLength()!=4)
+				fail("Wrong number of cells in table file");
+			if(new File(folder+"_ie").list().length!=1)
+				fail("More than one file per table");
+			for(DataExtractionOutputObj obj:art.getTables()[0].output)
+			{
+				if(obj.getRecord()==null)
+					fail("Output is not backed by record");
+			}
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+			fail(ex.getMessage());
+		}
+	}
+
+}
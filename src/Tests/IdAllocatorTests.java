@@ -0,0 +1,76 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import DataBase.IdAllocator;
+
+public class IdAllocatorTests {
+
+	/**
+	 * Allocator whose blocks are reserved from a sequence in memory, shared like table IdSequence.
+	 */
+	private static class StandIn extends IdAllocator {
+		static HashMap<String, Long> sequence = new HashMap<String, Long>();
+		int reserved = 0;
+
+		protected long reserve(String table, int size)
+		{
+			reserved++;
+			synchronized(sequence)
+			{
+				Long next = sequence.get(table);
+				if(next==null)
+					next = 1L;
+				sequence.put(table, next+size);
+				return next;
+			}
+		}
+	}
+
+	@Test
+	public void UniqueIdsTest() throws Exception {
+		StandIn.sequence.clear();
+		StandIn first = new StandIn();
+		StandIn second = new StandIn();
+		HashSet<Integer> ids = new HashSet<Integer>();
+		int count = 0;
+		for(int i = 0;i<300;i++)
+		{
+			StandIn allocator = i%2==0?first:second;
+			for(int id:allocator.allocate("Cell", 17))
+			{
+				ids.add(id);
+				count++;
+			}
+		}
+		if(ids.size()!=count)
+			fail("Allocators of two writers gave the same id");
+		if(first.reserved+second.reserved>8)
+			fail("Ids should be reserved in blocks, reserved "+(first.reserved+second.reserved)+" times");
+	}
+
+	@Test
+	public void LargeAllocationTest() throws Exception {
+		StandIn.sequence.clear();
+		StandIn allocator = new StandIn();
+		int[] small = allocator.allocate("Cell", 10);
+		int[] large = allocator.allocate("Cell", IdAllocator.BLOCK_SIZE*3);
+		HashSet<Integer> ids = new HashSet<Integer>();
+		for(int id:small)
+			ids.add(id);
+		for(int id:large)
+			ids.add(id);
+		if(ids.size()!=small.length+large.length)
+			fail("Ids are not unique");
+		if(allocator.reserved!=2)
+			fail("Rest of the block and one larger block should be used, reserved "+allocator.reserved+" times");
+		if(allocator.allocate("Article", 1)[0]!=1)
+			fail("Tables should have their own sequences");
+	}
+
+}
@@ -0,0 +1,289 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import Annotation.AsyncAnnotator;
+import Annotation.MetaMapAnnotatorMain;
+import Annotation.SemanticAnnotator;
+import DataBase.AnnotationDictionary;
+import Main.Word;
+import Main.WordMeaningOutputElement;
+
+public class MetaMapAnnotatorMainTests {
+
+	/** Places of the annotator: two workers and two queued calls. */
+	private static final int PLACES = 4;
+
+	private static final int CHUNK = 20;
+
+	/** Rows of table Cell: idCell and Content. */
+	private List<Object[]> cells = new ArrayList<Object[]>();
+	/** Committed rows of table CellAnnotation: Content, Start, End and Cell_idCell. */
+	private List<Object[]> annotations = new ArrayList<Object[]>();
+	private int lastCellId = -1;
+	private long cellsDone = 0;
+	/** Commits that move the checkpoint after this idCell fail, as if the job was stopped. */
+	private int failAfter = Integer.MAX_VALUE;
+	/** The most cells of later chunks that were annotated when a chunk was saved. */
+	private int maxAhead = 0;
+	private StandIn annotator = new StandIn();
+
+	/**
+	 * Stand-in for the annotation server, giving one concept for the whole text of a cell.
+	 */
+	private static class StandIn implements SemanticAnnotator {
+		HashSet<Integer> started = new HashSet<Integer>();
+
+		public List<Word> annotate(String text) throws Exception
+		{
+			synchronized(this)
+			{
+				started.add(Integer.parseInt(text.substring(text.lastIndexOf(' ')+1)));
+			}
+			Thread.sleep(10);
+			WordMeaningOutputElement wm = new WordMeaningOutputElement();
+			wm.id = "C"+text.hashCode();
+			wm.appearingWord = text;
+			wm.startAt = 0;
+			wm.endAt = text.length();
+			wm.AgentName = "StandIn";
+			Word w = new Word();
+			w.word = text;
+			w.wordmeanings = new LinkedList<WordMeaningOutputElement>();
+			w.wordmeanings.add(wm);
+			List<Word> words = new LinkedList<Word>();
+			words.add(w);
+			return words;
+		}
+
+		synchronized int startedAfter(int idCell)
+		{
+			int ahead = 0;
+			for(int id:started)
+				if(id>idCell)
+					ahead++;
+			return ahead;
+		}
+	}
+
+	/**
+	 * Dictionary whose table is kept in memory.
+	 */
+	private static class Dictionary extends AnnotationDictionary {
+		HashMap<String, Integer> table = new HashMap<String, Integer>();
+
+		Dictionary(String table, String idColumn, String[] columns)
+		{
+			super(table, idColumn, columns);
+		}
+
+		protected Map<String, Integer> store(List<String> hashes, List<String[]> values)
+		{
+			Map<String, Integer> ids = new HashMap<String, Integer>();
+			for(String hash:hashes)
+			{
+				if(!table.containsKey(hash))
+					table.put(hash, table.size()+1);
+				ids.put(hash, table.get(hash));
+			}
+			return ids;
+		}
+	}
+
+	private static ResultSet resultSet(final List<Object[]> rows)
+	{
+		return (ResultSet)Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, new InvocationHandler() {
+			int row = -1;
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if(method.getName().equals("next"))
+					return ++row<rows.size();
+				if(method.getName().equals("getInt"))
+					return (Integer)rows.get(row)[(Integer)args[0]-1];
+				if(method.getName().equals("getString"))
+					return (String)rows.get(row)[(Integer)args[0]-1];
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Stand-in for the database, keeping inserted annotations and the checkpoint until they are committed.
+	 */
+	private Connection connection()
+	{
+		final List<Object[]> pending = new ArrayList<Object[]>();
+		final int[] pendingCheckpoint = {-1, 0};
+		return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+				if(method.getName().equals("createStatement"))
+				{
+					return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class}, new InvocationHandler() {
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							return method.getName().equals("executeUpdate")?0:null;
+						}
+					});
+				}
+				if(method.getName().equals("commit"))
+				{
+					if(pendingCheckpoint[0]>=0)
+					{
+						if(pendingCheckpoint[0]>failAfter)
+							throw new SQLException("Stand-in stop");
+						maxAhead = Math.max(maxAhead, annotator.startedAfter(pendingCheckpoint[0]));
+						lastCellId = pendingCheckpoint[0];
+						cellsDone += pendingCheckpoint[1];
+					}
+					annotations.addAll(pending);
+					pending.clear();
+					pendingCheckpoint[0] = -1;
+					return null;
+				}
+				if(method.getName().equals("rollback"))
+				{
+					pending.clear();
+					pendingCheckpoint[0] = -1;
+					return null;
+				}
+				if(!method.getName().equals("prepareStatement"))
+					return null;
+				final String sql = (String)args[0];
+				return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, new InvocationHandler() {
+					HashMap<Integer, Object> parameters = new HashMap<Integer, Object>();
+					List<Object[]> batch = new ArrayList<Object[]>();
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						String name = method.getName();
+						if(name.equals("setInt") || name.equals("setString"))
+							parameters.put((Integer)args[0], args[1]);
+						if(name.equals("addBatch"))
+							batch.add(new Object[]{parameters.get(1), parameters.get(2), parameters.get(3), parameters.get(4)});
+						if(name.equals("clearBatch"))
+							batch.clear();
+						if(name.equals("executeBatch"))
+						{
+							pending.addAll(batch);
+							int[] counts = new int[batch.size()];
+							batch.clear();
+							return counts;
+						}
+						if(name.equals("executeUpdate"))
+						{
+							pendingCheckpoint[0] = (Integer)parameters.get(2);
+							pendingCheckpoint[1] = (Integer)parameters.get(3);
+							return 1;
+						}
+						if(name.equals("executeQuery"))
+						{
+							List<Object[]> rows = new ArrayList<Object[]>();
+							if(sql.startsWith("SELECT LastCellId") && lastCellId>=0)
+								rows.add(new Object[]{lastCellId});
+							if(sql.startsWith("SELECT idCell"))
+							{
+								for(Object[] cell:cells)
+									if((Integer)cell[0]>(Integer)parameters.get(1) && rows.size()<(Integer)parameters.get(2))
+										rows.add(cell);
+							}
+							return resultSet(rows);
+						}
+						return null;
+					}
+				});
+			}
+		});
+	}
+
+	private int run(int startAfter) throws SQLException
+	{
+		AsyncAnnotator async = new AsyncAnnotator(annotator, 2, 5000, 0, PLACES-2);
+		try{
+			return MetaMapAnnotatorMain.run(connection(), async,
+					new Dictionary("Concept", "idConcept", new String[]{"AnnotationID", "AnnotationURL", "AnnotationDescription"}),
+					new Dictionary("Provenance", "idProvenance", new String[]{"ProvenanceType", "AgentName", "EnvironmentDesc", "AgentVersion", "Location", "Date"}),
+					startAfter, CHUNK);
+		}finally{
+			async.shutdown();
+		}
+	}
+
+	/**
+	 * Annotations of the cell in committed rows.
+	 */
+	private List<Object[]> annotationsOf(int idCell)
+	{
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for(Object[] annotation:annotations)
+			if((Integer)annotation[3]==idCell)
+				rows.add(annotation);
+		return rows;
+	}
+
+	@Test
+	public void ResumeTest() throws Exception {
+		// ids with gaps, empty cells and a cell with a MathType equation, as stored by the extraction
+		for(int i = 1;i<=120;i++)
+		{
+			String content = "ResumeTest cell "+(3*i);
+			if(i%5==0)
+				content = i%10==0?null:" ";
+			if(i==7)
+				content = content+" MathType@MTEF@5@5@+=";
+			cells.add(new Object[]{3*i, content});
+		}
+		failAfter = 120;
+		try{
+			run(0);
+			fail("The stand-in should stop the job when the third chunk is saved");
+		}catch(SQLException ex)
+		{
+		}
+		if(lastCellId!=120 || cellsDone!=40)
+			fail("Checkpoint should be after the second chunk, not "+lastCellId+" with "+cellsDone+" cells");
+		for(Object[] annotation:annotations)
+			if((Integer)annotation[3]>120)
+				fail("Annotations after the checkpoint should be rolled back: "+annotation[0]);
+		failAfter = Integer.MAX_VALUE;
+		annotator.started.clear();
+		if(run(0)!=360)
+			fail("Resumed job should annotate the rest of the cells");
+		if(lastCellId!=360 || cellsDone!=120)
+			fail("Checkpoint should be after the last cell, not "+lastCellId+" with "+cellsDone+" cells");
+		for(Object[] cell:cells)
+		{
+			int idCell = (Integer)cell[0];
+			String content = (String)cell[1];
+			List<Object[]> rows = annotationsOf(idCell);
+			if(content==null || content.trim().length()==0)
+			{
+				if(!rows.isEmpty())
+					fail("Empty cell "+idCell+" should have no annotations");
+				continue;
+			}
+			if(rows.size()!=1)
+				fail("Cell "+idCell+" should be annotated once, not "+rows.size()+" times");
+			if(!rows.get(0)[0].equals("ResumeTest cell "+idCell))
+				fail("Cell "+idCell+" should be annotated without the equation: "+rows.get(0)[0]);
+		}
+		if(maxAhead>PLACES)
+			fail("At most "+PLACES+" cells of the next chunk should be annotated while a chunk is saved, not "+maxAhead);
+		int annotated = annotations.size();
+		if(run(0)!=360 || annotations.size()!=annotated || cellsDone!=120)
+			fail("A finished job should have nothing to annotate");
+	}
+
+}
@@ -0,0 +1,265 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import gov.nih.nlm.nls.metamap.Ev;
+import gov.nih.nlm.nls.metamap.Mapping;
+import gov.nih.nlm.nls.metamap.MetaMapApi;
+import gov.nih.nlm.nls.metamap.PCM;
+import gov.nih.nlm.nls.metamap.Position;
+import gov.nih.nlm.nls.metamap.PositionImpl;
+import gov.nih.nlm.nls.metamap.Result;
+import gov.nih.nlm.nls.metamap.Utterance;
+
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import Decomposition.Decomposition;
+import Decomposition.MetaMapClientPool;
+import Decomposition.MetaMapping;
+import tablInEx.Article;
+import tablInEx.Cell;
+import tablInEx.DataExtractionOutputObj;
+import tablInEx.Table;
+
+public class MetaMappingTests {
+
+	private static String[][] concepts = {{"heart attack", "C0027051", "dsyn"}, {"aspirin", "C0004057", "phsu"}, {"placebo", "C0032042", "topp"}};
+
+	private static <T> T stub(Class<T> type, final Map<String, Object> answers)
+	{
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				return answers.get(method.getName());
+			}
+		}));
+	}
+
+	/**
+	 * Stand-in for the MetaMap server. Every blank line separated citation is a result with its input
+	 * text trimmed and whitespace collapsed, known concepts are found in the trimmed citation.
+	 */
+	private static class StandIn implements MetaMapClientPool.Connector {
+		int calls = 0;
+		/** Leaves out the result of the last citation, as if MetaMap merged it with the one before. */
+		boolean dropLast = false;
+
+		public synchronized MetaMapApi connect() {
+			return (MetaMapApi)Proxy.newProxyInstance(MetaMapApi.class.getClassLoader(), new Class<?>[]{MetaMapApi.class}, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					if(method.getName().equals("processCitationsFromString") && args.length==1)
+						return process((String)args[0]);
+					return null;
+				}
+			});
+		}
+
+		private synchronized List<Result> process(String text)
+		{
+			calls++;
+			List<Result> results = new ArrayList<Result>();
+			String[] citations = text.split("\n\n");
+			for(int c = 0;c<citations.length;c++)
+			{
+				if(dropLast && c>0 && c==citations.length-1)
+					break;
+				String citation = citations[c].trim();
+				List<Ev> evs = new ArrayList<Ev>();
+				for(String[] concept:concepts)
+				{
+					int x = citation.indexOf(concept[0]);
+					if(x<0)
+						continue;
+					HashMap<String, Object> ev = new HashMap<String, Object>();
+					ev.put("getConceptId", concept[1]);
+					ev.put("getMatchedWords", new ArrayList<String>(Arrays.asList(concept[0].split(" "))));
+					ev.put("getPositionalInfo", new ArrayList<Position>(Collections.singletonList(new PositionImpl(x, concept[0].length()))));
+					ev.put("getSemanticTypes", Collections.singletonList(concept[2]));
+					ev.put("getConceptName", concept[0]);
+					ev.put("getPreferredName", concept[0]);
+					evs.add(stub(Ev.class, ev));
+				}
+				HashMap<String, Object> mapping = new HashMap<String, Object>();
+				mapping.put("getEvList", evs);
+				HashMap<String, Object> pcm = new HashMap<String, Object>();
+				pcm.put("getMappingList", Collections.singletonList(stub(Mapping.class, mapping)));
+				HashMap<String, Object> utterance = new HashMap<String, Object>();
+				utterance.put("getPCMList", Collections.singletonList(stub(PCM.class, pcm)));
+				HashMap<String, Object> result = new HashMap<String, Object>();
+				result.put("getInputText", citation.replaceAll("\\s+", " "));
+				result.put("getUtteranceList", Collections.singletonList(stub(Utterance.class, utterance)));
+				results.add(stub(Result.class, result));
+			}
+			return results;
+		}
+	}
+
+	private static String[] terms = {"heart attack", "  aspirin", "aspirin ", "heart\t attack and aspirin", "no concept", "aspirin", "Placebo 'placebo'"};
+
+	private String describe(Map<Object, Object> mp)
+	{
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0;i+5<mp.size();i=i+6)
+		{
+			sb.append(mp.get(i)).append(mp.get(i+1)).append(mp.get(i+3)).append(mp.get(i+4)).append(mp.get(i+5));
+			for(Object p:(List<?>)mp.get(i+2))
+				sb.append(' ').append(((Position)p).getX()).append(':').append(((Position)p).getY());
+			sb.append(';');
+		}
+		return sb.toString();
+	}
+
+	private void assertSameAsSingle(Map<String, Map<Object, Object>> classifications) throws Exception
+	{
+		for(String term:terms)
+		{
+			if(!classifications.containsKey(term))
+				fail("No classification of '"+term+"'");
+			String batched = describe(classifications.get(term));
+			String single = describe(MetaMapping.getInstance().getClassification(term));
+			if(!batched.equals(single))
+				fail("Different classification of '"+term+"': "+batched+" instead of "+single);
+		}
+		String aspirin = describe(classifications.get("  aspirin"));
+		if(!aspirin.equals("C0004057[aspirin]phsuaspirinaspirin 2:7;"))
+			fail("Wrong classification of indented term: "+aspirin);
+	}
+
+	@Test
+	public void BatchTest() throws Exception {
+		StandIn standIn = new StandIn();
+		MetaMapClientPool.configure(1, 5000, standIn);
+		try{
+			Map<String, Map<Object, Object>> classifications = MetaMapping.getInstance().getClassifications(Arrays.asList(terms));
+			if(standIn.calls!=1)
+				fail("Terms not classified in one batch: "+standIn.calls+" calls");
+			assertSameAsSingle(classifications);
+		}finally{
+			MetaMapClientPool.configure(MetaMapClientPool.DEFAULT_SIZE, MetaMapClientPool.DEFAULT_TIMEOUT);
+		}
+	}
+
+	@Test
+	public void FallbackTest() throws Exception {
+		StandIn standIn = new StandIn();
+		standIn.dropLast = true;
+		MetaMapClientPool.configure(1, 5000, standIn);
+		try{
+			Map<String, Map<Object, Object>> classifications = MetaMapping.getInstance().getClassifications(Arrays.asList(terms));
+			// one batch, then each of five distinct filtered and trimmed terms alone
+			if(standIn.calls!=6)
+				fail("Batch not classified term by term: "+standIn.calls+" calls");
+			assertSameAsSingle(classifications);
+		}finally{
+			MetaMapClientPool.configure(MetaMapClientPool.DEFAULT_SIZE, MetaMapClientPool.DEFAULT_TIMEOUT);
+		}
+	}
+
+	private List<DataExtractionOutputObj> decompose()
+	{
+		String[][] contents = new String[][]{{"Group","aspirin"," placebo"},{"heart attack","12","14"},{"  aspirin","3","2"}};
+		Cell[][] cells = new Cell[contents.length][];
+		for(int i = 0;i<contents.length;i++)
+		{
+			cells[i] = new Cell[contents[i].length];
+			for(int j = 0;j<contents[i].length;j++)
+			{
+				cells[i][j] = new Cell(j,i);
+				cells[i][j].setCell_content(contents[i][j]);
+				cells[i][j].setIs_header(i==0);
+				if(i==0)
+					cells[i][j].headers.add(contents[i][j]);
+			}
+		}
+		Table t = new Table("Table 1", "Caption", "Footer");
+		t.setDocumentFileName("PMC1");
+		t.setHasHeader(true);
+		t.cells = cells;
+		Article art = new Article("PMC1");
+		art.setTitle("aspirin after heart attack");
+		art.setPmc("1");
+		art.setTables(new Table[]{t});
+		Decomposition dec = new Decomposition(System.getProperty("java.io.tmpdir")+"/MetaMappingTests");
+		return dec.processRegularTable(cells, art.getTables(), art, Decomposition.getTableFileName(t), 0).output;
+	}
+
+	private String tagged(DataExtractionOutputObj obj) throws Exception
+	{
+		Document doc = obj.getXMLDocumentTagged();
+		if(doc==null)
+			return "not tagged";
+		StringWriter sw = new StringWriter();
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(sw));
+		return sw.toString();
+	}
+
+	@Test
+	public void TagTableTest() throws Exception {
+		StandIn standIn = new StandIn();
+		MetaMapClientPool.configure(1, 5000, standIn);
+		try{
+			List<DataExtractionOutputObj> batched = decompose();
+			DataExtractionOutputObj.MetamapTagTable(batched);
+			int batchCalls = standIn.calls;
+			List<DataExtractionOutputObj> single = decompose();
+			for(DataExtractionOutputObj obj:single)
+				obj.MetamapTagDocument();
+			if(batchCalls>=standIn.calls-batchCalls)
+				fail("Table tagged with "+batchCalls+" calls, cell by cell with "+(standIn.calls-batchCalls));
+			for(int i = 0;i<single.size();i++)
+			{
+				String expected = tagged(single.get(i));
+				if(!expected.equals(tagged(batched.get(i))))
+					fail("Different tagging of cell "+i+": "+tagged(batched.get(i))+" instead of "+expected);
+			}
+			if(!tagged(batched.get(0)).contains("ConceptID=\"C0027051\""))
+				fail("Cell not tagged: "+tagged(batched.get(0)));
+		}finally{
+			MetaMapClientPool.configure(MetaMapClientPool.DEFAULT_SIZE, MetaMapClientPool.DEFAULT_TIMEOUT);
+		}
+	}
+
+	@Test
+	public void SharedInstanceTest() {
+		if(MetaMapping.getInstance()!=MetaMapping.getInstance())
+			fail("Instance not shared");
+		if(!"Amino Acid, Peptide, or Protein".equals(MetaMapping.getNiceSemanticType("aapp")))
+			fail("Semantic types not loaded");
+		new MetaMapping();
+		if(!"Activity".equals(MetaMapping.getNiceSemanticType("acty")))
+			fail("Semantic types lost when instance is created");
+	}
+
+	@Test
+	public void ConnectionReleaseTest() {
+		// whether MetaMap server is running or not, a failed request must not keep its connection
+		MetaMapClientPool.configure(1, 5000);
+		for(int i = 0;i<3;i++)
+		{
+			try{
+				MetaMapClientPool.getPool().process("heart attack");
+			}catch(Exception ex)
+			{
+				if(ex.getMessage()!=null && ex.getMessage().startsWith("No MetaMap connection available"))
+					fail("Connection not released after failed request");
+			}
+		}
+		MetaMapClientPool.configure(MetaMapClientPool.DEFAULT_SIZE, MetaMapClientPool.DEFAULT_TIMEOUT);
+	}
+
+}
@@ -0,0 +1,71 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import Decomposition.Decomposition;
+import tablInEx.Cell;
+import tablInEx.NavigationIndex;
+import tablInEx.Table;
+
+public class NavigationIndexTests {
+
+	private Cell[][] createGrid(String[][] contents, boolean[] headerRows)
+	{
+		Cell[][] cells = new Cell[contents.length][];
+		for(int i = 0;i<contents.length;i++)
+		{
+			cells[i] = new Cell[contents[i].length];
+			for(int j = 0;j<contents[i].length;j++)
+			{
+				cells[i][j] = new Cell(j,i);
+				cells[i][j].setCell_content(contents[i][j]);
+				cells[i][j].setIs_header(headerRows[i]);
+			}
+		}
+		return cells;
+	}
+
+	@Test
+	public void HeaderChainTest() {
+		Cell[][] cells = createGrid(new String[][]{{"","Drug"},{"","Dose"},{"Age","12"},{"Sex","M"}}, new boolean[]{true,true,false,false});
+		NavigationIndex nav = new NavigationIndex(cells);
+		if(nav.getColumnHeaderRows(1).length!=2)
+			fail("Wrong number of header rows");
+		if(nav.getHeaderAbove(3, 1)!=1)
+			fail("Wrong nearest header row");
+		if(nav.getHeaderAbove(0, 1)!=-1)
+			fail("First row should not have header above");
+		if(nav.getHeaderBlockStart(3, 1)!=0 || nav.getHeaderBlockEnd(3, 1)!=1)
+			fail("Wrong header block");
+	}
+
+	@Test
+	public void FullHeaderValuesTest() {
+		Table t = new Table("Table 1");
+		t.cells = createGrid(new String[][]{{"","Drug"},{"","Dose"},{"Age","12"}}, new boolean[]{true,true,false});
+		Decomposition.getFullHeaderValues(t);
+		if(!t.cells[2][1].getHeader_values().equals("Drug ; Dose ; "))
+			fail("Wrong whole header");
+		if(!t.cells[0][1].getHeader_values().equals(""))
+			fail("First row should have empty header path");
+	}
+
+	@Test
+	public void StubAndSuperRowTest() {
+		Cell[][] cells = createGrid(new String[][]{{"Group A","",""},{"Age","12","14"}}, new boolean[]{false,false});
+		cells[1][0].setIs_stub(true);
+		cells[1][1].setSuperRowIndex("0.1");
+		NavigationIndex nav = new NavigationIndex(cells);
+		if(nav.getStubLeft(1, 2)!=0)
+			fail("Wrong stub column");
+		if(nav.getStubLeft(1, 0)!=-1)
+			fail("Stub should not have stub on its left");
+		if(!nav.isReferencedAsSuperRow(0, 1, 5))
+			fail("Super-row not found");
+		if(nav.isReferencedAsSuperRow(0, 2, 5))
+			fail("Wrong super-row");
+	}
+
+}
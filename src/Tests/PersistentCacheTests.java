@@ -0,0 +1,170 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+import Utils.PersistentCache;
+
+public class PersistentCacheTests {
+
+	/**
+	 * Another process using the cache: indexes it, waits for a line, then appends a key and reads a key
+	 * written before the line.
+	 */
+	public static class OtherProcess {
+		public static void main(String[] args) throws Exception {
+			PersistentCache cache = PersistentCache.open(args[0], "v");
+			cache.get("key1");
+			System.out.println("ready");
+			System.out.flush();
+			new BufferedReader(new InputStreamReader(System.in)).readLine();
+			cache.put("other", new byte[]{7});
+			byte[] value = cache.get("key1");
+			System.out.println(value!=null && value[0]==2?"found":"missing");
+			cache.close();
+		}
+	}
+
+	private String createFile(String name)
+	{
+		File f = new File(System.getProperty("java.io.tmpdir")+"/"+name);
+		f.delete();
+		return f.getPath();
+	}
+
+	@Test
+	public void ReopenTest() {
+		try{
+			String fileName = createFile("PersistentCacheTests1.cache");
+			PersistentCache cache = PersistentCache.open(fileName, "MetaMap;14");
+			cache.put("Placebo", "C0032042".getBytes("UTF-8"));
+			cache.put("n (%)", new byte[0]);
+			cache.close();
+			cache = PersistentCache.open(fileName, "MetaMap;14");
+			if(cache.get("Placebo")==null || !new String(cache.get("Placebo"), "UTF-8").equals("C0032042"))
+				fail("Value not stored");
+			if(cache.get("n (%)")==null || cache.get("n (%)").length!=0)
+				fail("Empty value not stored");
+			if(cache.get("Drug")!=null)
+				fail("Unknown key found");
+			cache.close();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+			fail(ex.getMessage());
+		}
+	}
+
+	@Test
+	public void VersionChangeTest() {
+		try{
+			String fileName = createFile("PersistentCacheTests2.cache");
+			PersistentCache cache = PersistentCache.open(fileName, "MetaMap;14");
+			cache.put("Placebo", new byte[]{1});
+			cache.close();
+			cache = PersistentCache.open(fileName, "MetaMap;16");
+			if(cache.get("Placebo")!=null)
+				fail("Value of old version found");
+			cache.close();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+			fail(ex.getMessage());
+		}
+	}
+
+	@Test
+	public void CompactionTest() {
+		try{
+			String fileName = createFile("PersistentCacheTests3.cache");
+			PersistentCache cache = PersistentCache.open(fileName, "v");
+			for(int i = 0;i<3000;i++)
+				cache.put("key"+(i%1000), new byte[]{(byte)(i/1000)});
+			if(cache.size()!=1000 || cache.getRecords()!=3000)
+				fail("Wrong number of keys or records");
+			long length = new File(fileName).length();
+			cache.compact();
+			if(cache.getRecords()!=1000 || new File(fileName).length()>=length)
+				fail("Cache not compacted");
+			for(int i = 0;i<1000;i++)
+			{
+				byte[] value = cache.get("key"+i);
+				if(value==null || value[0]!=2)
+					fail("Wrong value after compaction");
+			}
+			cache.close();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+			fail(ex.getMessage());
+		}
+	}
+
+	@Test
+	public void SharedCompactionTest() throws Exception {
+		String fileName = createFile("PersistentCacheTests4.cache");
+		PersistentCache cache = PersistentCache.open(fileName, "v");
+		for(int i = 0;i<3000;i++)
+			cache.put("key"+(i%1000), new byte[]{(byte)(i/1000)});
+		Process other = new ProcessBuilder(System.getProperty("java.home")+File.separator+"bin"+File.separator+"java", "-cp", System.getProperty("java.class.path"), OtherProcess.class.getName(), fileName).redirectErrorStream(true).start();
+		BufferedReader out = new BufferedReader(new InputStreamReader(other.getInputStream()));
+		try{
+			if(!"ready".equals(out.readLine()))
+				fail("Other process did not open the cache");
+			cache.compact();
+			OutputStream in = other.getOutputStream();
+			in.write("\n".getBytes());
+			in.flush();
+			if(!"found".equals(out.readLine()))
+				fail("Other process did not read the compacted cache");
+			other.waitFor();
+		}finally
+		{
+			other.destroy();
+		}
+		byte[] value = cache.get("other");
+		if(value==null || value[0]!=7)
+			fail("Record appended by another process after compaction is lost");
+		if(cache.size()!=1001 || cache.getRecords()!=1001)
+			fail("Wrong number of keys or records: "+cache.size()+", "+cache.getRecords());
+		cache.close();
+	}
+
+	@Test
+	public void UpgradeTest() throws Exception {
+		String fileName = createFile("PersistentCacheTests5.cache");
+		// file written before the header had a generation
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(fileName));
+		byte[] header = "TableAnnotatorCache1\nv\n".getBytes("UTF-8");
+		out.writeInt(header.length);
+		out.write(header);
+		for(int i = 0;i<20000;i++)
+		{
+			byte[] key = ("key"+i).getBytes("UTF-8");
+			out.writeInt(4+key.length+1);
+			out.writeInt(key.length);
+			out.write(key);
+			out.write(i%100);
+		}
+		out.close();
+		PersistentCache cache = PersistentCache.open(fileName, "v");
+		if(cache.size()!=20000)
+			fail("Records of the old file not kept: "+cache.size());
+		for(int i = 0;i<20000;i += 999)
+		{
+			byte[] value = cache.get("key"+i);
+			if(value==null || value[0]!=i%100)
+				fail("Wrong value of key"+i);
+		}
+		cache.close();
+	}
+
+}
@@ -0,0 +1,90 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import classifiers.PragmaticClassifier;
+import tablInEx.Cell;
+import tablInEx.Table;
+import weka.core.Instance;
+
+public class PragmaticClassifierTests {
+
+	private static Table table()
+	{
+		Table t = new Table("Table 1", "Baseline characteristics of the patients", "Values are mean (SD)");
+		String[][] values = {{"", "Control", "Treatment"}, {"Age (years)", "54.2", "55 (3%)"}, {"Sex", "", "male"}};
+		t.cells = new Cell[3][3];
+		for(int i = 0;i<3;i++)
+		{
+			for(int j = 0;j<3;j++)
+			{
+				t.cells[i][j] = new Cell(j, i);
+				t.cells[i][j].setCell_content(values[i][j]);
+				t.cells[i][j].setIs_header(i==0);
+				t.cells[i][j].setIs_stub(j==0);
+			}
+		}
+		t.setNum_of_rows(3);
+		t.setNum_of_columns(3);
+		return t;
+	}
+
+	private static double value(Instance instance, String attribute)
+	{
+		return instance.value(instance.dataset().attribute(attribute));
+	}
+
+	@Test
+	public void InstanceTest() {
+		PragmaticClassifier pc = new PragmaticClassifier("Models/SMOPragmaticAll.model");
+		Instance instance = pc.getInstance(table());
+		if(instance.numAttributes()!=instance.dataset().numAttributes() || !instance.classIsMissing())
+			fail("Instance should have the attributes of the model header and no class");
+		if(value(instance, "num_of_rows")!=3 || value(instance, "percentage_of_numeric_cells")!=(float)1/9 || value(instance, "percentage_of_seminumeric_cells")!=(float)1/9 || value(instance, "percentage_of_empty_cells")!=(float)2/9)
+			fail("Wrong table features");
+		// words of the table are weighted 0 (IDF of a single document), other words of the vocabulary are missing
+		if(value(instance, "patient")!=0 || value(instance, "year")!=0 || value(instance, "treatment")!=0 || value(instance, "sd")!=0)
+			fail("Stems of the words of the table should be 0");
+		if(!instance.isMissing(instance.dataset().attribute("placebo")))
+			fail("Words that are not in the table should be missing");
+	}
+
+	@Test
+	public void BatchTest() {
+		String[] captions = {"Baseline characteristics of the patients", "Adverse events", "Primary outcome at 12 months", "Search strategy"};
+		Table[] tables = new Table[9];
+		for(int i = 0;i<tables.length;i++)
+		{
+			if(i==4)
+				continue;
+			tables[i] = table();
+			tables[i].setTable_caption(captions[i%captions.length]);
+		}
+		PragmaticClassifier single = new PragmaticClassifier("Models/SMOPragmaticAll.model");
+		PragmaticClassifier parallel = new PragmaticClassifier("Models/SMOPragmaticAll.model", 4, null);
+		String[] classes = parallel.Classify(tables);
+		parallel.close();
+		if(!classes[4].equals(""))
+			fail("Null tables should not be classified");
+		for(int i = 0;i<tables.length;i++)
+		{
+			if(tables[i]!=null && (classes[i].equals("") || !classes[i].equals(single.Classify(tables[i])) || !classes[i].equals(tables[i].PragmaticClass)))
+				fail("Table "+i+" is classified differently in a batch: "+classes[i]);
+		}
+	}
+
+	@Test
+	public void CellTypeTest() {
+		String[][] types = {{"12.5", "Numeric"}, {" 3 ", "Numeric"}, {"12 (34%)", "Partially Numeric"}, {"p<0.05", "Partially Numeric"}, {"Age", "Text"}, {"n = 1", "Text"}, {"", "Empty"}, {" ", "Empty"}};
+		for(String[] type:types)
+		{
+			Cell cell = new Cell(0, 0);
+			cell.setCell_content(type[0]);
+			if(!cell.getCellType().equals(type[1]))
+				fail("Wrong type of '"+type[0]+"': "+cell.getCellType());
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import classifiers.TableHtmlWriter;
+import tablInEx.Table;
+
+public class TableHtmlWriterTests {
+
+	private static Table table(String title)
+	{
+		Table t = new Table(title, "Baseline", "");
+		t.setDocumentFileName("TableHtmlWriterTests");
+		t.setXml("<table><tr><td>"+title+"</td></tr></table>");
+		return t;
+	}
+
+	@Test
+	public void FolderTest() throws Exception {
+		File folder = File.createTempFile("tablehtml", "");
+		folder.delete();
+		TableHtmlWriter writer = new TableHtmlWriter(folder.getPath(), 1);
+		writer.submit(table("Table 1"), "findings");
+		writer.submit(table("Table 2"), "settings");
+		writer.close();
+		if(!new File(folder, "findings/TableHtmlWriterTestsTable 1.html").exists() || !new File(folder, "settings/TableHtmlWriterTestsTable 2.html").exists())
+			fail("Tables should be written to folders of their classes");
+		if(!writer.getStatistics().equals("Table HTML: 2 tables submitted, 2 written, 0 failed"))
+			fail("Wrong statistics: "+writer.getStatistics());
+	}
+
+	@Test
+	public void WorkingDirectoryTest() throws Exception {
+		String tableClass = "TableHtmlWriterTests"+System.nanoTime();
+		TableHtmlWriter writer = new TableHtmlWriter("", 1);
+		writer.submit(table("Table 1"), tableClass);
+		writer.close();
+		File written = new File(new File(System.getProperty("user.dir"), tableClass), "TableHtmlWriterTestsTable 1.html");
+		boolean exists = written.exists();
+		written.delete();
+		written.getParentFile().delete();
+		// written under the root by mistake
+		new File(File.separator+tableClass, written.getName()).delete();
+		new File(File.separator+tableClass).delete();
+		if(!exists)
+			fail("Tables should be written to the working directory");
+	}
+
+}
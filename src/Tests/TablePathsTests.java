@@ -0,0 +1,43 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import DataBase.TablePaths;
+import tablInEx.Cell;
+
+public class TablePathsTests {
+
+	private static Cell cell(String header, String stub)
+	{
+		Cell cell = new Cell(0, 0);
+		cell.setHeader_values(header);
+		cell.setStub_values(stub);
+		return cell;
+	}
+
+	@Test
+	public void OrdinalsTest() {
+		TablePaths paths = new TablePaths();
+		Integer[] first = paths.getOrdinals(cell("Age ; ", "Men ; "));
+		Integer[] second = paths.getOrdinals(cell("Weight ; ", "Men ; "));
+		Integer[] third = paths.getOrdinals(cell("Age ; ", "Women ; "));
+		if(first[0]!=1 || first[1]!=1 || second[0]!=2 || second[1]!=1 || third[0]!=1 || third[1]!=2)
+			fail("Repeated paths should get the ordinal of their first cell");
+		if(first[2]!=null)
+			fail("Cells without a super-row should have no ordinal");
+		if(paths.getValues(TablePaths.HEADER).size()!=2 || !paths.getValues(TablePaths.HEADER).get(1).equals("Weight ; ") || paths.getValues(TablePaths.SUPER_ROW).size()!=0)
+			fail("Each distinct path should be stored once");
+	}
+
+	@Test
+	public void CaseTest() {
+		TablePaths paths = new TablePaths();
+		Integer[] first = paths.getOrdinals(cell("Age", null));
+		Integer[] second = paths.getOrdinals(cell("age", null));
+		if(first[0].equals(second[0]))
+			fail("Paths differing in case should stay distinct");
+	}
+
+}
@@ -0,0 +1,255 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import DataBase.TableRepository;
+import DataBase.TableRepository.StoredTable;
+import classifiers.SpecPragmatic;
+import tablInEx.Cell;
+
+public class TableRepositoryTests {
+
+	private static Cell cell(String id, int row, int column)
+	{
+		Cell cell = new Cell(column, row);
+		cell.CellId = id;
+		return cell;
+	}
+
+	@Test
+	public void GridTest() {
+		List<Cell> cells = new ArrayList<Cell>();
+		cells.add(cell("0.0", 0, 0));
+		cells.add(cell("0.1", 0, 1));
+		cells.add(cell("1.1", 1, 1));
+		cells.add(cell(null, 2, 0));
+		Cell[][] grid = TableRepository.grid(cells);
+		if(grid.length!=3 || grid[0].length!=2)
+			fail("Wrong size of the table");
+		if(grid[0][1]!=cells.get(1) || grid[1][1]!=cells.get(2) || grid[2][0]!=cells.get(3))
+			fail("Cells should be placed by CellID, or by row and column without it");
+		if(grid[1][0]!=null)
+			fail("Missing cells should be null");
+	}
+
+	@Test
+	public void CellRoleTest() {
+		if(TableRepository.getCellRoleId("Header")!=1 || TableRepository.getCellRoleId("SuperRow")!=4 || TableRepository.getCellRoleId("Unknown")!=0)
+			fail("Wrong cell role ids");
+	}
+
+	private static String[] captions = {"Baseline characteristics of patients", "Adverse events and toxicity", "Inclusion and exclusion criteria", "Results of the trial", "Demographic data", ""};
+
+	private static String[] contents = {"Patients", "Age (years)", "n=12", "12", "12 (3.4)", "", "Inclusion criteria", "Headache", "45%", "Total"};
+
+	/** Rows of ArtTable: idTable, TableOrder, TableCaption, TableFooter, PragmaticType. */
+	private List<Object[]> tables = new ArrayList<Object[]>();
+
+	/** Rows of CellWithPaths: idCell, Table_idTable, CellID, RowN, ColumnN, Content, WholeHeader, WholeStub, WholeSuperRow. */
+	private List<Object[]> cells = new ArrayList<Object[]>();
+
+	/** Rows of Annotation: Cell_idCell, Content, Start, End, AnnotationID, AnnotationDescription, AnnotationURL, AgentName. */
+	private List<Object[]> annotations = new ArrayList<Object[]>();
+
+	/**
+	 * Fills the stand-in database with tables whose cells share positions, have negative positions or
+	 * leave holes in the grid.
+	 */
+	private void fill()
+	{
+		Random random = new Random(7);
+		int cellId = 0;
+		for(int t = 1;t<=40;t++)
+		{
+			tables.add(new Object[]{t*3, "Table "+t, captions[random.nextInt(captions.length)], "Footer", null});
+			int count = random.nextInt(12);
+			for(int c = 0;c<count;c++)
+			{
+				int row = random.nextInt(5)-(random.nextInt(8)==0?2:0);
+				int column = random.nextInt(3);
+				String id = random.nextInt(4)==0?null:row+"."+column;
+				cells.add(new Object[]{++cellId, t*3, id, row, column, contents[random.nextInt(contents.length)], null, null, null});
+				if(random.nextInt(5)==0)
+					annotations.add(new Object[]{cellId, "headache", 0, 8, "C0018681", random.nextBoolean()?"Sign or Symptom":"Disease", "", random.nextBoolean()?"MetaMap":"Marvin"});
+			}
+		}
+	}
+
+	private static ResultSet resultSet(final List<Object[]> rows)
+	{
+		return (ResultSet)Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, new InvocationHandler() {
+			int row = -1;
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if(method.getName().equals("next"))
+					return ++row<rows.size();
+				if(method.getName().equals("getInt"))
+				{
+					Object value = rows.get(row)[(Integer)args[0]-1];
+					return value==null?0:(Integer)value;
+				}
+				if(method.getName().equals("getString"))
+				{
+					Object value = rows.get(row)[(Integer)args[0]-1];
+					return value==null?null:value.toString();
+				}
+				return null;
+			}
+		});
+	}
+
+	private static boolean isSymptom(Object[] annotation)
+	{
+		return annotation[7].equals("MetaMap") && annotation[5].toString().toLowerCase().contains("symptom");
+	}
+
+	private List<Object[]> query(String sql, HashMap<Integer, Integer> parameters)
+	{
+		List<Object[]> rows = new ArrayList<Object[]>();
+		if(sql.startsWith("SELECT t.idTable"))
+		{
+			for(Object[] table:tables)
+			{
+				if((Integer)table[0]>parameters.get(1) && rows.size()<parameters.get(2))
+					rows.add(table);
+			}
+		}
+		else if(sql.startsWith("SELECT c.idCell"))
+		{
+			for(Object[] cell:cells)
+			{
+				if((Integer)cell[1]>=parameters.get(1) && (Integer)cell[1]<=parameters.get(2))
+					rows.add(cell);
+			}
+		}
+		else if(sql.startsWith("SELECT a."))
+		{
+			// the condition of SpecPragmatic selects MetaMap sign or symptom annotations
+			for(Object[] annotation:annotations)
+			{
+				Object[] cell = cells.get((Integer)annotation[0]-1);
+				if((Integer)cell[1]>=parameters.get(1) && (Integer)cell[1]<=parameters.get(2) && isSymptom(annotation))
+					rows.add(annotation);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Stand-in for the database, answering the queries of TableRepository from the rows of the test.
+	 */
+	private Connection connection()
+	{
+		return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if(!method.getName().equals("prepareStatement"))
+					return null;
+				final String sql = (String)args[0];
+				return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, new InvocationHandler() {
+					HashMap<Integer, Integer> parameters = new HashMap<Integer, Integer>();
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if(method.getName().equals("setInt"))
+							parameters.put((Integer)args[0], (Integer)args[1]);
+						if(method.getName().equals("executeQuery"))
+							return resultSet(query(sql, parameters));
+						return null;
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Features of the table as SpecPragmatic computed them with queries for each table: the caption of
+	 * the table, all its rows of table Cell, and whether any of its cells has a MetaMap sign or symptom.
+	 */
+	private double[] legacyFeatures(int tableId)
+	{
+		String caption = "";
+		for(Object[] table:tables)
+			if((Integer)table[0]==tableId)
+				caption = (String)table[2];
+		float empty = 0, numeric = 0, semiNumeric = 0, text = 0;
+		int total = 0, rows = 0, columns = 0;
+		int patientsCell = 0, age = 0, n = 0, inclusionExclusionCell = 0, symptom = 0;
+		for(Object[] cell:cells)
+		{
+			if((Integer)cell[1]!=tableId)
+				continue;
+			Cell stored = new Cell(0, 0);
+			stored.setCell_content((String)cell[5]);
+			String type = stored.getCellType();
+			if(type.equalsIgnoreCase("Empty"))
+				empty++;
+			if(type.equalsIgnoreCase("Partially Numeric"))
+				semiNumeric++;
+			if(type.equalsIgnoreCase("Numeric"))
+				numeric++;
+			if(type.equalsIgnoreCase("Text"))
+				text++;
+			total++;
+			rows = Math.max(rows, (Integer)cell[3]);
+			columns = Math.max(columns, (Integer)cell[4]);
+			String content = ((String)cell[5]).toLowerCase();
+			if(content.contains("patient"))
+				patientsCell = 1;
+			if(content.contains("age"))
+				age = 1;
+			if(content.contains("n=") || content.contains("n ="))
+				n = 1;
+			if(content.contains("inclusion") || content.contains("exclusion"))
+				inclusionExclusionCell = 1;
+			for(Object[] annotation:annotations)
+				if(annotation[0].equals(cell[0]) && isSymptom(annotation))
+					symptom = 1;
+		}
+		caption = caption.toLowerCase();
+		int baseline = caption.contains("baseline") || caption.contains("trial") || caption.contains("inclusion")?1:0;
+		int adverse = caption.contains("adverse") || caption.contains("side effect")?1:0;
+		int toxicity = caption.contains("toxicity") || caption.contains("haematologic")?1:0;
+		return new double[]{rows+1, columns+1, total, empty/total*100, numeric/total*100, semiNumeric/total*100, text/total*100, adverse,
+				age, baseline, caption.contains("characteristic")?1:0, caption.contains("demograph")?1:0, caption.contains("exclusion")?1:0, 0,
+				n, caption.contains("patient")?1:0, patientsCell, 0, symptom, caption.contains("eligibi")?1:0, toxicity,
+				inclusionExclusionCell, 0, 0, caption.contains("criteria")?1:0};
+	}
+
+	@Test
+	public void SpecPragmaticFeaturesTest() throws Exception {
+		fill();
+		TableRepository repository = new TableRepository(connection(), "t.HasXML='yes'", "a.AgentName='MetaMap' AND a.AnnotationDescription LIKE '%Symptom%'", 7);
+		SpecPragmatic classifier = new SpecPragmatic("Models/SMOSpecPrag2.model");
+		int read = 0;
+		List<StoredTable> chunk = repository.next();
+		while(!chunk.isEmpty())
+		{
+			for(StoredTable stored:chunk)
+			{
+				double[] expected = legacyFeatures(stored.id);
+				double[] actual = SpecPragmatic.getFeatures(stored.table, stored.cells);
+				if(!Arrays.equals(expected, actual))
+					fail("Different features of table "+stored.id+": "+Arrays.toString(actual)+" instead of "+Arrays.toString(expected));
+				String expectedClass = classifier.classify(expected);
+				if(!expectedClass.equals(classifier.classifyTable(stored.table, stored.cells)))
+					fail("Different class of table "+stored.id+", expected "+expectedClass);
+				read++;
+			}
+			chunk = repository.next();
+		}
+		if(read!=tables.size())
+			fail("Read "+read+" of "+tables.size()+" tables");
+	}
+
+}
@@ -0,0 +1,159 @@
+package Tests;
+
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ValueParser.ValueItem;
+import ValueParser.ValueParser;
+
+public class ValueParserEquivalenceTests {
+
+	private static String[] values = {">15", "15.2", "15.2 - 18.3", "19.2 - 18.3", "15.6 (12.2 - 18.3)", "15.6 mmol",
+			"15.6 (24 ± 3)", "18 (15.6/12.3/123.3)", "15.6 (18 %)", "Follow up (months)", "12%-18%", "≥ 65 years",
+			"≤0.05", "p < 0.001", "± 2.3", "12 ± 1.4 mg/kg", "3·4 (2·1–5·6)", "−3.2 to 4.5", "10 and 20", "1, 2; 3: 4",
+			"II", "Stage IV", "vi", "Visit V", "Grade iii", "45/120 (37.5%)", "1\\2\\3", "12 / 14 % / 15", "n (%)",
+			"Mean (SD)", "Placebo", "p", "Age, yr", "kg/m2", "Temperature °C", "Dose (μl)", "9999999999", "0.5 mg m−2",
+			"cmH2O", "per day", "", " ", "\t12\t", "+5", "-", "—", "a/b", "10-", "-10", "1..2", "3 hr", "100 Hz"};
+
+	private static String alphabet = "0123456789 .·±<>≥≤-—–−+,;:/\\%\tiIvVmgkldhysto()a°μ";
+
+	private static String[] words = {"to", "and", "mg", "kg", "months", "year", "days", "mmHg", "ml", "IV", "min", "°C"};
+
+	private void assertSame(String value, List<LegacyValueParser.Item> expected, List<ValueItem> actual)
+	{
+		if(expected.size()!=actual.size())
+			fail("Different number of items for '"+value+"': "+expected.size()+" instead of "+actual.size());
+		for(int i = 0;i<expected.size();i++)
+		{
+			LegacyValueParser.Item e = expected.get(i);
+			ValueItem a = actual.get(i);
+			if(e.type!=a.type || e.start_position!=a.start_position || e.end_position!=a.end_position || !e.value.equals(a.value))
+				fail("Different item "+i+" for '"+value+"': "+e.type+" "+e.start_position+"-"+e.end_position+" instead of "+a.type+" "+a.start_position+"-"+a.end_position);
+		}
+	}
+
+	@Test
+	public void KnownValuesTest() {
+		LegacyValueParser legacy = new LegacyValueParser();
+		ValueParser parser = new ValueParser();
+		for(String value:values)
+			assertSame(value, legacy.parseValue(value), parser.parseValue(value));
+		if(parser.parseValue(null).size()!=0)
+			fail("Null value parsed");
+	}
+
+	private List<String> randomValues(int count)
+	{
+		Random random = new Random(42);
+		ArrayList<String> randomValues = new ArrayList<String>();
+		for(int n = 0;n<count;n++)
+		{
+			StringBuilder sb = new StringBuilder();
+			int length = 1+random.nextInt(14);
+			for(int i = 0;i<length;i++)
+			{
+				if(random.nextInt(6)==0)
+					sb.append(words[random.nextInt(words.length)]);
+				else
+					sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			randomValues.add(sb.toString());
+		}
+		return randomValues;
+	}
+
+	private boolean sameItems(List<ValueItem> a, List<ValueItem> b)
+	{
+		if(a.size()!=b.size())
+			return false;
+		for(int i = 0;i<a.size();i++)
+		{
+			if(a.get(i).type!=b.get(i).type || a.get(i).start_position!=b.get(i).start_position || a.get(i).end_position!=b.get(i).end_position || !a.get(i).value.equals(b.get(i).value))
+				return false;
+		}
+		return true;
+	}
+
+	@Test
+	public void RandomValuesTest() {
+		LegacyValueParser legacy = new LegacyValueParser();
+		ValueParser parser = new ValueParser();
+		for(String value:randomValues(20000))
+			assertSame(value, legacy.parseValue(value), parser.parseValue(value));
+	}
+
+	@Test
+	public void BatchTest() {
+		ValueParser parser = new ValueParser();
+		List<String> column = new ArrayList<String>();
+		for(String value:values)
+			column.add(value);
+		column.add(null);
+		column.add("15.2 - 18.3");
+		List<List<ValueItem>> batch = parser.parseValues(column);
+		if(batch.size()!=column.size())
+			fail("Wrong number of results");
+		for(int i = 0;i<column.size();i++)
+		{
+			if(!sameItems(parser.parseValue(column.get(i)), batch.get(i)))
+				fail("Batch result differs for '"+column.get(i)+"'");
+		}
+	}
+
+	@Test
+	public void ImmutableResultTest() {
+		List<ValueItem> items = new ValueParser().parseValue("15.2 - 18.3");
+		try{
+			items.clear();
+			fail("Result can be modified");
+		}catch(UnsupportedOperationException ex)
+		{
+		}
+	}
+
+	@Test
+	public void ParallelTest() {
+		final ValueParser parser = new ValueParser();
+		final List<String> randomValues = randomValues(5000);
+		final List<List<ValueItem>> serial = new ArrayList<List<ValueItem>>();
+		for(String value:randomValues)
+			serial.add(parser.parseValue(value));
+		final boolean[] differs = new boolean[4];
+		Thread[] threads = new Thread[4];
+		for(int t = 0;t<threads.length;t++)
+		{
+			final int thread = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					// half of the threads parse one value at a time, the other half all values as one column
+					List<List<ValueItem>> column = thread%2==0?null:parser.parseValues(randomValues);
+					for(int i = 0;i<randomValues.size();i++)
+					{
+						List<ValueItem> items = column==null?parser.parseValue(randomValues.get(i)):column.get(i);
+						if(!sameItems(serial.get(i), items))
+							differs[thread] = true;
+					}
+				}
+			});
+			threads[t].start();
+		}
+		try{
+			for(Thread thread:threads)
+				thread.join();
+		}catch(InterruptedException ex)
+		{
+			fail(ex.getMessage());
+		}
+		for(boolean d:differs)
+		{
+			if(d)
+				fail("Parallel parsing differs from serial");
+		}
+	}
+
+}
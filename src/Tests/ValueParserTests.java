@@ -2,7 +2,7 @@ package Tests;
 
 import static org.junit.Assert.fail;
 
-import java.util.LinkedList;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -16,7 +16,7 @@ public class ValueParserTests {
 	@Test
 	public void CheckMath() {
 		ValueParser parser = new ValueParser();
-		LinkedList<ValueItem> list = parser.parseValue(">15");
+		List<ValueItem> list = parser.parseValue(">15");
 		if(list.get(0).type!=ValueType.MATH)
 			fail();
 		if(!list.get(0).value.equals(">15"))
@@ -26,7 +26,7 @@ public class ValueParserTests {
 	@Test
 	public void CheckSINGLE() {
 		ValueParser parser = new ValueParser();
-		LinkedList<ValueItem> list = parser.parseValue("15.2");
+		List<ValueItem> list = parser.parseValue("15.2");
 		if(list.get(0).type!=ValueType.SINGLE)
 			fail();
 		if(!list.get(0).value.equals("15.2"))
@@ -36,7 +36,7 @@ public class ValueParserTests {
 	@Test
 	public void CheckRange() {
 		ValueParser parser = new ValueParser();
-		LinkedList<ValueItem> list = parser.parseValue("15.2 - 18.3");
+		List<ValueItem> list = parser.parseValue("15.2 - 18.3");
 		if(list.get(0).type!=ValueType.RANGE)
 			fail();
 		if(!list.get(0).value.equals("15.2 - 18.3"))
@@ -46,7 +46,7 @@ public class ValueParserTests {
 	@Test
 	public void CheckNotRange() {
 		ValueParser parser = new ValueParser();
-		LinkedList<ValueItem> list = parser.parseValue("19.2 - 18.3");
+		List<ValueItem> list = parser.parseValue("19.2 - 18.3");
 		if(list!=null &&list.size()!=0&& list.get(0).type==ValueType.RANGE)
 			fail();
 	}
@@ -54,7 +54,7 @@ public class ValueParserTests {
 	@Test
 	public void SingleAndRange() {
 		ValueParser parser = new ValueParser();
-		LinkedList<ValueItem> list = parser.parseValue("15.6 (12.2 - 18.3)");
+		List<ValueItem> list = parser.parseValue("15.6 (12.2 - 18.3)");
 		if(list!=null &&list.size()!=0&& list.get(0).type!=ValueType.RANGE)
 			fail();
 		if(list!=null &&list.size()<1&& list.get(1).type!=ValueType.SINGLE)
@@ -64,7 +64,7 @@ public class ValueParserTests {
 	@Test
 	public void MeasurementUnit() {
 		ValueParser parser = new ValueParser();
-		LinkedList<ValueItem> list = parser.parseValue("15.6 mmol");
+		List<ValueItem> list = parser.parseValue("15.6 mmol");
 		if(list!=null &&list.size()!=0&& list.get(0).type!=ValueType.SINGLE)
 			fail();
 		if(list!=null &&list.size()<1&& list.get(1).type!=ValueType.FLOAT)
@@ -76,7 +76,7 @@ public class ValueParserTests {
 	@Test
 	public void SingleAndMath() {
 		ValueParser parser = new ValueParser();
-		LinkedList<ValueItem> list = parser.parseValue("15.6 (24 ± 3)");
+		List<ValueItem> list = parser.parseValue("15.6 (24 ± 3)");
 		if(list!=null &&list.size()!=0&& list.get(0).type!=ValueType.MATH)
 			fail();
 		if(list!=null &&list.size()<1&& list.get(1).type!=ValueType.SINGLE)
@@ -88,7 +88,7 @@ public class ValueParserTests {
 	@Test
 	public void AlternativesTest() {
 		ValueParser parser = new ValueParser();
-		LinkedList<ValueItem> list = parser.parseValue("18 (15.6/12.3/123.3)");
+		List<ValueItem> list = parser.parseValue("18 (15.6/12.3/123.3)");
 		if(list!=null &&list.size()!=0&& list.get(0).type!=ValueType.ALTERNATIVES)
 			fail();
 		if(list!=null &&list.size()<1&& list.get(1).type!=ValueType.SINGLE)
@@ -102,7 +102,7 @@ public class ValueParserTests {
 	@Test
 	public void SingleAndPerc() {
 		ValueParser parser = new ValueParser();
-		LinkedList<ValueItem> list = parser.parseValue("15.6 (18 %)");
+		List<ValueItem> list = parser.parseValue("15.6 (18 %)");
 		if(list!=null &&list.size()!=0&& list.get(0).type!=ValueType.SINGLE)
 			fail();
 		if(list!=null &&list.size()<1&& list.get(1).type!=ValueType.FLOAT)
@@ -114,7 +114,7 @@ public class ValueParserTests {
 	@Test
 	public void Units() {
 		ValueParser parser = new ValueParser();
-		LinkedList<ValueItem> list = parser.parseValue("Follow up (months)");
+		List<ValueItem> list = parser.parseValue("Follow up (months)");
 		if(list!=null &&list.size()!=0&& list.get(0).type!=ValueType.MEASUREMENT_UNIT)
 			fail();
 	}
@@ -122,7 +122,7 @@ public class ValueParserTests {
 	@Test
 	public void ComplexPercAndRange() {
 		ValueParser parser = new ValueParser();
-		LinkedList<ValueItem> list = parser.parseValue("12%-18%");
+		List<ValueItem> list = parser.parseValue("12%-18%");
 		if(list!=null &&list.size()!=0&& list.get(0).type!=ValueType.RANGE)
 			fail();
 		if(list!=null &&list.size()<1&& list.get(1).type!=ValueType.PERCENTAGE)
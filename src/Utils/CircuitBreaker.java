@@ -0,0 +1,100 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Utils;
+
+/**
+ * The Class CircuitBreaker. Stops requests to a remote service after a number of consecutive failures.
+ * While the circuit is open requests are refused; after the open time one trial request is let through
+ * (half open), and the circuit closes again if it succeeds or stays open for another period if it fails.
+ * A trial request with no result after the open time (e.g. given up before it was sent) is replaced by
+ * another one.
+ */
+public class CircuitBreaker {
+
+	/** The state of the circuit. */
+	public enum State {CLOSED, OPEN, HALF_OPEN};
+
+	private int failureThreshold;
+	private long openTime;
+	private State state = State.CLOSED;
+	private int failures = 0;
+	private long openedAt = 0;
+	private long trialAt = 0;
+	private long opened = 0;
+
+	/**
+	 * Instantiates a new circuit breaker.
+	 *
+	 * @param failureThreshold the number of consecutive failures that opens the circuit
+	 * @param openTime the time in milliseconds before a trial request is let through
+	 */
+	public CircuitBreaker(int failureThreshold, long openTime)
+	{
+		this.failureThreshold = failureThreshold;
+		this.openTime = openTime;
+	}
+
+	/**
+	 * Checks whether a request may be sent. When the open time has passed, the first caller gets the trial
+	 * request and other callers are refused until its result is recorded.
+	 *
+	 * @return true, if the request may be sent
+	 */
+	public synchronized boolean allowRequest()
+	{
+		if(state==State.CLOSED)
+			return true;
+		long now = System.currentTimeMillis();
+		if((state==State.OPEN && now-openedAt>=openTime) || (state==State.HALF_OPEN && now-trialAt>=openTime))
+		{
+			state = State.HALF_OPEN;
+			trialAt = now;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether requests are refused, without letting a trial request through.
+	 *
+	 * @return true, if the circuit is open
+	 */
+	public synchronized boolean isOpen()
+	{
+		return state==State.OPEN;
+	}
+
+	public synchronized void recordSuccess()
+	{
+		failures = 0;
+		state = State.CLOSED;
+	}
+
+	public synchronized void recordFailure()
+	{
+		failures++;
+		if(state==State.HALF_OPEN || (state==State.CLOSED && failures>=failureThreshold))
+		{
+			state = State.OPEN;
+			openedAt = System.currentTimeMillis();
+			opened++;
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * Gets how many times the circuit was opened.
+	 *
+	 * @return the number of openings
+	 */
+	public synchronized long getOpened() {
+		return opened;
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Class LRUCache. Size-bounded map that evicts the least recently used entry, with hit and miss
+ * counters. All methods are synchronized, so one cache can be shared by threads. Values should be
+ * immutable, since the same value is returned to every caller.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class LRUCache<K, V> {
+
+	private LinkedHashMap<K, V> map;
+	private int maxSize;
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * Instantiates a new cache.
+	 *
+	 * @param maxSize the maximal number of entries, 0 disables caching
+	 */
+	public LRUCache(int maxSize)
+	{
+		this.maxSize = maxSize;
+		map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size()>LRUCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Gets the cached value and counts hit or miss.
+	 *
+	 * @param key the key
+	 * @return the value, null if it is not cached
+	 */
+	public synchronized V get(K key)
+	{
+		V value = map.get(key);
+		if(value==null)
+			misses++;
+		else
+			hits++;
+		return value;
+	}
+
+	public synchronized void put(K key, V value)
+	{
+		if(maxSize>0 && value!=null)
+			map.put(key, value);
+	}
+
+	/**
+	 * Sets the maximal number of entries, evicting least recently used entries if there are more.
+	 *
+	 * @param maxSize the maximal number of entries, 0 disables caching
+	 */
+	public synchronized void setMaxSize(int maxSize)
+	{
+		this.maxSize = maxSize;
+		Iterator<K> it = map.keySet().iterator();
+		while(map.size()>maxSize && it.hasNext())
+		{
+			it.next();
+			it.remove();
+		}
+	}
+
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized int size() {
+		return map.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the hit rate.
+	 *
+	 * @return the share of lookups that were found in the cache, 0 if there were none
+	 */
+	public synchronized double getHitRate()
+	{
+		if(hits+misses==0)
+			return 0;
+		return (double)hits/(hits+misses);
+	}
+
+	public synchronized void clear()
+	{
+		map.clear();
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * Gets the statistics of the cache as one line of text.
+	 *
+	 * @param name the name of the cache
+	 * @return the statistics
+	 */
+	public synchronized String getStatistics(String name)
+	{
+		return name+" cache: "+hits+" hits, "+misses+" misses, hit rate "+String.format("%.1f", getHitRate()*100)+"%, "+map.size()+" entries";
+	}
+
+}
@@ -0,0 +1,558 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package Utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The Class PersistentCache. Append-only key-value file shared by runs and by processes on the same machine.
+ * The file starts with a header holding the version of the cached data (e.g. annotator versions); if the
+ * version differs when the file is opened, the file is emptied. Records (key, value) are only appended, under
+ * an exclusive file lock, and records appended by other processes are picked up when a key is not found. A
+ * key added more than once keeps its last value; compaction rewrites the file in place, under the exclusive
+ * lock, with one record per key. The header also holds a generation that changes when the file is compacted
+ * or emptied, so other processes index it again before they read or append; a compaction that was
+ * interrupted leaves generation -1, and the cache is emptied by the next process that appends.
+ *
+ * Only hashes and offsets of keys are held in memory, values are read from the file when needed.
+ */
+public class PersistentCache {
+
+	private static final String MAGIC = "TableAnnotatorCache2";
+
+	/** Magic of files without generation, upgraded when they are opened. */
+	private static final String OLD_MAGIC = "TableAnnotatorCache1";
+
+	/** Generation of a file whose compaction did not finish. */
+	private static final long COMPACTING = -1;
+
+	/** Open caches, one instance per file, since file locks are held by the process, not by the instance. */
+	private static HashMap<String, PersistentCache> caches = new HashMap<String, PersistentCache>();
+
+	private File file;
+	private String version;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	/** Magic and version; the generation follows. */
+	private byte[] header;
+	/** Generation of the file when it was indexed. */
+	private long generation;
+	/** End of the part of the file that is indexed. */
+	private long indexedEnd;
+	private long records = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	/** Open addressing hash index: key hash and offset of the record plus one (0 is empty slot). */
+	private long[] hashes = new long[1024];
+	private long[] offsets = new long[1024];
+	private int size = 0;
+
+	/**
+	 * Opens the cache file, creating it if needed.
+	 *
+	 * @param fileName the file name
+	 * @param version the version of cached data, cache with different version is emptied
+	 * @return the cache
+	 * @throws Exception the exception
+	 */
+	public static synchronized PersistentCache open(String fileName, String version) throws Exception
+	{
+		String path = new File(fileName).getCanonicalPath();
+		PersistentCache cache = caches.get(path);
+		if(cache!=null && cache.version.equals(version))
+			return cache;
+		if(cache!=null)
+			cache.closeFile();
+		cache = new PersistentCache(new File(path), version);
+		caches.put(path, cache);
+		return cache;
+	}
+
+	private PersistentCache(File file, String version) throws Exception
+	{
+		this.file = file;
+		this.version = version;
+		header = encodeHeader();
+		openFile();
+	}
+
+	private void openFile() throws Exception
+	{
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		FileLock lock = channel.lock();
+		try{
+			if(!isHeaderValid())
+				upgrade();
+			// new file, data of another version or interrupted compaction
+			if(!isHeaderValid() || readGeneration()==COMPACTING)
+				empty();
+			clearIndex();
+			generation = readGeneration();
+			indexedEnd = header.length+8;
+			scan(true);
+		}
+		finally
+		{
+			lock.release();
+		}
+	}
+
+	private byte[] encodeHeader() throws Exception
+	{
+		return encodeHeader(MAGIC);
+	}
+
+	private byte[] encodeHeader(String magic) throws Exception
+	{
+		byte[] v = (magic+"\n"+version+"\n").getBytes("UTF-8");
+		ByteBuffer buf = ByteBuffer.allocate(4+v.length);
+		buf.putInt(v.length);
+		buf.put(v);
+		return buf.array();
+	}
+
+	private boolean isHeaderValid() throws Exception
+	{
+		if(channel.size()<header.length+8)
+			return false;
+		ByteBuffer buf = ByteBuffer.allocate(header.length);
+		channel.read(buf, 0);
+		return Arrays.equals(buf.array(), header);
+	}
+
+	/**
+	 * Adds the generation to a file of the same version written before files had one, moving its records
+	 * from the end. The caller holds the exclusive file lock.
+	 */
+	private void upgrade() throws Exception
+	{
+		byte[] old = encodeHeader(OLD_MAGIC);
+		if(channel.size()<old.length)
+			return;
+		ByteBuffer buf = ByteBuffer.allocate(old.length);
+		channel.read(buf, 0);
+		if(!Arrays.equals(buf.array(), old))
+			return;
+		ByteBuffer chunk = ByteBuffer.allocate(1<<16);
+		long end = channel.size();
+		while(end>old.length)
+		{
+			long start = Math.max(old.length, end-chunk.capacity());
+			chunk.clear();
+			chunk.limit((int)(end-start));
+			while(chunk.hasRemaining())
+				channel.read(chunk, start+chunk.position());
+			chunk.flip();
+			while(chunk.hasRemaining())
+				channel.write(chunk, start+8+chunk.position());
+			end = start;
+		}
+		channel.write(ByteBuffer.wrap(header), 0);
+		writeGeneration(nextGeneration());
+	}
+
+	private long readGeneration() throws Exception
+	{
+		ByteBuffer buf = ByteBuffer.allocate(8);
+		channel.read(buf, header.length);
+		buf.flip();
+		return buf.getLong();
+	}
+
+	private void writeGeneration(long value) throws Exception
+	{
+		ByteBuffer buf = ByteBuffer.allocate(8);
+		buf.putLong(value);
+		buf.flip();
+		channel.write(buf, header.length);
+		channel.force(false);
+	}
+
+	/**
+	 * Gets a generation other processes have not seen for this file.
+	 */
+	private long nextGeneration()
+	{
+		return Math.max(System.currentTimeMillis(), generation+1);
+	}
+
+	/**
+	 * Empties the file. The caller holds the exclusive file lock.
+	 */
+	private void empty() throws Exception
+	{
+		channel.truncate(0);
+		channel.write(ByteBuffer.wrap(header), 0);
+		writeGeneration(nextGeneration());
+	}
+
+	/**
+	 * Indexes records from the end of the indexed part to the end of the file, after indexing the file again
+	 * if it was compacted or emptied by another process. The caller holds a file lock, so there are no half
+	 * written records.
+	 *
+	 * @param exclusive whether the caller holds the exclusive lock, so an interrupted compaction can be cleared
+	 * @throws Exception the exception
+	 */
+	private void scan(boolean exclusive) throws Exception
+	{
+		long current = channel.size()<header.length+8?COMPACTING:readGeneration();
+		if(current!=generation || channel.size()<indexedEnd)
+		{
+			// file was emptied by a process with another version, or compacted
+			clearIndex();
+			if(!isHeaderValid())
+				throw new Exception("Cache "+file.getPath()+" was replaced by another version");
+			if(current==COMPACTING)
+			{
+				if(!exclusive)
+					throw new Exception("Compaction of cache "+file.getPath()+" was interrupted");
+				empty();
+				current = readGeneration();
+			}
+			generation = current;
+			indexedEnd = header.length+8;
+		}
+		long end = channel.size();
+		ByteBuffer head = ByteBuffer.allocate(8);
+		while(indexedEnd+8<=end)
+		{
+			head.clear();
+			channel.read(head, indexedEnd);
+			head.flip();
+			int recordLength = head.getInt();
+			int keyLength = head.getInt();
+			if(recordLength<4 || indexedEnd+4+recordLength>end)
+				break;
+			ByteBuffer key = ByteBuffer.allocate(keyLength);
+			channel.read(key, indexedEnd+8);
+			index(key.array(), indexedEnd);
+			indexedEnd += 4+recordLength;
+			records++;
+		}
+	}
+
+	private void clearIndex()
+	{
+		hashes = new long[1024];
+		offsets = new long[1024];
+		size = 0;
+		records = 0;
+	}
+
+	private static long hash(byte[] key)
+	{
+		long h = 1125899906842597L;
+		for(int i = 0;i<key.length;i++)
+			h = 31*h+key[i];
+		return h==0?1:h;
+	}
+
+	private void index(byte[] key, long offset) throws Exception
+	{
+		long hash = hash(key);
+		// same key appended again replaces the old record
+		int slot = findSlot(hash, key);
+		if(offsets[slot]==0)
+		{
+			size++;
+			if(size*2>hashes.length)
+			{
+				resize();
+				slot = findSlot(hash, key);
+			}
+		}
+		hashes[slot] = hash;
+		offsets[slot] = offset+1;
+	}
+
+	private void resize() throws Exception
+	{
+		long[] oldHashes = hashes;
+		long[] oldOffsets = offsets;
+		hashes = new long[oldHashes.length*2];
+		offsets = new long[oldOffsets.length*2];
+		for(int i = 0;i<oldHashes.length;i++)
+		{
+			if(oldOffsets[i]==0)
+				continue;
+			int slot = (int)((oldHashes[i]&0x7fffffffffffffffL)%hashes.length);
+			while(offsets[slot]!=0)
+				slot = (slot+1)%hashes.length;
+			hashes[slot] = oldHashes[i];
+			offsets[slot] = oldOffsets[i];
+		}
+	}
+
+	/**
+	 * Finds slot of the key, or empty slot where it should be added.
+	 */
+	private int findSlot(long hash, byte[] key) throws Exception
+	{
+		int slot = (int)((hash&0x7fffffffffffffffL)%hashes.length);
+		while(offsets[slot]!=0)
+		{
+			if(hashes[slot]==hash && Arrays.equals(keyAt(offsets[slot]-1), key))
+				return slot;
+			slot = (slot+1)%hashes.length;
+		}
+		return slot;
+	}
+
+	private byte[] keyAt(long offset) throws Exception
+	{
+		ByteBuffer head = ByteBuffer.allocate(8);
+		channel.read(head, offset);
+		head.flip();
+		head.getInt();
+		ByteBuffer key = ByteBuffer.allocate(head.getInt());
+		channel.read(key, offset+8);
+		return key.array();
+	}
+
+	private byte[] valueAt(long offset) throws Exception
+	{
+		ByteBuffer head = ByteBuffer.allocate(8);
+		channel.read(head, offset);
+		head.flip();
+		int recordLength = head.getInt();
+		int keyLength = head.getInt();
+		ByteBuffer value = ByteBuffer.allocate(recordLength-4-keyLength);
+		channel.read(value, offset+8+keyLength);
+		return value.array();
+	}
+
+	private byte[] lookup(byte[] key) throws Exception
+	{
+		int slot = findSlot(hash(key), key);
+		if(offsets[slot]==0)
+			return null;
+		return valueAt(offsets[slot]-1);
+	}
+
+	/**
+	 * Gets the value of the key. Records added by other processes since the last lookup are indexed first
+	 * if the key is not known. The file is read under a shared lock, as another process may compact it.
+	 *
+	 * @param key the key
+	 * @return the value, null if the key is not in the cache
+	 */
+	public synchronized byte[] get(String key)
+	{
+		try{
+			byte[] k = key.getBytes("UTF-8");
+			byte[] value;
+			FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+			try{
+				if(readGeneration()!=generation)
+					scan(false);
+				value = lookup(k);
+				if(value==null && channel.size()>indexedEnd)
+				{
+					scan(false);
+					value = lookup(k);
+				}
+			}
+			finally
+			{
+				lock.release();
+			}
+			if(value==null)
+				misses++;
+			else
+				hits++;
+			return value;
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Appends the key and value to the cache.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 */
+	public synchronized void put(String key, byte[] value)
+	{
+		try{
+			byte[] k = key.getBytes("UTF-8");
+			ByteBuffer record = ByteBuffer.allocate(8+k.length+value.length);
+			record.putInt(4+k.length+value.length);
+			record.putInt(k.length);
+			record.put(k);
+			record.put(value);
+			record.flip();
+			FileLock lock = channel.lock();
+			try{
+				// index what other processes appended, so the new record is indexed in order
+				scan(true);
+				long offset = channel.size();
+				while(record.hasRemaining())
+					channel.write(record, offset+record.position());
+				scan(true);
+			}
+			finally
+			{
+				lock.release();
+			}
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Rewrites the file in place with only the last record of every key, under the exclusive lock. Records
+	 * only move towards the start of the file, in the order of their offsets.
+	 */
+	public synchronized void compact()
+	{
+		try{
+			FileLock lock = channel.lock();
+			try{
+				scan(true);
+				long[] live = new long[size];
+				int n = 0;
+				for(int i = 0;i<offsets.length;i++)
+				{
+					if(offsets[i]!=0)
+						live[n++] = offsets[i]-1;
+				}
+				Arrays.sort(live);
+				writeGeneration(COMPACTING);
+				long position = header.length+8;
+				for(long offset:live)
+				{
+					ByteBuffer head = ByteBuffer.allocate(4);
+					channel.read(head, offset);
+					head.flip();
+					ByteBuffer record = ByteBuffer.allocate(4+head.getInt());
+					channel.read(record, offset);
+					record.flip();
+					while(record.hasRemaining())
+						channel.write(record, position+record.position());
+					position += record.capacity();
+				}
+				channel.truncate(position);
+				channel.force(false);
+				long next = nextGeneration();
+				writeGeneration(next);
+				generation = next;
+				clearIndex();
+				indexedEnd = header.length+8;
+				scan(true);
+			}
+			finally
+			{
+				lock.release();
+			}
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Closes the file. The cache can not be used after it is closed, it has to be opened again.
+	 */
+	public void close()
+	{
+		synchronized(PersistentCache.class)
+		{
+			if(caches.get(file.getPath())==this)
+				caches.remove(file.getPath());
+		}
+		synchronized(this)
+		{
+			closeFile();
+		}
+	}
+
+	private void closeFile()
+	{
+		try{
+			raf.close();
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Gets number of different keys.
+	 *
+	 * @return the number of keys
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Gets number of records in the file, including older records of keys that were added again.
+	 *
+	 * @return the number of records
+	 */
+	public synchronized long getRecords() {
+		return records;
+	}
+
+	public synchronized String getStatistics(String name)
+	{
+		long lookups = hits+misses;
+		return name+" store: "+hits+" hits, "+misses+" misses, hit rate "+String.format("%.1f", lookups==0?0.0:hits*100.0/lookups)+"%, "+size+" entries";
+	}
+
+	/**
+	 * Writes string (possibly null) to a value being encoded for the cache.
+	 *
+	 * @param out the output
+	 * @param str the string
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void writeString(DataOutputStream out, String str) throws IOException
+	{
+		if(str==null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		byte[] b = str.getBytes("UTF-8");
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	/**
+	 * Reads string written by writeString.
+	 *
+	 * @param in the input
+	 * @return the string
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static String readString(DataInputStream in) throws IOException
+	{
+		int length = in.readInt();
+		if(length<0)
+			return null;
+		byte[] b = new byte[length];
+		in.readFully(b);
+		return new String(b, "UTF-8");
+	}
+
+}
@@ -1,10 +1,21 @@
 package ValueParser;
 
+/**
+ * The Class ValueItem. Value recognised in cell content, with its type and position. Items are immutable,
+ * so they can be shared between threads and cached.
+ */
 public class ValueItem {
-	public int start_position;
-	public int end_position;
-	public String value;
+	public final int start_position;
+	public final int end_position;
+	public final String value;
 	public enum ValueType{SINGLE,MATH,RANGE,ALTERNATIVES,GENDER_MALE,GENDER_FEMALE,PERCENTAGE,TEXT,INTEGER,FLOAT,ROMAN,MEASUREMENT_UNIT};
-	public ValueType type;
+	public final ValueType type;
+
+	public ValueItem(ValueType type, int start_position, int end_position, String value) {
+		this.type = type;
+		this.start_position = start_position;
+		this.end_position = end_position;
+		this.value = value;
+	}
 
 }
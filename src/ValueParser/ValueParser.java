@@ -1,241 +1,275 @@
 package ValueParser;
 
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import opennlp.tools.tokenize.Tokenizer;
-import opennlp.tools.tokenize.TokenizerME;
-import opennlp.tools.tokenize.TokenizerModel;
+import Utils.LRUCache;
 import ValueParser.ValueItem.ValueType;
 
+/**
+ * The Class ValueParser. Recognises numeric values, ranges, percentages, roman numbers and measurement
+ * units in cell values. The parser has no state apart from an optional synchronized cache of results, so
+ * one instance can be shared by all threads, and the returned lists and items are immutable.
+ */
 public class ValueParser {
 
-	public LinkedList<ValueItem> valueList = new LinkedList<ValueItem>();
-	Tokenizer tokenizer;
+	/** Comparison or plus-minus sign followed by number, e.g. >15 or ±2.3. */
+	private static final Pattern MATH_SIGN = Pattern.compile("(\\b|^)[<>≥≤±]{1}[0-9]*[.]{0,1}[0-9]*[ ±]*[0-9]*[.]{0,1}[0-9]*\\b");
+	/** Value with plus-minus, e.g. 24 ± 3. */
+	private static final Pattern MATH_PLUS_MINUS = Pattern.compile("(\\b|^)[<>≥≤±]*[0-9]*[.·]{0,1}[0-9]*[ ]*[±]{1}[ ]*[0-9]*[.·]{0,1}[0-9]*\\b");
+	private static final Pattern ALTERNATIVES = Pattern.compile("(\\b|^)[-—–−]*[ ]*\\d{1,}[\\.·]{0,1}\\d*[ \\t]*[%]{0,1}[ \\t]*([\\\\\\/])[ \\t]*\\d{1,}[.·]*\\d*[ \\t]*[%]{0,1}[ \\t]*([\\\\\\/]){0,1}[ \\t]*\\d*[.·]*\\d*[ \\t]*[%]{0,1}[ \\t]*([\\\\\\/]){0,1}[ \\t]*\\d*[\\.·]*\\d*[ \\t]*[%]{0,1}[ \\t]*([\\\\\\/]){0,1}[ \\t]*\\d*[\\.·]*\\d*[ \\t]*[%]{0,1}\\b");
+	private static final Pattern RANGE = Pattern.compile("(\\b|^)[-—–−]*[ ]*\\d{1,}[.·]*\\d*[ ]*[%]{0,1}[ ]*([-—–−,;:]|to|and)[ ]*\\d*[.·]*\\d*[ ]*[%]{0,1}[ ]*\\b");
+	private static final Pattern RANGE_SEPARATOR = Pattern.compile("[-—–−,;:]|to|and");
+	private static final Pattern SINGLE = Pattern.compile("(\\b|^)[-—–−+]{0,1}[ ]*(\\d{1,}[\\.· ]{0,1}\\d{1,}|\\d{1,}|[Ii]{1,3}|[iI][vV]|[Vv][Ii]{1,3}|[Vv])\\b");
+	private static final Pattern PERCENTAGE = Pattern.compile("(\\b|^)[-—–−+]{0,1}[ ]*(\\d*[\\.· ]{0,1}\\d{1,})[  ]*[%]");
+	private static final Pattern ROMAN = Pattern.compile("(\\b|^)([Ii]{1,3}|[iI][vV]|[Vv][Ii]{0,3})\\b");
+	private static final Pattern NUMBER = Pattern.compile("(\\b|^)\\d{1,}[\\.]{0,}\\d{0,}\\b");
+	private static final Pattern MEASUREMENT_UNIT = Pattern.compile("(\\b|^)(Joule|°C|mmol\\\\L|month[s]*|mmol|mg/kg|mg m−2|mg/m2|mmHg|ug/ml|U/ml|year[s]|day[s]|cmH2O|pts|cm/s|cm2/s|min|sec|kg/m2|per day|ml|μl|g|µg/l|kg|yr|mo[\\.]*|mg/ml|yr|d|mg|cm|mm|um|ns|hr|Hz|h|mW/cm2|mW|m)\\b");
 
-	public ValueParser() {
-		try {
-			InputStream is = new FileInputStream("en-token.bin");
+	/** Results of recently parsed values, keyed by trimmed value, null if results are not cached. */
+	private LRUCache<String, List<ValueItem>> cache;
 
-			TokenizerModel model = new TokenizerModel(is);
+	/**
+	 * Instantiates a new value parser without cache.
+	 */
+	public ValueParser() {
+	}
 
-			tokenizer = new TokenizerME(model);
-		} catch (Exception ex) {
-			ex.printStackTrace();
-		}
+	/**
+	 * Instantiates a new value parser that keeps results of recently parsed values.
+	 *
+	 * @param cacheSize the maximal number of cached values
+	 */
+	public ValueParser(int cacheSize) {
+		cache = new LRUCache<String, List<ValueItem>>(cacheSize);
 	}
 
-	public LinkedList<ValueItem> parseCompex(String value) {
-		LinkedList<ValueItem> VL = new LinkedList<ValueItem>();
-		int start = -1;
-		int end = -1;
-		int move = 0;
-		String value2 = value;
-		value2 = value2.substring(move);
-		move = 0;
-		String patternString = "(\\b|^)[<>≥≤±]{1}[0-9]*[.]{0,1}[0-9]*[ ±]*[0-9]*[.]{0,1}[0-9]*\\b";
-		Pattern pattern = Pattern.compile(patternString);
-		Matcher matcher = pattern.matcher(value2);
-		while (matcher.find()) {
-			start = matcher.start();
-			end = matcher.end();
-			ValueItem vi = new ValueItem();
-			vi.start_position = start;
-			vi.end_position = end;
-			vi.value = value2.substring(start, end);
-			vi.type = ValueType.MATH;
-			VL.add(vi);
-		}
+	/**
+	 * The Class Features. Characters found in a value by a single scan. Each pattern needs at least one
+	 * of these characters to match, so patterns that can not match are not run at all.
+	 */
+	private static class Features {
+		boolean digit;
+		boolean mathSign;
+		boolean plusMinus;
+		boolean slash;
+		boolean percent;
+		boolean roman;
 
-		patternString = "(\\b|^)[<>≥≤±]*[0-9]*[.·]{0,1}[0-9]*[ ]*[±]{1}[ ]*[0-9]*[.·]{0,1}[0-9]*\\b";
-		pattern = Pattern.compile(patternString);
-		matcher = pattern.matcher(value2);
-		while (matcher.find()) {
-			start = matcher.start();
-			end = matcher.end();
-			ValueItem vi = new ValueItem();
-			vi.start_position = start;
-			vi.end_position = end;
-			vi.value = value2.substring(start, end);
-			vi.type = ValueType.MATH;
-			VL.add(vi);
+		Features(String value)
+		{
+			for(int i = 0;i<value.length();i++)
+			{
+				char c = value.charAt(i);
+				if(c>='0' && c<='9')
+					digit = true;
+				else if(c=='±')
+				{
+					plusMinus = true;
+					mathSign = true;
+				}
+				else if(c=='<' || c=='>' || c=='≥' || c=='≤')
+					mathSign = true;
+				else if(c=='/' || c=='\\')
+					slash = true;
+				else if(c=='%')
+					percent = true;
+				else if(c=='i' || c=='I' || c=='v' || c=='V')
+					roman = true;
+			}
 		}
+	}
 
-		patternString = "(\\b|^)[-—–−]*[ ]*\\d{1,}[\\.·]{0,1}\\d*[ \\t]*[%]{0,1}[ \\t]*([\\\\\\/])[ \\t]*\\d{1,}[.·]*\\d*[ \\t]*[%]{0,1}[ \\t]*([\\\\\\/]){0,1}[ \\t]*\\d*[.·]*\\d*[ \\t]*[%]{0,1}[ \\t]*([\\\\\\/]){0,1}[ \\t]*\\d*[\\.·]*\\d*[ \\t]*[%]{0,1}[ \\t]*([\\\\\\/]){0,1}[ \\t]*\\d*[\\.·]*\\d*[ \\t]*[%]{0,1}\\b";
-		pattern = Pattern.compile(patternString);
-		matcher = pattern.matcher(value2);
+	/**
+	 * The Class Scratch. Matchers of all patterns, reset for every value, so that parsing many values
+	 * (e.g. a table column) does not allocate them again. Used by one thread only.
+	 */
+	private static class Scratch {
+		Matcher mathSign = MATH_SIGN.matcher("");
+		Matcher mathPlusMinus = MATH_PLUS_MINUS.matcher("");
+		Matcher alternatives = ALTERNATIVES.matcher("");
+		Matcher range = RANGE.matcher("");
+		Matcher single = SINGLE.matcher("");
+		Matcher percentage = PERCENTAGE.matcher("");
+		Matcher roman = ROMAN.matcher("");
+		Matcher number = NUMBER.matcher("");
+		Matcher unit = MEASUREMENT_UNIT.matcher("");
+	}
 
+	private static void addMatches(Matcher matcher, String value, ValueType type, List<ValueItem> VL) {
+		matcher.reset(value);
 		while (matcher.find()) {
-			start = matcher.start();
-			end = matcher.end();
-			ValueItem vi = new ValueItem();
-			vi.start_position = start;
-			vi.end_position = end;
-			vi.value = value2.substring(start, end);
-			vi.type = ValueType.ALTERNATIVES;
-			VL.add(vi);
-
+			VL.add(new ValueItem(type, matcher.start(), matcher.end(), value.substring(matcher.start(), matcher.end())));
 		}
+	}
 
-		patternString = "(\\b|^)[-—–−]*[ ]*\\d{1,}[.·]*\\d*[ ]*[%]{0,1}[ ]*([-—–−,;:]|to|and)[ ]*\\d*[.·]*\\d*[ ]*[%]{0,1}[ ]*\\b";
-		pattern = Pattern.compile(patternString);
-		matcher = pattern.matcher(value2);
+	public List<ValueItem> parseCompex(String value) {
+		ArrayList<ValueItem> VL = new ArrayList<ValueItem>();
+		parseCompex(value, new Features(value), new Scratch(), VL);
+		return Collections.unmodifiableList(VL);
+	}
 
-		while (matcher.find()) {
-			float start_val = 999;
-			float end_val = -999;
-			start = matcher.start();
-			end = matcher.end();
-			boolean isFloat = true;
-			String val = value2.substring(start, end);
-			String[] vals = val.split("[-—–−,;:]|to|and");
-			for (int l = 0; l < vals.length; l++) {
-				vals[l] = vals[l].replace("%", "");
-			}
-			if (vals.length > 1 && vals[0] != null && !vals[0].equals("")
-					&& vals[1] != null && !vals[1].equals("")) {
-				try {
-					start_val = Float.parseFloat(vals[0]);
-					end_val = Float.parseFloat(vals[1]);
-				} catch (Exception ex) {
-					isFloat = false;
+	private void parseCompex(String value, Features features, Scratch scratch, List<ValueItem> VL) {
+		int first = VL.size();
+		if (features.mathSign)
+			addMatches(scratch.mathSign, value, ValueType.MATH, VL);
+		if (features.plusMinus)
+			addMatches(scratch.mathPlusMinus, value, ValueType.MATH, VL);
+		if (features.digit && features.slash)
+			addMatches(scratch.alternatives, value, ValueType.ALTERNATIVES, VL);
+
+		if (features.digit) {
+			Matcher matcher = scratch.range.reset(value);
+			while (matcher.find()) {
+				float start_val = 999;
+				float end_val = -999;
+				int start = matcher.start();
+				int end = matcher.end();
+				boolean isFloat = true;
+				String val = value.substring(start, end);
+				String[] vals = RANGE_SEPARATOR.split(val);
+				for (int l = 0; l < vals.length; l++) {
+					vals[l] = vals[l].replace("%", "");
 				}
-				if (isFloat) {
-					if (start_val < end_val) {
-						ValueItem vi = new ValueItem();
-						vi.start_position = start;
-						vi.end_position = end;
-						vi.value = value2.substring(start, end);
-						vi.type = ValueType.RANGE;
-						VL.add(vi);
+				if (vals.length > 1 && vals[0] != null && !vals[0].equals("")
+						&& vals[1] != null && !vals[1].equals("")) {
+					try {
+						start_val = Float.parseFloat(vals[0]);
+						end_val = Float.parseFloat(vals[1]);
+					} catch (Exception ex) {
+						isFloat = false;
+					}
+					if (isFloat) {
+						if (start_val < end_val) {
+							VL.add(new ValueItem(ValueType.RANGE, start, end, val));
+						}
 					}
 				}
 			}
 		}
 
-		patternString = "(\\b|^)[-—–−+]{0,1}[ ]*(\\d{1,}[\\.· ]{0,1}\\d{1,}|\\d{1,}|[Ii]{1,3}|[iI][vV]|[Vv][Ii]{1,3}|[Vv])\\b";
-		pattern = Pattern.compile(patternString);
-		matcher = pattern.matcher(value2);
-		while (matcher.find()) {
-			start = matcher.start();
-			end = matcher.end();
-			ValueItem vi = new ValueItem();
-			vi.start_position = start;
-			vi.end_position = end;
-			boolean is_in = false;
-			for (int i = 0; i < VL.size(); i++) {
-				if (VL.get(i).start_position <= start
-						&& VL.get(i).end_position >= end) {
-					is_in = true;
-					break;
+		if (features.digit || features.roman) {
+			// Single values can only be covered by the items above, singles found here never overlap
+			int covering = VL.size();
+			Matcher matcher = scratch.single.reset(value);
+			while (matcher.find()) {
+				int start = matcher.start();
+				int end = matcher.end();
+				boolean is_in = false;
+				for (int i = first; i < covering; i++) {
+					if (VL.get(i).start_position <= start && VL.get(i).end_position >= end) {
+						is_in = true;
+						break;
+					}
+				}
+				if (!is_in) {
+					VL.add(new ValueItem(ValueType.SINGLE, start, end, value.substring(start, end)));
 				}
-			}
-			if (!is_in) {
-				vi.value = value2.substring(start, end);
-				vi.type = ValueType.SINGLE;
-				VL.add(vi);
 			}
 		}
-
-		return VL;
 	}
 
-	public LinkedList<ValueItem> parseSimple(String value) {
-		LinkedList<ValueItem> VL = new LinkedList<ValueItem>();
-		int start = -1;
-		int end = -1;
-		int move = 0;
-		String value2 = value;
-		value2 = value2.substring(move);
-		move = 0;
-		String patternString = "(\\b|^)[-—–−+]{0,1}[ ]*(\\d*[\\.· ]{0,1}\\d{1,})[  ]*[%]";
-		Pattern pattern = Pattern.compile(patternString);
-		Matcher matcher = pattern.matcher(value2);
-		while (matcher.find()) {
-			start = matcher.start();
-			end = matcher.end();
-			ValueItem vi = new ValueItem();
-			vi.start_position = start;
-			vi.end_position = end;
-			vi.value = value2.substring(start, end);
-			vi.type = ValueType.PERCENTAGE;
-			VL.add(vi);
-		}
+	public List<ValueItem> parseSimple(String value) {
+		ArrayList<ValueItem> VL = new ArrayList<ValueItem>();
+		parseSimple(value, new Features(value), new Scratch(), VL);
+		return Collections.unmodifiableList(VL);
+	}
 
-		patternString = "(\\b|^)([Ii]{1,3}|[iI][vV]|[Vv][Ii]{0,3})\\b";
-		pattern = Pattern.compile(patternString);
-		matcher = pattern.matcher(value2);
-		while (matcher.find()) {
-			start = matcher.start();
-			end = matcher.end();
-			ValueItem vi = new ValueItem();
-			vi.start_position = start;
-			vi.end_position = end;
-			vi.value = value2.substring(start, end);
-			vi.type = ValueType.ROMAN;
-			VL.add(vi);
-		}
+	private void parseSimple(String value, Features features, Scratch scratch, List<ValueItem> VL) {
+		if (features.percent)
+			addMatches(scratch.percentage, value, ValueType.PERCENTAGE, VL);
+		if (features.roman)
+			addMatches(scratch.roman, value, ValueType.ROMAN, VL);
 
-		patternString = "(\\b|^)\\d{1,}[\\.]{0,}\\d{0,}\\b";
-		pattern = Pattern.compile(patternString);
-		matcher = pattern.matcher(value2);
-		while (matcher.find()) {
-			start = matcher.start();
-			end = matcher.end();
-			ValueItem vi = new ValueItem();
-			vi.start_position = start;
-			vi.end_position = end;
-			vi.value = value2.substring(start, end);
-			try {
-				int integer = Integer.parseInt(vi.value);
-				vi.type = ValueType.INTEGER;
-			} catch (Exception ex) {
-				vi.type = ValueType.FLOAT;
+		if (features.digit) {
+			Matcher matcher = scratch.number.reset(value);
+			while (matcher.find()) {
+				String val = value.substring(matcher.start(), matcher.end());
+				ValueType type = ValueType.FLOAT;
+				if (val.indexOf('.') < 0) {
+					try {
+						Integer.parseInt(val);
+						type = ValueType.INTEGER;
+					} catch (Exception ex) {
+						// too large for integer
+					}
+				}
+				VL.add(new ValueItem(type, matcher.start(), matcher.end(), val));
 			}
-
-			VL.add(vi);
 		}
+	}
 
-		return VL;
+	public List<ValueItem> parseString(String value) {
+		ArrayList<ValueItem> VL = new ArrayList<ValueItem>();
+		addMatches(new Scratch().unit, value, ValueType.MEASUREMENT_UNIT, VL);
+		return Collections.unmodifiableList(VL);
 	}
 
-	public LinkedList<ValueItem> parseString(String value) {
-		LinkedList<ValueItem> VL = new LinkedList<ValueItem>();
-		boolean found_circle = false;
-		int start_pos = 0;
-		int end_pos = 0;
-		int move = 0;
-		String value2 = value;
-		String[] tokens = tokenizer.tokenize(value);
-		String patternString = "(\\b|^)(Joule|°C|mmol\\\\L|month[s]*|mmol|mg/kg|mg m−2|mg/m2|mmHg|ug/ml|U/ml|year[s]|day[s]|cmH2O|pts|cm/s|cm2/s|min|sec|kg/m2|per day|ml|μl|g|µg/l|kg|yr|mo[\\.]*|mg/ml|yr|d|mg|cm|mm|um|ns|hr|Hz|h|mW/cm2|mW|m)\\b";
-		Pattern pattern = Pattern.compile(patternString);
-		Matcher matcher = pattern.matcher(value);
-		while (matcher.find()) {
-			start_pos = matcher.start();
-			end_pos = matcher.end();
-			ValueItem vi = new ValueItem();
-			vi.start_position = start_pos;
-			vi.end_position = end_pos;
-			vi.value = value2.substring(start_pos, end_pos);
-			vi.type = ValueType.MEASUREMENT_UNIT;
-			VL.add(vi);
+	private List<ValueItem> parseValue(String value, Scratch scratch) {
+		if (value == null || value.equals(""))
+			return Collections.emptyList();
+		String trimmed = value.trim();
+		if (cache != null) {
+			List<ValueItem> cached = cache.get(trimmed);
+			if (cached != null)
+				return cached;
 		}
+		Features features = new Features(trimmed);
+		ArrayList<ValueItem> VL = new ArrayList<ValueItem>();
+		parseCompex(trimmed, features, scratch, VL);
+		parseSimple(trimmed, features, scratch, VL);
+		addMatches(scratch.unit, trimmed, ValueType.MEASUREMENT_UNIT, VL);
+		VL.trimToSize();
+		List<ValueItem> result = Collections.unmodifiableList(VL);
+		if (cache != null)
+			cache.put(trimmed, result);
+		return result;
+	}
 
-		return VL;
+	/**
+	 * Parses the value. Value is trimmed and scanned once for characters the patterns depend on, after
+	 * that only the patterns that can match are run.
+	 *
+	 * @param value the value
+	 * @return the immutable list of recognised items
+	 */
+	public List<ValueItem> parseValue(String value) {
+		return parseValue(value, new Scratch());
 	}
 
-	public LinkedList<ValueItem> parseValue(String value) {
-		valueList = new LinkedList<ValueItem>();
-		if (value != null && !value.equals("")) {
-			valueList.addAll(parseCompex(value.trim()));
-			valueList.addAll(parseSimple(value.trim()));
-			valueList.addAll(parseString(value.trim()));
+	/**
+	 * Parses values of many cells, e.g. a table column. Matchers are shared by all values and values
+	 * that repeat in the list are parsed only once (they get the same immutable result).
+	 *
+	 * @param values the values
+	 * @return the immutable lists of recognised items, in the order of values
+	 */
+	public List<List<ValueItem>> parseValues(List<String> values) {
+		Scratch scratch = new Scratch();
+		HashMap<String, List<ValueItem>> parsed = new HashMap<String, List<ValueItem>>();
+		ArrayList<List<ValueItem>> result = new ArrayList<List<ValueItem>>(values.size());
+		for (String value : values) {
+			List<ValueItem> items = parsed.get(value);
+			if (items == null) {
+				items = parseValue(value, scratch);
+				parsed.put(value, items);
+			}
+			result.add(items);
 		}
+		return Collections.unmodifiableList(result);
+	}
 
-		return valueList;
+	/**
+	 * Gets the cache of parsed values.
+	 *
+	 * @return the cache, null if results are not cached
+	 */
+	public LRUCache<String, List<ValueItem>> getCache() {
+		return cache;
 	}
 
 }
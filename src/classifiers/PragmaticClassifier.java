@@ -1,333 +1,436 @@
 package classifiers;
 
 import java.io.File;
-import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.tartarus.snowball.ext.porterStemmer;
 
 import Utils.Utilities;
 import stats.Statistics;
+import tablInEx.Cell;
 import tablInEx.Table;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
 import weka.classifiers.misc.InputMappedClassifier;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
-import weka.core.FastVector;
 import weka.core.Instance;
 import weka.core.Instances;
-import weka.core.SelectedTag;
-import weka.core.stemmers.SnowballStemmer;
+import weka.core.Utils;
 import weka.core.stopwords.WordsFromFile;
-import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.StringToWordVector;
+import weka.core.tokenizers.WordTokenizer;
 
+/**
+ * The Class PragmaticClassifier. Classifies tables by their pragmatic type with a model trained on the
+ * table features (numbers of rows, columns and header rows, shares of numeric, partially numeric, text and
+ * empty cells) and the words of header, stub, caption and footer.
+ *
+ * The features are computed as the StringToWordVector filter (lower case, porter stemmer, stop words of
+ * Models/stop-words-english1.txt, IDF and TF transform, normalized length) and InputMappedClassifier
+ * computed them for a dataset of one table: the filter weights every word of such a dataset 0 (IDF of a
+ * word that is in all documents), and the model sees the words of its training vocabulary that are not in
+ * the table as missing. The model header, vocabulary, tokenizer, stemmer and stop words are prepared once,
+ * and every table becomes an instance of the model header directly, without the filter.
+ *
+ * Many tables are classified as one batch by a number of threads. Models are not thread safe, so every
+ * thread classifies with its own copy of the model (and its own tokenizer and stemmer). HTML of classified
+ * tables is written to class folders only if a TableHtmlWriter is set, in the background.
+ */
 public class PragmaticClassifier {
 
+	/** The default number of threads classifying tables. */
+	public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+	/** Names of the table features, as attributes of the model. */
+	public static final String[] FEATURES = {"num_of_rows", "num_of_columns", "num_of_header_rows", "percentage_of_numeric_cells", "percentage_of_seminumeric_cells", "percentage_of_string_cells", "percentage_of_empty_cells"};
+
+	/** Classes of the model used by Classify. */
+	public static final String[] CLASSES = {"findings", "settings", "support-knowledge"};
+
+	public static final String STOP_WORDS = "Models/stop-words-english1.txt";
+
+	/** Number of words of a table over which the least frequent are left out (wordsToKeep of the filter). */
+	private static final int WORDS_TO_KEEP = 1000;
+
+	/** Number of stemmed tokens kept for reuse by a thread. */
+	private static final int STEM_CACHE = 100000;
+
+	/**
+	 * The Class Worker. What a thread needs to classify tables: a copy of the model, a tokenizer, a stemmer
+	 * and stop words.
+	 */
+	private class Worker {
+		Classifier model;
+		WordTokenizer tokenizer = new WordTokenizer();
+		porterStemmer stemmer = new porterStemmer();
+		WordsFromFile stopwords = new WordsFromFile();
+		/** Stems of lower case tokens, null for stop words. */
+		HashMap<String, String> stems = new HashMap<String, String>();
+	}
+
 	private String ClassifierPath="";
 	//private Classifier classifier;
-	
+
 	InputMappedClassifier classifier = new InputMappedClassifier();
+	private Instances header;
+	/** Values of an instance with all attributes missing. */
+	private double[] missing;
+	/** Attribute of the model header of each feature, -1 if the model has no such attribute. */
+	private int[] features = new int[FEATURES.length];
+	/** Attributes of the model header of the words of its training vocabulary. */
+	private HashMap<String, Integer> vocabulary = new HashMap<String, Integer>();
+	/** The model as loaded; threads classify with copies, as classifying changes the state of a model. */
+	private Classifier model;
+	private ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+		protected Worker initialValue() {
+			Worker worker = new Worker();
+			try {
+				worker.stopwords.setStopwords(new File(STOP_WORDS));
+				worker.model = AbstractClassifier.makeCopy(model);
+			} catch (Exception ex) {
+				ex.printStackTrace();
+			}
+			return worker;
+		}
+	};
+	private int threads = 1;
+	private ExecutorService executor;
+	private TableHtmlWriter html;
+
 	public PragmaticClassifier(String path)
 	{
 		ClassifierPath = path;
 		try {
 			classifier.setModelPath(ClassifierPath);
 			classifier.setTrim(true);
+			compile();
 		} catch (Exception e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
 	}
-	
-	public String Classify(Table t) 
+
+	/**
+	 * Instantiates a new classifier of tables in batches.
+	 *
+	 * @param path the path of the model
+	 * @param threads the number of threads classifying a batch
+	 * @param html the writer of HTML of classified tables, or null to write none
+	 */
+	public PragmaticClassifier(String path, int threads, TableHtmlWriter html)
 	{
-	
-		String prediction = "";
-		Instances ins = null;
-		// Declare attributes
-		 Attribute Attribute1 = new Attribute("num_of_rows");
-		 Attribute Attribute2 = new Attribute("num_of_columns");
-		 Attribute Attribute3 = new Attribute("num_of_header_rows");
-		 Attribute Attribute4 = new Attribute("percentage_of_numeric_cells");
-		 Attribute Attribute5 = new Attribute("percentage_of_seminumeric_cells");
-		 Attribute Attribute6 = new Attribute("percentage_of_string_cells");
-		 Attribute Attribute7 = new Attribute("percentage_of_empty_cells");
-		 Attribute Attribute8 = new Attribute("header_strings",(FastVector)null);
-		 Attribute Attribute9 = new Attribute("stub_strings",(FastVector)null);
-		 Attribute Attribute10 = new Attribute("caption",(FastVector)null);
-		 Attribute Attribute11 = new Attribute("footer",(FastVector)null);
-		 FastVector fvClassVal = new FastVector(3);
-		 fvClassVal.addElement("findings");
-		 fvClassVal.addElement("settings");
-		 fvClassVal.addElement("support-knowledge");
-		 Attribute ClassAttribute  = new Attribute("table_class", fvClassVal);
-		 // Declare the feature vector
-		 FastVector fvWekaAttributes = new FastVector(11);
+		this(path);
+		this.threads = Math.max(1, threads);
+		this.html = html;
+	}
 
-		 	String header = "";
-			String stub = "";
-			int empty = 0;
-			int string = 0;
-			int seminum = 0;
-			int num = 0;
-			int cells_num = 0;
-			
-			if (t.cells != null)
-				for (int i = 0; i < t.cells.length; i++) {
-					for (int k = 0; k < t.cells[i].length; k++) {
-						cells_num++;
-						if(t.cells[i][k]==null||t.cells[i][k].getCell_content()==null)
-							continue;
-						if(Utilities.isSpaceOrEmpty(t.cells[i][k].getCell_content()))
-						{
-							empty++;
-						}
-						else if (t.cells[i][k].getCellType().equals("Partially Numeric"))
-						{
-							seminum++; 
-						}
-						else if (t.cells[i][k].getCellType().equals("Numeric"))
-						{
-							num++; 
-						}
-						else if (t.cells[i][k].getCellType().equals("Text"))
-						{
-							string++; 
-						}
-						if (t.cells[i][k].isIs_header())
-							header += t.cells[i][k].getCell_content()
-									+ " ";
-						if (t.cells[i][k].isIs_stub())
-							stub += t.cells[i][k].getCell_content()
-									+ " ";
-					}
+	/**
+	 * Reads the model header and finds the attributes of the features and words.
+	 */
+	private void compile() throws Exception
+	{
+		header = classifier.getModelHeader(null);
+		model = classifier.getClassifier();
+		missing = new double[header.numAttributes()];
+		Arrays.fill(missing, Utils.missingValue());
+		Arrays.fill(features, -1);
+		for (int i = 0; i < header.numAttributes(); i++) {
+			Attribute attribute = header.attribute(i);
+			// attributes of other types would not be mapped to the numeric attributes of the filter
+			if (i == header.classIndex() || !attribute.isNumeric())
+				continue;
+			String name = attribute.name().trim();
+			int feature = Arrays.asList(FEATURES).indexOf(name);
+			if (feature >= 0)
+				features[feature] = i;
+			else
+				vocabulary.put(name, i);
+		}
+	}
+
+	/**
+	 * Makes the instance of the model header for the table.
+	 *
+	 * @param t the table
+	 * @return the instance
+	 */
+	public Instance getInstance(Table t)
+	{
+		Worker worker = workers.get();
+		HashMap<String, int[]> words = new HashMap<String, int[]>();
+		int empty = 0;
+		int string = 0;
+		int seminum = 0;
+		int num = 0;
+		int cells_num = 0;
 
+		if (t.cells != null)
+			for (int i = 0; i < t.cells.length; i++) {
+				for (int k = 0; k < t.cells[i].length; k++) {
+					cells_num++;
+					Cell cell = t.cells[i][k];
+					if(cell==null||cell.getCell_content()==null)
+						continue;
+					if(Utilities.isSpaceOrEmpty(cell.getCell_content()))
+					{
+						empty++;
+					}
+					else
+					{
+						String type = cell.getCellType();
+						if (type.equals("Partially Numeric"))
+							seminum++;
+						else if (type.equals("Numeric"))
+							num++;
+						else if (type.equals("Text"))
+							string++;
+					}
+					if (cell.isIs_header())
+						count(worker, cell.getCell_content(), words);
+					if (cell.isIs_stub())
+						count(worker, cell.getCell_content(), words);
 				}
-		 
-			float perc_num = (float)num/(float)cells_num;
-			float perc_seminum = (float)seminum/(float)cells_num;
-			float perc_string = (float)string/(float)cells_num;
-			float perc_empty = (float)empty/(float)cells_num;
+			}
+		count(worker, t.getTable_caption(), words);
+		count(worker, t.getTable_footer(), words);
 
-		 fvWekaAttributes.addElement(Attribute1);
-		 fvWekaAttributes.addElement(Attribute2);
-		 fvWekaAttributes.addElement(Attribute3);
-		 fvWekaAttributes.addElement(Attribute4);
-		 fvWekaAttributes.addElement(Attribute5);
-		 fvWekaAttributes.addElement(Attribute6);
-		 fvWekaAttributes.addElement(Attribute7);
-		 fvWekaAttributes.addElement(Attribute8);
-		 fvWekaAttributes.addElement(Attribute9);
-		 fvWekaAttributes.addElement(Attribute10);
-		 fvWekaAttributes.addElement(Attribute11);
-		 fvWekaAttributes.addElement(ClassAttribute);
-		 Instances Instances = new Instances("Rel", fvWekaAttributes, 0);
-			 
-		 Instance iExample = new DenseInstance(12);
-		 Attribute attribute = (Attribute)fvWekaAttributes.elementAt(0);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(0), t.getNum_of_rows());
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(1), t.getNum_of_columns());
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(2), t.stat.getNum_of_header_rows());
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(3), perc_num);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(4), perc_seminum);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(5), perc_string);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(6), perc_empty);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(7), header);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(8), stub);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(9), t.getTable_caption());
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(10), t.getTable_footer());
-		 Instances.add(iExample);
-		 Instances.setClassIndex(11);
-		 
-		  StringToWordVector filter = new StringToWordVector(); 
-		  filter.setAttributeIndices("first-last");
-		  filter.setMinTermFreq(1);
-		  filter.setIDFTransform(true);
-		  filter.setTFTransform(true);
-		  filter.setLowerCaseTokens(true);
-		  
-		  filter.setNormalizeDocLength(new SelectedTag(StringToWordVector.FILTER_NORMALIZE_ALL, StringToWordVector.TAGS_FILTER));
-		  filter.setOutputWordCounts(true);
-		  SnowballStemmer stemmer = new SnowballStemmer();
-		  //stemmer.setStemmer("English");
-		  filter.setStemmer(stemmer);
-		  WordsFromFile sw = new WordsFromFile();
-		  sw.setStopwords(new File("Models/stop-words-english1.txt"));
-		  filter.setStopwordsHandler(sw);
-		  Instances newData;
-		  try {
-			filter.setInputFormat(Instances);
-			filter.input(Instances.instance(0));
-			filter.batchFinished();
-			ins= Filter.useFilter(Instances,filter);
-			
-		} catch (Exception e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
+		double[] values = missing.clone();
+		double[] featureValues = {t.getNum_of_rows(), t.getNum_of_columns(), t.stat.getNum_of_header_rows(), (float)num/(float)cells_num, (float)seminum/(float)cells_num, (float)string/(float)cells_num, (float)empty/(float)cells_num};
+		for (int i = 0; i < FEATURES.length; i++) {
+			if (features[i] >= 0)
+				values[features[i]] = featureValues[i];
 		}
-		  
-		 try {
-			 
-			 double result = classifier.classifyInstance(ins.firstInstance());
-			 ins.firstInstance().setClassValue(result);
-			 prediction=ins.firstInstance().classAttribute().value((int)result); 
-			 t.PragmaticClass = prediction;
-			 System.out.println(t.PragmaticClass);
-			 new File(t.PragmaticClass).mkdirs();
-			 PrintWriter writer = new PrintWriter(t.PragmaticClass+File.separator+t.getDocumentFileName()+t.getTable_title()+".html", "UTF-8");
-			 writer.println(t.getXml());
-			 writer.close();
-			
-			 Statistics.addPragmaticTableType(prediction);
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		int minCount = 1;
+		if (words.size() >= WORDS_TO_KEEP) {
+			int[] counts = new int[words.size()];
+			int n = 0;
+			for (int[] c : words.values())
+				counts[n++] = c[0];
+			Arrays.sort(counts);
+			minCount = Math.max(1, counts[counts.length - WORDS_TO_KEEP]);
+		}
+		for (Map.Entry<String, int[]> word : words.entrySet()) {
+			Integer attribute = vocabulary.get(word.getKey());
+			if (attribute != null && word.getValue()[0] >= minCount)
+				values[attribute] = 0;
+		}
+		Instance instance = new DenseInstance(1.0, values);
+		instance.setDataset(header);
+		return instance;
+	}
+
+	/**
+	 * Counts the words of the text (lower case stems that are not stop words).
+	 */
+	private void count(Worker worker, String text, HashMap<String, int[]> words)
+	{
+		if (text == null)
+			return;
+		worker.tokenizer.tokenize(text);
+		while (worker.tokenizer.hasMoreElements()) {
+			String token = worker.tokenizer.nextElement().toLowerCase();
+			String stem = worker.stems.get(token);
+			if (stem == null && !worker.stems.containsKey(token)) {
+				worker.stemmer.setCurrent(token);
+				worker.stemmer.stem();
+				stem = worker.stemmer.getCurrent();
+				if (worker.stopwords.isStopword(stem))
+					stem = null;
+				if (worker.stems.size() >= STEM_CACHE)
+					worker.stems.clear();
+				worker.stems.put(token, stem);
+			}
+			if (stem == null)
+				continue;
+			int[] c = words.get(stem);
+			if (c == null)
+				words.put(stem, new int[]{1});
+			else
+				c[0]++;
 		}
-		return prediction;
 	}
-	
-	
-	public String Classify2(Table t,String class1, String class2) 
+
+	/**
+	 * Makes one batch of instances of the tables, by a number of threads.
+	 *
+	 * @param tables the tables
+	 * @return the instances, in the order of the tables
+	 * @throws Exception the exception
+	 */
+	public Instances getInstances(final List<Table> tables) throws Exception
 	{
-	
-		String prediction = "";
-		Instances ins = null;
-		// Declare attributes
-		 Attribute Attribute1 = new Attribute("num_of_rows");
-		 Attribute Attribute2 = new Attribute("num_of_columns");
-		 Attribute Attribute3 = new Attribute("num_of_header_rows");
-		 Attribute Attribute4 = new Attribute("percentage_of_numeric_cells");
-		 Attribute Attribute5 = new Attribute("percentage_of_seminumeric_cells");
-		 Attribute Attribute6 = new Attribute("percentage_of_string_cells");
-		 Attribute Attribute7 = new Attribute("percentage_of_empty_cells");
-		 Attribute Attribute8 = new Attribute("header_strings",(FastVector)null);
-		 Attribute Attribute9 = new Attribute("stub_strings",(FastVector)null);
-		 Attribute Attribute10 = new Attribute("caption",(FastVector)null);
-		 Attribute Attribute11 = new Attribute("footer",(FastVector)null);
-		 FastVector fvClassVal = new FastVector(2);
-		 fvClassVal.addElement(class1);
-		 fvClassVal.addElement(class2);
-		 Attribute ClassAttribute  = new Attribute("table_class", fvClassVal);
-		 // Declare the feature vector
-		 FastVector fvWekaAttributes = new FastVector(11);
+		final Instance[] instances = new Instance[tables.size()];
+		inSlices(tables.size(), new Slice() {
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++)
+					instances[i] = getInstance(tables.get(i));
+			}
+		});
+		Instances batch = new Instances(header, instances.length);
+		for (Instance instance : instances)
+			batch.add(instance);
+		return batch;
+	}
 
-		 	String header = "";
-			String stub = "";
-			int empty = 0;
-			int string = 0;
-			int seminum = 0;
-			int num = 0;
-			int cells_num = 0;
-			
-			if (t.cells != null)
-				for (int i = 0; i < t.cells.length; i++) {
-					for (int k = 0; k < t.cells[i].length; k++) {
-						cells_num++;
-						if(t.cells[i][k]==null||t.cells[i][k].getCell_content()==null)
-							continue;
-						if(Utilities.isSpaceOrEmpty(t.cells[i][k].getCell_content()))
-						{
-							empty++;
-						}
-						else if (t.cells[i][k].getCellType().equals("Partially Numeric"))
-						{
-							seminum++; 
-						}
-						else if (t.cells[i][k].getCellType().equals("Numeric"))
-						{
-							num++; 
-						}
-						else if (t.cells[i][k].getCellType().equals("Text"))
-						{
-							string++; 
-						}
-						if (t.cells[i][k].isIs_header())
-							header += t.cells[i][k].getCell_content()
-									+ " ";
-						if (t.cells[i][k].isIs_stub())
-							stub += t.cells[i][k].getCell_content()
-									+ " ";
+	/**
+	 * Classifies a batch of instances of the model header, by a number of threads.
+	 *
+	 * @param batch the instances
+	 * @return the indexes of the classes, NaN for instances that could not be classified
+	 * @throws Exception the exception
+	 */
+	public double[] classifyInstances(final Instances batch) throws Exception
+	{
+		final double[] results = new double[batch.numInstances()];
+		inSlices(results.length, new Slice() {
+			public void run(int from, int to) {
+				Classifier m = workers.get().model;
+				for (int i = from; i < to; i++) {
+					try {
+						results[i] = m.classifyInstance(batch.instance(i));
+					} catch (Exception e) {
+						e.printStackTrace();
+						results[i] = Utils.missingValue();
 					}
+				}
+			}
+		});
+		return results;
+	}
+
+	/**
+	 * The Interface Slice. Work on a part of a batch.
+	 */
+	private interface Slice {
+		void run(int from, int to);
+	}
+
+	/**
+	 * Runs the work in a slice of the batch per thread, and waits for it.
+	 */
+	private void inSlices(int size, final Slice slice) throws Exception
+	{
+		int parts = Math.min(threads, size);
+		if (parts <= 1) {
+			slice.run(0, size);
+			return;
+		}
+		List<Future<Object>> results = new ArrayList<Future<Object>>();
+		for (int p = 0; p < parts; p++) {
+			final int from = (int)((long)size * p / parts);
+			final int to = (int)((long)size * (p + 1) / parts);
+			results.add(getExecutor().submit(new Callable<Object>() {
+				public Object call() {
+					slice.run(from, to);
+					return null;
+				}
+			}));
+		}
+		for (Future<Object> result : results)
+			result.get();
+	}
 
+	private synchronized ExecutorService getExecutor()
+	{
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "PragmaticClassifier");
+					t.setDaemon(true);
+					return t;
 				}
-		 
-			float perc_num = (float)num/(float)cells_num;
-			float perc_seminum = (float)seminum/(float)cells_num;
-			float perc_string = (float)string/(float)cells_num;
-			float perc_empty = (float)empty/(float)cells_num;
+			});
+		}
+		return executor;
+	}
 
-		 fvWekaAttributes.addElement(Attribute1);
-		 fvWekaAttributes.addElement(Attribute2);
-		 fvWekaAttributes.addElement(Attribute3);
-		 fvWekaAttributes.addElement(Attribute4);
-		 fvWekaAttributes.addElement(Attribute5);
-		 fvWekaAttributes.addElement(Attribute6);
-		 fvWekaAttributes.addElement(Attribute7);
-		 fvWekaAttributes.addElement(Attribute8);
-		 fvWekaAttributes.addElement(Attribute9);
-		 fvWekaAttributes.addElement(Attribute10);
-		 fvWekaAttributes.addElement(Attribute11);
-		 fvWekaAttributes.addElement(ClassAttribute);
-		 Instances Instances = new Instances("Rel", fvWekaAttributes, 0);
-			 
-		 Instance iExample = new DenseInstance(12);
-		 Attribute attribute = (Attribute)fvWekaAttributes.elementAt(0);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(0), t.getNum_of_rows());
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(1), t.getNum_of_columns());
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(2), t.stat.getNum_of_header_rows());
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(3), perc_num);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(4), perc_seminum);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(5), perc_string);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(6), perc_empty);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(7), header);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(8), stub);
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(9), t.getTable_caption());
-		 iExample.setValue((Attribute)fvWekaAttributes.elementAt(10), t.getTable_footer());
-		 Instances.add(iExample);
-		 Instances.setClassIndex(11);
-		 
-		  StringToWordVector filter = new StringToWordVector(); 
-		  filter.setAttributeIndices("first-last");
-		  filter.setMinTermFreq(1);
-		  filter.setIDFTransform(true);
-		  filter.setTFTransform(true);
-		  filter.setLowerCaseTokens(true);
-		  
-		  filter.setNormalizeDocLength(new SelectedTag(StringToWordVector.FILTER_NORMALIZE_ALL, StringToWordVector.TAGS_FILTER));
-		  filter.setOutputWordCounts(true);
-		  SnowballStemmer stemmer = new SnowballStemmer();
-		  //stemmer.setStemmer("English");
-		  filter.setStemmer(stemmer);
-		  WordsFromFile sw = new WordsFromFile();
-		  sw.setStopwords(new File("Models/stop-words-english1.txt"));
-		  filter.setStopwordsHandler(sw);
-		  Instances newData;
-		  try {
-			filter.setInputFormat(Instances);
-			filter.input(Instances.instance(0));
-			filter.batchFinished();
-			ins= Filter.useFilter(Instances,filter);
-			
-		} catch (Exception e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
+	/**
+	 * Classifies the tables as one batch. Sets their PragmaticClass and submits them to the HTML writer.
+	 *
+	 * @param tables the tables; null tables are left out
+	 * @param classes names of the classes of the model
+	 * @return the classes, in the order of the tables ("" for tables that were not classified)
+	 */
+	private String[] classify(Table[] tables, String[] classes)
+	{
+		String[] predictions = new String[tables.length];
+		Arrays.fill(predictions, "");
+		List<Table> batch = new ArrayList<Table>();
+		List<Integer> positions = new ArrayList<Integer>();
+		for (int i = 0; i < tables.length; i++) {
+			if (tables[i] != null) {
+				batch.add(tables[i]);
+				positions.add(i);
+			}
 		}
-		  
-		 try {
-			 
-			 double result = classifier.classifyInstance(ins.firstInstance());
-			 ins.firstInstance().setClassValue(result);
-			 prediction=ins.firstInstance().classAttribute().value((int)result); 
-			 t.PragmaticClass = prediction;
-			 System.out.println(t.PragmaticClass);
-			 new File(t.PragmaticClass).mkdirs();
-			 PrintWriter writer = new PrintWriter(t.PragmaticClass+File.separator+t.getDocumentFileName()+t.getTable_title()+".html", "UTF-8");
-			 writer.println(t.getXml());
-			 writer.close();
-			
-			 Statistics.addPragmaticTableType(prediction);
+		if (batch.isEmpty())
+			return predictions;
+		double[] results;
+		try {
+			results = classifyInstances(getInstances(batch));
 		} catch (Exception e) {
-			// TODO Auto-generated catch block
+			// the error is logged and the tables are left unclassified
 			e.printStackTrace();
+			return predictions;
 		}
-		return prediction;
+		for (int i = 0; i < results.length; i++) {
+			Table t = batch.get(i);
+			try {
+				if (Utils.isMissingValue(results[i]))
+					continue;
+				String prediction = classes[(int)results[i]];
+				predictions[positions.get(i)] = prediction;
+				t.PragmaticClass = prediction;
+				System.out.println(t.PragmaticClass);
+				if (html != null)
+					html.submit(t, prediction);
+				Statistics.addPragmaticTableType(prediction);
+			} catch (Exception e) {
+				// the error is logged; a table whose class is not found is left unclassified
+				e.printStackTrace();
+			}
+		}
+		return predictions;
+	}
+
+	public String Classify(Table t)
+	{
+		return classify(new Table[]{t}, CLASSES)[0];
+	}
+
+	/**
+	 * Classifies the tables (of an article or of many articles) as one batch.
+	 *
+	 * @param tables the tables; null tables are left out
+	 * @return the classes, in the order of the tables
+	 */
+	public String[] Classify(Table[] tables)
+	{
+		return classify(tables, CLASSES);
+	}
+
+	public String Classify2(Table t,String class1, String class2)
+	{
+		return classify(new Table[]{t}, new String[]{class1, class2})[0];
 	}
-	
+
+	/**
+	 * Stops the threads classifying batches. The HTML writer is closed by its owner.
+	 */
+	public synchronized void close()
+	{
+		if (executor != null)
+			executor.shutdown();
+		executor = null;
+	}
+
 }
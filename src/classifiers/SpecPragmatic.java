@@ -8,6 +8,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import weka.classifiers.misc.InputMappedClassifier;
 import weka.core.Attribute;
@@ -15,17 +22,52 @@ import weka.core.DenseInstance;
 import weka.core.FastVector;
 import weka.core.Instance;
 import weka.core.Instances;
+import tablInEx.Annotation;
+import tablInEx.Cell;
+import tablInEx.Table;
+import DataBase.TableRepository;
+import DataBase.TableRepository.StoredTable;
 import Main.KeyValue;
 
 public class SpecPragmatic {
+	/** The default number of threads classifying tables. */
+	public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+	/** Annotations read with the tables: MetaMap signs or symptoms. */
+	private static final String SYMPTOM_ANNOTATIONS = "a.AgentName='MetaMap' AND a.AnnotationDescription LIKE '%Symptom%'";
+
 	private String ClassifierPath = "";
 	// private Classifier classifier;
 
-	InputMappedClassifier classifier = new InputMappedClassifier();
+	// classifiers are not thread safe, every thread loads its own copy of the model
+	private ThreadLocal<InputMappedClassifier> classifier = new ThreadLocal<InputMappedClassifier>() {
+		protected InputMappedClassifier initialValue() {
+			InputMappedClassifier c = new InputMappedClassifier();
+			try {
+				c.setModelPath(ClassifierPath);
+				c.setTrim(true);
+			} catch (Exception ex) {
+				ex.printStackTrace();
+			}
+			return c;
+		}
+	};
 	Connection conn = null;
 	Statement stmt = null;
 	ResultSet rs = null;
 
+	public SpecPragmatic() {
+	}
+
+	/**
+	 * Instantiates the classifier with the model, for classifying tables without processTables.
+	 *
+	 * @param pathOfModel the path of model
+	 */
+	public SpecPragmatic(String pathOfModel) {
+		ClassifierPath = pathOfModel;
+	}
+
 	public void DataBase() {
 		try {
 			BufferedReader br = new BufferedReader(new FileReader(
@@ -62,8 +104,9 @@ public class SpecPragmatic {
 
 			database_password = database_password.replace("\"", "");
 			Class.forName("com.mysql.jdbc.Driver").newInstance();
+			// rewriteBatchedStatements sends a batch of updates in one round trip
 			String connectionUrl = "jdbc:mysql://" + host + ":" + database_port
-					+ "/" + database_name;
+					+ "/" + database_name + "?rewriteBatchedStatements=true";
 			String connectionUser = database_username;
 			String connectionPassword = database_password;
 			conn = DriverManager.getConnection(connectionUrl, connectionUser,
@@ -79,313 +122,308 @@ public class SpecPragmatic {
 	}
 
 	public void processTables(String pathOfModel) {
+		processTables(pathOfModel, DEFAULT_THREADS, TableRepository.DEFAULT_CHUNK);
+	}
+
+	/**
+	 * Classifies tables saved with XML in chunks: a chunk of tables is read with a few queries, its tables are
+	 * classified in parallel while the next chunk is read, and the classes are saved in one batch of updates.
+	 *
+	 * @param pathOfModel the path of model
+	 * @param threads the number of threads classifying tables
+	 * @param chunk the number of tables read at once
+	 */
+	public void processTables(String pathOfModel, int threads, int chunk) {
 		DataBase();
 		ClassifierPath = pathOfModel;
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "SpecPragmatic");
+				t.setDaemon(true);
+				return t;
+			}
+		});
 		try {
-			classifier.setModelPath(ClassifierPath);
-			classifier.setTrim(true);
-			String SQL = "SELECT * from arttable where HasXML='yes'";
-			Statement st = conn.createStatement();
-
-			rs = st.executeQuery(SQL);
-			while (rs.next()) {
-				String classification = classifyTable(rs.getInt(1));
-				System.out.println(rs.getInt(1) + "  " + classification);
-				SQL = "Update arttable set SpecPragmatic='" + classification
-						+ "' where idTable=" + rs.getInt(1);
-				Statement st2 = conn.createStatement();
-
-				int res = st2.executeUpdate(SQL);
-
+			conn.setAutoCommit(false);
+			TableRepository repository = new TableRepository(conn, "t.HasXML='yes'", SYMPTOM_ANNOTATIONS, chunk);
+			PreparedStatement update = conn.prepareStatement("UPDATE ArtTable SET SpecPragmatic=? WHERE idTable=?");
+			List<StoredTable> tables = repository.next();
+			while (!tables.isEmpty()) {
+				List<Future<String>> results = new ArrayList<Future<String>>();
+				for (final StoredTable table : tables) {
+					results.add(executor.submit(new Callable<String>() {
+						public String call() {
+							return classifyTable(table.table, table.cells);
+						}
+					}));
+				}
+				List<StoredTable> next = repository.next();
+				for (int i = 0; i < tables.size(); i++) {
+					String classification = results.get(i).get();
+					System.out.println(tables.get(i).id + "  " + classification);
+					update.setString(1, classification);
+					update.setInt(2, tables.get(i).id);
+					update.addBatch();
+				}
+				update.executeBatch();
+				conn.commit();
+				tables = next;
 			}
+			update.close();
 		} catch (Exception ex) {
 			ex.printStackTrace();
 		}
-
+		executor.shutdown();
 	}
 
-	public String classifyTable(int tableid) {
+	/**
+	 * Classifies the table by its caption and cells.
+	 *
+	 * @param table the table
+	 * @param cells the cells of the table, as stored (StoredTable.cells)
+	 * @return the class, NotInteresting if the table could not be classified
+	 */
+	public String classifyTable(Table table, List<Cell> cells) {
 		String classification = "NotInteresting";
 		try {
-			int containsDemographic = 0;
-			int containsPatientsCap = 0;
-			int containsPatientsCell = 0;
-			int containsBaseline = 0;
-			int containsAge = 0;
-			int containsN = 0;
-			int containsTrialCap = 0;
-			int containsCharacteristicCap = 0;
-			int NoColumn = 0;
-			int NoRows = 0;
-			int ContainsInclusion = 0;
-			int ContainsExclusion = 0;
-			int containsEglibility = 0;
-			int containsInclusionExclusionCell = 0;
-			int containsToxicity = 0;
-			int containsHaematologic = 0;
-			float CellNumeric = 0;
-			float CellText = 0;
-			float CellEmpty = 0;
-			float CellSemiNumeric = 0;
-			int TotalCellNo = 0;
-			int ContainsAdverse = 0;
-			int ContainsSideEffect = 0;
-			int ContainsSignOrSymptomAnnotation = 0;
-			int containsCriteria = 0;
-			String Caption = "";
-
-			String SQL = "select * from arttable where idTable=" + tableid;
-			Statement st = conn.createStatement();
+			classification = classify(getFeatures(table, cells));
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		}
+		return classification;
+	}
 
-			ResultSet rs = st.executeQuery(SQL);
+	/**
+	 * Gets the features of the table, in the order of attributes of the model. Cells are counted as they
+	 * are stored, not by their places in the grid of the table.
+	 *
+	 * @param table the table
+	 * @param cells the cells of the table
+	 * @return the features
+	 */
+	public static double[] getFeatures(Table table, List<Cell> cells) {
+		int containsDemographic = 0;
+		int containsPatientsCap = 0;
+		int containsPatientsCell = 0;
+		int containsBaseline = 0;
+		int containsAge = 0;
+		int containsN = 0;
+		int containsTrialCap = 0;
+		int containsCharacteristicCap = 0;
+		int NoColumn = 0;
+		int NoRows = 0;
+		int ContainsInclusion = 0;
+		int ContainsExclusion = 0;
+		int containsEglibility = 0;
+		int containsInclusionExclusionCell = 0;
+		int containsToxicity = 0;
+		int containsHaematologic = 0;
+		float CellNumeric = 0;
+		float CellText = 0;
+		float CellEmpty = 0;
+		float CellSemiNumeric = 0;
+		int TotalCellNo = 0;
+		int ContainsAdverse = 0;
+		int ContainsSideEffect = 0;
+		int ContainsSignOrSymptomAnnotation = 0;
+		int containsCriteria = 0;
+		String Caption = table.getTable_caption();
+		if (Caption == null)
+			Caption = "";
 
-			// iterate through the java resultset
-			while (rs.next()) {
-				Caption = rs.getString(3);
+		// every stored cell is counted, also cells that share a position or have none in the grid
+		for (Cell cell : cells) {
+			String CellType = cell.getCellType();
+			if (CellType.equalsIgnoreCase("Empty")) {
+				CellEmpty++;
 			}
-
-			SQL = "select * from cell where Table_idTable=" + tableid;
-			Statement st2 = conn.createStatement();
-
-			ResultSet rs2 = st2.executeQuery(SQL);
-
-			// iterate through the java resultset
-			while (rs2.next()) {
-				String CellType = rs2.getString(3);
-				if (CellType.equalsIgnoreCase("Empty")) {
-					CellEmpty++;
-				}
-				if (CellType.equalsIgnoreCase("Partially Numeric")) {
-					CellSemiNumeric++;
-				}
-				if (CellType.equalsIgnoreCase("Numeric")) {
-					CellNumeric++;
-				}
-				if (CellType.equalsIgnoreCase("Text")) {
-					CellText++;
-				}
-				TotalCellNo++;
-				if (NoRows < rs2.getInt(5))
-					NoRows = rs2.getInt(5);
-				if (NoColumn < rs2.getInt(6))
-					NoColumn = rs2.getInt(6);
-				if (rs2.getString(10).toLowerCase().contains("patient"))
-					containsPatientsCell = 1;
-				if (rs2.getString(10).toLowerCase().contains("age"))
-					containsAge = 1;
-				if (rs2.getString(10).toLowerCase().contains("n=")
-						|| rs2.getString(10).toLowerCase().contains("n ="))
-					containsN = 1;
-				if (rs2.getString(10).toLowerCase().contains("inclusion")
-						|| rs2.getString(10).toLowerCase()
-								.contains("exclusion"))
-					containsInclusionExclusionCell = 1;
+			if (CellType.equalsIgnoreCase("Partially Numeric")) {
+				CellSemiNumeric++;
 			}
-			NoRows++;
-			NoColumn++;
-			if(tableid == 260)
-			{
-				System.out.println("I am here!");
+			if (CellType.equalsIgnoreCase("Numeric")) {
+				CellNumeric++;
 			}
-			if (Caption.toLowerCase().contains("patient"))
-				containsPatientsCap = 1;
-			if (Caption.toLowerCase().contains("characteristic"))
-				containsCharacteristicCap = 1;
-			if (Caption.toLowerCase().contains("demograph"))
-				containsDemographic = 1;
-			if (Caption.toLowerCase().contains("baseline"))
-				containsBaseline = 1;
-			if (Caption.toLowerCase().contains("trial"))
-				containsBaseline = 1;
-			if (Caption.toLowerCase().contains("inclusion"))
-				containsBaseline = 1;
-			if (Caption.toLowerCase().contains("exclusion"))
-				ContainsExclusion = 1;
-			if (Caption.toLowerCase().contains("adverse"))
-				ContainsAdverse = 1;
-			if (Caption.toLowerCase().contains("side effect"))
-				ContainsAdverse = 1;
-			if (Caption.toLowerCase().contains("eligibi"))
-				containsEglibility = 1;
-			if (Caption.toLowerCase().contains("toxicity"))
-				containsToxicity = 1;
-			if (Caption.toLowerCase().contains("haematologic"))
-				containsToxicity = 1;
-			if (Caption.toLowerCase().contains("criteria"))
-				containsCriteria = 1;
-
-			SQL = "select * from annotation inner join cell on cell.idCell=annotation.Cell_idCell where  annotation.AgentName='MetaMap' and AnnotationDescription LIKE '%Symptom%' and Table_idTable="
-					+ tableid;
-			Statement st3 = conn.createStatement();
-			ResultSet rs3 = st3.executeQuery(SQL);
-			rs3.last();
-			int size = rs3.getRow();
-			rs3.beforeFirst();
-			if (size > 0) {
-				ContainsSignOrSymptomAnnotation = 1;
+			if (CellType.equalsIgnoreCase("Text")) {
+				CellText++;
+			}
+			TotalCellNo++;
+			if (NoRows < cell.getRow_number())
+				NoRows = cell.getRow_number();
+			if (NoColumn < cell.getColumn_number())
+				NoColumn = cell.getColumn_number();
+			String content = cell.getCell_content().toLowerCase();
+			if (content.contains("patient"))
+				containsPatientsCell = 1;
+			if (content.contains("age"))
+				containsAge = 1;
+			if (content.contains("n=")
+					|| content.contains("n ="))
+				containsN = 1;
+			if (content.contains("inclusion")
+					|| content.contains("exclusion"))
+				containsInclusionExclusionCell = 1;
+			// the repository reads only MetaMap sign or symptom annotations
+			for (Annotation annot : cell.annotations) {
+				if (annot.getDescription() != null && annot.getDescription().toLowerCase().contains("symptom"))
+					ContainsSignOrSymptomAnnotation = 1;
 			}
+		}
+		NoRows++;
+		NoColumn++;
+		if (Caption.toLowerCase().contains("patient"))
+			containsPatientsCap = 1;
+		if (Caption.toLowerCase().contains("characteristic"))
+			containsCharacteristicCap = 1;
+		if (Caption.toLowerCase().contains("demograph"))
+			containsDemographic = 1;
+		if (Caption.toLowerCase().contains("baseline"))
+			containsBaseline = 1;
+		if (Caption.toLowerCase().contains("trial"))
+			containsBaseline = 1;
+		if (Caption.toLowerCase().contains("inclusion"))
+			containsBaseline = 1;
+		if (Caption.toLowerCase().contains("exclusion"))
+			ContainsExclusion = 1;
+		if (Caption.toLowerCase().contains("adverse"))
+			ContainsAdverse = 1;
+		if (Caption.toLowerCase().contains("side effect"))
+			ContainsAdverse = 1;
+		if (Caption.toLowerCase().contains("eligibi"))
+			containsEglibility = 1;
+		if (Caption.toLowerCase().contains("toxicity"))
+			containsToxicity = 1;
+		if (Caption.toLowerCase().contains("haematologic"))
+			containsToxicity = 1;
+		if (Caption.toLowerCase().contains("criteria"))
+			containsCriteria = 1;
 
-			CellEmpty = ((float) (CellEmpty)) / ((float) (TotalCellNo)) * 100;
-			CellText = ((float) (CellText)) / ((float) (TotalCellNo)) * 100;
-			CellNumeric = ((float) (CellNumeric)) / ((float) (TotalCellNo))
-					* 100;
-			CellSemiNumeric = ((float) (CellSemiNumeric))
-					/ ((float) (TotalCellNo)) * 100;
-			String prediction = "";
-			Instances ins = null;
-			Attribute NoRowsAttribute = new Attribute("NoRows");
-			Attribute NoColumnsAttribute = new Attribute("NoColumn");
-			Attribute TotalCellsAttribute = new Attribute("TotalCellNo");
-			Attribute EmptyCellsAttribute = new Attribute("CellEmpty");
-			Attribute CellNumericAttribute = new Attribute("CellNumeric");
-			Attribute CellSemiNumericAttribute = new Attribute(
-					"CellSemiNumeric");
-			Attribute CellTextAttribute = new Attribute("CellText");
-			Attribute ContainsAdverseAttribute = new Attribute(
-					"ContainsAdverse");
-			Attribute containsAgeAttribute = new Attribute("containsAge");
-			Attribute containsBaselineAttribute = new Attribute(
-					"containsBaseline");
-			Attribute containsCharacteristicCapAttribute = new Attribute(
-					"containsCharacteristicCap");
-			Attribute containsDemographicAttribute = new Attribute(
-					"containsDemographic");
-			Attribute ContainsExclusionAttribute = new Attribute(
-					"ContainsExclusion");
-			Attribute ContainsInclusionAttribute = new Attribute(
-					"ContainsInclusion");
-			Attribute containsNAttribute = new Attribute("containsN");
-			Attribute containsPatientsCapAttribute = new Attribute(
-					"containsPatientsCap");
-			Attribute containsPatientsCellAttribute = new Attribute(
-					"containsPatientsCell");
-			Attribute ContainsSideEffectAttribute = new Attribute(
-					"ContainsSideEffect");
-			Attribute ContainsSignOrSymptomAnnotationAttribute = new Attribute(
-					"ContainsSignOrSymptomAnnotation");
-			Attribute containsEglibilityAttribute = new Attribute(
-					"containsEglibility");
-			Attribute containsToxicityAttribute = new Attribute(
-					"containsToxicity");
-			Attribute containsInclusionExclusionCellAttribute = new Attribute(
-					"containsInclusionExclusionCell");
-			Attribute containsHaematologicAttribute = new Attribute(
-					"containsHaematologic");
+		CellEmpty = ((float) (CellEmpty)) / ((float) (TotalCellNo)) * 100;
+		CellText = ((float) (CellText)) / ((float) (TotalCellNo)) * 100;
+		CellNumeric = ((float) (CellNumeric)) / ((float) (TotalCellNo))
+				* 100;
+		CellSemiNumeric = ((float) (CellSemiNumeric))
+				/ ((float) (TotalCellNo)) * 100;
+		return new double[] { NoRows, NoColumn, TotalCellNo, CellEmpty,
+				CellNumeric, CellSemiNumeric, CellText, ContainsAdverse,
+				containsAge, containsBaseline, containsCharacteristicCap,
+				containsDemographic, ContainsExclusion, ContainsInclusion,
+				containsN, containsPatientsCap, containsPatientsCell,
+				ContainsSideEffect, ContainsSignOrSymptomAnnotation,
+				containsEglibility, containsToxicity,
+				containsInclusionExclusionCell, containsHaematologic,
+				containsTrialCap, containsCriteria };
+	}
 
-			Attribute containsTrialCapAttribute = new Attribute(
-					"containsTrialCap");
-			Attribute containsCriteriaAttribute = new Attribute(
-					"containsCriteria");
-			FastVector fvClassVal = new FastVector(4);
-			// AdverseEvent,InclusionExclusion,DontCare,BaselineCharacteristic
-			fvClassVal.addElement("AdverseEvent");
-			fvClassVal.addElement("InclusionExclusion");
-			fvClassVal.addElement("Other");
-			fvClassVal.addElement("BaselineCharacteristic");
-			Attribute ClassAttribute = new Attribute("clas", fvClassVal);
-			// Declare the feature vector
-			FastVector fvWekaAttributes = new FastVector(26);
+	/**
+	 * Classifies the features of a table with the model.
+	 *
+	 * @param features the features (getFeatures)
+	 * @return the class
+	 * @throws Exception the exception
+	 */
+	public String classify(double[] features) throws Exception {
+		String prediction = "";
+		Instances ins = null;
+		Attribute NoRowsAttribute = new Attribute("NoRows");
+		Attribute NoColumnsAttribute = new Attribute("NoColumn");
+		Attribute TotalCellsAttribute = new Attribute("TotalCellNo");
+		Attribute EmptyCellsAttribute = new Attribute("CellEmpty");
+		Attribute CellNumericAttribute = new Attribute("CellNumeric");
+		Attribute CellSemiNumericAttribute = new Attribute(
+				"CellSemiNumeric");
+		Attribute CellTextAttribute = new Attribute("CellText");
+		Attribute ContainsAdverseAttribute = new Attribute(
+				"ContainsAdverse");
+		Attribute containsAgeAttribute = new Attribute("containsAge");
+		Attribute containsBaselineAttribute = new Attribute(
+				"containsBaseline");
+		Attribute containsCharacteristicCapAttribute = new Attribute(
+				"containsCharacteristicCap");
+		Attribute containsDemographicAttribute = new Attribute(
+				"containsDemographic");
+		Attribute ContainsExclusionAttribute = new Attribute(
+				"ContainsExclusion");
+		Attribute ContainsInclusionAttribute = new Attribute(
+				"ContainsInclusion");
+		Attribute containsNAttribute = new Attribute("containsN");
+		Attribute containsPatientsCapAttribute = new Attribute(
+				"containsPatientsCap");
+		Attribute containsPatientsCellAttribute = new Attribute(
+				"containsPatientsCell");
+		Attribute ContainsSideEffectAttribute = new Attribute(
+				"ContainsSideEffect");
+		Attribute ContainsSignOrSymptomAnnotationAttribute = new Attribute(
+				"ContainsSignOrSymptomAnnotation");
+		Attribute containsEglibilityAttribute = new Attribute(
+				"containsEglibility");
+		Attribute containsToxicityAttribute = new Attribute(
+				"containsToxicity");
+		Attribute containsInclusionExclusionCellAttribute = new Attribute(
+				"containsInclusionExclusionCell");
+		Attribute containsHaematologicAttribute = new Attribute(
+				"containsHaematologic");
 
-			fvWekaAttributes.addElement(NoRowsAttribute);
-			fvWekaAttributes.addElement(NoColumnsAttribute);
-			fvWekaAttributes.addElement(TotalCellsAttribute);
-			fvWekaAttributes.addElement(EmptyCellsAttribute);
-			fvWekaAttributes.addElement(CellNumericAttribute);
-			fvWekaAttributes.addElement(CellSemiNumericAttribute);
-			fvWekaAttributes.addElement(CellTextAttribute);
-			fvWekaAttributes.addElement(ContainsAdverseAttribute);
-			fvWekaAttributes.addElement(containsAgeAttribute);
-			fvWekaAttributes.addElement(containsBaselineAttribute);
-			fvWekaAttributes.addElement(containsCharacteristicCapAttribute);
-			fvWekaAttributes.addElement(containsDemographicAttribute);
-			fvWekaAttributes.addElement(ContainsExclusionAttribute);
-			fvWekaAttributes.addElement(ContainsInclusionAttribute);
-			fvWekaAttributes.addElement(containsNAttribute);
-			fvWekaAttributes.addElement(containsPatientsCapAttribute);
-			fvWekaAttributes.addElement(containsPatientsCellAttribute);
-			fvWekaAttributes.addElement(ContainsSideEffectAttribute);
-			fvWekaAttributes
-					.addElement(ContainsSignOrSymptomAnnotationAttribute);
-			fvWekaAttributes.addElement(containsEglibilityAttribute);
-			fvWekaAttributes.addElement(containsToxicityAttribute);
-			fvWekaAttributes
-					.addElement(containsInclusionExclusionCellAttribute);
-			fvWekaAttributes.addElement(containsHaematologicAttribute);
+		Attribute containsTrialCapAttribute = new Attribute(
+				"containsTrialCap");
+		Attribute containsCriteriaAttribute = new Attribute(
+				"containsCriteria");
+		FastVector fvClassVal = new FastVector(4);
+		// AdverseEvent,InclusionExclusion,DontCare,BaselineCharacteristic
+		fvClassVal.addElement("AdverseEvent");
+		fvClassVal.addElement("InclusionExclusion");
+		fvClassVal.addElement("Other");
+		fvClassVal.addElement("BaselineCharacteristic");
+		Attribute ClassAttribute = new Attribute("clas", fvClassVal);
+		// Declare the feature vector
+		FastVector fvWekaAttributes = new FastVector(26);
 
-			fvWekaAttributes.addElement(containsTrialCapAttribute);
-			fvWekaAttributes.addElement(containsCriteriaAttribute);
-			fvWekaAttributes.addElement(ClassAttribute);
-			Instances Instances = new Instances("Rel", fvWekaAttributes, 0);
+		fvWekaAttributes.addElement(NoRowsAttribute);
+		fvWekaAttributes.addElement(NoColumnsAttribute);
+		fvWekaAttributes.addElement(TotalCellsAttribute);
+		fvWekaAttributes.addElement(EmptyCellsAttribute);
+		fvWekaAttributes.addElement(CellNumericAttribute);
+		fvWekaAttributes.addElement(CellSemiNumericAttribute);
+		fvWekaAttributes.addElement(CellTextAttribute);
+		fvWekaAttributes.addElement(ContainsAdverseAttribute);
+		fvWekaAttributes.addElement(containsAgeAttribute);
+		fvWekaAttributes.addElement(containsBaselineAttribute);
+		fvWekaAttributes.addElement(containsCharacteristicCapAttribute);
+		fvWekaAttributes.addElement(containsDemographicAttribute);
+		fvWekaAttributes.addElement(ContainsExclusionAttribute);
+		fvWekaAttributes.addElement(ContainsInclusionAttribute);
+		fvWekaAttributes.addElement(containsNAttribute);
+		fvWekaAttributes.addElement(containsPatientsCapAttribute);
+		fvWekaAttributes.addElement(containsPatientsCellAttribute);
+		fvWekaAttributes.addElement(ContainsSideEffectAttribute);
+		fvWekaAttributes
+				.addElement(ContainsSignOrSymptomAnnotationAttribute);
+		fvWekaAttributes.addElement(containsEglibilityAttribute);
+		fvWekaAttributes.addElement(containsToxicityAttribute);
+		fvWekaAttributes
+				.addElement(containsInclusionExclusionCellAttribute);
+		fvWekaAttributes.addElement(containsHaematologicAttribute);
 
-			Instance iExample = new DenseInstance(26);
-			Attribute attribute = (Attribute) fvWekaAttributes.elementAt(0);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(0), NoRows);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(1),
-					NoColumn);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(2),
-					TotalCellNo);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(3),
-					CellEmpty);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(4),
-					CellNumeric);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(5),
-					CellSemiNumeric);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(6),
-					CellText);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(7),
-					ContainsAdverse);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(8),
-					containsAge);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(9),
-					containsBaseline);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(10),
-					containsCharacteristicCap);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(11),
-					containsDemographic);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(12),
-					ContainsExclusion);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(13),
-					ContainsInclusion);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(14),
-					containsN);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(15),
-					containsPatientsCap);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(16),
-					containsPatientsCell);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(17),
-					ContainsSideEffect);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(18),
-					ContainsSignOrSymptomAnnotation);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(19),
-					containsEglibility);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(20),
-					containsToxicity);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(21),
-					containsInclusionExclusionCell);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(22),
-					containsHaematologic);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(23),
-					containsTrialCap);
-			iExample.setValue((Attribute) fvWekaAttributes.elementAt(24),
-					containsCriteria);
-			Instances.add(iExample);
-			Instances.setClassIndex(25);
-			Instance inst = Instances.firstInstance();
+		fvWekaAttributes.addElement(containsTrialCapAttribute);
+		fvWekaAttributes.addElement(containsCriteriaAttribute);
+		fvWekaAttributes.addElement(ClassAttribute);
+		Instances Instances = new Instances("Rel", fvWekaAttributes, 0);
 
-			double result = classifier.classifyInstance(Instances
-					.firstInstance());
-			Instances.firstInstance().setClassValue(result);
-			prediction = Instances.firstInstance().classAttribute()
-					.value((int) result);
-			if (prediction.equalsIgnoreCase("other")) {
-				prediction = "NotInteresting";
-			}
-			classification = prediction;
+		Instance iExample = new DenseInstance(26);
+		for (int i = 0; i < features.length; i++)
+			iExample.setValue((Attribute) fvWekaAttributes.elementAt(i), features[i]);
+		Instances.add(iExample);
+		Instances.setClassIndex(25);
+		Instance inst = Instances.firstInstance();
 
-		} catch (Exception ex) {
-			ex.printStackTrace();
+		double result = classifier.get().classifyInstance(Instances
+				.firstInstance());
+		Instances.firstInstance().setClassValue(result);
+		prediction = Instances.firstInstance().classAttribute()
+				.value((int) result);
+		if (prediction.equalsIgnoreCase("other")) {
+			prediction = "NotInteresting";
 		}
-		return classification;
+		return prediction;
 	}
 
 	public static void main(String[] args) {
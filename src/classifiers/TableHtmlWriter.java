@@ -0,0 +1,162 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package classifiers;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import tablInEx.Table;
+
+/**
+ * The Class TableHtmlWriter. Writes the XML of classified tables to a folder per class
+ * (folder/class/document+title.html) in the background, so classification does not wait for files and
+ * folders. Tables wait in a bounded queue (a full queue blocks the classifying thread) and are written by one
+ * writer thread; the folder of a class is created once.
+ */
+public class TableHtmlWriter {
+
+	/** The default number of tables waiting to be written. */
+	public static final int DEFAULT_QUEUE_SIZE = 256;
+
+	/** Marks the end of the queue. */
+	private static final String[] STOP = new String[0];
+
+	private File folder;
+	private BlockingQueue<String[]> queue;
+	private Thread writer;
+	private Thread shutdownHook;
+	private HashSet<String> folders = new HashSet<String>();
+	private boolean closed = false;
+
+	private long submitted = 0;
+	private long written = 0;
+	private long failed = 0;
+
+	/**
+	 * Instantiates a new writer and starts its thread.
+	 *
+	 * @param folderName the folder of the class folders, "" for the working directory
+	 * @param queueSize the maximal number of tables waiting to be written
+	 */
+	public TableHtmlWriter(String folderName, int queueSize)
+	{
+		// new File(new File(""), name) is name under the root, so the working directory has no parent
+		folder = folderName.isEmpty()?null:new File(folderName);
+		queue = new ArrayBlockingQueue<String[]>(Math.max(1, queueSize));
+		writer = new Thread(new Runnable() {
+			public void run() {
+				write();
+			}
+		}, "TableHtmlWriter");
+		writer.setDaemon(true);
+		writer.start();
+		// tables still in the queue are written when the program ends without calling close
+		shutdownHook = new Thread(new Runnable() {
+			public void run() {
+				close();
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Submits the table of the class for writing, waiting while the queue is full.
+	 *
+	 * @param t the table
+	 * @param tableClass the class
+	 */
+	public void submit(Table t, String tableClass)
+	{
+		synchronized(this)
+		{
+			if(closed)
+				throw new IllegalStateException("Writer is closed");
+			submitted++;
+		}
+		try{
+			queue.put(new String[]{tableClass, t.getDocumentFileName()+t.getTable_title()+".html", t.getXml()});
+		}catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			synchronized(this)
+			{
+				failed++;
+			}
+		}
+	}
+
+	private void write()
+	{
+		while(true)
+		{
+			String[] table;
+			try{
+				table = queue.take();
+			}catch(InterruptedException ex)
+			{
+				break;
+			}
+			if(table==STOP)
+				break;
+			try{
+				File classFolder = new File(folder, table[0]);
+				if(folders.add(table[0]))
+					classFolder.mkdirs();
+				Writer w = new OutputStreamWriter(new FileOutputStream(new File(classFolder, table[1])), "UTF-8");
+				w.write(table[2]+System.getProperty("line.separator"));
+				w.close();
+				synchronized(this)
+				{
+					written++;
+				}
+			}catch(Exception ex)
+			{
+				ex.printStackTrace();
+				synchronized(this)
+				{
+					failed++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes all submitted tables, then stops the writer.
+	 */
+	public void close()
+	{
+		synchronized(this)
+		{
+			if(closed)
+				return;
+			closed = true;
+		}
+		try{
+			queue.put(STOP);
+			writer.join();
+		}catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		try{
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		}catch(IllegalStateException ex)
+		{
+			// closed by the hook while the program ends
+		}
+	}
+
+	public synchronized String getStatistics()
+	{
+		return "Table HTML: "+submitted+" tables submitted, "+written+" written, "+failed+" failed";
+	}
+
+}
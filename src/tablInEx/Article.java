@@ -37,6 +37,7 @@ public class Article {
 	private String journal_name;
 	private String spec_id;
 	private String source;
+	private String content_hash;
 	
 	
 	//Constructors
@@ -223,5 +224,19 @@ public class Article {
 		this.source = source;
 	}
 
+	/**
+	 * @return the SHA-1 hash of the file the article was read from, when saving incrementally
+	 */
+	public String getContent_hash() {
+		return content_hash;
+	}
+
+	/**
+	 * @param content_hash the content_hash to set
+	 */
+	public void setContent_hash(String content_hash) {
+		this.content_hash = content_hash;
+	}
+
 
 }
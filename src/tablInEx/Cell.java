@@ -28,6 +28,8 @@ public class Cell {
 	private String super_row_ref;
 	public LinkedList<String> CellRoles = new LinkedList<String>();
 	public LinkedList<Annotation> annotations = new LinkedList<Annotation>();
+	/** Semantic annotation of the cell failed, it has to be annotated again later. */
+	public boolean semanticBackfill = false;
 	public LinkedList<String>headers = new LinkedList<String>();
 	public LinkedList<String>stubs = new LinkedList<String>();
 	
@@ -349,10 +351,14 @@ public class Cell {
 		
 		int numbers = 0;
 		int chars = 0;
-		String tempCellVal = this.getCell_content().replaceAll("[\\s\\xA0]","");
-		for(int i=0;i<tempCellVal.length();i++)
+		String content = this.getCell_content();
+		for(int i=0;i<content.length();i++)
 		{
-			if(Utilities.isNumeric(tempCellVal.substring(i, i+1)) )
+			char ch = content.charAt(i);
+			// white space ([\s\xA0]) is not counted; a single character is numeric only if it is a digit
+			if(ch==' ' || ch=='\t' || ch=='\n' || ch=='\u000B' || ch=='\f' || ch=='\r' || ch=='\u00A0')
+				continue;
+			if(ch>='0' && ch<='9')
 			{
 				numbers++;
 			}
@@ -363,11 +369,11 @@ public class Cell {
 		}
 		float proportion = (float)numbers / (chars+numbers);
 		//part numeric cell
-		if(proportion>0.49 && !Utilities.isNumeric(this.getCell_content()))
+		if(proportion>0.49)
 		{
 			return "Partially Numeric";
 		}
-		if(proportion<=0.49 && !Utilities.isNumeric(this.getCell_content()))
+		if(proportion<=0.49)
 		{
 			return "Text";
 		}
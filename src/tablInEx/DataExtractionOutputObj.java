@@ -7,6 +7,9 @@ import gov.nih.nlm.nls.metamap.Position;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -25,6 +28,9 @@ public class DataExtractionOutputObj {
 	private String filename;
 	private Document XMLDocument;
 	private Document XMLDocumentTagged;
+	private NavigationPathRecord record;
+	/** MetaMap classifications of texts of the table, while the table is tagged. */
+	private Map<String, Map<Object, Object>> classifications;
 	
 	public DataExtractionOutputObj(String f, Document doc)
 	{
@@ -32,8 +38,81 @@ public class DataExtractionOutputObj {
 		XMLDocument = doc;
 	}
 	
+	/**
+	 * Instantiates output object from the decomposition record. DOM document is built only when requested.
+	 *
+	 * @param f the file name of the output in per cell layout
+	 * @param rec the navigation path record
+	 */
+	public DataExtractionOutputObj(String f, NavigationPathRecord rec)
+	{
+		filename = f;
+		record = rec;
+	}
+	
+	/**
+	 * Tags documents of all cells of a table. Texts of all cells (navigation path, value, table name,
+	 * footer and document title) are first sent to MetaMap in batches, so there is no request per text.
+	 *
+	 * @param outputs the outputs of the table
+	 */
+	public static void MetamapTagTable(List<DataExtractionOutputObj> outputs)
+	{
+		LinkedHashSet<String> texts = new LinkedHashSet<String>();
+		for(DataExtractionOutputObj obj:outputs)
+			obj.collectTexts(texts);
+		Map<String, Map<Object, Object>> classifications = null;
+		try{
+			classifications = MetaMapping.getInstance().getClassifications(texts);
+		}catch(Exception ex)
+		{
+			// cells are tagged one text at a time
+			ex.printStackTrace();
+		}
+		for(DataExtractionOutputObj obj:outputs)
+		{
+			obj.classifications = classifications;
+			obj.MetamapTagDocument();
+			obj.classifications = null;
+		}
+	}
+
+	/**
+	 * Collects texts that MetamapTagDocument sends to MetaMap.
+	 */
+	private void collectTexts(Collection<String> texts)
+	{
+		Document XMLDocument = getXMLDocument();
+		if(XMLDocument==null)
+			return;
+		String[] tags = {"Head00", "HeaderValue", "value", "tableName", "tableFooter", "DocumentTitle"};
+		for(String tag:tags)
+		{
+			NodeList nodes = XMLDocument.getElementsByTagName(tag);
+			String str = "";
+			if(nodes!=null && nodes.item(0)!=null)
+				str = nodes.item(0).getTextContent();
+			texts.add(str.replaceAll("'", ""));
+		}
+		NodeList Stub = XMLDocument.getElementsByTagName("Stub");
+		if(Stub!=null && Stub.item(0)!=null)
+		{
+			NodeList stubVals = Stub.item(0).getChildNodes();
+			for(int j = 0;j<stubVals.getLength();j++)
+				texts.add(stubVals.item(j).getTextContent().replaceAll("'", ""));
+		}
+	}
+
+	private Map<Object, Object> classify(MetaMapping mp, String text) throws Exception
+	{
+		if(classifications!=null && classifications.containsKey(text))
+			return classifications.get(text);
+		return mp.getClassification(text);
+	}
+
 	public void MetamapTagDocument()
 	{
+		Document XMLDocument = getXMLDocument();
 		NodeList Head00 = XMLDocument.getElementsByTagName("Head00");
 		NodeList HeaderValue = XMLDocument.getElementsByTagName("HeaderValue");
 		NodeList Stub = XMLDocument.getElementsByTagName("Stub");
@@ -67,9 +146,9 @@ public class DataExtractionOutputObj {
 		}
 		Head00Str = Head00Str.replaceAll("'", "");
 
-		 MetaMapping mp = new MetaMapping();
+		 MetaMapping mp = MetaMapping.getInstance();
 		 System.out.print("initiated");
-		 Map<Object, Object> aMap = mp.getClassification(Head00Str);
+		 Map<Object, Object> aMap = classify(mp, Head00Str);
 		 System.out.println("query sent");
 		 Element RootElement = doc.createElement("Information");
 		 Element Cell = doc.createElement("Cell");
@@ -111,9 +190,8 @@ public class DataExtractionOutputObj {
 			 HeaderValueStr = HeaderValue.item(0).getTextContent();
 		 }
 		 HeaderValueStr = HeaderValueStr.replaceAll("'", "");
-		 mp = new MetaMapping();
 		 System.out.print("initiated");
-		 aMap = mp.getClassification(HeaderValueStr);
+		 aMap = classify(mp, HeaderValueStr);
 		 System.out.println("query sent");
 		 Element HeaderValuee = doc.createElement("HeaderValue");
 		 lastY = 0;
@@ -152,9 +230,8 @@ public class DataExtractionOutputObj {
 			 String nodeName =  stubVals.item(j).getNodeName();
 			 String nodeValue = stubVals.item(j).getTextContent();
 			 nodeValue = nodeValue.replaceAll("'", "");
-			 mp = new MetaMapping();
 			 System.out.print("initiated");
-			 aMap = mp.getClassification(nodeValue);
+			 aMap = classify(mp, nodeValue);
 			 System.out.println("query sent");
 			 Element StubVal = doc.createElement(nodeName);
 			 lastY = 0;
@@ -201,9 +278,8 @@ public class DataExtractionOutputObj {
 		 valueStr = valueStr.replaceAll("'", "");
 		 Element Valuee = doc.createElement("value");
 		 Cell.appendChild(Valuee);
-		 mp = new MetaMapping();
 		 System.out.print("initiated");
-		 aMap = mp.getClassification(valueStr);
+		 aMap = classify(mp, valueStr);
 		 System.out.println("query sent");
 		 lastY = 0;
 		 for(int i = 1;i<aMap.size()-1;i=i+6)
@@ -251,9 +327,8 @@ public class DataExtractionOutputObj {
 			 TableNameStr = tableName.item(0).getTextContent();
 		 }
 		 TableNameStr = TableNameStr.replaceAll("'", "");
-		 mp = new MetaMapping();
 		 System.out.print("initiated");
-		 aMap = mp.getClassification(TableNameStr);
+		 aMap = classify(mp, TableNameStr);
 		 System.out.println("query sent");
 		 lastY = 0;
 		 for(int i = 1;i<aMap.size();i=i+6)
@@ -294,9 +369,8 @@ public class DataExtractionOutputObj {
 			 TableFooterStr = tableFooter.item(0).getTextContent();
 		 }
 		 TableFooterStr = TableFooterStr.replaceAll("'", "");
-		 mp = new MetaMapping();
 		 System.out.print("initiated");
-		 aMap = mp.getClassification(TableFooterStr);
+		 aMap = classify(mp, TableFooterStr);
 		 System.out.println("query sent");
 		 lastY = 0;
 		 for(int i = 1;i<aMap.size();i=i+6)
@@ -333,9 +407,8 @@ public class DataExtractionOutputObj {
 		 }
 		 DocumentTitleStr = DocumentTitleStr.replaceAll("'", "");
 		 Documente.appendChild(DocumentTitlee);
-		 mp = new MetaMapping();
 		 System.out.print("initiated");
-		 aMap = mp.getClassification(DocumentTitleStr);
+		 aMap = classify(mp, DocumentTitleStr);
 		 System.out.println("query sent");
 		 lastY = 0;
 		 for(int i = 1;i<aMap.size();i=i+6)
@@ -391,7 +464,7 @@ public class DataExtractionOutputObj {
 		}
 		else
 		{
-			 source = new DOMSource(XMLDocument);
+			 source = new DOMSource(getXMLDocument());
 		}
 		StreamResult result =  new StreamResult(new File(filename));
 		transformer.transform(source, result);
@@ -426,6 +499,8 @@ public class DataExtractionOutputObj {
 		this.filename = filename;
 	}
 	public Document getXMLDocument() {
+		if(XMLDocument==null && record!=null)
+			XMLDocument = record.toDocument();
 		return XMLDocument;
 	}
 	public void setXMLDocument(Document xMLDocument) {
@@ -433,6 +508,10 @@ public class DataExtractionOutputObj {
 	}
 
 
+	public NavigationPathRecord getRecord() {
+		return record;
+	}
+
 	public Document getXMLDocumentTagged() {
 		return XMLDocumentTagged;
 	}
@@ -0,0 +1,279 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package tablInEx;
+
+/**
+ * The Class NavigationIndex. Precomputed navigational structure of a cell grid: for each
+ * column the chain of header rows, for each row the stub cells and for each cell the super-row
+ * it points to. All lookups are O(1) array reads instead of upward/leftward rescans of the table.
+ *
+ * The index is a snapshot of the header, stub and super-row flags at the time it is built, so it
+ * has to be rebuilt after these flags are changed (e.g. after header checking).
+ */
+public class NavigationIndex {
+
+	/** Header rows of each column in ascending order. */
+	private int[][] columnHeaderRows;
+
+	/** Number of header rows strictly above the cell, i.e. index into columnHeaderRows. */
+	private int[][] headersAbove;
+
+	/** First row of the nearest contiguous block of header rows at or above the cell, -1 if none. */
+	private int[][] headerBlockStart;
+
+	/** Last row of the nearest contiguous block of header rows at or above the cell, -1 if none. */
+	private int[][] headerBlockEnd;
+
+	/** Nearest stub column strictly left of the cell, -1 if none. */
+	private int[][] stubLeft;
+
+	/** Row and column of the super-row the cell points to (parsed SuperRowIndex), -1 if none. */
+	private int[][] superRowRow;
+	private int[][] superRowColumn;
+
+	private int rows;
+	private int columns;
+
+	/**
+	 * Builds the navigation index of the cell grid.
+	 *
+	 * @param cells the cells
+	 */
+	public NavigationIndex(Cell[][] cells)
+	{
+		rows = cells==null?0:cells.length;
+		columns = 0;
+		for(int i = 0;i<rows;i++)
+		{
+			if(cells[i]!=null && cells[i].length>columns)
+				columns = cells[i].length;
+		}
+		headersAbove = new int[rows][];
+		headerBlockStart = new int[rows][];
+		headerBlockEnd = new int[rows][];
+		stubLeft = new int[rows][];
+		superRowRow = new int[rows][];
+		superRowColumn = new int[rows][];
+
+		int[] headerCount = new int[columns];
+		int[] blockStart = new int[columns];
+		int[] blockEnd = new int[columns];
+		boolean[] prevWasHeader = new boolean[columns];
+		for(int j = 0;j<columns;j++)
+		{
+			blockStart[j] = -1;
+			blockEnd[j] = -1;
+		}
+		int[][] headerRows = new int[columns][rows];
+		for(int i = 0;i<rows;i++)
+		{
+			headersAbove[i] = new int[columns];
+			headerBlockStart[i] = new int[columns];
+			headerBlockEnd[i] = new int[columns];
+			stubLeft[i] = new int[columns];
+			superRowRow[i] = new int[columns];
+			superRowColumn[i] = new int[columns];
+			int lastStub = -1;
+			for(int j = 0;j<columns;j++)
+			{
+				Cell c = cellAt(cells, i, j);
+				boolean isHeader = c!=null && c.isIs_header();
+				headersAbove[i][j] = headerCount[j];
+				if(isHeader)
+				{
+					if(!prevWasHeader[j])
+						blockStart[j] = i;
+					blockEnd[j] = i;
+					headerRows[j][headerCount[j]++] = i;
+				}
+				prevWasHeader[j] = isHeader;
+				headerBlockStart[i][j] = blockStart[j];
+				headerBlockEnd[i][j] = blockEnd[j];
+
+				stubLeft[i][j] = lastStub;
+				if(c!=null && c.isIs_stub())
+					lastStub = j;
+
+				superRowRow[i][j] = -1;
+				superRowColumn[i][j] = -1;
+				if(c!=null && c.getSuperRowIndex()!=null)
+				{
+					int dot = c.getSuperRowIndex().indexOf('.');
+					if(dot>0)
+					{
+						try{
+							superRowRow[i][j] = Integer.parseInt(c.getSuperRowIndex().substring(0, dot));
+							superRowColumn[i][j] = Integer.parseInt(c.getSuperRowIndex().substring(dot+1));
+						}catch(NumberFormatException ex)
+						{
+							superRowRow[i][j] = -1;
+							superRowColumn[i][j] = -1;
+						}
+					}
+				}
+			}
+		}
+		columnHeaderRows = new int[columns][];
+		for(int j = 0;j<columns;j++)
+		{
+			columnHeaderRows[j] = new int[headerCount[j]];
+			System.arraycopy(headerRows[j], 0, columnHeaderRows[j], 0, headerCount[j]);
+		}
+	}
+
+	private static Cell cellAt(Cell[][] cells, int row, int column)
+	{
+		if(cells[row]==null || column>=cells[row].length)
+			return null;
+		return cells[row][column];
+	}
+
+	private boolean inRange(int row, int column)
+	{
+		return row>=0 && row<rows && column>=0 && column<columns;
+	}
+
+	/**
+	 * Gets the header rows of the column in ascending order.
+	 *
+	 * @param column the column
+	 * @return the header rows
+	 */
+	public int[] getColumnHeaderRows(int column)
+	{
+		if(column<0 || column>=columns)
+			return new int[0];
+		return columnHeaderRows[column];
+	}
+
+	/**
+	 * Gets the number of header rows strictly above the cell.
+	 *
+	 * @param row the row
+	 * @param column the column
+	 * @return the number of header rows above
+	 */
+	public int getHeadersAbove(int row, int column)
+	{
+		if(!inRange(row, column))
+			return 0;
+		return headersAbove[row][column];
+	}
+
+	/**
+	 * Gets the nearest header row strictly above the cell.
+	 *
+	 * @param row the row
+	 * @param column the column
+	 * @return the header row or -1 if there is none
+	 */
+	public int getHeaderAbove(int row, int column)
+	{
+		int count = getHeadersAbove(row, column);
+		if(count==0)
+			return -1;
+		return columnHeaderRows[column][count-1];
+	}
+
+	/**
+	 * Gets the first row of the nearest contiguous header block at or above the cell.
+	 *
+	 * @param row the row
+	 * @param column the column
+	 * @return the first row of the block or -1 if there is none
+	 */
+	public int getHeaderBlockStart(int row, int column)
+	{
+		if(!inRange(row, column))
+			return -1;
+		return headerBlockStart[row][column];
+	}
+
+	/**
+	 * Gets the last row of the nearest contiguous header block at or above the cell.
+	 *
+	 * @param row the row
+	 * @param column the column
+	 * @return the last row of the block or -1 if there is none
+	 */
+	public int getHeaderBlockEnd(int row, int column)
+	{
+		if(!inRange(row, column))
+			return -1;
+		return headerBlockEnd[row][column];
+	}
+
+	/**
+	 * Gets the nearest stub column strictly left of the cell.
+	 *
+	 * @param row the row
+	 * @param column the column
+	 * @return the stub column or -1 if there is none
+	 */
+	public int getStubLeft(int row, int column)
+	{
+		if(!inRange(row, column))
+			return -1;
+		return stubLeft[row][column];
+	}
+
+	/**
+	 * Gets the row of the super-row the cell is placed under.
+	 *
+	 * @param row the row
+	 * @param column the column
+	 * @return the super-row row or -1 if there is none
+	 */
+	public int getSuperRowRow(int row, int column)
+	{
+		if(!inRange(row, column))
+			return -1;
+		return superRowRow[row][column];
+	}
+
+	/**
+	 * Gets the column of the super-row cell the cell is placed under.
+	 *
+	 * @param row the row
+	 * @param column the column
+	 * @return the super-row column or -1 if there is none
+	 */
+	public int getSuperRowColumn(int row, int column)
+	{
+		if(!inRange(row, column))
+			return -1;
+		return superRowColumn[row][column];
+	}
+
+	/**
+	 * Checks whether the cell is referenced as super-row by one of the next cells in its column.
+	 *
+	 * @param row the row
+	 * @param column the column
+	 * @param window number of rows (including the cell itself) to look at
+	 * @return true, if the cell is a super-row
+	 */
+	public boolean isReferencedAsSuperRow(int row, int column, int window)
+	{
+		if(!inRange(row, column))
+			return false;
+		for(int l = 0;l<window && row+l<rows;l++)
+		{
+			if(superRowRow[row+l][column]==row && superRowColumn[row+l][column]==column)
+				return true;
+		}
+		return false;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+}
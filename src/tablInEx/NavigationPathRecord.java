@@ -0,0 +1,310 @@
+/*
+ * @author: Nikola Milosevic
+ * @affiliation: University of Manchester, School of Computer science
+ *
+ */
+package tablInEx;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * The Class NavigationPathRecord. Compact result of decomposition of one data cell: its navigation
+ * path (Head00, stub with super-rows, header values), value and the table and document it belongs to.
+ * It replaces the DOM document built for every cell; the same XML can be written from it directly
+ * to a stream or, when needed, built as a DOM.
+ */
+public class NavigationPathRecord {
+
+	private static DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
+
+	private int row;
+	private int column;
+	/** Top left header, null if the path has no Head00. */
+	private String head00;
+	/** Super-row values of the stub (SubHeader0..n), null or empty if there are none. */
+	private String[] stubSubHeaders;
+	/** Stub value, null if the path has no Stub. */
+	private String stubValue;
+	private String[] headers;
+	/** Super-row of the cell in list tables, null if there is none. */
+	private String listSubHeader;
+	private String value;
+	private String cellType;
+	private String tableName;
+	private String tableType;
+	private String tableOrder;
+	private String tableFooter;
+	private String documentTitle;
+	private String pmc;
+
+	public NavigationPathRecord(int row, int column)
+	{
+		this.row = row;
+		this.column = column;
+	}
+
+	/**
+	 * Sets the table and document part of the record.
+	 *
+	 * @param table the table
+	 * @param tableType the table type
+	 * @param art the article
+	 */
+	public void setTableInfo(Table table, String tableType, Article art)
+	{
+		this.tableName = table.getTable_caption();
+		this.tableType = tableType;
+		this.tableOrder = table.getTable_title();
+		this.tableFooter = table.getTable_footer();
+		this.documentTitle = art.getTitle();
+		this.pmc = art.getPmc();
+	}
+
+	/**
+	 * Writes the record as information element to the stream.
+	 *
+	 * @param writer the writer
+	 * @param withPosition whether to add row and column attributes to the information element
+	 * @throws XMLStreamException the XML stream exception
+	 */
+	public void write(XMLStreamWriter writer, boolean withPosition) throws XMLStreamException
+	{
+		writer.writeStartElement("information");
+		if(withPosition)
+		{
+			writer.writeAttribute("row", ""+row);
+			writer.writeAttribute("column", ""+column);
+		}
+		writer.writeStartElement("Cell");
+		writer.writeStartElement("NavigationPath");
+		if(head00!=null)
+			writeElement(writer, "Head00", head00);
+		if(stubValue!=null)
+		{
+			writer.writeStartElement("Stub");
+			if(stubSubHeaders!=null)
+			{
+				for(int i = 0;i<stubSubHeaders.length;i++)
+					writeElement(writer, "SubHeader"+i, stubSubHeaders[i]);
+			}
+			writeElement(writer, "StubValue", stubValue);
+			writer.writeEndElement();
+		}
+		if(headers!=null)
+		{
+			for(int s = 0;s<headers.length;s++)
+				writeElement(writer, "HeaderValue"+s, headers[s]);
+		}
+		if(listSubHeader!=null)
+			writeElement(writer, "SubHeader", listSubHeader);
+		writer.writeEndElement();
+		writeElement(writer, "value", value);
+		writeElement(writer, "CellType", cellType);
+		writer.writeEndElement();
+
+		writer.writeStartElement("Table");
+		// Matrix tables have always listed the type before the caption
+		if("Matrix".equals(tableType))
+		{
+			writeElement(writer, "TableType", tableType);
+			writeElement(writer, "tableName", tableName);
+		}
+		else
+		{
+			writeElement(writer, "tableName", tableName);
+			writeElement(writer, "TableType", tableType);
+		}
+		writeElement(writer, "tableOrder", tableOrder);
+		writeElement(writer, "tableFooter", tableFooter);
+		writer.writeEndElement();
+
+		writer.writeStartElement("Document");
+		writeElement(writer, "DocumentTitle", documentTitle);
+		writeElement(writer, "PMC", pmc);
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	private static void writeElement(XMLStreamWriter writer, String name, String text) throws XMLStreamException
+	{
+		writer.writeStartElement(name);
+		if(text!=null)
+			writer.writeCharacters(text);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Builds the DOM document of the record, in the same form as documents created per cell by decomposition.
+	 *
+	 * @return the document
+	 */
+	public Document toDocument()
+	{
+		try{
+			DocumentBuilder docBuilder;
+			synchronized(docFactory)
+			{
+				docBuilder = docFactory.newDocumentBuilder();
+			}
+			Document doc = docBuilder.newDocument();
+			Element rootElement = doc.createElement("information");
+			doc.appendChild(rootElement);
+			Element cell = doc.createElement("Cell");
+			rootElement.appendChild(cell);
+			Element NavigationPath = doc.createElement("NavigationPath");
+			cell.appendChild(NavigationPath);
+			if(head00!=null)
+				appendElement(doc, NavigationPath, "Head00", head00);
+			if(stubValue!=null)
+			{
+				Element Stub = doc.createElement("Stub");
+				if(stubSubHeaders!=null)
+				{
+					for(int i = 0;i<stubSubHeaders.length;i++)
+						appendElement(doc, Stub, "SubHeader"+i, stubSubHeaders[i]);
+				}
+				appendElement(doc, Stub, "StubValue", stubValue);
+				NavigationPath.appendChild(Stub);
+			}
+			if(headers!=null)
+			{
+				for(int s = 0;s<headers.length;s++)
+					appendElement(doc, NavigationPath, "HeaderValue"+s, headers[s]);
+			}
+			if(listSubHeader!=null)
+				appendElement(doc, NavigationPath, "SubHeader", listSubHeader);
+			appendElement(doc, cell, "value", value);
+			appendElement(doc, cell, "CellType", cellType);
+
+			Element tableEl = doc.createElement("Table");
+			rootElement.appendChild(tableEl);
+			if("Matrix".equals(tableType))
+			{
+				appendElement(doc, tableEl, "TableType", tableType);
+				appendElement(doc, tableEl, "tableName", tableName);
+			}
+			else
+			{
+				appendElement(doc, tableEl, "tableName", tableName);
+				appendElement(doc, tableEl, "TableType", tableType);
+			}
+			appendElement(doc, tableEl, "tableOrder", tableOrder);
+			appendElement(doc, tableEl, "tableFooter", tableFooter);
+
+			Element document = doc.createElement("Document");
+			rootElement.appendChild(document);
+			appendElement(doc, document, "DocumentTitle", documentTitle);
+			appendElement(doc, document, "PMC", pmc);
+			return doc;
+		}catch(Exception ex)
+		{
+			ex.printStackTrace();
+		}
+		return null;
+	}
+
+	private static void appendElement(Document doc, Element parent, String name, String text)
+	{
+		Element el = doc.createElement(name);
+		el.setTextContent(text);
+		parent.appendChild(el);
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public int getColumn() {
+		return column;
+	}
+
+	public String getHead00() {
+		return head00;
+	}
+
+	public void setHead00(String head00) {
+		this.head00 = head00;
+	}
+
+	public String[] getStubSubHeaders() {
+		return stubSubHeaders;
+	}
+
+	public String getStubValue() {
+		return stubValue;
+	}
+
+	/**
+	 * Sets the stub of the navigation path.
+	 *
+	 * @param subHeaders the super-row values of the stub, may be null
+	 * @param stubValue the stub value (null is stored as empty stub)
+	 */
+	public void setStub(String[] subHeaders, String stubValue) {
+		this.stubSubHeaders = subHeaders;
+		this.stubValue = stubValue==null?"":stubValue;
+	}
+
+	public String[] getHeaders() {
+		return headers;
+	}
+
+	public void setHeaders(String[] headers) {
+		this.headers = headers;
+	}
+
+	public String getListSubHeader() {
+		return listSubHeader;
+	}
+
+	public void setListSubHeader(String listSubHeader) {
+		this.listSubHeader = listSubHeader;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	public void setValue(String value) {
+		this.value = value;
+	}
+
+	public String getCellType() {
+		return cellType;
+	}
+
+	public void setCellType(String cellType) {
+		this.cellType = cellType;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public String getTableType() {
+		return tableType;
+	}
+
+	public String getTableOrder() {
+		return tableOrder;
+	}
+
+	public String getTableFooter() {
+		return tableFooter;
+	}
+
+	public String getDocumentTitle() {
+		return documentTitle;
+	}
+
+	public String getPmc() {
+		return pmc;
+	}
+
+}
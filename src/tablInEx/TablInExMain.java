@@ -16,16 +16,27 @@ import java.util.LinkedList;
 
 import net.didion.jwnl.JWNL;
 import Annotation.Annotate;
+import Annotation.AnnotationCache;
+import Annotation.AnnotatorRecording;
+import Annotation.AsyncAnnotator;
+import Annotation.MarvinAnnotator;
+import Annotation.RecordReplayAnnotator;
 import ConceptualizationOfValues.ConceptizationStats;
-import DataBase.DataBaseAnnotationSaver;
+import DataBase.AnnotationDictionary;
+import DataBase.ArticleIndex;
+import DataBase.AsyncDataBaseSaver;
+import DataBase.ContentCodec;
+import DataBase.ColumnarExporter;
+import DataBase.DataBaseExporter;
+import DataBase.IdAllocator;
 import Decomposition.Decomposition;
+import Decomposition.MetaMapClientPool;
 import Decomposition.TrialIE2;
 import ExternalResourceHandlers.InformationClass;
 import ExternalResourceHandlers.ResourceReader;
 import FreqIE.FreqIE;
 import IEArmBased.IEArmBased21;
 import LinkedData.DecompositionRDFWriter;
-import Main.MarvinSemAnnotator;
 import Utils.SemanticType;
 import Utils.Utilities;
 import ValueParser.ValueParser;
@@ -42,12 +53,15 @@ import org.apache.log4j.BasicConfigurator;
 public class TablInExMain {
 
 	public static boolean databaseSave = false;
+	public static boolean databaseIncremental = false;
 	public static boolean doStats = false;
 	public static boolean TypeClassify = false;
 	public static boolean ComplexClassify = false;
 	public static boolean learnheaders = false;
 	public static boolean doIE = false;
 	public static String outputDest = "";
+	public static String ieOutputLayout = "table";
+	public static boolean annotationGzip = false;
 	public static boolean doXMLInput = false;
 	public static boolean shouldTag = false;
 	public static boolean IEinSQLTial = false;
@@ -64,8 +78,7 @@ public class TablInExMain {
 	public static HashMap<String, SemanticType> semanticTypes = new HashMap<String, SemanticType>();
 	public static ConceptualizationOfValues.ConceptizationStats concept;
 	public static DecompositionRDFWriter linkedData;
-	public static MarvinSemAnnotator marvin = new MarvinSemAnnotator();
-	public static ValueParser vp = new ValueParser();
+	public static ValueParser vp = new ValueParser(AnnotationCache.DEFAULT_SIZE);
 
 	public static void ReadSemanticTypes() {
 		try {
@@ -180,6 +193,10 @@ public class TablInExMain {
 		if (Arrays.asList(args).contains("-databasesave")) {
 			databaseSave = true;
 		}
+		if (Arrays.asList(args).contains("-databaseincremental")) {
+			databaseSave = true;
+			databaseIncremental = true;
+		}
 		if (Arrays.asList(args).contains("-freq")) {
 			IEFreqSQLTial = true;
 		}
@@ -206,13 +223,125 @@ public class TablInExMain {
 		if (Arrays.asList(args).contains("-doie")) {
 			doIE = true;
 		}
+		if (Arrays.asList(args).contains("-ielayout")) {
+			int i = Arrays.asList(args).indexOf("-ielayout");
+			ieOutputLayout = args[i + 1];
+		}
+		if (Arrays.asList(args).contains("-annotationgzip")) {
+			annotationGzip = true;
+		}
+		if (Arrays.asList(args).contains("-cachesize")) {
+			int i = Arrays.asList(args).indexOf("-cachesize");
+			int size = Integer.parseInt(args[i + 1]);
+			vp.getCache().setMaxSize(size);
+			AnnotationCache.setSize(size);
+		}
+		if (Arrays.asList(args).contains("-annotationstore")) {
+			int i = Arrays.asList(args).indexOf("-annotationstore");
+			AnnotationCache.openStore(args[i + 1]);
+			if (Arrays.asList(args).contains("-compactstore") && AnnotationCache.getStore() != null) {
+				AnnotationCache.getStore().compact();
+			}
+		}
+		if (Arrays.asList(args).contains("-metamapconnections") || Arrays.asList(args).contains("-metamaptimeout")) {
+			int size = MetaMapClientPool.DEFAULT_SIZE;
+			int timeout = MetaMapClientPool.DEFAULT_TIMEOUT;
+			if (Arrays.asList(args).contains("-metamapconnections")) {
+				int i = Arrays.asList(args).indexOf("-metamapconnections");
+				size = Integer.parseInt(args[i + 1]);
+			}
+			if (Arrays.asList(args).contains("-metamaptimeout")) {
+				int i = Arrays.asList(args).indexOf("-metamaptimeout");
+				timeout = Integer.parseInt(args[i + 1]);
+			}
+			MetaMapClientPool.configure(size, timeout);
+		}
+		if (Arrays.asList(args).contains("-annotationthreads") || Arrays.asList(args).contains("-annotationdeadline") || Arrays.asList(args).contains("-annotationretries")) {
+			int threads = AsyncAnnotator.DEFAULT_CONCURRENCY;
+			int deadline = AsyncAnnotator.DEFAULT_DEADLINE;
+			int retries = AsyncAnnotator.DEFAULT_RETRIES;
+			if (Arrays.asList(args).contains("-annotationthreads")) {
+				int i = Arrays.asList(args).indexOf("-annotationthreads");
+				threads = Integer.parseInt(args[i + 1]);
+			}
+			if (Arrays.asList(args).contains("-annotationdeadline")) {
+				int i = Arrays.asList(args).indexOf("-annotationdeadline");
+				deadline = Integer.parseInt(args[i + 1]);
+			}
+			if (Arrays.asList(args).contains("-annotationretries")) {
+				int i = Arrays.asList(args).indexOf("-annotationretries");
+				retries = Integer.parseInt(args[i + 1]);
+			}
+			AsyncAnnotator.setAnnotator(new AsyncAnnotator(new RecordReplayAnnotator(new MarvinAnnotator()), threads, deadline, retries));
+		}
+		if (Arrays.asList(args).contains("-record")) {
+			int i = Arrays.asList(args).indexOf("-record");
+			AnnotatorRecording.start(args[i + 1], AnnotatorRecording.Mode.RECORD);
+		}
+		if (Arrays.asList(args).contains("-replay")) {
+			int i = Arrays.asList(args).indexOf("-replay");
+			AnnotatorRecording recording = AnnotatorRecording.start(args[i + 1], AnnotatorRecording.Mode.REPLAY);
+			if (recording != null && Arrays.asList(args).contains("-replaylatency")) {
+				i = Arrays.asList(args).indexOf("-replaylatency");
+				recording.setFixedLatency(Integer.parseInt(args[i + 1]));
+			}
+			if (recording != null && Arrays.asList(args).contains("-replaylatencyscale")) {
+				i = Arrays.asList(args).indexOf("-replaylatencyscale");
+				recording.setLatencyScale(Double.parseDouble(args[i + 1]));
+			}
+			if (recording != null && Arrays.asList(args).contains("-replayerrors")) {
+				i = Arrays.asList(args).indexOf("-replayerrors");
+				recording.setErrorRate(Double.parseDouble(args[i + 1]));
+				recording.setSeed(0);
+			}
+		}
+		String databaseExport = null;
+		if (Arrays.asList(args).contains("-databaseexport")) {
+			int i = Arrays.asList(args).indexOf("-databaseexport");
+			databaseExport = args[i + 1];
+		}
+		String columnarExport = null;
+		if (Arrays.asList(args).contains("-columnarexport")) {
+			int i = Arrays.asList(args).indexOf("-columnarexport");
+			columnarExport = args[i + 1];
+		}
+		if (Arrays.asList(args).contains("-databasecompress")) {
+			ContentCodec.setCodec(new ContentCodec(ContentCodec.Codec.DEFLATE, null));
+		}
+		if (Arrays.asList(args).contains("-databasearchive")) {
+			int i = Arrays.asList(args).indexOf("-databasearchive");
+			ContentCodec.setCodec(new ContentCodec(ContentCodec.Codec.ARCHIVE, args[i + 1]));
+		}
+		int databaseWriters = AsyncDataBaseSaver.DEFAULT_WRITERS;
+		int databaseQueue = AsyncDataBaseSaver.DEFAULT_QUEUE_SIZE;
+		if (Arrays.asList(args).contains("-databasewriters")) {
+			int i = Arrays.asList(args).indexOf("-databasewriters");
+			databaseWriters = Integer.parseInt(args[i + 1]);
+		}
+		if (Arrays.asList(args).contains("-databasequeue")) {
+			int i = Arrays.asList(args).indexOf("-databasequeue");
+			databaseQueue = Integer.parseInt(args[i + 1]);
+		}
+		if (Arrays.asList(args).contains("-backfill")) {
+			int i = Arrays.asList(args).indexOf("-backfill");
+			AsyncAnnotator.getAnnotator().setBackfillFile(args[i + 1]);
+		}
 
 		if (Arrays.asList(args).contains("-help")) {
 			printHelp();
 			return;
 		}
+		int classifierThreads = classifiers.PragmaticClassifier.DEFAULT_THREADS;
+		if (Arrays.asList(args).contains("-classifierthreads")) {
+			int i = Arrays.asList(args).indexOf("-classifierthreads");
+			classifierThreads = Integer.parseInt(args[i + 1]);
+		}
+		classifiers.TableHtmlWriter tableHtml = null;
+		if (!Arrays.asList(args).contains("-nopragmatichtml")) {
+			tableHtml = new classifiers.TableHtmlWriter("", classifiers.TableHtmlWriter.DEFAULT_QUEUE_SIZE);
+		}
 		classifiers.PragmaticClassifier pc = new classifiers.PragmaticClassifier(
-				"Models/SMOPragmaticAll.model");
+				"Models/SMOPragmaticAll.model", classifierThreads, tableHtml);
 		// classifiers.PragmaticClassifier pc2 = new
 		// classifiers.PragmaticClassifier("Models/SMOPragmaticSupportVsAll.model");
 		// classifiers.PragmaticClassifier pc3 = new
@@ -227,20 +356,57 @@ public class TablInExMain {
 		boolean newrun = true;
 		String LinkedDataFolder = "RDFs";
 
-		int articlecount = 0;
-		DataBaseAnnotationSaver dbas = null;
+		AsyncDataBaseSaver dbas = null;
+		Article savedArticle = null;
+		ArticleIndex articleIndex = null;
+		int unchangedArticles = 0;
+		int replacedArticles = 0;
+		if(databaseIncremental){
+			try{
+				articleIndex = ArticleIndex.load();
+				System.out.println("Articles in the database: " + articleIndex.size());
+			}catch(Exception ex){
+				// saving without the index would duplicate the saved articles
+				ex.printStackTrace();
+				return;
+			}
+		}
 		if(databaseSave){
-		dbas = new DataBaseAnnotationSaver();
+		dbas = new AsyncDataBaseSaver(databaseWriters, databaseQueue, AsyncDataBaseSaver.DEFAULT_RETRIES);
+		}
+		DataBaseExporter exporter = null;
+		if(databaseExport!=null){
+		exporter = new DataBaseExporter(databaseExport);
+		}
+		ColumnarExporter columnarExporter = null;
+		if(columnarExport!=null){
+		columnarExporter = new ColumnarExporter(columnarExport);
 		}
 		//Thread[] threads = new Thread[files.length];
 		for (int a = 0; a < files.length; a++) {			
-			articlecount++;
 			if (ExportLinkedData) {
 				linkedData = new DecompositionRDFWriter();
 			}
+			String contentHash = null;
+			if (articleIndex != null && files[a].isFile()) {
+				try {
+					contentHash = ArticleIndex.hashFile(files[a]);
+				} catch (Exception ex) {
+					ex.printStackTrace();
+				}
+				// unchanged files are skipped before they are read, decomposed and annotated
+				if (contentHash != null && articleIndex.containsContent(contentHash)) {
+					System.out.println("Unchanged: " + files[a].getPath());
+					unchangedArticles++;
+					continue;
+				}
+			}
 			if (runas.toLowerCase().equals("pmc")) {
 				article = runReadingloopOneFile(article, files[a],
 						PMCXMLReader.class);
+				// skipped files return the previous article, which was already submitted for saving
+				if (article == savedArticle)
+					continue;
 				for (int s = 0; s < article.getTables().length; s++) {
 					if (article.getTables()[s]==null || article.getTables()[s].cells == null)
 						continue;
@@ -258,6 +424,9 @@ public class TablInExMain {
 			if (runas.toLowerCase().equals("dailymed")) {
 				article = runReadingloopOneFile(article, files[a],
 						DailyMedReader.class);
+				// skipped files return the previous article, which was already submitted for saving
+				if (article == savedArticle)
+					continue;
 				for (int s = 0; s < article.getTables().length; s++) {
 					if (article.getTables()[s].cells == null)
 						continue;
@@ -270,6 +439,16 @@ public class TablInExMain {
 					article.getTables()[s].original_cells = original_cells;
 				}
 			}
+			if (articleIndex != null && contentHash != null) {
+				// the saver replaces an article saved earlier with the same PMCID or SpecId
+				article.setContent_hash(contentHash);
+				String key = ArticleIndex.key(article.getPmc(), article.getSpec_id());
+				if (key != null) {
+					if (articleIndex.containsKey(key))
+						replacedArticles++;
+					articleIndex.put(key, contentHash);
+				}
+			}
 			Decomposition ie = null;
 			TrialIE2 tie = null;
 			FreqIE tie2 = null;
@@ -306,16 +485,7 @@ public class TablInExMain {
 			}
 
 			if (article != null && article.getTables() != null)
-				for (int j = 0; j < article.getTables().length; j++) {
-					Table t = article.getTables()[j];
-					if(t==null){
-						continue;
-					}
-
-					if (t.isHasHeader()) {
-					}
-					t.PragmaticClass = pc.Classify(t);
-				}
+				pc.Classify(article.getTables());
 
 			if (doIE) {
 
@@ -348,18 +518,57 @@ public class TablInExMain {
 			Annotate annot = new Annotate();
 			annot.AnnotateArticle(article);
 			if(databaseSave){
-			dbas.SaveArticleAnnotationToDB(article);
-			if(articlecount>10)
-			{
-				dbas.CloseDBConnection();
-				dbas = new DataBaseAnnotationSaver();
-				articlecount = 0;
+			dbas.submit(article);
+			savedArticle = article;
+			}
+			if(exporter!=null){
+			exporter.SaveArticleAnnotationToDB(article);
 			}
+			if(columnarExporter!=null){
+			columnarExporter.SaveArticleAnnotationToDB(article);
 			}
 
 		}
 		if(databaseSave){
-		dbas.CloseDBConnection();
+		dbas.close();
+		System.out.println(dbas.getStatistics());
+		if(articleIndex!=null){
+		System.out.println("Incremental save: " + unchangedArticles + " unchanged files skipped, " + replacedArticles + " articles replaced");
+		}
+		System.out.println(IdAllocator.getAllocator().getStatistics());
+		IdAllocator.getAllocator().close();
+		System.out.println(AnnotationDictionary.getConcepts().getStatistics());
+		System.out.println(AnnotationDictionary.getProvenance().getStatistics());
+		AnnotationDictionary.getConcepts().close();
+		AnnotationDictionary.getProvenance().close();
+		}
+		if(exporter!=null){
+		exporter.CloseDBConnection();
+		System.out.println(exporter.getStatistics());
+		}
+		if(columnarExporter!=null){
+		columnarExporter.CloseDBConnection();
+		System.out.println(columnarExporter.getStatistics());
+		}
+		pc.close();
+		if(tableHtml!=null){
+		tableHtml.close();
+		System.out.println(tableHtml.getStatistics());
+		}
+		System.out.println(vp.getCache().getStatistics("Value parser"));
+		System.out.println(AnnotationCache.getCache().getStatistics("Semantic annotation"));
+		if(AnnotationCache.getStore()!=null){
+		System.out.println(AnnotationCache.getStore().getStatistics("Semantic annotation"));
+		}
+		if(MetaMapClientPool.isOpen()){
+		System.out.println(MetaMapClientPool.getPool().getStatistics());
+		}
+		if(AnnotatorRecording.getRecording()!=null){
+		System.out.println(AnnotatorRecording.getRecording().getStatistics());
+		}
+		if(AsyncAnnotator.isStarted()){
+		System.out.println(AsyncAnnotator.getAnnotator().getStatistics());
+		AsyncAnnotator.getAnnotator().shutdown();
 		}
 
 		int weight = 0;
@@ -482,10 +691,60 @@ public class TablInExMain {
 				.println("    -complexclassify - Classify tables by complexity (simple,medium,complex)");
 		System.out
 				.println("    -doie - Tells system do do Information extraction and save it to inputfolder_ie");
+		System.out
+				.println("    -ielayout - followed by table (default), article or cell. Tells system whether to write information extraction output as one file per table, one file per article or one file per cell (older layout)");
+		System.out
+				.println("    -annotationgzip - Write annotation output (_Annotation folder) gzipped, as <pmc>.xml.gz");
+		System.out
+				.println("    -cachesize - followed by number of cell values whose parsed values and semantic annotations are kept in memory (default 50000, 0 disables caching)");
+		System.out
+				.println("    -annotationstore - followed by file where semantic annotations (Marvin, MetaMap) are stored on disk and reused by later runs and other processes. The file is emptied when annotator versions in settings.cfg change");
+		System.out
+				.println("    -compactstore - Compact the annotation store (keep one record per text) before processing. No other process may use the store meanwhile");
+		System.out
+				.println("    -annotationthreads - followed by number of cells annotated by Marvin at the same time (default 4)");
+		System.out
+				.println("    -annotationdeadline - followed by time in milliseconds after which annotation of a cell is given up, including retries (default 30000)");
+		System.out
+				.println("    -annotationretries - followed by number of retries of a failed annotation (default 2). After repeated failures annotation is paused and cells are left without semantic annotations");
+		System.out
+				.println("    -backfill - followed by file where cells left without semantic annotations are listed (PMC, table, cell, text), to be annotated later");
+		System.out
+				.println("    -record - followed by file where responses of Marvin and MetaMap are recorded, with the time each call took");
+		System.out
+				.println("    -replay - followed by recording file. Responses are replayed from the file instead of calling Marvin and MetaMap, after the recorded time");
+		System.out
+				.println("    -replaylatency - followed by time in milliseconds every replayed call takes, instead of the recorded time");
+		System.out
+				.println("    -replaylatencyscale - followed by factor by which recorded times of replayed calls are multiplied");
+		System.out
+				.println("    -replayerrors - followed by share (0 to 1) of replayed calls that fail");
+		System.out
+				.println("    -metamapconnections - followed by maximal number of connections to MetaMap server used by -tag and information extraction (default 4)");
+		System.out
+				.println("    -metamaptimeout - followed by timeout of a MetaMap request in milliseconds (default 60000, 0 waits without limit)");
 		System.out
 				.println("    -learnheaders - Tells system do calculate frequency of phrases in headers. These phrases are stored in a file headers.txt, and can be later used.");
 		System.out
 				.println("    -doHTMLInput2Output - Tells system to take from cells values as they are in XML or HTML format with all included tags. If this is not present, everything will be transformed to text and tags will be ignored");
+		System.out
+				.println("    -databasewriters - followed by number of threads (and database connections) saving articles with -databasesave while the next articles are processed (default 2)");
+		System.out
+				.println("    -databasequeue - followed by number of processed articles that may wait to be saved before processing waits (default 16)");
+		System.out
+				.println("    -databaseexport - followed by folder where articles are written as tab separated files of database tables, with load.sql that loads all runs into an empty database with LOAD DATA (mysql --local-infile=1 database < load.sql). Later runs to the same folder continue the ids, and load.<run>.sql loads only that run into a database holding the earlier runs");
+		System.out
+				.println("    -databaseincremental - Like -databasesave, but files already saved with the same content are skipped before they are processed, and articles saved earlier with the same PMCID (or SpecId) are replaced");
+		System.out
+				.println("    -databasecompress - Article plain text and XML are saved compressed (deflate); view ArticleText shows them decompressed");
+		System.out
+				.println("    -databasearchive - followed by folder where article plain text and XML are written as gzip files named by their hash; the database keeps only the hash and the path in the folder");
+		System.out
+				.println("    -columnarexport - followed by folder where cells and cell annotations are written as compressed columnar files, in batches of "+ColumnarExporter.BATCH_SIZE+" articles, for scans with DataBase.ColumnarReader without the database");
+		System.out
+				.println("    -classifierthreads - followed by number of threads classifying the tables of an article by their pragmatic type (default number of processors)");
+		System.out
+				.println("    -nopragmatichtml - Tables are not written as HTML to folders of their pragmatic class");
 		System.out.println("    -tag - Tag output (using metamap)");
 		System.out
 				.println("    -extractTrialToSQL - Extract information about trial (no of patients, males, females, age range...) and stores it in mySQL database. Has to be executed together with -doIE command");